@@ -0,0 +1,216 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.test.jpa;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.Refset;
+import org.ihtsdo.otf.refset.jpa.RefsetJpa;
+import org.ihtsdo.otf.refset.jpa.helpers.PfsParameterJpa;
+import org.ihtsdo.otf.refset.jpa.services.ProjectServiceJpa;
+import org.ihtsdo.otf.refset.rf2.ConceptRefsetMember;
+import org.ihtsdo.otf.refset.rf2.jpa.ConceptRefsetMemberJpa;
+import org.ihtsdo.otf.refset.services.ProjectService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit testing for RootServiceJpa.applyPfsToList: query restriction filtering,
+ * sorting (nulls first, by date, by nested field) and paging.
+ */
+public class ApplyPfsToListTest extends JpaSupport {
+
+  /** The service. */
+  private ProjectService service;
+
+  /** The members. */
+  private List<ConceptRefsetMember> members;
+
+  /**
+   * Create test fixtures per test.
+   *
+   * @throws Exception the exception
+   */
+  @Before
+  public void setup() throws Exception {
+    service = new ProjectServiceJpa();
+
+    final Refset refsetA = new RefsetJpa();
+    refsetA.setId(1L);
+    refsetA.setName("Alpha refset");
+    final Refset refsetB = new RefsetJpa();
+    refsetB.setId(2L);
+    refsetB.setName("Beta refset");
+
+    members = new ArrayList<>();
+    members.add(makeMember("100", "Heart disease", refsetB, 3000L));
+    members.add(makeMember("200", null, refsetA, 1000L));
+    members.add(makeMember("300", "Heart valve disorder", refsetA, 2000L));
+    members.add(makeMember("400", "Lung disease", refsetB, 4000L));
+  }
+
+  /**
+   * Teardown.
+   *
+   * @throws Exception the exception
+   */
+  @After
+  public void teardown() throws Exception {
+    service.close();
+  }
+
+  /**
+   * Test filtering by query restriction clauses, case-insensitive and with a
+   * trailing wildcard.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testFilter() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final PfsParameterJpa pfs = new PfsParameterJpa();
+    pfs.setQueryRestriction("heart");
+    int[] totalCt = new int[1];
+    List<ConceptRefsetMember> result = service.applyPfsToList(members,
+        ConceptRefsetMember.class, totalCt, pfs);
+    assertEquals(2, totalCt[0]);
+    assertEquals("100", result.get(0).getConceptId());
+    assertEquals("300", result.get(1).getConceptId());
+
+    pfs.setQueryRestriction("DISEAS* AND heart");
+    totalCt = new int[1];
+    result = service.applyPfsToList(members, ConceptRefsetMember.class,
+        totalCt, pfs);
+    assertEquals(1, totalCt[0]);
+    assertEquals("100", result.get(0).getConceptId());
+
+    // The list itself is not filtered
+    assertEquals(4, members.size());
+  }
+
+  /**
+   * Test sorting with null values first, descending and by date.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testSort() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final PfsParameterJpa pfs = new PfsParameterJpa();
+    pfs.setSortField("conceptName");
+    List<ConceptRefsetMember> result = service.applyPfsToList(
+        new ArrayList<>(members), ConceptRefsetMember.class, new int[1], pfs);
+    assertEquals("200", result.get(0).getConceptId());
+    assertEquals("100", result.get(1).getConceptId());
+    assertEquals("300", result.get(2).getConceptId());
+    assertEquals("400", result.get(3).getConceptId());
+
+    pfs.setAscending(false);
+    result = service.applyPfsToList(new ArrayList<>(members),
+        ConceptRefsetMember.class, new int[1], pfs);
+    assertEquals("400", result.get(0).getConceptId());
+    assertEquals("200", result.get(3).getConceptId());
+
+    // Dates compare by time, not by their string form
+    pfs.setAscending(true);
+    pfs.setSortField("lastModified");
+    result = service.applyPfsToList(new ArrayList<>(members),
+        ConceptRefsetMember.class, new int[1], pfs);
+    assertEquals("200", result.get(0).getConceptId());
+    assertEquals("300", result.get(1).getConceptId());
+    assertEquals("100", result.get(2).getConceptId());
+    assertEquals("400", result.get(3).getConceptId());
+  }
+
+  /**
+   * Test sorting on a nested field and on the same property name of another
+   * class, the accessors are cached per class.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testSortNestedAndAccessorCache() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final PfsParameterJpa pfs = new PfsParameterJpa();
+    pfs.setSortField("refset.name");
+    List<ConceptRefsetMember> result = service.applyPfsToList(
+        new ArrayList<>(members), ConceptRefsetMember.class, new int[1], pfs);
+    assertEquals("Alpha refset", result.get(0).getRefset().getName());
+    assertEquals("Alpha refset", result.get(1).getRefset().getName());
+    assertEquals("Beta refset", result.get(2).getRefset().getName());
+    assertEquals("Beta refset", result.get(3).getRefset().getName());
+
+    // "name" was looked up on RefsetJpa above; sorting refsets by it again and
+    // members by conceptName must still use the right getters
+    final List<Refset> refsets = new ArrayList<>();
+    refsets.add(members.get(0).getRefset());
+    refsets.add(members.get(1).getRefset());
+    pfs.setSortField("name");
+    final List<Refset> sortedRefsets =
+        service.applyPfsToList(refsets, Refset.class, new int[1], pfs);
+    assertEquals("Alpha refset", sortedRefsets.get(0).getName());
+
+    pfs.setSortField("conceptName");
+    result = service.applyPfsToList(new ArrayList<>(members),
+        ConceptRefsetMember.class, new int[1], pfs);
+    assertEquals("200", result.get(0).getConceptId());
+
+    // An unsortable field leaves the order unchanged
+    pfs.setSortField("notes");
+    result = service.applyPfsToList(new ArrayList<>(members),
+        ConceptRefsetMember.class, new int[1], pfs);
+    assertEquals("100", result.get(0).getConceptId());
+  }
+
+  /**
+   * Test paging after filtering and sorting.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testPaging() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final PfsParameterJpa pfs = new PfsParameterJpa();
+    pfs.setQueryRestriction("disease");
+    pfs.setSortField("conceptId");
+    pfs.setStartIndex(1);
+    pfs.setMaxResults(5);
+    final int[] totalCt = new int[1];
+    final List<ConceptRefsetMember> result = service.applyPfsToList(members,
+        ConceptRefsetMember.class, totalCt, pfs);
+    assertEquals(2, totalCt[0]);
+    assertEquals(1, result.size());
+    assertEquals("400", result.get(0).getConceptId());
+  }
+
+  /**
+   * Makes a member.
+   *
+   * @param conceptId the concept id
+   * @param conceptName the concept name
+   * @param refset the refset
+   * @param lastModified the last modified time
+   * @return the member
+   */
+  private static ConceptRefsetMember makeMember(String conceptId,
+    String conceptName, Refset refset, long lastModified) {
+    final ConceptRefsetMember member = new ConceptRefsetMemberJpa();
+    member.setConceptId(conceptId);
+    member.setConceptName(conceptName);
+    member.setRefset(refset);
+    member.setMemberType(Refset.MemberType.MEMBER);
+    member.setLastModified(new Date(lastModified));
+    return member;
+  }
+}
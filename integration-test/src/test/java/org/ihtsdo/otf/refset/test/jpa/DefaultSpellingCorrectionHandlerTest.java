@@ -4,6 +4,7 @@
 package org.ihtsdo.otf.refset.test.jpa;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedReader;
@@ -12,6 +13,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -111,6 +113,54 @@ public class DefaultSpellingCorrectionHandlerTest extends JpaSupport {
     assertEquals(results.getTotalCount(), 0);
   }
 
+  /**
+   * Testing that entries added and removed incrementally change the index
+   * without rebuilding it.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testAddAndRemoveEntries() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    SpellingCorrectionHandler handler = new DefaultSpellingCorrectionHandler();
+    Translation translation = new TranslationJpa();
+    translation.setId(1L);
+    translation.setSpellingDictionary(new SpellingDictionaryJpa());
+    handler.setTranslation(translation);
+    try {
+      List<String> origVals = new ArrayList<String>();
+      origVals.add("heart");
+      origVals.add("hearth");
+      origVals.add("lung");
+      handler.reindex(origVals, false);
+      assertFalse(handler.exists("kidney"));
+
+      // Added, the other entries are kept
+      handler.addEntries(Arrays.asList("kidney"));
+      assertTrue(handler.exists("kidney"));
+      assertTrue(handler.exists("heart"));
+      assertTrue(handler.exists("hearth"));
+
+      // Adding an existing entry again does not duplicate it
+      handler.addEntries(Arrays.asList("kidney"));
+      StringList results = handler.suggestSpelling("kidny", 10);
+      assertEquals(1, results.getTotalCount());
+      assertEquals("kidney", results.getObjects().get(0));
+
+      // Removed, no longer suggested
+      handler.removeEntries(Arrays.asList("hearth", "unknown"));
+      assertFalse(handler.exists("hearth"));
+      assertTrue(handler.exists("heart"));
+      results = handler.suggestSpelling("hearth", 10);
+      Logger.getLogger(getClass()).info("  results = " + results);
+      assertFalse(results.getObjects().contains("hearth"));
+      assertTrue(results.getObjects().contains("heart"));
+    } finally {
+      handler.close();
+    }
+  }
+
   /**
    * Testing the ability to create an index from a stream.
    *
@@ -0,0 +1,251 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.test.jpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.queryparser.classic.QueryParserBase;
+import org.ihtsdo.otf.refset.Translation;
+import org.ihtsdo.otf.refset.ValidationResult;
+import org.ihtsdo.otf.refset.helpers.ConceptList;
+import org.ihtsdo.otf.refset.helpers.PfsParameter;
+import org.ihtsdo.otf.refset.jpa.TranslationJpa;
+import org.ihtsdo.otf.refset.jpa.helpers.ConceptListJpa;
+import org.ihtsdo.otf.refset.jpa.services.TranslationServiceJpa;
+import org.ihtsdo.otf.refset.jpa.services.validation.DefaultValidationCheck;
+import org.ihtsdo.otf.refset.rf2.Concept;
+import org.ihtsdo.otf.refset.rf2.Description;
+import org.ihtsdo.otf.refset.rf2.jpa.ConceptJpa;
+import org.ihtsdo.otf.refset.rf2.jpa.DescriptionJpa;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit testing for the duplicate FSN check of {@link DefaultValidationCheck}:
+ * duplicates among the concepts validated together, duplicates with concepts
+ * validated in another chunk, and chunks with more terms than one query
+ * looks up. Runs against a translation service stub that finds the stored
+ * concepts using any of the queried terms.
+ */
+public class DefaultValidationCheckTest extends JpaSupport {
+
+  /** The FSN description type id. */
+  private static final String FSN = "900000000000003001";
+
+  /** The translation. */
+  private Translation translation;
+
+  /** The stored concepts of the translation. */
+  private List<Concept> stored;
+
+  /** The service. */
+  private StubTranslationService service;
+
+  /** The check. */
+  private DefaultValidationCheck check;
+
+  /**
+   * Create test fixtures per test.
+   *
+   * @throws Exception the exception
+   */
+  @Before
+  public void setup() throws Exception {
+    translation = new TranslationJpa();
+    translation.setId(1L);
+    stored = new ArrayList<>();
+    service = new StubTranslationService();
+    check = new DefaultValidationCheck();
+  }
+
+  /**
+   * Teardown.
+   *
+   * @throws Exception the exception
+   */
+  @After
+  public void teardown() throws Exception {
+    service.close();
+  }
+
+  /**
+   * Test that concepts validated together and sharing an FSN are each
+   * reported.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testSameChunkDuplicates() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final Concept heart1 = makeConcept("1", "Heart (body structure)");
+    final Concept heart2 = makeConcept("2", "Heart (body structure)");
+    final Concept kidney = makeConcept("3", "Kidney (body structure)");
+
+    final ValidationResult result =
+        check.validateConcepts(Arrays.asList(heart1, heart2, kidney), service);
+    assertEquals(2, getDuplicateWarnings(result).size());
+    assertTrue(getDuplicateWarnings(result)
+        .contains(getDuplicateWarning(heart1)));
+    assertTrue(getDuplicateWarnings(result)
+        .contains(getDuplicateWarning(heart2)));
+    assertEquals(1, service.queries);
+  }
+
+  /**
+   * Test that a concept sharing an FSN with a concept validated in another
+   * chunk is reported from both chunks, and a concept found only by its own
+   * FSN is not.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testCrossChunkDuplicates() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final Concept lung1 = makeConcept("1", "Lung (body structure)");
+    final Concept lung2 = makeConcept("2", "Lung (body structure)");
+    final Concept kidney = makeConcept("3", "Kidney (body structure)");
+
+    // First chunk: the other concept is reported
+    ValidationResult result =
+        check.validateConcepts(Arrays.asList(lung1, kidney), service);
+    assertEquals(1, getDuplicateWarnings(result).size());
+    assertTrue(getDuplicateWarnings(result)
+        .contains(getDuplicateWarning(lung2)));
+
+    // Second chunk: and the other way around
+    result = check.validateConcepts(Arrays.asList(lung2), service);
+    assertEquals(1, getDuplicateWarnings(result).size());
+    assertTrue(getDuplicateWarnings(result)
+        .contains(getDuplicateWarning(lung1)));
+
+    // Unique
+    result = check.validateConcepts(Arrays.asList(kidney), service);
+    assertTrue(getDuplicateWarnings(result).isEmpty());
+  }
+
+  /**
+   * Test that a chunk with more FSN terms than one query looks up is looked
+   * up in several queries, and duplicates in any of them are reported.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testManyTerms() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final List<Concept> chunk = new ArrayList<>();
+    for (int i = 0; i < 1200; i++) {
+      chunk.add(makeConcept(String.valueOf(i), "Finding " + i + " (finding)"));
+    }
+    final Concept duplicate = makeConcept("other", "Finding 1100 (finding)");
+
+    final ValidationResult result = check.validateConcepts(chunk, service);
+    assertEquals(3, service.queries);
+    assertEquals(1, getDuplicateWarnings(result).size());
+    assertTrue(getDuplicateWarnings(result)
+        .contains(getDuplicateWarning(duplicate)));
+    assertFalse(getDuplicateWarnings(result)
+        .contains(getDuplicateWarning(chunk.get(1100))));
+  }
+
+  /**
+   * Makes a stored concept of the translation with an FSN.
+   *
+   * @param terminologyId the terminology id
+   * @param fsn the fsn
+   * @return the concept
+   */
+  private Concept makeConcept(String terminologyId, String fsn) {
+    final Concept concept = new ConceptJpa();
+    concept.setTerminologyId(terminologyId);
+    concept.setName(fsn);
+    concept.setTranslation(translation);
+    final Description description = new DescriptionJpa();
+    description.setTerm(fsn);
+    description.setTypeId(FSN);
+    concept.getDescriptions().add(description);
+    stored.add(concept);
+    return concept;
+  }
+
+  /**
+   * Returns the duplicate FSN warning for a concept.
+   *
+   * @param concept the concept
+   * @return the warning
+   */
+  private static String getDuplicateWarning(Concept concept) {
+    return "Duplicate FSN descriptions in different concepts: "
+        + concept.getTerminologyId() + " " + concept.getName();
+  }
+
+  /**
+   * Returns the duplicate FSN warnings of a result.
+   *
+   * @param result the result
+   * @return the warnings
+   */
+  private static List<String> getDuplicateWarnings(ValidationResult result) {
+    final List<String> warnings = new ArrayList<>();
+    for (final String warning : result.getWarnings()) {
+      if (warning.startsWith("Duplicate FSN")) {
+        warnings.add(warning);
+      }
+    }
+    return warnings;
+  }
+
+  /**
+   * Translation service stub finding the stored concepts that use any of the
+   * queried terms.
+   */
+  private class StubTranslationService extends TranslationServiceJpa {
+
+    /** The number of concept queries. */
+    int queries = 0;
+
+    /**
+     * Instantiates an empty {@link StubTranslationService}.
+     *
+     * @throws Exception the exception
+     */
+    StubTranslationService() throws Exception {
+      super();
+    }
+
+    /* see superclass */
+    @Override
+    public Translation getTranslation(Long id) throws Exception {
+      return translation;
+    }
+
+    /* see superclass */
+    @Override
+    public ConceptList findConceptsForTranslation(Long translationId,
+      String query, PfsParameter pfs) throws Exception {
+      queries++;
+      final ConceptList list = new ConceptListJpa();
+      for (final Concept concept : stored) {
+        for (final Description description : concept.getDescriptions()) {
+          if (query.contains(
+              "\"" + QueryParserBase.escape(description.getTerm()) + "\"")) {
+            list.addObject(concept);
+            break;
+          }
+        }
+      }
+      return list;
+    }
+  }
+}
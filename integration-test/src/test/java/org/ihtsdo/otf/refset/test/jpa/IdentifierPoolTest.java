@@ -0,0 +1,250 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.test.jpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.helpers.KeyValuePair;
+import org.ihtsdo.otf.refset.jpa.services.handlers.IdentifierPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit testing for {@link IdentifierPool}: takes, background refills, journal
+ * reload after a restart, and on demand generation when the journal is locked
+ * by another pool. Runs against a stub generator handing out sequential ids.
+ */
+public class IdentifierPoolTest extends JpaSupport {
+
+  /** The journal directory. */
+  private File dir;
+
+  /** The pools to close. */
+  private final List<IdentifierPool> pools = new ArrayList<>();
+
+  /**
+   * Create test fixtures per test.
+   *
+   * @throws Exception the exception
+   */
+  @Before
+  public void setup() throws Exception {
+    dir = Files.createTempDirectory("identifier-pool").toFile();
+  }
+
+  /**
+   * Teardown.
+   *
+   * @throws Exception the exception
+   */
+  @After
+  public void teardown() throws Exception {
+    for (final IdentifierPool pool : pools) {
+      pool.close();
+    }
+    for (final File file : dir.listFiles()) {
+      file.delete();
+    }
+    dir.delete();
+  }
+
+  /**
+   * Test that takes hand out each generated identifier once, per namespace
+   * and partition, generating a batch when the pool is empty.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testTake() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final StubGenerator generator = new StubGenerator();
+    final IdentifierPool pool = makePool("take", generator, 5, 0, null);
+
+    final Set<String> ids = new HashSet<>();
+    for (int i = 0; i < 12; i++) {
+      assertTrue(ids.add(pool.take(null, "00")));
+    }
+    assertEquals(3, generator.calls.get());
+    assertEquals("3", getStatistic("take.0|00.depth"));
+    assertEquals("12", getStatistic("take.0|00.taken"));
+
+    // Another partition has its own pool, and an empty namespace is "0"
+    assertEquals("0|10-1", pool.take("", "10"));
+    assertEquals("1000|00-1", pool.take("1000", "00"));
+    assertEquals(5, generator.calls.get());
+  }
+
+  /**
+   * Test that a pool below the low water mark is refilled in the background.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRefill() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final StubGenerator generator = new StubGenerator();
+    final IdentifierPool pool = makePool("refill", generator, 5, 2, null);
+
+    // 5 generated, 4 left, then 3, then 2, then 1 - refill
+    for (int i = 0; i < 4; i++) {
+      pool.take(null, "00");
+    }
+    final long start = System.currentTimeMillis();
+    while (!getStatistic("refill.0|00.depth").equals("6")) {
+      if (System.currentTimeMillis() - start > 10000) {
+        fail("Pool was not refilled, depth = "
+            + getStatistic("refill.0|00.depth"));
+      }
+      Thread.sleep(10);
+    }
+    assertEquals(2, generator.calls.get());
+    // only the first take waited for a batch
+    assertEquals("1", getStatistic("refill.waits"));
+  }
+
+  /**
+   * Test that identifiers generated but not taken are reloaded from the
+   * journal, and taken ones are not handed out again.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testJournalReload() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final File file = new File(dir, "pool.txt");
+    final IdentifierPool pool =
+        makePool("journal", new StubGenerator(), 5, 0, file);
+    assertEquals("0|00-1", pool.take(null, "00"));
+    assertEquals("0|00-2", pool.take(null, "00"));
+    pool.close();
+
+    // "Restart" with a generator that must not be called
+    final IdentifierPool reloaded =
+        makePool("journal", (namespace, partitionId, quantity) -> {
+          throw new Exception("Unexpected generate");
+        }, 5, 0, file);
+    assertEquals("3", getStatistic("journal.0|00.depth"));
+    assertEquals("0|00-3", reloaded.take(null, "00"));
+    assertEquals("0|00-4", reloaded.take(null, "00"));
+    reloaded.close();
+
+    // Once more, only the last one is left
+    final IdentifierPool reloaded2 =
+        makePool("journal", new StubGenerator(), 5, 0, file);
+    assertEquals("0|00-5", reloaded2.take(null, "00"));
+  }
+
+  /**
+   * Test that a pool whose journal is locked by another pool generates each
+   * identifier on demand instead of sharing the journal.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testLockedJournal() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final File file = new File(dir, "pool.txt");
+    final StubGenerator generator = new StubGenerator();
+    final IdentifierPool owner = makePool("owner", generator, 5, 0, file);
+    assertEquals("0|00-1", owner.take(null, "00"));
+    assertEquals("true", getStatistic("owner.pooling"));
+
+    final StubGenerator otherGenerator = new StubGenerator();
+    final IdentifierPool other =
+        makePool("other", otherGenerator, 5, 0, file);
+    assertEquals("false", getStatistic("other.pooling"));
+    for (int i = 0; i < 3; i++) {
+      other.take(null, "00");
+    }
+    // one call per identifier, nothing taken from the owner's journal
+    assertEquals(3, otherGenerator.calls.get());
+    assertEquals(3, otherGenerator.generated.get());
+    assertEquals("4", getStatistic("owner.0|00.depth"));
+    assertEquals("3", getStatistic("other.0|00.taken"));
+  }
+
+  /**
+   * Makes a pool, closed after the test.
+   *
+   * @param poolName the pool name
+   * @param generator the generator
+   * @param batchSize the batch size
+   * @param lowWater the low water mark
+   * @param file the journal file
+   * @return the pool
+   * @throws Exception the exception
+   */
+  private IdentifierPool makePool(String poolName,
+    IdentifierPool.Generator generator, int batchSize, int lowWater,
+    File file) throws Exception {
+    final IdentifierPool pool =
+        new IdentifierPool(poolName, generator, batchSize, lowWater, file);
+    pools.add(pool);
+    return pool;
+  }
+
+  /**
+   * Returns a pool statistic.
+   *
+   * @param key the key
+   * @return the value
+   */
+  private static String getStatistic(String key) {
+    for (final KeyValuePair pair : IdentifierPool.getPoolStatistics()
+        .getKeyValuePairs()) {
+      if (pair.getKey().equals(key)) {
+        return pair.getValue();
+      }
+    }
+    throw new IllegalArgumentException("Missing statistic " + key);
+  }
+
+  /**
+   * Generator handing out "[namespace]|[partitionId]-[n]" identifiers.
+   */
+  private static class StubGenerator implements IdentifierPool.Generator {
+
+    /** The generate calls. */
+    final AtomicInteger calls = new AtomicInteger();
+
+    /** The number of identifiers generated. */
+    final AtomicInteger generated = new AtomicInteger();
+
+    /** The next suffix, by key. */
+    private final Map<String, Integer> next = new HashMap<>();
+
+    /* see superclass */
+    @Override
+    public synchronized List<String> generate(String namespace,
+      String partitionId, int quantity) throws Exception {
+      calls.incrementAndGet();
+      final String key = namespace + "|" + partitionId;
+      final List<String> ids = new ArrayList<>();
+      for (int i = 0; i < quantity; i++) {
+        final int n = next.merge(key, 1, Integer::sum);
+        ids.add(key + "-" + n);
+      }
+      generated.addAndGet(quantity);
+      return ids;
+    }
+  }
+}
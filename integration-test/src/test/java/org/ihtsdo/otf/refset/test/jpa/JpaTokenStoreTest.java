@@ -0,0 +1,173 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.test.jpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.jpa.services.handlers.JpaTokenStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Integration testing for {@link JpaTokenStore}: tokens are shared through the
+ * database, the near cache honors removals made elsewhere only after its ttl,
+ * and expired tokens are purged. Assumes a database with the auth token table.
+ */
+public class JpaTokenStoreTest extends JpaSupport {
+
+  /** The user name, unique per test. */
+  private String userName;
+
+  /** The store with a near cache. */
+  private JpaTokenStore store;
+
+  /** A second store, e.g. on another node, without a near cache. */
+  private JpaTokenStore otherStore;
+
+  /**
+   * Create test fixtures per test.
+   *
+   * @throws Exception the exception
+   */
+  @Before
+  public void setup() throws Exception {
+    userName = "test-" + UUID.randomUUID();
+    store = makeStore(60000, 3600000, 3600000);
+    otherStore = makeStore(0, 3600000, 3600000);
+  }
+
+  /**
+   * Teardown.
+   *
+   * @throws Exception the exception
+   */
+  @After
+  public void teardown() throws Exception {
+    for (final String token : otherStore.getTokensForUser(userName)) {
+      otherStore.removeToken(token);
+    }
+  }
+
+  /**
+   * Test adding, reading, renewing and removing tokens.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testTokenLifecycle() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final Date expiration = new Date(System.currentTimeMillis() + 60000);
+    store.addToken(userName + "-1", userName, expiration);
+    store.addToken(userName + "-2", userName, expiration);
+
+    // Visible to another store through the database
+    assertNotNull(otherStore.getToken(userName + "-1"));
+    assertEquals(userName, otherStore.getToken(userName + "-1").getUserName());
+    assertEquals(2, otherStore.getTokensForUser(userName).size());
+
+    // Renewal is written through
+    final Date renewed = new Date(expiration.getTime() + 60000);
+    store.setExpiration(userName + "-1", renewed);
+    assertEquals(renewed.getTime(), store.getToken(userName + "-1")
+        .getExpiration().getTime());
+    assertEquals(renewed.getTime(), otherStore.getToken(userName + "-1")
+        .getExpiration().getTime());
+
+    // Renewing an unknown token does not add it
+    store.setExpiration(userName + "-3", renewed);
+    assertNull(otherStore.getToken(userName + "-3"));
+
+    // Removal
+    store.removeToken(userName + "-1");
+    assertNull(store.getToken(userName + "-1"));
+    assertNull(otherStore.getToken(userName + "-1"));
+    assertEquals(1, otherStore.getTokensForUser(userName).size());
+  }
+
+  /**
+   * Test that a token removed by another node stays honored by the near cache
+   * until its ttl, and that unknown tokens are not cached.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testNearCache() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final String token = userName + "-1";
+    assertNull(store.getToken(token));
+
+    // Added elsewhere after a miss, found here
+    otherStore.addToken(token, userName,
+        new Date(System.currentTimeMillis() + 60000));
+    assertNotNull(store.getToken(token));
+
+    // Removed elsewhere, still honored here from the near cache
+    otherStore.removeToken(token);
+    assertNull(otherStore.getToken(token));
+    assertNotNull(store.getToken(token));
+
+    // A store without a near cache sees the removal right away
+    assertNull(makeStore(0, 3600000, 3600000).getToken(token));
+  }
+
+  /**
+   * Test that tokens expired more than the purge age ago are removed when a
+   * token is added.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testPurge() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final long now = System.currentTimeMillis();
+    otherStore.addToken(userName + "-old", userName, new Date(now - 120000));
+    otherStore.addToken(userName + "-recent", userName, new Date(now - 1000));
+
+    // Purge anything expired over a minute ago
+    final JpaTokenStore purgingStore = makeStore(0, 60000, 0);
+    purgingStore.addToken(userName + "-new", userName,
+        new Date(now + 60000));
+    assertNull(otherStore.getToken(userName + "-old"));
+    assertNotNull(otherStore.getToken(userName + "-recent"));
+    assertNotNull(otherStore.getToken(userName + "-new"));
+    assertFalse(otherStore.getTokensForUser(userName)
+        .contains(userName + "-old"));
+    assertTrue(otherStore.getTokensForUser(userName)
+        .contains(userName + "-new"));
+  }
+
+  /**
+   * Makes a token store.
+   *
+   * @param nearCacheTtl the near cache ttl
+   * @param purgeAge the purge age
+   * @param purgeInterval the purge interval
+   * @return the token store
+   * @throws Exception the exception
+   */
+  private static JpaTokenStore makeStore(long nearCacheTtl, long purgeAge,
+    long purgeInterval) throws Exception {
+    final Properties p = new Properties();
+    p.setProperty("nearCacheTtl", String.valueOf(nearCacheTtl));
+    p.setProperty("maxEntries", "100");
+    p.setProperty("purgeAge", String.valueOf(purgeAge));
+    p.setProperty("purgeInterval", String.valueOf(purgeInterval));
+    final JpaTokenStore store = new JpaTokenStore();
+    store.setProperties(p);
+    return store;
+  }
+}
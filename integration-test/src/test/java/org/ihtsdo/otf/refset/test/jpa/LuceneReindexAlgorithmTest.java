@@ -0,0 +1,203 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.test.jpa;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+import org.ihtsdo.otf.refset.jpa.algo.LuceneReindexAlgorithm;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit testing for the incremental {@link LuceneReindexAlgorithm}: id ranges
+ * aligned to the range size, and checkpoints of an interrupted reindex
+ * resumed by the same reindex only.
+ */
+public class LuceneReindexAlgorithmTest extends JpaSupport {
+
+  /** The checkpoint directory. */
+  private File dir;
+
+  /** The checkpoint dir config value before the test. */
+  private String savedDir;
+
+  /** The algorithms to close. */
+  private final List<LuceneReindexAlgorithm> algorithms = new ArrayList<>();
+
+  /**
+   * Create test fixtures per test.
+   *
+   * @throws Exception the exception
+   */
+  @Before
+  public void setup() throws Exception {
+    dir = Files.createTempDirectory("reindex-checkpoint").toFile();
+    final Properties config = ConfigUtility.getConfigProperties();
+    savedDir = config.getProperty("reindex.checkpoint.dir");
+    config.setProperty("reindex.checkpoint.dir", dir.getPath());
+  }
+
+  /**
+   * Teardown.
+   *
+   * @throws Exception the exception
+   */
+  @After
+  public void teardown() throws Exception {
+    for (final LuceneReindexAlgorithm algorithm : algorithms) {
+      algorithm.close();
+    }
+    final Properties config = ConfigUtility.getConfigProperties();
+    if (savedDir == null) {
+      config.remove("reindex.checkpoint.dir");
+    } else {
+      config.setProperty("reindex.checkpoint.dir", savedDir);
+    }
+    for (final File file : dir.listFiles()) {
+      file.delete();
+    }
+    dir.delete();
+  }
+
+  /**
+   * Test that ranges are aligned to multiples of the range size, cut to the
+   * min and max ids.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRangeAlignment() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    assertRanges(LuceneReindexAlgorithm.getRanges(25, 64, 10), 25, 29, 30, 39,
+        40, 49, 50, 59, 60, 64);
+    assertRanges(LuceneReindexAlgorithm.getRanges(20, 39, 10), 20, 29, 30, 39);
+    assertRanges(LuceneReindexAlgorithm.getRanges(7, 7, 10), 7, 7);
+    assertRanges(LuceneReindexAlgorithm.getRanges(-15, 4, 10), -15, -11, -10,
+        -1, 0, 4);
+    assertRanges(LuceneReindexAlgorithm.getRanges(1, 5, 1), 1, 1, 2, 2, 3, 3,
+        4, 4, 5, 5);
+
+    // The same ids fall in the same ranges whatever the min and max
+    assertArrayEquals(new long[] {
+        30, 39
+    }, LuceneReindexAlgorithm.getRanges(0, 100, 10).get(3));
+    assertArrayEquals(new long[] {
+        30, 39
+    }, LuceneReindexAlgorithm.getRanges(12, 45, 10).get(2));
+
+    // Ranges end at the max id, even close to the largest id
+    assertRanges(LuceneReindexAlgorithm.getRanges(Long.MAX_VALUE - 5,
+        Long.MAX_VALUE, 10), Long.MAX_VALUE - 5, Long.MAX_VALUE);
+  }
+
+  /**
+   * Test that the checkpoints of an interrupted reindex are resumed by the
+   * same reindex, not by another one, and are removed once it completes.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testCheckpointResume() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final Set<String> objects = new HashSet<>(Arrays.asList("ConceptJpa"));
+
+    // Interrupted after two ranges
+    final LuceneReindexAlgorithm first = makeAlgorithm(1L, 100000L);
+    assertTrue(first.openCheckpoint(objects).isEmpty());
+    first.checkpoint("ConceptJpa\t1\t9999");
+    first.checkpoint("ConceptJpa\t10000\t19999");
+
+    // Another reindex does not pick them up
+    final LuceneReindexAlgorithm other = makeAlgorithm(1L, 50000L);
+    assertTrue(other.openCheckpoint(objects).isEmpty());
+    other.closeCheckpoint();
+
+    // The same reindex resumes after them
+    final LuceneReindexAlgorithm resumed = makeAlgorithm(1L, 100000L);
+    final Set<String> checkpoints = resumed.openCheckpoint(objects);
+    assertEquals(new HashSet<>(
+        Arrays.asList("ConceptJpa\t1\t9999", "ConceptJpa\t10000\t19999")),
+        checkpoints);
+    resumed.checkpoint("ConceptJpa\t20000\t29999");
+
+    // Interrupted again, then completed
+    final LuceneReindexAlgorithm completed = makeAlgorithm(1L, 100000L);
+    assertEquals(3, completed.openCheckpoint(objects).size());
+    completed.closeCheckpoint();
+    assertEquals(0, dir.listFiles().length);
+
+    // A later run starts over
+    final LuceneReindexAlgorithm again = makeAlgorithm(1L, 100000L);
+    assertTrue(again.openCheckpoint(objects).isEmpty());
+    again.closeCheckpoint();
+  }
+
+  /**
+   * Test that nothing is checkpointed without a checkpoint directory.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testNoCheckpointDir() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    ConfigUtility.getConfigProperties().setProperty("reindex.checkpoint.dir",
+        "");
+    final Set<String> objects = new HashSet<>(Arrays.asList("ConceptJpa"));
+    final LuceneReindexAlgorithm algorithm = makeAlgorithm(1L, 100L);
+    assertTrue(algorithm.openCheckpoint(objects).isEmpty());
+    algorithm.checkpoint("ConceptJpa\t1\t100");
+    assertTrue(makeAlgorithm(1L, 100L).openCheckpoint(objects).isEmpty());
+    assertFalse(dir.listFiles().length > 0);
+  }
+
+  /**
+   * Asserts the start and end ids of ranges.
+   *
+   * @param ranges the ranges
+   * @param ids the expected start and end ids, in order
+   */
+  private static void assertRanges(List<long[]> ranges, long... ids) {
+    assertEquals(ids.length / 2, ranges.size());
+    for (int i = 0; i < ranges.size(); i++) {
+      assertArrayEquals(new long[] {
+          ids[2 * i], ids[2 * i + 1]
+      }, ranges.get(i));
+    }
+  }
+
+  /**
+   * Makes an algorithm reindexing an id range, closed after the test.
+   *
+   * @param fromId the from id
+   * @param toId the to id
+   * @return the algorithm
+   * @throws Exception the exception
+   */
+  private LuceneReindexAlgorithm makeAlgorithm(Long fromId, Long toId)
+    throws Exception {
+    final LuceneReindexAlgorithm algorithm = new LuceneReindexAlgorithm();
+    algorithm.setFromId(fromId);
+    algorithm.setToId(toId);
+    algorithms.add(algorithm);
+    return algorithm;
+  }
+}
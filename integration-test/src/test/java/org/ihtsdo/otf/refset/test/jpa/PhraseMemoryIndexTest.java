@@ -0,0 +1,212 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.test.jpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.MemoryEntry;
+import org.ihtsdo.otf.refset.PhraseMemory;
+import org.ihtsdo.otf.refset.jpa.MemoryEntryJpa;
+import org.ihtsdo.otf.refset.jpa.PhraseMemoryJpa;
+import org.ihtsdo.otf.refset.jpa.services.handlers.PhraseMemoryIndex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit testing for {@link PhraseMemoryIndex}: exact, prefix and fuzzy lookup,
+ * entry changes applied by phrase memory id, and entries added while an index
+ * is being built.
+ */
+public class PhraseMemoryIndexTest extends JpaSupport {
+
+  /** The phrase memory id, unique per test. */
+  private static long nextPhraseMemoryId = -1000;
+
+  /** The phrase memory. */
+  private PhraseMemoryJpa phraseMemory;
+
+  /**
+   * Create test fixtures per test.
+   *
+   * @throws Exception the exception
+   */
+  @Before
+  public void setup() throws Exception {
+    phraseMemory = new PhraseMemoryJpa();
+    phraseMemory.setId(nextPhraseMemoryId--);
+    phraseMemory.setEntries(new ArrayList<>(Arrays.asList(
+        makeEntry(1L, "heart", "coeur"),
+        makeEntry(2L, "Heart", "Coeur"),
+        makeEntry(3L, "heart attack", "crise cardiaque"),
+        makeEntry(4L, "hearth", "foyer"),
+        makeEntry(5L, "heat", "chaleur"),
+        makeEntry(6L, "lung", "poumon"))));
+  }
+
+  /**
+   * Teardown.
+   *
+   * @throws Exception the exception
+   */
+  @After
+  public void teardown() throws Exception {
+    PhraseMemoryIndex.phraseMemoryRemoved(phraseMemory.getId());
+  }
+
+  /**
+   * Test exact lookup, which ignores case.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testFindExact() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final PhraseMemoryIndex index = PhraseMemoryIndex.getIndex(phraseMemory);
+    assertEquals(6, index.size());
+    assertEquals(Arrays.asList("coeur", "Coeur"), index.findExact("heart"));
+    assertEquals(Arrays.asList("coeur", "Coeur"), index.findExact("HEART"));
+    assertEquals(Arrays.asList("poumon"), index.findExact("Lung"));
+    assertTrue(index.findExact("hear").isEmpty());
+    assertTrue(index.findExact("kidney").isEmpty());
+  }
+
+  /**
+   * Test prefix lookup, shortest names first and limited to max results.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testFindPrefix() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final PhraseMemoryIndex index = PhraseMemoryIndex.getIndex(phraseMemory);
+    assertEquals(Arrays.asList("coeur", "Coeur", "foyer", "crise cardiaque"),
+        index.findPrefix("Heart", 10));
+    assertEquals(Arrays.asList("coeur", "Coeur"), index.findPrefix("heart", 2));
+    assertEquals(5, index.findPrefix("he", 10).size());
+    assertTrue(index.findPrefix("x", 10).isEmpty());
+  }
+
+  /**
+   * Test fuzzy lookup, closest names first.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testFindFuzzy() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final PhraseMemoryIndex index = PhraseMemoryIndex.getIndex(phraseMemory);
+    // "heart" is 0 edits, "hearth" and "heat" 1
+    assertEquals(Arrays.asList("coeur", "Coeur", "foyer", "chaleur"),
+        index.findFuzzy("Heart", 1, 10));
+    assertEquals(Arrays.asList("coeur", "Coeur"),
+        index.findFuzzy("heart", 0, 10));
+    assertEquals(Arrays.asList("coeur", "Coeur", "foyer"),
+        index.findFuzzy("heart", 1, 3));
+    assertEquals(Arrays.asList("poumon"), index.findFuzzy("lunge", 1, 10));
+    assertTrue(index.findFuzzy("kidney", 2, 10).isEmpty());
+  }
+
+  /**
+   * Test that entries added, updated and removed by phrase memory id change
+   * the index, and that a removed phrase memory is built again.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testEntryChanges() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final PhraseMemoryIndex index = PhraseMemoryIndex.getIndex(phraseMemory);
+    assertSame(index, PhraseMemoryIndex.getIndex(phraseMemory));
+
+    // Added
+    PhraseMemoryIndex.entryAdded(phraseMemory.getId(),
+        makeEntry(7L, "kidney", "rein"));
+    assertEquals(Arrays.asList("rein"), index.findExact("kidney"));
+
+    // Updated through a detached entry without its phrase memory
+    final MemoryEntry detached = makeEntry(7L, "kidneys", "reins");
+    PhraseMemoryIndex.entryUpdated(phraseMemory.getId(), detached);
+    assertTrue(index.findExact("kidney").isEmpty());
+    assertEquals(Arrays.asList("reins"), index.findExact("kidneys"));
+    assertEquals(7, index.size());
+
+    // Removed
+    PhraseMemoryIndex.entryRemoved(phraseMemory.getId(), 1L);
+    assertEquals(Arrays.asList("Coeur"), index.findExact("heart"));
+    assertEquals(6, index.size());
+
+    // Changes to another phrase memory are not applied
+    PhraseMemoryIndex.entryAdded(phraseMemory.getId() - 1,
+        makeEntry(8L, "liver", "foie"));
+    assertTrue(index.findExact("liver").isEmpty());
+
+    // A removed phrase memory is built again from its entries
+    PhraseMemoryIndex.phraseMemoryRemoved(phraseMemory.getId());
+    final PhraseMemoryIndex rebuilt = PhraseMemoryIndex.getIndex(phraseMemory);
+    assertNotSame(index, rebuilt);
+    assertEquals(6, rebuilt.size());
+  }
+
+  /**
+   * Test that an entry added while the index is being built is kept.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testEntryAddedDuringBuild() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final Thread[] adder = new Thread[1];
+    final PhraseMemory building = new PhraseMemoryJpa() {
+
+      /* see superclass */
+      @Override
+      public List<MemoryEntry> getEntries() {
+        // e.g. another request commits a new entry while loading
+        if (adder[0] == null) {
+          adder[0] = new Thread(() -> PhraseMemoryIndex.entryAdded(getId(),
+              makeEntry(7L, "kidney", "rein")));
+          adder[0].start();
+        }
+        return phraseMemory.getEntries();
+      }
+    };
+    building.setId(phraseMemory.getId());
+
+    final PhraseMemoryIndex index = PhraseMemoryIndex.getIndex(building);
+    adder[0].join(10000);
+    assertEquals(7, index.size());
+    assertEquals(Arrays.asList("rein"), index.findExact("kidney"));
+  }
+
+  /**
+   * Makes an entry.
+   *
+   * @param id the id
+   * @param entryName the entry name
+   * @param translatedName the translated name
+   * @return the entry
+   */
+  private static MemoryEntry makeEntry(Long id, String entryName,
+    String translatedName) {
+    final MemoryEntry entry = new MemoryEntryJpa();
+    entry.setId(id);
+    entry.setName(entryName);
+    entry.setTranslatedName(translatedName);
+    return entry;
+  }
+}
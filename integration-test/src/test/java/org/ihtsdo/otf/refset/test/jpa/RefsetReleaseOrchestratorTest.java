@@ -0,0 +1,223 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.test.jpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.Refset;
+import org.ihtsdo.otf.refset.ValidationResult;
+import org.ihtsdo.otf.refset.helpers.LocalException;
+import org.ihtsdo.otf.refset.jpa.RefsetJpa;
+import org.ihtsdo.otf.refset.jpa.services.RefsetReleaseOrchestrator;
+import org.ihtsdo.otf.refset.jpa.services.RefsetServiceJpa;
+import org.ihtsdo.otf.refset.jpa.services.ReleaseServiceJpa;
+import org.ihtsdo.otf.refset.services.ReleaseService;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit testing for {@link RefsetReleaseOrchestrator}: each refset runs in its
+ * own transaction, a failing refset does not affect the others, messages are
+ * aggregated with the refset terminology id, and duplicate refset ids are
+ * processed once. Runs against a refset service stub that neither reads
+ * refsets nor runs transactions in the database.
+ */
+public class RefsetReleaseOrchestratorTest extends JpaSupport {
+
+  /** The project id. */
+  private static final Long PROJECT_ID = -1L;
+
+  /** The process, unique per test. */
+  private String process;
+
+  /** The number of times each refset was processed. */
+  private final Map<Long, AtomicInteger> processed = new ConcurrentHashMap<>();
+
+  /** The transaction calls. */
+  private final AtomicInteger begins = new AtomicInteger();
+
+  /** The commits. */
+  private final AtomicInteger commits = new AtomicInteger();
+
+  /** The rollbacks. */
+  private final AtomicInteger rollbacks = new AtomicInteger();
+
+  /** The closes. */
+  private final AtomicInteger closes = new AtomicInteger();
+
+  /**
+   * Create test fixtures per test.
+   *
+   * @throws Exception the exception
+   */
+  @Before
+  public void setup() throws Exception {
+    process = "TEST-" + name.getMethodName();
+  }
+
+  /**
+   * Test that a failing refset is rolled back and reported while the others
+   * are committed, and that the messages are aggregated.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testFailureIsolation() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final ValidationResult result = RefsetReleaseOrchestrator.run(PROJECT_ID,
+        process, Arrays.asList(1L, 2L, 3L, -4L), StubRefsetService::new,
+        (service, refset, refsetResult) -> {
+          processed.computeIfAbsent(refset.getId(), k -> new AtomicInteger())
+              .incrementAndGet();
+          if (refset.getId() == 2L) {
+            throw new Exception("Refset is broken");
+          }
+          if (refset.getId() == 3L) {
+            refsetResult.addWarning("Refset is empty");
+          }
+        }, null);
+
+    // Every refset ran in its own service and transaction
+    assertEquals(3, processed.size());
+    assertEquals(4, begins.get());
+    assertEquals(2, commits.get());
+    assertEquals(2, rollbacks.get());
+    assertEquals(4, closes.get());
+
+    // Messages are prefixed with the terminology id, when known
+    assertEquals(2, result.getErrors().size());
+    assertTrue(result.getErrors().contains("R2: Refset is broken"));
+    assertTrue(result.getErrors().contains("Invalid refset id -4"));
+    assertEquals(1, result.getWarnings().size());
+    assertTrue(result.getWarnings().contains("R3: Refset is empty"));
+
+    // The result is the project's process result, nothing is left in progress
+    final ReleaseService releaseService = new ReleaseServiceJpa();
+    try {
+      assertSame(result,
+          releaseService.getProcessValidationResult(PROJECT_ID, process));
+      for (final Long id : Arrays.asList(1L, 2L, 3L, -4L)) {
+        assertFalse(releaseService.getProcessProgressStatus(id, process));
+      }
+      releaseService.removeProcessValidationResult(PROJECT_ID, process);
+    } finally {
+      releaseService.close();
+    }
+  }
+
+  /**
+   * Test that failures matching the warning predicate are reported as
+   * warnings, but unknown refsets are still errors.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testWarnings() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final ValidationResult result = RefsetReleaseOrchestrator.run(PROJECT_ID,
+        process, Arrays.asList(1L, -2L), StubRefsetService::new,
+        (service, refset, refsetResult) -> {
+          throw new LocalException("Nothing to release");
+        }, e -> e instanceof LocalException);
+
+    assertEquals(1, result.getWarnings().size());
+    assertTrue(result.getWarnings().contains("R1: Nothing to release"));
+    assertEquals(1, result.getErrors().size());
+    assertTrue(result.getErrors().contains("Invalid refset id -2"));
+    assertEquals(0, commits.get());
+    assertEquals(2, rollbacks.get());
+  }
+
+  /**
+   * Test that a refset listed more than once is processed once.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testDuplicateIds() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final List<Long> ids =
+        new ArrayList<>(Arrays.asList(1L, 2L, 1L, 2L, 1L, 3L));
+    final ValidationResult result = RefsetReleaseOrchestrator.run(PROJECT_ID,
+        process, ids, StubRefsetService::new,
+        (service, refset, refsetResult) -> processed
+            .computeIfAbsent(refset.getId(), k -> new AtomicInteger())
+            .incrementAndGet(),
+        null);
+
+    assertEquals(3, processed.size());
+    for (final AtomicInteger count : processed.values()) {
+      assertEquals(1, count.get());
+    }
+    assertEquals(3, commits.get());
+    assertTrue(result.getErrors().isEmpty());
+  }
+
+  /**
+   * Refset service stub: refsets with a positive id exist, and transactions
+   * are only counted.
+   */
+  private class StubRefsetService extends RefsetServiceJpa {
+
+    /**
+     * Instantiates an empty {@link StubRefsetService}.
+     *
+     * @throws Exception the exception
+     */
+    StubRefsetService() throws Exception {
+      super();
+    }
+
+    /* see superclass */
+    @Override
+    public Refset getRefset(Long id) throws Exception {
+      if (id <= 0) {
+        return null;
+      }
+      final Refset refset = new RefsetJpa();
+      refset.setId(id);
+      refset.setTerminologyId("R" + id);
+      return refset;
+    }
+
+    /* see superclass */
+    @Override
+    public void beginTransaction() throws Exception {
+      begins.incrementAndGet();
+    }
+
+    /* see superclass */
+    @Override
+    public void commit() throws Exception {
+      commits.incrementAndGet();
+    }
+
+    /* see superclass */
+    @Override
+    public void rollback() throws Exception {
+      rollbacks.incrementAndGet();
+    }
+
+    /* see superclass */
+    @Override
+    public void close() throws Exception {
+      closes.incrementAndGet();
+      super.close();
+    }
+  }
+}
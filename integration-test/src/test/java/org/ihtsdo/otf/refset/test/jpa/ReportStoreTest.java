@@ -0,0 +1,259 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.test.jpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.MemberDiffReport;
+import org.ihtsdo.otf.refset.Refset;
+import org.ihtsdo.otf.refset.helpers.KeyValuePair;
+import org.ihtsdo.otf.refset.jpa.MemberDiffReportJpa;
+import org.ihtsdo.otf.refset.jpa.RefsetJpa;
+import org.ihtsdo.otf.refset.jpa.helpers.PfsParameterJpa;
+import org.ihtsdo.otf.refset.jpa.services.RefsetServiceJpa;
+import org.ihtsdo.otf.refset.rf2.ConceptRefsetMember;
+import org.ihtsdo.otf.refset.rf2.jpa.ConceptRefsetMemberJpa;
+import org.ihtsdo.otf.refset.services.RefsetService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Integration testing for the compare and diff reports kept by
+ * {@link RefsetServiceJpa}: reports round trip through the report store,
+ * members are attached to their refsets (and dropped if the refset is gone),
+ * each read gets its own copies, and reports can be paged. Assumes stock dev
+ * load with at least one refset.
+ */
+public class ReportStoreTest extends JpaSupport {
+
+  /** A refset id that does not exist. */
+  private static final Long REMOVED_REFSET_ID = -1L;
+
+  /** The service. */
+  private RefsetService service;
+
+  /** The report token. */
+  private String reportToken;
+
+  /** An existing refset. */
+  private Refset refset;
+
+  /**
+   * Create test fixtures per test.
+   *
+   * @throws Exception the exception
+   */
+  @Before
+  public void setup() throws Exception {
+    service = new RefsetServiceJpa();
+    reportToken = UUID.randomUUID().toString();
+    refset = service.getRefsets().getObjects().get(0);
+  }
+
+  /**
+   * Teardown.
+   *
+   * @throws Exception the exception
+   */
+  @After
+  public void teardown() throws Exception {
+    service.removeMembersInCommon(reportToken);
+    service.removeMemberDiffReport(reportToken);
+    service.close();
+  }
+
+  /**
+   * Test that members in common round trip with their fields and refsets, and
+   * that members of removed refsets are dropped.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testMembersInCommon() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final List<ConceptRefsetMember> members = new ArrayList<>();
+    members.add(makeMember(1L, "100", "Heart disease", refset.getId()));
+    members.add(makeMember(2L, "200", "Lung disease", REMOVED_REFSET_ID));
+    members.add(makeMember(3L, "300", null, refset.getId()));
+    service.putMembersInCommon(reportToken, members);
+
+    final List<ConceptRefsetMember> result =
+        service.getMembersInCommon(reportToken);
+    assertEquals(2, result.size());
+    final ConceptRefsetMember member = result.get(0);
+    assertEquals(Long.valueOf(1L), member.getId());
+    assertEquals("100", member.getConceptId());
+    assertEquals("Heart disease", member.getConceptName());
+    assertEquals(Refset.MemberType.MEMBER, member.getMemberType());
+    assertEquals(new Date(1000L), member.getEffectiveTime());
+    assertTrue(member.isActive());
+    assertTrue(member.isPublished());
+    assertTrue(member.isConceptActive());
+    assertEquals(refset.getId(), member.getRefset().getId());
+    assertNotNull(member.getRefset().getProject());
+    assertEquals("300", result.get(1).getConceptId());
+    assertNull(result.get(1).getConceptName());
+  }
+
+  /**
+   * Test that each read gets its own copies, and that reads after the first
+   * are served from the held decoded report.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testCopies() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final List<ConceptRefsetMember> members = new ArrayList<>();
+    members.add(makeMember(1L, "100", "Heart disease", refset.getId()));
+    members.add(makeMember(2L, "200", "Lung disease", refset.getId()));
+    service.putMembersInCommon(reportToken, members);
+
+    final List<ConceptRefsetMember> first =
+        service.getMembersInCommon(reportToken);
+    first.get(0).setConceptName("changed");
+    first.remove(1);
+    final long decodedHits = getStatistic("decodedHits");
+
+    final List<ConceptRefsetMember> second =
+        service.getMembersInCommon(reportToken);
+    assertEquals(2, second.size());
+    assertEquals("Heart disease", second.get(0).getConceptName());
+    assertNotSame(first.get(0), second.get(0));
+    assertEquals(decodedHits + 1, getStatistic("decodedHits"));
+
+    // Replacing the report replaces what is read
+    members.remove(1);
+    service.putMembersInCommon(reportToken, members);
+    assertEquals(1, service.getMembersInCommon(reportToken).size());
+
+    // Removed
+    service.removeMembersInCommon(reportToken);
+    assertNull(service.getMembersInCommon(reportToken));
+  }
+
+  /**
+   * Test that a diff report round trips with its refsets.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testMemberDiffReport() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final MemberDiffReport report = new MemberDiffReportJpa();
+    report.setOldRefset(refset);
+    report.setNewRefset(null);
+    final List<ConceptRefsetMember> oldNotNew = new ArrayList<>();
+    oldNotNew.add(makeMember(1L, "100", "Heart disease", refset.getId()));
+    oldNotNew.add(makeMember(2L, "200", "Lung disease", REMOVED_REFSET_ID));
+    final List<ConceptRefsetMember> newNotOld = new ArrayList<>();
+    newNotOld.add(makeMember(3L, "300", "Skin disease", refset.getId()));
+    report.setOldNotNew(oldNotNew);
+    report.setNewNotOld(newNotOld);
+    service.putMemberDiffReport(reportToken, report);
+
+    final MemberDiffReport result = service.getMemberDiffReport(reportToken);
+    assertEquals(refset.getId(), result.getOldRefset().getId());
+    assertNull(result.getNewRefset());
+    assertEquals(1, result.getOldNotNew().size());
+    assertEquals("100", result.getOldNotNew().get(0).getConceptId());
+    assertEquals(1, result.getNewNotOld().size());
+    assertEquals("300", result.getNewNotOld().get(0).getConceptId());
+  }
+
+  /**
+   * Test paging through a stored report.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testPaging() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final List<ConceptRefsetMember> members = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      members.add(makeMember((long) i, String.valueOf(1000 + i),
+          "Concept " + (1000 + i), refset.getId()));
+    }
+    service.putMembersInCommon(reportToken, members);
+
+    final List<String> seen = new ArrayList<>();
+    for (int start = 0; start < 25; start += 10) {
+      final PfsParameterJpa pfs = new PfsParameterJpa();
+      pfs.setStartIndex(start);
+      pfs.setMaxResults(10);
+      pfs.setSortField("conceptId");
+      pfs.setAscending(false);
+      final int[] totalCt = new int[1];
+      final List<ConceptRefsetMember> page =
+          service.applyPfsToList(service.getMembersInCommon(reportToken),
+              ConceptRefsetMember.class, totalCt, pfs);
+      assertEquals(25, totalCt[0]);
+      assertEquals(start == 20 ? 5 : 10, page.size());
+      for (final ConceptRefsetMember member : page) {
+        seen.add(member.getConceptId());
+      }
+    }
+    assertEquals(25, seen.size());
+    assertEquals("1024", seen.get(0));
+    assertEquals("1000", seen.get(24));
+  }
+
+  /**
+   * Makes a member.
+   *
+   * @param id the id
+   * @param conceptId the concept id
+   * @param conceptName the concept name
+   * @param refsetId the refset id
+   * @return the member
+   */
+  private static ConceptRefsetMember makeMember(Long id, String conceptId,
+    String conceptName, Long refsetId) {
+    final ConceptRefsetMember member = new ConceptRefsetMemberJpa();
+    member.setId(id);
+    member.setConceptId(conceptId);
+    member.setConceptName(conceptName);
+    member.setConceptActive(true);
+    member.setActive(true);
+    member.setPublished(true);
+    member.setEffectiveTime(new Date(1000L));
+    member.setMemberType(Refset.MemberType.MEMBER);
+    final Refset memberRefset = new RefsetJpa();
+    memberRefset.setId(refsetId);
+    member.setRefset(memberRefset);
+    return member;
+  }
+
+  /**
+   * Returns a report store statistic.
+   *
+   * @param key the key
+   * @return the value
+   * @throws Exception the exception
+   */
+  private static long getStatistic(String key) throws Exception {
+    for (final KeyValuePair pair : RefsetServiceJpa.getReportStoreStatistics()
+        .getKeyValuePairs()) {
+      if (pair.getKey().equals(key)) {
+        return Long.parseLong(pair.getValue());
+      }
+    }
+    throw new IllegalArgumentException("Missing statistic " + key);
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.test.jpa;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.Project;
+import org.ihtsdo.otf.refset.User;
+import org.ihtsdo.otf.refset.UserRole;
+import org.ihtsdo.otf.refset.helpers.KeyValuePair;
+import org.ihtsdo.otf.refset.helpers.KeyValuePairList;
+import org.ihtsdo.otf.refset.jpa.services.ProjectServiceJpa;
+import org.ihtsdo.otf.refset.jpa.services.SecurityServiceJpa;
+import org.ihtsdo.otf.refset.services.ProjectService;
+import org.ihtsdo.otf.refset.services.SecurityService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Integration testing for the role cache of {@link SecurityServiceJpa}: cache
+ * hits, and invalidation only once user and project changes are committed.
+ * Assumes stock dev load with the role cache enabled.
+ */
+public class RoleCacheTest extends JpaSupport {
+
+  /** The security service. */
+  private SecurityService securityService;
+
+  /** The auth token. */
+  private String authToken;
+
+  /**
+   * Create test fixtures per test.
+   *
+   * @throws Exception the exception
+   */
+  @Before
+  public void setup() throws Exception {
+    securityService = new SecurityServiceJpa();
+    authToken = securityService.authenticate("user1", "user1").getAuthToken();
+  }
+
+  /**
+   * Teardown.
+   *
+   * @throws Exception the exception
+   */
+  @After
+  public void teardown() throws Exception {
+    securityService.logout(authToken);
+    securityService.close();
+  }
+
+  /**
+   * Test that the application role is cached per token.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testApplicationRoleCached() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final UserRole role = securityService.getApplicationRoleForToken(authToken);
+    final long hits = getStatistic("hits");
+    final long misses = getStatistic("misses");
+    assertEquals(role, securityService.getApplicationRoleForToken(authToken));
+    assertEquals(role,
+        securityService.getApplicationRoleForToken("\"" + authToken + "\""));
+    assertEquals(hits + 2, getStatistic("hits"));
+    assertEquals(misses, getStatistic("misses"));
+  }
+
+  /**
+   * Test that a user change invalidates the cached roles of the user's tokens
+   * when it is committed, not before.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testUserChangeInvalidatesAfterCommit() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final UserRole role = securityService.getApplicationRoleForToken(authToken);
+    final UserRole newRole =
+        role == UserRole.ADMIN ? UserRole.USER : UserRole.ADMIN;
+
+    final SecurityService service = new SecurityServiceJpa();
+    try {
+      service.setTransactionPerOperation(false);
+      service.beginTransaction();
+      final User user = service.getUser("user1");
+      user.setApplicationRole(newRole);
+      service.updateUser(user);
+
+      // Not yet committed, the cached role stays
+      assertEquals(role, securityService.getApplicationRoleForToken(authToken));
+
+      service.commit();
+      assertEquals(newRole,
+          securityService.getApplicationRoleForToken(authToken));
+
+      // Rolled back, the cached role stays
+      service.beginTransaction();
+      final long invalidations = getStatistic("invalidations");
+      final User user2 = service.getUser("user1");
+      user2.setApplicationRole(role);
+      service.updateUser(user2);
+      service.rollback();
+      assertEquals(invalidations, getStatistic("invalidations"));
+      assertEquals(newRole,
+          securityService.getApplicationRoleForToken(authToken));
+
+      // restore
+      service.beginTransaction();
+      final User user3 = service.getUser("user1");
+      user3.setApplicationRole(role);
+      service.updateUser(user3);
+      service.commit();
+      assertEquals(role, securityService.getApplicationRoleForToken(authToken));
+    } finally {
+      service.close();
+    }
+  }
+
+  /**
+   * Test that a project change invalidates the cached project roles when it is
+   * committed, not before.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testProjectChangeInvalidatesAfterCommit() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final ProjectService projectService = new ProjectServiceJpa();
+    try {
+      final Long projectId =
+          projectService.getProjects().getObjects().get(0).getId();
+      final UserRole role =
+          securityService.getUserRoleForToken(authToken, projectId);
+
+      projectService.setTransactionPerOperation(false);
+      projectService.beginTransaction();
+      final Project project = projectService.getProject(projectId);
+      projectService.updateProject(project);
+
+      // Not yet committed, the cached role is still used
+      final long hits = getStatistic("hits");
+      final long invalidations = getStatistic("invalidations");
+      assertEquals(role,
+          securityService.getUserRoleForToken(authToken, projectId));
+      assertEquals(hits + 1, getStatistic("hits"));
+      assertEquals(invalidations, getStatistic("invalidations"));
+
+      // Committed, the role is looked up again
+      projectService.commit();
+      assertEquals(invalidations + 1, getStatistic("invalidations"));
+      final long misses = getStatistic("misses");
+      assertEquals(role,
+          securityService.getUserRoleForToken(authToken, projectId));
+      assertEquals(misses + 1, getStatistic("misses"));
+    } finally {
+      projectService.close();
+    }
+  }
+
+  /**
+   * Test that logout drops the cached roles of the token.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testLogoutInvalidates() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final String token =
+        securityService.authenticate("user1", "user1").getAuthToken();
+    securityService.getApplicationRoleForToken(token);
+    final long entries = getStatistic("entries");
+    securityService.logout(token);
+    assertEquals(entries - 1, getStatistic("entries"));
+  }
+
+  /**
+   * Returns a role cache statistic.
+   *
+   * @param key the key
+   * @return the value
+   */
+  private static long getStatistic(String key) {
+    final KeyValuePairList statistics =
+        SecurityServiceJpa.getRoleCacheStatistics();
+    for (final KeyValuePair pair : statistics.getKeyValuePairs()) {
+      if (pair.getKey().equals(key)) {
+        return Long.parseLong(pair.getValue());
+      }
+    }
+    throw new IllegalArgumentException("Missing statistic " + key);
+  }
+}
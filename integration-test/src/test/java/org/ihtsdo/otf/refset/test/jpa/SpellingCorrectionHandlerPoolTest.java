@@ -0,0 +1,315 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.test.jpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.Translation;
+import org.ihtsdo.otf.refset.helpers.KeyValuesMap;
+import org.ihtsdo.otf.refset.helpers.StringList;
+import org.ihtsdo.otf.refset.jpa.TranslationJpa;
+import org.ihtsdo.otf.refset.jpa.services.handlers.SpellingCorrectionHandlerPool;
+import org.ihtsdo.otf.refset.services.handlers.SpellingCorrectionHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit testing for {@link SpellingCorrectionHandlerPool}: leases, eviction of
+ * the least recently used handlers, and that a translation is not opened again
+ * while an evicted or removed handler for it is still open. Runs against stub
+ * handlers that, like the index directory lock, refuse to open twice.
+ */
+public class SpellingCorrectionHandlerPoolTest extends JpaSupport {
+
+  /** The open stub handlers, by translation id. */
+  private final Map<Long, StubHandler> open = new HashMap<>();
+
+  /** The handlers opened, in order. */
+  private final List<StubHandler> opened = new ArrayList<>();
+
+  /** The executor for acquires that are expected to wait. */
+  private ExecutorService executor;
+
+  /**
+   * Create test fixtures per test.
+   *
+   * @throws Exception the exception
+   */
+  @Before
+  public void setup() throws Exception {
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  /**
+   * Teardown.
+   *
+   * @throws Exception the exception
+   */
+  @After
+  public void teardown() throws Exception {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Test that a leased handler is reused and the least recently used handlers
+   * are closed beyond max size.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testLeaseAndEvict() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final SpellingCorrectionHandlerPool pool = makePool(2);
+    final SpellingCorrectionHandler handler1;
+    try (final SpellingCorrectionHandlerPool.Lease lease =
+        pool.acquire(makeTranslation(1L))) {
+      handler1 = lease.getHandler();
+    }
+    try (final SpellingCorrectionHandlerPool.Lease lease =
+        pool.acquire(makeTranslation(1L))) {
+      assertSame(handler1, lease.getHandler());
+    }
+    pool.acquire(makeTranslation(2L)).close();
+    // 1 is least recently used, opening 3 closes it
+    pool.acquire(makeTranslation(3L)).close();
+
+    assertEquals(3, opened.size());
+    assertTrue(opened.get(0).closed);
+    assertFalse(opened.get(1).closed);
+    assertFalse(opened.get(2).closed);
+  }
+
+  /**
+   * Test that an evicted handler stays open while leased, and that its
+   * translation is opened again only once it is closed.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testReacquireEvicted() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final SpellingCorrectionHandlerPool pool = makePool(1);
+    final SpellingCorrectionHandlerPool.Lease lease =
+        pool.acquire(makeTranslation(1L));
+
+    // Evicts 1, which is still leased
+    pool.acquire(makeTranslation(2L)).close();
+    assertFalse(opened.get(0).closed);
+
+    // Acquiring 1 again waits for the evicted handler to close
+    final Future<SpellingCorrectionHandler> future = executor.submit(() -> {
+      try (final SpellingCorrectionHandlerPool.Lease lease2 =
+          pool.acquire(makeTranslation(1L))) {
+        return lease2.getHandler();
+      }
+    });
+    assertWaiting(future);
+
+    lease.close();
+    assertTrue(opened.get(0).closed);
+    final SpellingCorrectionHandler reopened =
+        future.get(10, TimeUnit.SECONDS);
+    assertNotSame(opened.get(0), reopened);
+    assertFalse(((StubHandler) reopened).closed);
+
+    // Closing the lease again does nothing
+    lease.close();
+  }
+
+  /**
+   * Test that a removed handler is closed when its last lease is released,
+   * and that its translation is opened again only then.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRemove() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final SpellingCorrectionHandlerPool pool = makePool(5);
+
+    // Not leased, closed right away
+    pool.acquire(makeTranslation(1L)).close();
+    pool.remove(1L);
+    assertTrue(opened.get(0).closed);
+
+    // Leased, closed on release
+    final SpellingCorrectionHandlerPool.Lease lease =
+        pool.acquire(makeTranslation(2L));
+    pool.remove(2L);
+    assertFalse(opened.get(1).closed);
+    final Future<SpellingCorrectionHandler> future = executor.submit(() -> {
+      try (final SpellingCorrectionHandlerPool.Lease lease2 =
+          pool.acquire(makeTranslation(2L))) {
+        return lease2.getHandler();
+      }
+    });
+    assertWaiting(future);
+    lease.close();
+    assertTrue(opened.get(1).closed);
+    assertNotSame(opened.get(1), future.get(10, TimeUnit.SECONDS));
+
+    // Removing an unknown translation does nothing
+    pool.remove(99L);
+  }
+
+  /**
+   * Asserts that an acquire is still waiting.
+   *
+   * @param future the future
+   * @throws Exception the exception
+   */
+  private static void assertWaiting(Future<?> future) throws Exception {
+    try {
+      future.get(200, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      return;
+    }
+    throw new AssertionError("Expected the acquire to wait");
+  }
+
+  /**
+   * Makes a pool of stub handlers.
+   *
+   * @param maxSize the max size
+   * @return the pool
+   */
+  private SpellingCorrectionHandlerPool makePool(int maxSize) {
+    return new SpellingCorrectionHandlerPool(maxSize, translation -> {
+      final StubHandler handler = new StubHandler();
+      handler.setTranslation(translation);
+      return handler;
+    });
+  }
+
+  /**
+   * Makes a translation.
+   *
+   * @param id the id
+   * @return the translation
+   */
+  private static Translation makeTranslation(Long id) {
+    final Translation translation = new TranslationJpa();
+    translation.setId(id);
+    return translation;
+  }
+
+  /**
+   * Stub handler that, like the spell index directory lock, cannot be opened
+   * for a translation while another handler for it is open.
+   */
+  private class StubHandler implements SpellingCorrectionHandler {
+
+    /** The translation id. */
+    private Long translationId;
+
+    /** The closed flag. */
+    volatile boolean closed = false;
+
+    /* see superclass */
+    @Override
+    public void setProperties(Properties p) throws Exception {
+      // n/a
+    }
+
+    /* see superclass */
+    @Override
+    public String getName() {
+      return "Stub spelling correction handler";
+    }
+
+    /* see superclass */
+    @Override
+    public void setTranslation(Translation translation) throws Exception {
+      synchronized (open) {
+        if (open.containsKey(translation.getId())) {
+          throw new Exception(
+              "Lock held by another handler for " + translation.getId());
+        }
+        translationId = translation.getId();
+        open.put(translationId, this);
+        opened.add(this);
+      }
+    }
+
+    /* see superclass */
+    @Override
+    public void reindex(List<String> entries, boolean merge) throws Exception {
+      // n/a
+    }
+
+    /* see superclass */
+    @Override
+    public void addEntries(List<String> entries) throws Exception {
+      // n/a
+    }
+
+    /* see superclass */
+    @Override
+    public void removeEntries(List<String> entries) throws Exception {
+      // n/a
+    }
+
+    /* see superclass */
+    @Override
+    public StringList suggestSpelling(String term, int amount)
+      throws Exception {
+      return new StringList();
+    }
+
+    /* see superclass */
+    @Override
+    public boolean exists(String term) throws Exception {
+      return false;
+    }
+
+    /* see superclass */
+    @Override
+    public KeyValuesMap suggestBatchSpelling(List<String> terms, int amount)
+      throws Exception {
+      return new KeyValuesMap();
+    }
+
+    /* see superclass */
+    @Override
+    public void close() throws Exception {
+      synchronized (open) {
+        open.remove(translationId, this);
+        closed = true;
+      }
+    }
+
+    /* see superclass */
+    @Override
+    public List<String> getEntriesAsList(InputStream is) throws Exception {
+      return new ArrayList<>();
+    }
+
+    /* see superclass */
+    @Override
+    public InputStream getEntriesAsStream(List<String> l) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.test.jpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.util.Date;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.User;
+import org.ihtsdo.otf.refset.helpers.LocalException;
+import org.ihtsdo.otf.refset.jpa.services.SecurityServiceJpa;
+import org.ihtsdo.otf.refset.jpa.services.handlers.DefaultTokenStore;
+import org.ihtsdo.otf.refset.services.SecurityService;
+import org.ihtsdo.otf.refset.services.handlers.SecurityServiceHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit testing for the sliding token expiration of
+ * {@link SecurityServiceJpa#getUsernameForToken(String)}: expired tokens are
+ * rejected, used tokens are renewed (written back only once they move by more
+ * than the refresh), and logged out tokens are removed. Runs against an
+ * in-memory token store and a handler that times out every user.
+ */
+public class TokenExpiryTest extends JpaSupport {
+
+  /** The timeout. */
+  private static final int TIMEOUT = 60000;
+
+  /** The refresh. */
+  private static final long REFRESH = 10000;
+
+  /** The saved static state of the security service. */
+  private final Object[] saved = new Object[4];
+
+  /** The static field names of the security service. */
+  private static final String[] FIELDS = {
+      "handler", "tokenStore", "timeout", "timeoutRefresh"
+  };
+
+  /** The token store. */
+  private CountingTokenStore tokenStore;
+
+  /** The service. */
+  private SecurityService service;
+
+  /**
+   * Create test fixtures per test.
+   *
+   * @throws Exception the exception
+   */
+  @Before
+  public void setup() throws Exception {
+    for (int i = 0; i < FIELDS.length; i++) {
+      saved[i] = getField(FIELDS[i]).get(null);
+    }
+    tokenStore = new CountingTokenStore();
+    getField("handler").set(null, new TimeoutSecurityServiceHandler());
+    getField("tokenStore").set(null, tokenStore);
+    getField("timeout").set(null, TIMEOUT);
+    getField("timeoutRefresh").set(null, REFRESH);
+    service = new SecurityServiceJpa();
+  }
+
+  /**
+   * Teardown.
+   *
+   * @throws Exception the exception
+   */
+  @After
+  public void teardown() throws Exception {
+    service.close();
+    for (int i = 0; i < FIELDS.length; i++) {
+      getField(FIELDS[i]).set(null, saved[i]);
+    }
+  }
+
+  /**
+   * Test that an expired token is rejected.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testExpired() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    tokenStore.addToken("t1", "user1",
+        new Date(System.currentTimeMillis() - 1000));
+    try {
+      service.getUsernameForToken("t1");
+      fail("Expected an expired token to be rejected");
+    } catch (LocalException e) {
+      assertTrue(e.getMessage().contains("expired"));
+    }
+
+    // unknown tokens are rejected too
+    try {
+      service.getUsernameForToken("t2");
+      fail("Expected an unknown token to be rejected");
+    } catch (LocalException e) {
+      // n/a
+    }
+  }
+
+  /**
+   * Test that using a token slides its expiration, writing it back only when
+   * it moves by more than the refresh.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testRenewal() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    // Recently renewed, no write
+    final long now = System.currentTimeMillis();
+    tokenStore.addToken("t1", "user1", new Date(now + TIMEOUT - 1000));
+    assertEquals("user1", service.getUsernameForToken("t1"));
+    assertEquals(0, tokenStore.writes);
+
+    // Quoted tokens are the same token
+    assertEquals("user1", service.getUsernameForToken("\"t1\""));
+    assertEquals(0, tokenStore.writes);
+
+    // About to expire, renewed to a full timeout
+    tokenStore.addToken("t2", "user1", new Date(now + 2000));
+    assertEquals("user1", service.getUsernameForToken("t2"));
+    assertEquals(1, tokenStore.writes);
+    final long expiration =
+        tokenStore.getToken("t2").getExpiration().getTime();
+    assertTrue(expiration >= now + TIMEOUT);
+    assertTrue(expiration <= System.currentTimeMillis() + TIMEOUT);
+
+    // And then not written again right away
+    assertEquals("user1", service.getUsernameForToken("t2"));
+    assertEquals(1, tokenStore.writes);
+  }
+
+  /**
+   * Test that logout removes the token.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testLogout() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    tokenStore.addToken("t1", "user1",
+        new Date(System.currentTimeMillis() + TIMEOUT));
+    assertEquals("user1", service.getUsernameForToken("t1"));
+    service.logout("\"t1\"");
+    assertNull(tokenStore.getToken("t1"));
+    try {
+      service.getUsernameForToken("t1");
+      fail("Expected a logged out token to be rejected");
+    } catch (LocalException e) {
+      // n/a
+    }
+  }
+
+  /**
+   * Returns a static field of the security service.
+   *
+   * @param name the name
+   * @return the field
+   * @throws Exception the exception
+   */
+  private static Field getField(String name) throws Exception {
+    final Field field = SecurityServiceJpa.class.getDeclaredField(name);
+    field.setAccessible(true);
+    return field;
+  }
+
+  /**
+   * In-memory token store counting expiration writes.
+   */
+  private static class CountingTokenStore extends DefaultTokenStore {
+
+    /** The expiration writes. */
+    int writes = 0;
+
+    /* see superclass */
+    @Override
+    public void setExpiration(String token, Date expiration) throws Exception {
+      writes++;
+      super.setExpiration(token, expiration);
+    }
+  }
+
+  /**
+   * Security service handler that times out every user.
+   */
+  private static class TimeoutSecurityServiceHandler
+      implements SecurityServiceHandler {
+
+    /* see superclass */
+    @Override
+    public void setProperties(Properties p) throws Exception {
+      // n/a
+    }
+
+    /* see superclass */
+    @Override
+    public String getName() {
+      return "Timeout security service handler";
+    }
+
+    /* see superclass */
+    @Override
+    public User authenticate(String user, String password) throws Exception {
+      return null;
+    }
+
+    /* see superclass */
+    @Override
+    public boolean timeoutUser(String user) {
+      return true;
+    }
+
+    /* see superclass */
+    @Override
+    public String computeTokenForUser(String user) {
+      return user;
+    }
+  }
+}
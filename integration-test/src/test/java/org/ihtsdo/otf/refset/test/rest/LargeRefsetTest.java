@@ -0,0 +1,145 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.test.rest;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.DefinitionClause;
+import org.ihtsdo.otf.refset.Project;
+import org.ihtsdo.otf.refset.Refset;
+import org.ihtsdo.otf.refset.helpers.ConceptRefsetMemberList;
+import org.ihtsdo.otf.refset.helpers.KeyValuePair;
+import org.ihtsdo.otf.refset.helpers.KeyValuePairList;
+import org.ihtsdo.otf.refset.jpa.DefinitionClauseJpa;
+import org.ihtsdo.otf.refset.jpa.RefsetJpa;
+import org.ihtsdo.otf.refset.jpa.helpers.PfsParameterJpa;
+import org.junit.Test;
+
+/**
+ * Load test for large intensional refsets: resolve, redefine (diff) and export
+ * a refset of at least "large.refset.minMembers" members, each step within
+ * "large.refset.maxSeconds", with the server heap used while resolving below
+ * "large.refset.maxHeapMB".
+ *
+ * The server must be configured with deploy.refset.definition.max.members set
+ * above the expected size (or 0) and lookup.background=false.
+ */
+public class LargeRefsetTest extends RefsetTestSupport {
+
+  /**
+   * Test resolving, redefining and exporting a large intensional refset.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testLargeIntensionalRefset() throws Exception {
+    Logger.getLogger(getClass()).info("TEST " + name.getMethodName());
+
+    final String definition = properties.getProperty(
+        "large.refset.definition", "<<138875005 |SNOMED CT Concept|");
+    final String negatedDefinition = properties.getProperty(
+        "large.refset.negatedDefinition", "<<404684003 |Clinical finding|");
+    final int minMembers = Integer.parseInt(
+        properties.getProperty("large.refset.minMembers", "250000"));
+    final long maxMillis = 1000L * Integer.parseInt(
+        properties.getProperty("large.refset.maxSeconds", "900"));
+    final long maxHeapMB = Long.parseLong(
+        properties.getProperty("large.refset.maxHeapMB", "2048"));
+
+    final Project project = projectService.getProject(3L, adminAuthToken);
+
+    // Resolve
+    long start = System.currentTimeMillis();
+    RefsetJpa refset = makeRefset("large refset", definition,
+        Refset.Type.INTENSIONAL, project, null, false);
+    long elapsed = System.currentTimeMillis() - start;
+    final int resolvedCt = getMemberCount(refset);
+    Logger.getLogger(getClass())
+        .info("  resolve: " + resolvedCt + " members, " + elapsed + "ms");
+    assertTrue(resolvedCt >= minMembers);
+    assertTrue(elapsed < maxMillis);
+
+    // Diff - redefine with a negated clause
+    final DefinitionClause clause = new DefinitionClauseJpa();
+    clause.setValue(negatedDefinition);
+    clause.setNegated(true);
+    refset.getDefinitionClauses().add(clause);
+    start = System.currentTimeMillis();
+    refsetService.updateRefset(refset, adminAuthToken);
+    elapsed = System.currentTimeMillis() - start;
+    refset =
+        (RefsetJpa) refsetService.getRefset(refset.getId(), adminAuthToken);
+    final int redefinedCt = getMemberCount(refset);
+    Logger.getLogger(getClass())
+        .info("  redefine: " + redefinedCt + " members, " + elapsed + "ms");
+    assertTrue(redefinedCt < resolvedCt);
+    assertTrue(elapsed < maxMillis);
+
+    // Heap high-water mark of both resolutions
+    final long heapUsedMB = getStatistic(
+        refsetService.getDefinitionStatistics(adminAuthToken), "maxHeapUsedMB");
+    Logger.getLogger(getClass()).info("  resolve heap: " + heapUsedMB + "MB");
+    assertTrue(heapUsedMB < maxHeapMB);
+
+    // Export
+    start = System.currentTimeMillis();
+    final int[] lineCt = new int[1];
+    refsetService
+        .exportMembers(refset.getId(), "DEFAULT", null, null, false,
+            new PfsParameterJpa(), adminAuthToken)
+        .write(new OutputStream() {
+          @Override
+          public void write(int b) {
+            if (b == '\n') {
+              lineCt[0]++;
+            }
+          }
+        });
+    elapsed = System.currentTimeMillis() - start;
+    Logger.getLogger(getClass())
+        .info("  export: " + lineCt[0] + " lines, " + elapsed + "ms");
+    // header line plus one line per member
+    assertTrue(lineCt[0] > redefinedCt);
+    assertTrue(elapsed < maxMillis);
+
+    // clean up
+    refsetService.removeRefset(refset.getId(), true, adminAuthToken);
+  }
+
+  /**
+   * Returns the numeric value of a statistic.
+   *
+   * @param statistics the statistics
+   * @param key the key
+   * @return the value
+   */
+  private static long getStatistic(KeyValuePairList statistics, String key) {
+    for (final KeyValuePair pair : statistics.getKeyValuePairs()) {
+      if (pair.getKey().equals(key)) {
+        return Long.parseLong(pair.getValue());
+      }
+    }
+    throw new IllegalArgumentException("Missing statistic " + key);
+  }
+
+  /**
+   * Returns the member count.
+   *
+   * @param refset the refset
+   * @return the member count
+   * @throws Exception the exception
+   */
+  private int getMemberCount(Refset refset) throws Exception {
+    final PfsParameterJpa pfs = new PfsParameterJpa();
+    pfs.setStartIndex(0);
+    pfs.setMaxResults(1);
+    final ConceptRefsetMemberList members =
+        refsetService.findRefsetMembersForQuery(refset.getId(),
+            "memberType:MEMBER", null, false, false, pfs, adminAuthToken);
+    return members.getTotalCount();
+  }
+}
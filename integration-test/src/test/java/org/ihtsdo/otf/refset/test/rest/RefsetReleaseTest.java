@@ -26,6 +26,8 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.UUID;
 
+import javax.ws.rs.core.Response;
+
 import org.apache.log4j.Logger;
 import org.ihtsdo.otf.refset.DefinitionClause;
 import org.ihtsdo.otf.refset.Project;
@@ -560,8 +562,15 @@ public class RefsetReleaseTest extends RestSupport {
     assertEquals(1, infoList1.getCount());
 
     // Export Artifact from release 1
-    InputStream exportedStream =
-        releaseService.exportReleaseArtifact(artifact1.getId(), adminAuthToken);
+    InputStream exportedStream = releaseService
+        .exportReleaseArtifact(artifact1.getId(), null, adminAuthToken)
+        .readEntity(InputStream.class);
+
+    // Export the first ten bytes of the artifact
+    final Response partial = releaseService
+        .exportReleaseArtifact(artifact1.getId(), "bytes=0-9", adminAuthToken);
+    assertEquals(206, partial.getStatus());
+    assertEquals(10, partial.readEntity(byte[].class).length);
 
     // Import Artifact to release 2
     releaseService.importReleaseArtifact(null, exportedStream,
@@ -1206,7 +1215,8 @@ public class RefsetReleaseTest extends RestSupport {
         // Each entry in the map must exist and match the data
         final BufferedReader in =
             new BufferedReader(new InputStreamReader(releaseService
-                .exportReleaseArtifact(artifact.getId(), adminAuthToken)));
+                .exportReleaseArtifact(artifact.getId(), null, adminAuthToken)
+                .readEntity(InputStream.class)));
         String line = null;
         final Set<String> badLines = new HashSet<>();
         final Map<String, Boolean> activeMapCopy = new HashMap<>(activeMap);
@@ -1270,7 +1270,8 @@ public class TranslationReleaseTest extends RestSupport {
         // Handle descriptions
         List<String> lines =
             getLines(releaseService.exportReleaseArtifact(artifact.getId(),
-                adminAuthToken), "Description");
+                null, adminAuthToken).readEntity(InputStream.class),
+                "Description");
         Set<String> badLines = new HashSet<>();
         Map<String, Boolean> activeMapCopy = new HashMap<>(activeDescMap);
         Map<String, String> etMapCopy = new HashMap<>(etDescMap);
@@ -1301,7 +1302,7 @@ public class TranslationReleaseTest extends RestSupport {
 
         // Handle Languages
         lines = getLines(releaseService.exportReleaseArtifact(artifact.getId(),
-            adminAuthToken), "Language");
+            null, adminAuthToken).readEntity(InputStream.class), "Language");
         badLines = new HashSet<>();
         activeMapCopy = new HashMap<>(activeLangMap);
         etMapCopy = new HashMap<>(etLangMap);
@@ -0,0 +1,159 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.jpa;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.TableGenerator;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.ihtsdo.otf.refset.AuthToken;
+
+/**
+ * JPA enabled implementation of an {@link AuthToken}. Not audited, tokens are
+ * short-lived session state.
+ */
+@Entity
+@Table(name = "auth_tokens", indexes = {
+    @Index(columnList = "userName")
+})
+@XmlRootElement(name = "authToken")
+public class AuthTokenJpa implements AuthToken {
+
+  /** The id. */
+  @TableGenerator(name = "EntityIdGen", table = "table_generator", pkColumnValue = "Entity")
+  @Id
+  @GeneratedValue(strategy = GenerationType.TABLE, generator = "EntityIdGen")
+  private Long id;
+
+  /** The token. */
+  @Column(nullable = false, unique = true, length = 255)
+  private String token;
+
+  /** The user name. */
+  @Column(nullable = false, length = 255)
+  private String userName;
+
+  /** The expiration. */
+  @Column(nullable = false)
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date expiration;
+
+  /**
+   * Instantiates an empty {@link AuthTokenJpa}.
+   */
+  public AuthTokenJpa() {
+    // do nothing
+  }
+
+  /**
+   * Instantiates a {@link AuthTokenJpa} from the specified parameters.
+   *
+   * @param authToken the auth token
+   */
+  public AuthTokenJpa(AuthToken authToken) {
+    id = authToken.getId();
+    token = authToken.getToken();
+    userName = authToken.getUserName();
+    expiration = authToken.getExpiration();
+  }
+
+  /* see superclass */
+  @Override
+  public Long getId() {
+    return id;
+  }
+
+  /* see superclass */
+  @Override
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  /* see superclass */
+  @Override
+  public String getToken() {
+    return token;
+  }
+
+  /* see superclass */
+  @Override
+  public void setToken(String token) {
+    this.token = token;
+  }
+
+  /* see superclass */
+  @Override
+  public String getUserName() {
+    return userName;
+  }
+
+  /* see superclass */
+  @Override
+  public void setUserName(String userName) {
+    this.userName = userName;
+  }
+
+  /* see superclass */
+  @Override
+  public Date getExpiration() {
+    return expiration;
+  }
+
+  /* see superclass */
+  @Override
+  public void setExpiration(Date expiration) {
+    this.expiration = expiration;
+  }
+
+  /* see superclass */
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + ((token == null) ? 0 : token.hashCode());
+    result = prime * result + ((userName == null) ? 0 : userName.hashCode());
+    return result;
+  }
+
+  /* see superclass */
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    AuthTokenJpa other = (AuthTokenJpa) obj;
+    if (token == null) {
+      if (other.token != null)
+        return false;
+    } else if (!token.equals(other.token))
+      return false;
+    if (userName == null) {
+      if (other.userName != null)
+        return false;
+    } else if (!userName.equals(other.userName))
+      return false;
+    return true;
+  }
+
+  /* see superclass */
+  @Override
+  public String toString() {
+    // the token itself is a credential and is not logged
+    return "AuthTokenJpa [id=" + id + ", userName=" + userName
+        + ", expiration=" + expiration + "]";
+  }
+}
@@ -65,11 +65,19 @@ public class ReleaseArtifactJpa implements ReleaseArtifact {
   @Column(nullable = true)
   private String ioHandlerId = "DEFAULT";
 
-  /** The data. */
+  /** The data, null once the content is in the release artifact store. */
   @Lob
-  @Column(nullable = false)
+  @Column(nullable = true)
   private byte[] data;
 
+  /** The checksum of the content in the release artifact store. */
+  @Column(nullable = true, length = 64)
+  private String checksum;
+
+  /** The size of the content in bytes. */
+  @Column(nullable = true)
+  private Long size;
+
   /**
    * Instantiates an empty {@link ReleaseArtifactJpa}.
    */
@@ -89,6 +97,8 @@ public class ReleaseArtifactJpa implements ReleaseArtifact {
     lastModifiedBy = artifact.getLastModifiedBy();
     releaseInfo = artifact.getReleaseInfo();
     data = artifact.getData();
+    checksum = artifact.getChecksum();
+    size = artifact.getSize();
     ioHandlerId = artifact.getIoHandlerId();
   }
 
@@ -191,12 +201,37 @@ public class ReleaseArtifactJpa implements ReleaseArtifact {
     this.data = data;
   }
 
+  /* see superclass */
+  @Override
+  public String getChecksum() {
+    return checksum;
+  }
+
+  /* see superclass */
+  @Override
+  public void setChecksum(String checksum) {
+    this.checksum = checksum;
+  }
+
+  /* see superclass */
+  @Override
+  public Long getSize() {
+    return size;
+  }
+
+  /* see superclass */
+  @Override
+  public void setSize(Long size) {
+    this.size = size;
+  }
+
   /* see superclass */
   @Override
   public int hashCode() {
     final int prime = 31;
     int result = 1;
     result = prime * result + Arrays.hashCode(data);
+    result = prime * result + ((checksum == null) ? 0 : checksum.hashCode());
     result = prime * result + ((name == null) ? 0 : name.hashCode());
     result =
         prime * result + ((releaseInfo == null) ? 0 : releaseInfo.hashCode());
@@ -215,6 +250,11 @@ public class ReleaseArtifactJpa implements ReleaseArtifact {
     ReleaseArtifactJpa other = (ReleaseArtifactJpa) obj;
     if (!Arrays.equals(data, other.data))
       return false;
+    if (checksum == null) {
+      if (other.checksum != null)
+        return false;
+    } else if (!checksum.equals(other.checksum))
+      return false;
     if (name == null) {
       if (other.name != null)
         return false;
@@ -233,7 +273,8 @@ public class ReleaseArtifactJpa implements ReleaseArtifact {
   public String toString() {
     return "ReleaseArtifactJpa [name=" + name + ", timestamp=" + timestamp
         + ", lastModified=" + lastModified + ", lastModifiedBy="
-        + lastModifiedBy + ", releaseInfo=" + releaseInfo + "]";
+        + lastModifiedBy + ", releaseInfo=" + releaseInfo + ", checksum="
+        + checksum + ", size=" + size + "]";
   }
 
 }
@@ -0,0 +1,191 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.jpa.helpers;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.FieldComparator;
+import org.apache.lucene.search.FieldComparatorSource;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.hibernate.search.bridge.LuceneOptions;
+import org.hibernate.search.bridge.MetadataProvidingFieldBridge;
+import org.hibernate.search.bridge.spi.FieldMetadataBuilder;
+import org.hibernate.search.bridge.spi.FieldType;
+import org.ihtsdo.otf.refset.ConceptRefsetMemberSynonym;
+import org.ihtsdo.otf.refset.rf2.ConceptRefsetMember;
+
+/**
+ * Hibernate search class bridge for the display name sort keys of a concept
+ * refset member. The lowercase concept name is indexed as "displayNameSort"
+ * and the lowercase PT and FSN of each language refset of the member's active
+ * synonyms as "displayNameSort.[languageRefsetId].PT|FSN", all as sorted doc
+ * values, so members can be sorted and paged by their display name in a
+ * language without loading the whole refset.
+ */
+public class DisplayNameSortBridge implements MetadataProvidingFieldBridge {
+
+  /** The field name. */
+  public static final String FIELD = "displayNameSort";
+
+  /** The fallback language refset id (US English). */
+  public static final String FALLBACK_LANGUAGE_REFSET_ID = "900000000000509007";
+
+  /* see superclass */
+  @Override
+  public void configureFieldMetadata(String name, FieldMetadataBuilder builder) {
+    builder.field(name, FieldType.STRING).sortable(true);
+  }
+
+  /* see superclass */
+  @Override
+  public void set(String name, Object value, Document document,
+    LuceneOptions luceneOptions) {
+    if (!(value instanceof ConceptRefsetMember)) {
+      return;
+    }
+    final ConceptRefsetMember member = (ConceptRefsetMember) value;
+    if (member.getConceptName() != null) {
+      addSortKey(document, name, member.getConceptName());
+    }
+    // doc values allow a single value per field
+    final Set<String> fields = new HashSet<>();
+    for (final ConceptRefsetMemberSynonym synonym : member.getSynonyms()) {
+      if (!synonym.isActive() || synonym.getSynonym() == null
+          || synonym.getLanguageRefsetId() == null
+          || !("PT".equals(synonym.getTermType())
+              || "FSN".equals(synonym.getTermType()))) {
+        continue;
+      }
+      final String field = getFieldName(name, synonym.getLanguageRefsetId(),
+          "FSN".equals(synonym.getTermType()));
+      if (fields.add(field)) {
+        addSortKey(document, field, synonym.getSynonym());
+      }
+    }
+  }
+
+  /**
+   * Returns the sort field for members by display name in a language refset:
+   * the PT (or FSN) in that language, otherwise the US English PT, otherwise
+   * the concept name, ignoring case. For "en" (or no language) members sort by
+   * concept name, ignoring case.
+   *
+   * @param languageRefsetId the language refset id, e.g. 450828004, or "en"
+   * @param fsn the fsn flag
+   * @param ascending the ascending flag
+   * @return the sort field
+   */
+  public static SortField getSortField(String languageRefsetId, boolean fsn,
+    boolean ascending) {
+    final String[] fields;
+    if (languageRefsetId == null || languageRefsetId.isEmpty()
+        || languageRefsetId.equals("en")) {
+      fields = new String[] {
+          FIELD
+      };
+    } else {
+      fields = new String[] {
+          getFieldName(FIELD, languageRefsetId, fsn),
+          getFieldName(FIELD, FALLBACK_LANGUAGE_REFSET_ID, false), FIELD
+      };
+    }
+    return new SortField(FIELD, new FirstValueComparatorSource(fields),
+        !ascending);
+  }
+
+  /**
+   * Returns the field name for a language refset and term type.
+   *
+   * @param name the base field name
+   * @param languageRefsetId the language refset id
+   * @param fsn the fsn flag
+   * @return the field name
+   */
+  private static String getFieldName(String name, String languageRefsetId,
+    boolean fsn) {
+    return name + "." + languageRefsetId + (fsn ? ".FSN" : ".PT");
+  }
+
+  /**
+   * Adds a lowercase sort key to the document.
+   *
+   * @param document the document
+   * @param field the field
+   * @param value the value
+   */
+  private static void addSortKey(Document document, String field,
+    String value) {
+    document.add(new SortedDocValuesField(field,
+        new BytesRef(value.toLowerCase())));
+  }
+
+  /**
+   * Compares documents by the value of the first of several doc values fields
+   * that the document has.
+   */
+  private static class FirstValueComparatorSource
+      extends FieldComparatorSource {
+
+    /** The fields, in order of preference. */
+    private final String[] fields;
+
+    /**
+     * Instantiates a {@link FirstValueComparatorSource} from the specified
+     * parameters.
+     *
+     * @param fields the fields
+     */
+    FirstValueComparatorSource(String[] fields) {
+      this.fields = fields;
+    }
+
+    /* see superclass */
+    @Override
+    public FieldComparator<?> newComparator(String fieldname, int numHits,
+      int sortPos, boolean reversed) throws IOException {
+      return new FieldComparator.TermValComparator(numHits, fieldname, false) {
+
+        /* see superclass */
+        @Override
+        protected BinaryDocValues getBinaryDocValues(LeafReaderContext context,
+          String field) throws IOException {
+          final BinaryDocValues[] values = new BinaryDocValues[fields.length];
+          final Bits[] docsWithField = new Bits[fields.length];
+          for (int i = 0; i < fields.length; i++) {
+            values[i] = DocValues.getBinary(context.reader(), fields[i]);
+            docsWithField[i] =
+                DocValues.getDocsWithField(context.reader(), fields[i]);
+          }
+          return new BinaryDocValues() {
+            @Override
+            public BytesRef get(int docID) {
+              for (int i = 0; i < values.length; i++) {
+                if (docsWithField[i].get(docID)) {
+                  return values[i].get(docID);
+                }
+              }
+              return new BytesRef();
+            }
+          };
+        }
+
+        /* see superclass */
+        @Override
+        protected Bits getDocsWithField(LeafReaderContext context,
+          String field) throws IOException {
+          return new Bits.MatchAllBits(context.reader().maxDoc());
+        }
+      };
+    }
+  }
+}
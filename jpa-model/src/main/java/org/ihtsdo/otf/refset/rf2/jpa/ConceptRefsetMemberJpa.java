@@ -22,6 +22,7 @@ import javax.xml.bind.annotation.XmlTransient;
 
 import org.hibernate.envers.Audited;
 import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.annotations.ClassBridge;
 import org.hibernate.search.annotations.ContainedIn;
 import org.hibernate.search.annotations.Field;
 import org.hibernate.search.annotations.FieldBridge;
@@ -39,6 +40,7 @@ import org.ihtsdo.otf.refset.Refset;
 import org.ihtsdo.otf.refset.jpa.ConceptRefsetMemberNoteJpa;
 import org.ihtsdo.otf.refset.jpa.ConceptRefsetMemberSynonymJpa;
 import org.ihtsdo.otf.refset.jpa.RefsetJpa;
+import org.ihtsdo.otf.refset.jpa.helpers.DisplayNameSortBridge;
 import org.ihtsdo.otf.refset.rf2.ConceptRefsetMember;
 
 /**
@@ -51,6 +53,7 @@ import org.ihtsdo.otf.refset.rf2.ConceptRefsetMember;
 }))
 @Audited
 @Indexed
+@ClassBridge(name = DisplayNameSortBridge.FIELD, impl = DisplayNameSortBridge.class, index = Index.NO, analyze = Analyze.NO, store = Store.NO)
 @XmlRootElement(name = "member")
 public class ConceptRefsetMemberJpa extends AbstractComponent
     implements ConceptRefsetMember {
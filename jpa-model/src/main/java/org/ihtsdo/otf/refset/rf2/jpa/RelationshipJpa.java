@@ -280,7 +280,10 @@ public class RelationshipJpa extends AbstractComponent implements Relationship {
    */
   @SuppressWarnings("unused")
   private void setDestinationPreferredName(String name) {
-    // do nothing - here for JAXB
+    if (destinationConcept == null) {
+      destinationConcept = new ConceptJpa();
+    }
+    destinationConcept.setName(name);
   }
 
   /* see superclass */
@@ -0,0 +1,132 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.model;
+
+import static org.junit.Assert.assertTrue;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.AuthToken;
+import org.ihtsdo.otf.refset.helpers.CopyConstructorTester;
+import org.ihtsdo.otf.refset.helpers.EqualsHashcodeTester;
+import org.ihtsdo.otf.refset.helpers.GetterSetterTester;
+import org.ihtsdo.otf.refset.helpers.XmlSerializationTester;
+import org.ihtsdo.otf.refset.jpa.AuthTokenJpa;
+import org.ihtsdo.otf.refset.jpa.helpers.NullableFieldTester;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Unit testing for {@link AuthTokenJpa}.
+ */
+public class AuthTokenJpaUnitTest extends ModelUnitSupport {
+
+  /** The model object to test. */
+  private AuthToken object;
+
+  /**
+   * Setup class.
+   */
+  @BeforeClass
+  public static void setupClass() {
+    // do nothing
+  }
+
+  /**
+   * Setup.
+   */
+  @Before
+  public void setup() {
+    object = new AuthTokenJpa();
+  }
+
+  /**
+   * Test getter and setter methods of model object.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testModelGetSet046() throws Exception {
+    Logger.getLogger(getClass()).debug("TEST " + name.getMethodName());
+    GetterSetterTester tester = new GetterSetterTester(object);
+    tester.test();
+  }
+
+  /**
+   * Test equals and hascode methods.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testModelEqualsHashcode046() throws Exception {
+    Logger.getLogger(getClass()).debug("TEST " + name.getMethodName());
+    EqualsHashcodeTester tester = new EqualsHashcodeTester(object);
+    tester.include("token");
+    tester.include("userName");
+    assertTrue(tester.testIdentitiyFieldEquals());
+    assertTrue(tester.testNonIdentitiyFieldEquals());
+    assertTrue(tester.testIdentityFieldNotEquals());
+    assertTrue(tester.testIdentitiyFieldHashcode());
+    assertTrue(tester.testNonIdentitiyFieldHashcode());
+    assertTrue(tester.testIdentityFieldDifferentHashcode());
+  }
+
+  /**
+   * Test copy constructor.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testModelCopy046() throws Exception {
+    Logger.getLogger(getClass()).debug("TEST " + name.getMethodName());
+    CopyConstructorTester tester = new CopyConstructorTester(object);
+    assertTrue(tester.testCopyConstructor(AuthToken.class));
+  }
+
+  /**
+   * Test XML serialization.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testModelXmlSerialization046() throws Exception {
+    Logger.getLogger(getClass()).debug("TEST " + name.getMethodName());
+    XmlSerializationTester tester = new XmlSerializationTester(object);
+    assertTrue(tester.testXmlSerialization());
+  }
+
+  /**
+   * Test not null fields.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testModelNotNullField046() throws Exception {
+    Logger.getLogger(getClass()).debug("TEST " + name.getMethodName());
+    NullableFieldTester tester = new NullableFieldTester(object);
+    tester.include("token");
+    tester.include("userName");
+    tester.include("expiration");
+    assertTrue(tester.testNotNullFields());
+  }
+
+  /**
+   * Teardown.
+   */
+  @After
+  public void teardown() {
+    // do nothing
+  }
+
+  /**
+   * Teardown class.
+   */
+  @AfterClass
+  public static void teardownClass() {
+    // do nothing
+  }
+
+}
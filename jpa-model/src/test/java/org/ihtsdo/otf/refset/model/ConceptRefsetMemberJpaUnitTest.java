@@ -3,12 +3,25 @@
  */
 package org.ihtsdo.otf.refset.model;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.log4j.Logger;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
 import org.ihtsdo.otf.refset.ConceptRefsetMemberSynonym;
 import org.ihtsdo.otf.refset.Refset;
 import org.ihtsdo.otf.refset.helpers.CopyConstructorTester;
@@ -19,6 +32,7 @@ import org.ihtsdo.otf.refset.helpers.XmlSerializationTester;
 import org.ihtsdo.otf.refset.jpa.ConceptRefsetMemberSynonymJpa;
 import org.ihtsdo.otf.refset.jpa.ProjectJpa;
 import org.ihtsdo.otf.refset.jpa.RefsetJpa;
+import org.ihtsdo.otf.refset.jpa.helpers.DisplayNameSortBridge;
 import org.ihtsdo.otf.refset.jpa.helpers.IndexedFieldTester;
 import org.ihtsdo.otf.refset.jpa.helpers.NullableFieldTester;
 import org.ihtsdo.otf.refset.rf2.ConceptRefsetMember;
@@ -216,6 +230,82 @@ public class ConceptRefsetMemberJpaUnitTest extends ModelUnitSupport {
 
   }
 
+  /**
+   * Test display name sort keys.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testModelDisplayNameSort021() throws Exception {
+    Logger.getLogger(getClass()).debug("TEST " + name.getMethodName());
+
+    // 1: Spanish PT, 2: only US English PT, 3: no synonyms
+    final ConceptRefsetMemberJpa m1 = new ConceptRefsetMemberJpa();
+    m1.setConceptName("Zebra");
+    m1.getSynonyms().add(new ConceptRefsetMemberSynonymJpa("Abeja", "es", "PT",
+        m1, true, "450828004"));
+    m1.getSynonyms().add(new ConceptRefsetMemberSynonymJpa("Zorro", "en", "PT",
+        m1, true, DisplayNameSortBridge.FALLBACK_LANGUAGE_REFSET_ID));
+    final ConceptRefsetMemberJpa m2 = new ConceptRefsetMemberJpa();
+    m2.setConceptName("Apple");
+    m2.getSynonyms().add(new ConceptRefsetMemberSynonymJpa("Mango", "en", "PT",
+        m2, true, DisplayNameSortBridge.FALLBACK_LANGUAGE_REFSET_ID));
+    m2.getSynonyms().add(new ConceptRefsetMemberSynonymJpa("Aaa", "es", "PT",
+        m2, false, "450828004"));
+    final ConceptRefsetMemberJpa m3 = new ConceptRefsetMemberJpa();
+    m3.setConceptName("banana");
+
+    final DisplayNameSortBridge bridge = new DisplayNameSortBridge();
+    try (final Directory directory = new RAMDirectory()) {
+      try (final IndexWriter writer = new IndexWriter(directory,
+          new IndexWriterConfig(new StandardAnalyzer()))) {
+        int ct = 1;
+        for (final ConceptRefsetMemberJpa member : new ConceptRefsetMemberJpa[] {
+            m1, m2, m3
+        }) {
+          final Document document = new Document();
+          document.add(new StoredField("id", ct++));
+          bridge.set(DisplayNameSortBridge.FIELD, member, document, null);
+          writer.addDocument(document);
+        }
+      }
+      try (final DirectoryReader reader = DirectoryReader.open(directory)) {
+        final IndexSearcher searcher = new IndexSearcher(reader);
+        // Spanish: abeja, banana (concept name), mango (US English fallback)
+        assertEquals("1,3,2",
+            getSortedIds(searcher, "450828004", true));
+        assertEquals("2,3,1",
+            getSortedIds(searcher, "450828004", false));
+        // English: apple, banana, zebra
+        assertEquals("2,3,1", getSortedIds(searcher, "en", true));
+        // No Danish synonyms: banana, mango, zorro
+        assertEquals("3,2,1", getSortedIds(searcher, "554461000005103", true));
+      }
+    }
+  }
+
+  /**
+   * Returns the ids of all documents sorted by display name.
+   *
+   * @param searcher the searcher
+   * @param language the language
+   * @param ascending the ascending flag
+   * @return the ids, comma-separated
+   * @throws Exception the exception
+   */
+  @SuppressWarnings("static-method")
+  private String getSortedIds(IndexSearcher searcher, String language,
+    boolean ascending) throws Exception {
+    final StringBuilder sb = new StringBuilder();
+    for (final ScoreDoc doc : searcher.search(new MatchAllDocsQuery(), 10,
+        new Sort(DisplayNameSortBridge.getSortField(language, false,
+            ascending))).scoreDocs) {
+      sb.append(sb.length() > 0 ? "," : "")
+          .append(searcher.doc(doc.doc).getField("id").numericValue());
+    }
+    return sb.toString();
+  }
+
   /**
    * Teardown.
    */
@@ -80,6 +80,7 @@ public class ReleaseArtifactJpaUnitTest extends ModelUnitSupport {
     tester.include("name");
     tester.include("releaseInfo");
     tester.include("data");
+    tester.include("checksum");
 
     // Set up objects
     tester.proxy(ReleaseInfo.class, 1, r1);
@@ -123,7 +124,6 @@ public class ReleaseArtifactJpaUnitTest extends ModelUnitSupport {
     tester.include("timestamp");
     tester.include("lastModified");
     tester.include("lastModifiedBy");
-    tester.include("data");
     assertTrue(tester.testNotNullFields());
   }
 
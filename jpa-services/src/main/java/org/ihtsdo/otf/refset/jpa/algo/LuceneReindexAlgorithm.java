@@ -3,7 +3,13 @@
  */
 package org.ihtsdo.otf.refset.jpa.algo;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -12,16 +18,26 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import javax.persistence.EntityManager;
 import javax.persistence.Query;
 
 import org.apache.log4j.Logger;
+import org.apache.lucene.search.MatchAllDocsQuery;
 import org.hibernate.CacheMode;
 import org.hibernate.search.annotations.Indexed;
 import org.hibernate.search.jpa.FullTextEntityManager;
 import org.hibernate.search.jpa.Search;
 import org.ihtsdo.otf.refset.algo.Algorithm;
+import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+import org.ihtsdo.otf.refset.helpers.LocalException;
 import org.ihtsdo.otf.refset.jpa.services.RefsetServiceJpa;
 import org.ihtsdo.otf.refset.jpa.services.RootServiceJpa;
 import org.ihtsdo.otf.refset.services.RefsetService;
@@ -32,6 +48,13 @@ import org.reflections.Reflections;
 /**
  * Implementation of an algorithm to reindex all classes annotated
  * with @Indexed.
+ *
+ * By default each class is purged and mass indexed. If an id range or last
+ * modified window is set, only the matching objects are reindexed, by id
+ * range, concurrently. Completed classes and ranges are checkpointed so an
+ * interrupted reindex resumes where it stopped, and document counts are
+ * verified against the database at the end (a mismatch fails an incremental
+ * or resumed reindex, a full one only warns).
  */
 public class LuceneReindexAlgorithm extends RootServiceJpa
     implements Algorithm {
@@ -40,7 +63,7 @@ public class LuceneReindexAlgorithm extends RootServiceJpa
   private List<ProgressListener> listeners = new ArrayList<>();
 
   /** The request cancel flag. */
-  boolean requestCancel = false;
+  volatile boolean requestCancel = false;
 
   /** The terminology. */
   private String indexedObjects;
@@ -59,6 +82,24 @@ public class LuceneReindexAlgorithm extends RootServiceJpa
   /** The full text entity manager. */
   private FullTextEntityManager fullTextEntityManager;
 
+  /** The from id, inclusive. */
+  private Long fromId;
+
+  /** The to id, inclusive. */
+  private Long toId;
+
+  /** The modified since date, inclusive. */
+  private Date modifiedSince;
+
+  /** The modified until date, exclusive. */
+  private Date modifiedUntil;
+
+  /** The checkpoint file. */
+  private File checkpointFile;
+
+  /** The range executor. */
+  private static ExecutorService executor;
+
   /** Sort object to index by size descending or ascending. */
   private static boolean DESC = false;
 
@@ -97,6 +138,44 @@ public class LuceneReindexAlgorithm extends RootServiceJpa
     this.threadsToLoadObjects = threadsToLoadObjects;
   }
 
+  /**
+   * Sets the from id. Only objects with ids from this one are reindexed.
+   *
+   * @param fromId the from id
+   */
+  public void setFromId(Long fromId) {
+    this.fromId = fromId;
+  }
+
+  /**
+   * Sets the to id. Only objects with ids up to this one are reindexed.
+   *
+   * @param toId the to id
+   */
+  public void setToId(Long toId) {
+    this.toId = toId;
+  }
+
+  /**
+   * Sets the modified since date. Only objects last modified on or after it
+   * are reindexed.
+   *
+   * @param modifiedSince the modified since date
+   */
+  public void setModifiedSince(Date modifiedSince) {
+    this.modifiedSince = modifiedSince;
+  }
+
+  /**
+   * Sets the modified until date. Only objects last modified before it are
+   * reindexed.
+   *
+   * @param modifiedUntil the modified until date
+   */
+  public void setModifiedUntil(Date modifiedUntil) {
+    this.modifiedUntil = modifiedUntil;
+  }
+
   /* see superclass */
   @Override
   public void compute() throws Exception {
@@ -139,7 +218,9 @@ public class LuceneReindexAlgorithm extends RootServiceJpa
     }
 
     // if no parameter specified, re-index all objects
-    if (indexedObjects == null || indexedObjects.isEmpty()) {
+    final boolean allObjects =
+        indexedObjects == null || indexedObjects.isEmpty();
+    if (allObjects) {
 
       // Add all class names
       for (final String className : reindexMap.keySet()) {
@@ -181,9 +262,27 @@ public class LuceneReindexAlgorithm extends RootServiceJpa
           .info("  " + key + " : " + reindexMapOrdered.get(key));
     }
 
-    reindexMapOrdered.keySet().stream().forEach(key -> {
-      // Concepts
-      if (objectsToReindex.contains(key)) {
+    final Set<String> checkpoints = openCheckpoint(objectsToReindex);
+    final List<Class<?>> reindexed = new ArrayList<>();
+    if (isIncremental()) {
+      computeIncrementalIndexes(reindexMapOrdered.keySet(), reindexMap,
+          objectsToReindex, allObjects, batchSize, checkpoints, reindexed);
+    } else {
+      for (final String key : reindexMapOrdered.keySet()) {
+        if (!objectsToReindex.contains(key)) {
+          continue;
+        }
+        objectsToReindex.remove(key);
+        reindexed.add(reindexMap.get(key));
+        if (requestCancel) {
+          throw new LocalException(
+              "Reindex cancelled, it resumes from the last checkpoint");
+        }
+        if (checkpoints.contains(key)) {
+          Logger.getLogger(getClass())
+              .info(" Skipping " + key + ", reindexed before interruption");
+          continue;
+        }
         final long startTime = System.currentTimeMillis();
         Logger.getLogger(getClass()).info(" Creating indexes for " + key);
         fullTextEntityManager.purgeAll(reindexMap.get(key));
@@ -194,13 +293,16 @@ public class LuceneReindexAlgorithm extends RootServiceJpa
               .threadsToLoadObjects(threads).idFetchSize(1000)
               .startAndWait();
         } catch (InterruptedException e) {
-          Logger.getLogger(getClass()).error("ERROR", e);
+          // Purged but only partly rebuilt, must not be checkpointed
+          Thread.currentThread().interrupt();
+          throw new LocalException(
+              "Reindex of " + key + " interrupted, it resumes from there", e);
         }
-        objectsToReindex.remove(key);
+        checkpoint(key);
         Logger.getLogger(getClass()).info(" Finished " + key + " in "
             + (System.currentTimeMillis() - startTime) + " ms");
       }
-    });
+    }
 
     if (objectsToReindex.size() != 0) {
       throw new Exception(
@@ -208,10 +310,383 @@ public class LuceneReindexAlgorithm extends RootServiceJpa
               + objectsToReindex.toString());
     }
 
+    // The reindex is complete, a later run starts over. A resumed full
+    // reindex relies on classes indexed by the interrupted run, so it is
+    // verified like an incremental one.
+    closeCheckpoint();
+    verifyIndexes(reindexed, isIncremental() || !checkpoints.isEmpty());
+
     // Cleanup
     Logger.getLogger(getClass()).info("done ...");
   }
 
+  /**
+   * Reindexes the objects by id range, restricted to the id and last modified
+   * windows. Ranges of "reindex.rangeSize" ids are indexed concurrently on
+   * "reindex.threads" threads, each with its own entity manager and
+   * transaction, and checkpointed as they finish.
+   *
+   * @param keys the indexed object names, largest first
+   * @param reindexMap the indexed classes by name
+   * @param objectsToReindex the objects to reindex, removed as they are found
+   * @param allObjects whether all objects were requested
+   * @param batchSize the batch size
+   * @param checkpoints the ranges completed before an interruption
+   * @param reindexed the reindexed classes
+   * @throws Exception the exception
+   */
+  private void computeIncrementalIndexes(Set<String> keys,
+    Map<String, Class<?>> reindexMap, Set<String> objectsToReindex,
+    boolean allObjects, int batchSize, Set<String> checkpoints,
+    List<Class<?>> reindexed) throws Exception {
+    final int rangeSize = Math.max(1, Integer.parseInt(ConfigUtility
+        .getConfigProperties().getProperty("reindex.rangeSize", "10000").trim()));
+
+    // Collect the id ranges of each object
+    final List<Object[]> ranges = new ArrayList<>();
+    for (final String key : keys) {
+      if (!objectsToReindex.contains(key)) {
+        continue;
+      }
+      objectsToReindex.remove(key);
+      final Class<?> clazz = reindexMap.get(key);
+      if (!hasLastModified(clazz)) {
+        if (modifiedSince != null || modifiedUntil != null) {
+          if (!allObjects) {
+            throw new LocalException(
+                key + " has no last modified date to reindex a window of");
+          }
+          Logger.getLogger(getClass())
+              .info(" Skipping " + key + ", it has no last modified date");
+          continue;
+        }
+      }
+      reindexed.add(clazz);
+
+      final Query query = manager.createQuery(
+          "select min(a.id), max(a.id) from " + key + " a" + getWindowClause());
+      setWindowParameters(query);
+      final Object[] minMax = (Object[]) query.getSingleResult();
+      if (minMax[0] == null) {
+        continue;
+      }
+      final long min = Math.max((Long) minMax[0],
+          fromId == null ? Long.MIN_VALUE : fromId);
+      final long max =
+          Math.min((Long) minMax[1], toId == null ? Long.MAX_VALUE : toId);
+
+      for (final long[] range : getRanges(min, max, rangeSize)) {
+        final String checkpoint = key + "\t" + range[0] + "\t" + range[1];
+        if (checkpoints.contains(checkpoint)) {
+          continue;
+        }
+        ranges.add(new Object[] {
+            clazz, range[0], range[1], checkpoint
+        });
+      }
+    }
+    Logger.getLogger(getClass()).info(" Reindexing " + ranges.size()
+        + " ranges of " + rangeSize + " ids"
+        + (checkpoints.isEmpty() ? ""
+            : ", " + checkpoints.size() + " ranges done before interruption"));
+
+    final AtomicInteger finished = new AtomicInteger();
+    final List<Future<?>> futures = new ArrayList<>();
+    for (final Object[] range : ranges) {
+      futures.add(getExecutor().submit(() -> {
+        if (requestCancel) {
+          return null;
+        }
+        final int ct = indexRange((Class<?>) range[0], (Long) range[1],
+            (Long) range[2], batchSize);
+        checkpoint((String) range[3]);
+        final int done = finished.incrementAndGet();
+        fireProgressEvent(done * 100 / ranges.size(),
+            "Reindexed " + ((Class<?>) range[0]).getSimpleName() + " "
+                + range[1] + "-" + range[2] + " (" + ct + ")");
+        return null;
+      }));
+    }
+    try {
+      for (final Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      for (final Future<?> future : futures) {
+        future.cancel(false);
+      }
+      throw (e.getCause() instanceof Exception) ? (Exception) e.getCause()
+          : e;
+    }
+    if (requestCancel) {
+      throw new LocalException(
+          "Reindex cancelled, it resumes from the last checkpoint");
+    }
+  }
+
+  /**
+   * Returns the id ranges from min to max. Ranges are aligned to multiples of
+   * the range size, so they are the same when an interrupted reindex is
+   * resumed, only the first and last are cut to min and max.
+   *
+   * @param min the min id, inclusive
+   * @param max the max id, inclusive
+   * @param rangeSize the range size
+   * @return the ranges, as start and end ids, inclusive
+   */
+  public static List<long[]> getRanges(long min, long max, int rangeSize) {
+    final List<long[]> ranges = new ArrayList<>();
+    for (long start = Math.floorDiv(min, rangeSize) * rangeSize; start <= max;
+        start += rangeSize) {
+      // no overflow past the largest id
+      final long end = start + Math.min(max - start, rangeSize - 1);
+      ranges.add(new long[] {
+          Math.max(min, start), end
+      });
+      if (end == max) {
+        break;
+      }
+    }
+    return ranges;
+  }
+
+  /**
+   * Indexes the objects of a class in an id range, in batches, with its own
+   * entity manager and transaction.
+   *
+   * @param clazz the class
+   * @param start the start id, inclusive
+   * @param end the end id, inclusive
+   * @param batchSize the batch size
+   * @return the number of objects indexed
+   * @throws Exception the exception
+   */
+  private int indexRange(Class<?> clazz, long start, long end, int batchSize)
+    throws Exception {
+    final EntityManager rangeManager = factory.createEntityManager();
+    try {
+      final FullTextEntityManager rangeFullTextManager =
+          Search.getFullTextEntityManager(rangeManager);
+      rangeManager.getTransaction().begin();
+      final Query query = rangeManager.createQuery("select a.id from "
+          + clazz.getSimpleName() + " a" + getWindowClause()
+          + (getWindowClause().isEmpty() ? " where" : " and")
+          + " a.id >= :start and a.id <= :end order by a.id");
+      setWindowParameters(query);
+      query.setParameter("start", start);
+      query.setParameter("end", end);
+      @SuppressWarnings("unchecked")
+      final List<Long> ids = query.getResultList();
+      for (int i = 0; i < ids.size(); i += batchSize) {
+        final List<?> objects = rangeManager
+            .createQuery(
+                "select a from " + clazz.getSimpleName() + " a where a.id in (:ids)")
+            .setParameter("ids",
+                ids.subList(i, Math.min(ids.size(), i + batchSize)))
+            .getResultList();
+        for (final Object object : objects) {
+          rangeFullTextManager.index(object);
+        }
+        rangeFullTextManager.flushToIndexes();
+        rangeFullTextManager.clear();
+      }
+      rangeManager.getTransaction().commit();
+      return ids.size();
+    } catch (Exception e) {
+      if (rangeManager.getTransaction().isActive()) {
+        rangeManager.getTransaction().rollback();
+      }
+      throw e;
+    } finally {
+      rangeManager.close();
+    }
+  }
+
+  /**
+   * Verifies that the index holds one document per database row of each
+   * reindexed class. An incremental or resumed reindex fails on a mismatch,
+   * a full one (e.g. after loading data) just warns.
+   *
+   * @param classes the classes
+   * @param strict whether a mismatch fails the reindex
+   * @throws Exception the exception
+   */
+  private void verifyIndexes(List<Class<?>> classes, boolean strict)
+    throws Exception {
+    final List<String> mismatches = new ArrayList<>();
+    for (final Class<?> clazz : classes) {
+      final long dbCount = (Long) manager
+          .createQuery("select count(1) from " + clazz.getSimpleName())
+          .getSingleResult();
+      final long indexCount = fullTextEntityManager
+          .createFullTextQuery(new MatchAllDocsQuery(), clazz).getResultSize();
+      Logger.getLogger(getClass()).info("  verify " + clazz.getSimpleName()
+          + " : " + indexCount + " documents, " + dbCount + " rows");
+      if (dbCount != indexCount) {
+        mismatches.add(clazz.getSimpleName() + " (" + indexCount
+            + " documents, " + dbCount + " rows)");
+      }
+    }
+    if (mismatches.isEmpty()) {
+      return;
+    }
+    if (!strict) {
+      Logger.getLogger(getClass()).warn(
+          "Index document counts do not match the database: " + mismatches);
+      return;
+    }
+    throw new LocalException(
+        "Index document counts do not match the database: " + mismatches
+            + ", a full reindex of these objects is needed");
+  }
+
+  /**
+   * Indicates whether or not the reindex is restricted to an id or last
+   * modified window.
+   *
+   * @return <code>true</code> if so, <code>false</code> otherwise
+   */
+  private boolean isIncremental() {
+    return fromId != null || toId != null || modifiedSince != null
+        || modifiedUntil != null;
+  }
+
+  /**
+   * Indicates whether or not the class has a last modified date.
+   *
+   * @param clazz the class
+   * @return <code>true</code> if so, <code>false</code> otherwise
+   */
+  private boolean hasLastModified(Class<?> clazz) {
+    try {
+      return manager.getMetamodel().entity(clazz)
+          .getAttribute("lastModified") != null;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns the where clause of the last modified window.
+   *
+   * @return the where clause
+   */
+  private String getWindowClause() {
+    final List<String> clauses = new ArrayList<>();
+    if (modifiedSince != null) {
+      clauses.add("a.lastModified >= :modifiedSince");
+    }
+    if (modifiedUntil != null) {
+      clauses.add("a.lastModified < :modifiedUntil");
+    }
+    return clauses.isEmpty() ? "" : " where " + String.join(" and ", clauses);
+  }
+
+  /**
+   * Sets the parameters of the last modified window.
+   *
+   * @param query the query
+   */
+  private void setWindowParameters(Query query) {
+    if (modifiedSince != null) {
+      query.setParameter("modifiedSince", modifiedSince);
+    }
+    if (modifiedUntil != null) {
+      query.setParameter("modifiedUntil", modifiedUntil);
+    }
+  }
+
+  /**
+   * Opens the checkpoint file of this reindex in "reindex.checkpoint.dir",
+   * returning the objects and ranges completed by an earlier, interrupted run
+   * of the same reindex. Without a checkpoint dir nothing is checkpointed.
+   *
+   * @param objectsToReindex the objects to reindex
+   * @return the completed objects and ranges
+   * @throws Exception the exception
+   */
+  public Set<String> openCheckpoint(Set<String> objectsToReindex)
+    throws Exception {
+    final Set<String> checkpoints = new HashSet<>();
+    final String dir = ConfigUtility.getConfigProperties()
+        .getProperty("reindex.checkpoint.dir", "").trim();
+    if (dir.isEmpty()) {
+      return checkpoints;
+    }
+    final String spec = new TreeSet<>(objectsToReindex) + " fromId=" + fromId
+        + " toId=" + toId + " modifiedSince="
+        + (modifiedSince == null ? null : modifiedSince.getTime())
+        + " modifiedUntil="
+        + (modifiedUntil == null ? null : modifiedUntil.getTime())
+        + " rangeSize=" + ConfigUtility.getConfigProperties()
+            .getProperty("reindex.rangeSize", "10000").trim();
+    checkpointFile = new File(dir,
+        "reindex-" + Integer.toHexString(spec.hashCode()) + ".txt");
+    if (checkpointFile.exists()) {
+      final List<String> lines =
+          Files.readAllLines(checkpointFile.toPath(), StandardCharsets.UTF_8);
+      if (!lines.isEmpty() && lines.get(0).equals(spec)) {
+        checkpoints.addAll(lines.subList(1, lines.size()));
+        Logger.getLogger(getClass()).info(" Resuming from checkpoint "
+            + checkpointFile + " - " + checkpoints.size() + " done");
+      } else {
+        Files.write(checkpointFile.toPath(), Arrays.asList(spec),
+            StandardCharsets.UTF_8);
+      }
+    } else {
+      checkpointFile.getParentFile().mkdirs();
+      Files.write(checkpointFile.toPath(), Arrays.asList(spec),
+          StandardCharsets.UTF_8);
+    }
+    return checkpoints;
+  }
+
+  /**
+   * Records a completed object or range in the checkpoint file.
+   *
+   * @param checkpoint the object or range
+   * @throws Exception the exception
+   */
+  public synchronized void checkpoint(String checkpoint) throws Exception {
+    if (checkpointFile != null) {
+      Files.write(checkpointFile.toPath(), Arrays.asList(checkpoint),
+          StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+  }
+
+  /**
+   * Removes the checkpoint file once the reindex is complete.
+   *
+   * @throws Exception the exception
+   */
+  public void closeCheckpoint() throws Exception {
+    if (checkpointFile != null) {
+      Files.deleteIfExists(checkpointFile.toPath());
+      checkpointFile = null;
+    }
+  }
+
+  /**
+   * Returns the range executor, creating it on first use.
+   *
+   * @return the executor
+   * @throws Exception the exception
+   */
+  private static synchronized ExecutorService getExecutor() throws Exception {
+    if (executor == null) {
+      final int threads = Integer.parseInt(ConfigUtility.getConfigProperties()
+          .getProperty("reindex.threads", "4").trim());
+      executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+        final Thread thread = new Thread(r, "lucene-reindex");
+        thread.setDaemon(true);
+        return thread;
+      });
+      Logger.getLogger(LuceneReindexAlgorithm.class)
+          .info("Lucene reindex - threads = " + threads);
+    }
+    return executor;
+  }
+
   /**
    * Clear lucene indexes.
    *
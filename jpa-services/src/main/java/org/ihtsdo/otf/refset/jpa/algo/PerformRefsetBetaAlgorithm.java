@@ -3,7 +3,6 @@
  */
 package org.ihtsdo.otf.refset.jpa.algo;
 
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -26,9 +25,6 @@ import org.ihtsdo.otf.refset.services.helpers.ProgressEvent;
 import org.ihtsdo.otf.refset.services.helpers.ProgressListener;
 import org.ihtsdo.otf.refset.workflow.WorkflowStatus;
 
-import com.google.common.collect.Lists;
-import com.google.common.io.ByteStreams;
-
 /**
  * Implementation of an algorithm to create a beta {@link Refset} release.
  * 
@@ -121,12 +117,11 @@ public class PerformRefsetBetaAlgorithm extends RefsetServiceJpa implements
     // Generate the snapshot release artifact and add it
     Logger.getLogger(getClass()).info("  Generate snapshot artifact and attach it");
     final ExportRefsetHandler handler = getExportRefsetHandler(ioHandlerId);
-    InputStream inputStream =
-        handler.exportMembers(stagedRefset, stagedRefset.getMembers());
     ReleaseArtifactJpa artifact = new ReleaseArtifactJpa();
     artifact.setReleaseInfo(stageReleaseInfo);
     artifact.setIoHandlerId(ioHandlerId);
-    artifact.setData(ByteStreams.toByteArray(inputStream));
+    setReleaseArtifactData(artifact, out -> handler.exportMembers(stagedRefset,
+        stagedRefset.getMembers(), out));
     artifact.setName(handler.getBetaFileName(stagedRefset, "ActiveSnapshot", releaseInfo.getName()));
     artifact.setTimestamp(releaseInfo.getEffectiveTime());
     artifact.setLastModified(releaseInfo.getEffectiveTime());
@@ -209,12 +204,11 @@ public class PerformRefsetBetaAlgorithm extends RefsetServiceJpa implements
         }
       }
 
-      inputStream =
-          handler.exportMembers(stagedRefset, Lists.newArrayList(delta));
       artifact = new ReleaseArtifactJpa();
       artifact.setReleaseInfo(stageReleaseInfo);
       artifact.setIoHandlerId(ioHandlerId);
-      artifact.setData(ByteStreams.toByteArray(inputStream));
+      setReleaseArtifactData(artifact,
+          out -> handler.exportMembers(stagedRefset, delta, out));
       artifact.setName(handler.getBetaFileName(refset, "SimpleRefsetDelta", stageReleaseInfo.getName()));
       artifact.setTimestamp(stageReleaseInfo.getEffectiveTime());
       artifact.setLastModified(stageReleaseInfo.getEffectiveTime());
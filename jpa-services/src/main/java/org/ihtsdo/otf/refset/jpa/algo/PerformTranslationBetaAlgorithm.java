@@ -6,10 +6,8 @@ package org.ihtsdo.otf.refset.jpa.algo;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.ihtsdo.otf.refset.ReleaseInfo;
@@ -23,7 +21,6 @@ import org.ihtsdo.otf.refset.jpa.services.TranslationServiceJpa;
 import org.ihtsdo.otf.refset.rf2.Concept;
 import org.ihtsdo.otf.refset.rf2.Description;
 import org.ihtsdo.otf.refset.rf2.LanguageRefsetMember;
-import org.ihtsdo.otf.refset.rf2.jpa.ConceptJpa;
 import org.ihtsdo.otf.refset.rf2.jpa.DescriptionJpa;
 import org.ihtsdo.otf.refset.rf2.jpa.LanguageRefsetMemberJpa;
 import org.ihtsdo.otf.refset.services.handlers.ExportTranslationHandler;
@@ -126,47 +123,26 @@ public class PerformTranslationBetaAlgorithm extends TranslationServiceJpa
     // Re-read staged translation in case a commit occurred
     stagedTranslation = getTranslation(stagedTranslation.getId());
 
-    // Now we need to read fully detached concept objects from the database
-    // for the staged translation so we can pass them as detached to the export
-    // process
-    // and avoid running out of memory (in the case of hundreds of thousands)
+    // Stream the staged translation concepts into the export a page at a
+    // time, so the whole translation is never held in memory
     Logger.getLogger(getClass())
         .info("  Generate snapshot translation and attach artifact");
-
-    // Gather concept ids
-    final Set<Long> conceptIds = new HashSet<Long>();
-    for (final Concept concept : stagedTranslation.getConcepts()) {
-      conceptIds.add(concept.getId());
-    }
-    Logger.getLogger(getClass()).info("    concepts = " + conceptIds.size());
-
-    // Clear staged translation concept references
-    stagedTranslation = getTranslation(stagedTranslation.getId());
-
-    // Now from detached list, go back and reread concepts one at a time
-    // Lazy initialize to gather all data
-    // THEN send to export process
-    final List<Concept> exportConcepts = new ArrayList<>(10000);
-    for (final Long id : conceptIds) {
-      final Concept exportConcept = getConcept(id);
-      // Detach object by copying it
-      final Concept copy = new ConceptJpa(exportConcept, true);
-      copy.setTranslation(null);
-      exportConcepts.add(copy);
-    }
-
-    // Generate the snapshot release artifact and add it
-    Logger.getLogger(getClass()).info("  Begin exporting concepts");
     final ExportTranslationHandler handler =
         getExportTranslationHandler(ioHandlerId);
-    InputStream inputStream =
-        handler.exportConcepts(stagedTranslation, exportConcepts);
+    final Translation exportTranslation = stagedTranslation;
+    ReleaseArtifactJpa artifact = new ReleaseArtifactJpa();
+    setReleaseArtifactData(artifact,
+        out -> handler.exportConcepts(exportTranslation,
+            scrollConceptsForTranslation(exportTranslation.getId(), null,
+                null),
+            out));
+
+    // Re-read staged translation, scrolling clears the persistence context
+    stagedTranslation = getTranslation(stagedTranslation.getId());
 
     Logger.getLogger(getClass()).info("  Attach release artifact");
-    ReleaseArtifactJpa artifact = new ReleaseArtifactJpa();
     artifact.setReleaseInfo(stageReleaseInfo);
     artifact.setIoHandlerId(ioHandlerId);
-    artifact.setData(ByteStreams.toByteArray(inputStream));
     artifact.setName(
         handler.getBetaFileName(translation,
             "ActiveSnapshot", releaseInfo.getName()));
@@ -294,12 +270,16 @@ public class PerformTranslationBetaAlgorithm extends TranslationServiceJpa
       }
 
       // Export
-      inputStream = handler.exportDelta(stagedTranslation, deltaDescriptions,
-          deltaMembers);
+      final InputStream inputStream = handler.exportDelta(stagedTranslation,
+          deltaDescriptions, deltaMembers);
       artifact = new ReleaseArtifactJpa();
       artifact.setReleaseInfo(stageReleaseInfo);
       artifact.setIoHandlerId(ioHandlerId);
-      artifact.setData(ByteStreams.toByteArray(inputStream));
+      setReleaseArtifactData(artifact, out -> {
+        try (final InputStream in = inputStream) {
+          ByteStreams.copy(in, out);
+        }
+      });
       artifact.setName(
           handler.getBetaFileName(stagedTranslation,
               "Delta", stageReleaseInfo.getName()));
@@ -0,0 +1,433 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.jpa.services;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+import org.ihtsdo.otf.refset.helpers.JobInfo;
+import org.ihtsdo.otf.refset.helpers.JobInfoList;
+import org.ihtsdo.otf.refset.helpers.LocalException;
+
+/**
+ * Central scheduler for long-running background jobs (name lookups, release
+ * processing, migrations). Each job class has its own bounded worker pool and
+ * priority queue so a burst of bulk operations cannot exhaust the database
+ * connection pool. Within a priority, jobs from projects with fewer queued or
+ * running jobs are dispatched first.
+ *
+ * Pool sizes and queue limits are configured with
+ * "job.scheduler.[CLASS].threads" and "job.scheduler.[CLASS].maxQueued".
+ */
+public final class JobScheduler {
+
+  /**
+   * The job classes, each backed by its own worker pool.
+   */
+  public enum JobClass {
+
+    /** Member and concept name lookups. */
+    LOOKUP(4),
+
+    /** Release begin/validate/beta/finish/cancel processing. */
+    RELEASE(2),
+
+    /** Migration begin/check/finish/cancel processing. */
+    MIGRATION(2);
+
+    /** The default number of worker threads. */
+    private final int defaultThreads;
+
+    /**
+     * Instantiates a {@link JobClass} from the specified parameters.
+     *
+     * @param defaultThreads the default threads
+     */
+    private JobClass(int defaultThreads) {
+      this.defaultThreads = defaultThreads;
+    }
+  }
+
+  /** The low priority. */
+  public static final int LOW_PRIORITY = 0;
+
+  /** The normal priority. */
+  public static final int NORMAL_PRIORITY = 5;
+
+  /** The high priority, e.g. for single-object user requests. */
+  public static final int HIGH_PRIORITY = 10;
+
+  /** The default max queued jobs per job class. */
+  private static final int DEFAULT_MAX_QUEUED = 500;
+
+  /** The number of finished jobs retained for reporting. */
+  private static final int FINISHED_HISTORY = 100;
+
+  /** The executors. */
+  private static final Map<JobClass, ThreadPoolExecutor> executors =
+      new EnumMap<>(JobClass.class);
+
+  /** The max queued jobs per job class. */
+  private static final Map<JobClass, Integer> maxQueued =
+      new EnumMap<>(JobClass.class);
+
+  /** The queued and running jobs. */
+  private static final Map<Long, Job> activeJobs = new ConcurrentHashMap<>();
+
+  /** The recently finished jobs, most recent first. */
+  private static final Deque<Job> finishedJobs = new ArrayDeque<>();
+
+  /** The job id counter. */
+  private static final AtomicLong jobIdCounter = new AtomicLong();
+
+  /** The listener notified when jobs start and finish, or null. */
+  private static volatile Consumer<JobInfo> listener;
+
+  /**
+   * Instantiates an empty {@link JobScheduler}.
+   */
+  private JobScheduler() {
+    // n/a
+  }
+
+  /**
+   * Submits a job for background execution.
+   *
+   * @param jobClass the job class
+   * @param projectId the project id (used for fairness), may be null
+   * @param name the job name, for reporting
+   * @param priority the priority, higher runs first
+   * @param runnable the runnable
+   * @return the job, which may be used to wait for or cancel it
+   * @throws Exception if the job class queue is full
+   */
+  public static Job submit(JobClass jobClass, Long projectId, String name,
+    int priority, Runnable runnable) throws Exception {
+    final ThreadPoolExecutor executor = getExecutor(jobClass);
+    if (executor.getQueue().size() >= maxQueued.get(jobClass)) {
+      throw new LocalException("Too many " + jobClass.toString().toLowerCase()
+          + " jobs are queued, please try again later.");
+    }
+
+    // Fairness index: how many jobs this project already has in the class
+    int projectJobs = 0;
+    if (projectId != null) {
+      for (final Job job : activeJobs.values()) {
+        if (job.jobClass == jobClass && projectId.equals(job.projectId)) {
+          projectJobs++;
+        }
+      }
+    }
+
+    final Job job = new Job(jobIdCounter.incrementAndGet(), jobClass,
+        projectId, name, priority, projectJobs, runnable);
+    activeJobs.put(job.id, job);
+    Logger.getLogger(JobScheduler.class)
+        .info("  Queue job " + job.id + " (" + jobClass + ") - " + name);
+    executor.execute(job);
+    return job;
+  }
+
+  /**
+   * Sets the listener notified when jobs start and finish, e.g. to push job
+   * state changes to clients.
+   *
+   * @param listener the listener, or null
+   */
+  public static void setListener(Consumer<JobInfo> listener) {
+    JobScheduler.listener = listener;
+  }
+
+  /**
+   * Notifies the listener of a job state change.
+   *
+   * @param job the job
+   */
+  static void notifyListener(Job job) {
+    final Consumer<JobInfo> jobListener = listener;
+    if (jobListener != null) {
+      try {
+        jobListener.accept(job.getInfo());
+      } catch (Exception e) {
+        Logger.getLogger(JobScheduler.class)
+            .warn("  Unable to notify listener of job " + job.id, e);
+      }
+    }
+  }
+
+  /**
+   * Returns the queued, running and recently finished jobs.
+   *
+   * @param projectId the project id, or null for all projects
+   * @return the jobs
+   */
+  public static JobInfoList getJobs(Long projectId) {
+    final List<Job> jobs = new ArrayList<>(activeJobs.values());
+    jobs.sort(Comparator.comparing(job -> job.id));
+    synchronized (finishedJobs) {
+      jobs.addAll(finishedJobs);
+    }
+    final JobInfoList list = new JobInfoList();
+    for (final Job job : jobs) {
+      if (projectId == null || projectId.equals(job.projectId)) {
+        list.addObject(job.getInfo());
+      }
+    }
+    list.setTotalCount(list.getCount());
+    return list;
+  }
+
+  /**
+   * Returns the executor for the job class, creating it on first use.
+   *
+   * @param jobClass the job class
+   * @return the executor
+   * @throws Exception the exception
+   */
+  private static synchronized ThreadPoolExecutor getExecutor(JobClass jobClass)
+    throws Exception {
+    ThreadPoolExecutor executor = executors.get(jobClass);
+    if (executor == null) {
+      final Properties config = ConfigUtility.getConfigProperties();
+      final String prefix = "job.scheduler." + jobClass + ".";
+      final int threads = Math.max(1,
+          getIntProperty(config, prefix + "threads", jobClass.defaultThreads));
+      maxQueued.put(jobClass,
+          getIntProperty(config, prefix + "maxQueued", DEFAULT_MAX_QUEUED));
+
+      final AtomicInteger threadCounter = new AtomicInteger();
+      executor = new ThreadPoolExecutor(threads, threads, 0L,
+          TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(),
+          runnable -> {
+            final Thread thread = new Thread(runnable, "refset-job-"
+                + jobClass.toString().toLowerCase() + "-"
+                + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+      executors.put(jobClass, executor);
+      Logger.getLogger(JobScheduler.class).info("  Job scheduler " + jobClass
+          + ": threads = " + threads + ", maxQueued = " + maxQueued.get(jobClass));
+    }
+    return executor;
+  }
+
+  /**
+   * Returns an int config property, or the default if not set.
+   *
+   * @param config the config
+   * @param key the key
+   * @param defaultValue the default value
+   * @return the int property
+   */
+  private static int getIntProperty(Properties config, String key,
+    int defaultValue) {
+    final String value = config.getProperty(key);
+    return value == null || value.isEmpty() ? defaultValue
+        : Integer.parseInt(value.trim());
+  }
+
+  /**
+   * A scheduled job. Ordered by priority (highest first), then by how many
+   * jobs its project already had in the queue, then by submission order.
+   */
+  public static final class Job extends FutureTask<Void>
+      implements Comparable<Job> {
+
+    /** The id. */
+    private final long id;
+
+    /** The job class. */
+    private final JobClass jobClass;
+
+    /** The project id. */
+    private final Long projectId;
+
+    /** The name. */
+    private final String name;
+
+    /** The priority. */
+    private final int priority;
+
+    /** The fairness index. */
+    private final int projectJobs;
+
+    /** The submitted time. */
+    private final long submitted = System.currentTimeMillis();
+
+    /** The started time. */
+    private volatile long started;
+
+    /** The finished time. */
+    private volatile long finished;
+
+    /** The failure flag. */
+    private volatile boolean failed;
+
+    /**
+     * Instantiates a {@link Job} from the specified parameters.
+     *
+     * @param id the id
+     * @param jobClass the job class
+     * @param projectId the project id
+     * @param name the name
+     * @param priority the priority
+     * @param projectJobs the project jobs
+     * @param runnable the runnable
+     */
+    Job(long id, JobClass jobClass, Long projectId, String name, int priority,
+        int projectJobs, Runnable runnable) {
+      super(runnable, null);
+      this.id = id;
+      this.jobClass = jobClass;
+      this.projectId = projectId;
+      this.name = name;
+      this.priority = priority;
+      this.projectJobs = projectJobs;
+    }
+
+    /* see superclass */
+    @Override
+    public void run() {
+      if (isDone()) {
+        return;
+      }
+      started = System.currentTimeMillis();
+      notifyListener(this);
+      super.run();
+    }
+
+    /* see superclass */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      final boolean cancelled = super.cancel(mayInterruptIfRunning);
+      if (cancelled && started == 0) {
+        // Drop it from the queue right away
+        final ThreadPoolExecutor executor = executors.get(jobClass);
+        if (executor != null) {
+          executor.remove(this);
+        }
+      }
+      return cancelled;
+    }
+
+    /* see superclass */
+    @Override
+    protected void done() {
+      finished = System.currentTimeMillis();
+      if (!isCancelled()) {
+        try {
+          get();
+        } catch (ExecutionException e) {
+          failed = true;
+          Logger.getLogger(JobScheduler.class)
+              .error("  Job " + id + " failed - " + name, e.getCause());
+        } catch (InterruptedException e) {
+          // n/a - the job is done
+        }
+      }
+      activeJobs.remove(id);
+      synchronized (finishedJobs) {
+        finishedJobs.addFirst(this);
+        while (finishedJobs.size() > FINISHED_HISTORY) {
+          finishedJobs.removeLast();
+        }
+      }
+      Logger.getLogger(JobScheduler.class).info("  Finish job " + id + " ("
+          + jobClass + ") - " + name + ", " + getInfo().getState() + ", wait = "
+          + getInfo().getWaitTime() + "ms, run = " + getInfo().getRunTime()
+          + "ms");
+      notifyListener(this);
+    }
+
+    /**
+     * Indicates whether the job has started running.
+     *
+     * @return <code>true</code> if so, <code>false</code> otherwise
+     */
+    public boolean isStarted() {
+      return started != 0;
+    }
+
+    /**
+     * Returns a snapshot of the job state and timings.
+     *
+     * @return the info
+     */
+    public JobInfo getInfo() {
+      final JobInfo info = new JobInfo();
+      info.setId(id);
+      info.setJobClass(jobClass.toString());
+      info.setName(name);
+      info.setProjectId(projectId);
+      info.setPriority(priority);
+      info.setSubmitted(new Date(submitted));
+      final long now = System.currentTimeMillis();
+      if (started != 0) {
+        info.setStarted(new Date(started));
+        info.setWaitTime(started - submitted);
+        info.setRunTime((finished != 0 ? finished : now) - started);
+      } else {
+        info.setWaitTime((finished != 0 ? finished : now) - submitted);
+      }
+      if (finished != 0) {
+        info.setFinished(new Date(finished));
+      }
+      if (isCancelled()) {
+        info.setState("CANCELLED");
+      } else if (failed) {
+        info.setState("FAILED");
+      } else if (isDone()) {
+        info.setState("FINISHED");
+      } else if (started != 0) {
+        info.setState("RUNNING");
+      } else {
+        info.setState("QUEUED");
+      }
+      return info;
+    }
+
+    /* see superclass */
+    @Override
+    public int compareTo(Job other) {
+      if (priority != other.priority) {
+        return Integer.compare(other.priority, priority);
+      }
+      if (projectJobs != other.projectJobs) {
+        return Integer.compare(projectJobs, other.projectJobs);
+      }
+      return Long.compare(id, other.id);
+    }
+
+    /* see superclass */
+    @Override
+    public int hashCode() {
+      return Long.hashCode(id);
+    }
+
+    /* see superclass */
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Job && ((Job) obj).id == id;
+    }
+  }
+}
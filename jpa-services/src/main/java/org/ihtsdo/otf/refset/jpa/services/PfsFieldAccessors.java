@@ -0,0 +1,262 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.jpa.services;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.Fields;
+import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+
+/**
+ * Per-class accessors used by {@link RootServiceJpa#applyPfsToList}. The
+ * indexed getters that make up the search text of an object and the getters
+ * used for sort fields are looked up once per class and invoked through method
+ * handles, instead of reflecting over every element of the list.
+ */
+final class PfsFieldAccessors {
+
+  /** The getter type, (Object)Object. */
+  private static final MethodType GETTER_TYPE =
+      MethodType.methodType(Object.class, Object.class);
+
+  /** The accessors by class. */
+  private static final Map<Class<?>, PfsFieldAccessors> accessorsMap =
+      new ConcurrentHashMap<>();
+
+  /** The search text getters, in {@link Class#getMethods()} order. */
+  private final List<SearchGetter> searchGetters = new ArrayList<>();
+
+  /** The getters by property name, e.g. "name" for getName(). */
+  private final Map<String, Getter> getters = new ConcurrentHashMap<>();
+
+  /** The class. */
+  private final Class<?> clazz;
+
+  /**
+   * Instantiates a {@link PfsFieldAccessors} from the specified parameters.
+   *
+   * @param clazz the class
+   * @throws Exception the exception
+   */
+  private PfsFieldAccessors(Class<?> clazz) throws Exception {
+    this.clazz = clazz;
+    for (final Method m : clazz.getMethods()) {
+      if (m.getName().startsWith("get") && (m.isAnnotationPresent(Field.class)
+          || m.isAnnotationPresent(Fields.class))) {
+        searchGetters.add(
+            new SearchGetter(getHandle(m), m.getReturnType().isEnum(), false));
+      }
+      // special handling for "localSet"
+      else if (m.getName().equals("isLocalSet")) {
+        searchGetters.add(new SearchGetter(getHandle(m), false, true));
+      }
+    }
+  }
+
+  /**
+   * Returns the accessors for the class.
+   *
+   * @param clazz the class
+   * @return the accessors
+   * @throws Exception the exception
+   */
+  static PfsFieldAccessors getAccessors(Class<?> clazz) throws Exception {
+    PfsFieldAccessors accessors = accessorsMap.get(clazz);
+    if (accessors == null) {
+      accessors = new PfsFieldAccessors(clazz);
+      accessorsMap.putIfAbsent(clazz, accessors);
+    }
+    return accessors;
+  }
+
+  /**
+   * Returns the lowercase search text of an object: the values of its indexed
+   * string, long and enum getters, each followed by a space.
+   *
+   * @param o the object
+   * @return the search text
+   * @throws Exception the exception
+   */
+  static String getSearchText(Object o) throws Exception {
+    final StringBuilder sb = new StringBuilder();
+    for (final SearchGetter getter : getAccessors(o.getClass()).searchGetters) {
+      final Object val = invoke(getter.handle, o);
+      if (getter.localSet) {
+        sb.append(val.toString()).append("localSet:" + val);
+      }
+      // Support long, string, and enum
+      else if (val != null
+          && (val instanceof String || val instanceof Long || getter.isEnum)) {
+        sb.append(val.toString()).append(" ");
+      }
+    }
+    return sb.toString().toLowerCase();
+  }
+
+  /**
+   * Returns the sort key of an object for a sort field, e.g. "a.b.c" for
+   * o.getA().getB().getC(). Dates are returned as their time in milliseconds,
+   * longs as is, and all other values as strings, so keys compare by value.
+   * Returns null if the value or any intermediate object is null.
+   *
+   * @param o the object
+   * @param sortField the period-separated sort field
+   * @return the sort key
+   * @throws Exception if the sort field is not a string, enum, long or date
+   */
+  static Object getSortKey(Object o, String sortField) throws Exception {
+    final String[] properties = sortField.split("\\.");
+    Object value = o;
+    for (int i = 0; i < properties.length; i++) {
+      final Getter getter =
+          getAccessors(value.getClass()).getGetter(properties[i]);
+      if (i == properties.length - 1 && !getter.sortable) {
+        throw new Exception(
+            "Requested sort field value is not string, enum, or date value "
+                + getter.returnType.getName());
+      }
+      value = invoke(getter.handle, value);
+      if (value == null) {
+        return null;
+      }
+    }
+    if (value instanceof Date) {
+      return ((Date) value).getTime();
+    }
+    return value instanceof Long ? value : value.toString();
+  }
+
+  /**
+   * Compares two sort keys, nulls first.
+   *
+   * @param key1 the first key
+   * @param key2 the second key
+   * @return the comparison
+   */
+  static int compareSortKeys(Object key1, Object key2) {
+    if (key1 == null || key2 == null) {
+      return key1 == null ? (key2 == null ? 0 : -1) : 1;
+    }
+    if (key1 instanceof Long && key2 instanceof Long) {
+      return ((Long) key1).compareTo((Long) key2);
+    }
+    return key1.toString().compareTo(key2.toString());
+  }
+
+  /**
+   * Returns the getter for a property, looking it up on first use.
+   *
+   * @param property the property
+   * @return the getter
+   * @throws Exception the exception
+   */
+  private Getter getGetter(String property) throws Exception {
+    Getter getter = getters.get(property);
+    if (getter == null) {
+      final Method m =
+          clazz.getMethod("get" + ConfigUtility.capitalize(property));
+      final Class<?> type = m.getReturnType();
+      getter = new Getter(getHandle(m), type,
+          type.equals(String.class) || type.isEnum()
+              || type.equals(Long.class) || type.equals(Date.class));
+      getters.putIfAbsent(property, getter);
+    }
+    return getter;
+  }
+
+  /**
+   * Returns a method handle of type (Object)Object for a getter.
+   *
+   * @param m the method
+   * @return the handle
+   * @throws Exception the exception
+   */
+  private static MethodHandle getHandle(Method m) throws Exception {
+    m.setAccessible(true);
+    return MethodHandles.lookup().unreflect(m).asType(GETTER_TYPE);
+  }
+
+  /**
+   * Invokes a getter handle.
+   *
+   * @param handle the handle
+   * @param o the object
+   * @return the value
+   * @throws Exception the exception
+   */
+  private static Object invoke(MethodHandle handle, Object o) throws Exception {
+    try {
+      return (Object) handle.invokeExact(o);
+    } catch (Exception | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new Exception(t);
+    }
+  }
+
+  /**
+   * A getter whose value is part of the search text.
+   */
+  private static final class SearchGetter {
+
+    /** The handle. */
+    final MethodHandle handle;
+
+    /** The enum flag. */
+    final boolean isEnum;
+
+    /** The local set flag, for isLocalSet(). */
+    final boolean localSet;
+
+    /**
+     * Instantiates a {@link SearchGetter} from the specified parameters.
+     *
+     * @param handle the handle
+     * @param isEnum the enum flag
+     * @param localSet the local set flag
+     */
+    SearchGetter(MethodHandle handle, boolean isEnum, boolean localSet) {
+      this.handle = handle;
+      this.isEnum = isEnum;
+      this.localSet = localSet;
+    }
+  }
+
+  /**
+   * A getter usable in a sort field.
+   */
+  private static final class Getter {
+
+    /** The handle. */
+    final MethodHandle handle;
+
+    /** The return type. */
+    final Class<?> returnType;
+
+    /** Whether the return type is a string, enum, long or date. */
+    final boolean sortable;
+
+    /**
+     * Instantiates a {@link Getter} from the specified parameters.
+     *
+     * @param handle the handle
+     * @param returnType the return type
+     * @param sortable the sortable flag
+     */
+    Getter(MethodHandle handle, Class<?> returnType, boolean sortable) {
+      this.handle = handle;
+      this.returnType = returnType;
+      this.sortable = sortable;
+    }
+  }
+}
@@ -8,6 +8,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 import javax.persistence.NoResultException;
@@ -23,6 +24,7 @@ import org.ihtsdo.otf.refset.helpers.PfsParameter;
 import org.ihtsdo.otf.refset.helpers.ProjectList;
 import org.ihtsdo.otf.refset.jpa.ProjectJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.ProjectListJpa;
+import org.ihtsdo.otf.refset.jpa.services.handlers.CachingTerminologyHandler;
 import org.ihtsdo.otf.refset.jpa.services.handlers.IndexUtility;
 import org.ihtsdo.otf.refset.services.ProjectService;
 import org.ihtsdo.otf.refset.services.handlers.IdentifierAssignmentHandler;
@@ -92,7 +94,8 @@ public class ProjectServiceJpa extends RootServiceJpa
   /** The listener. */
   protected static List<WorkflowListener> workflowListeners = null;
   static {
-    workflowListeners = new ArrayList<>();
+    // copied on write, listeners may be added while services iterate
+    workflowListeners = new CopyOnWriteArrayList<>();
     try {
       if (config == null)
         config = ConfigUtility.getConfigProperties();
@@ -113,6 +116,20 @@ public class ProjectServiceJpa extends RootServiceJpa
     }
   }
 
+  /**
+   * Adds a workflow listener that cannot be configured as a
+   * "workflow.listener.handler" because its class is only available in some
+   * deployments, e.g. the websocket listener of the web application.
+   *
+   * @param listener the listener
+   */
+  public static void addWorkflowListener(WorkflowListener listener) {
+    // null if the configured listeners failed, services do not start anyway
+    if (workflowListeners != null) {
+      workflowListeners.add(listener);
+    }
+  }
+
   /** The id assignment handler . */
   static Map<String, IdentifierAssignmentHandler> idHandlerMap =
       new HashMap<>();
@@ -232,6 +249,9 @@ public class ProjectServiceJpa extends RootServiceJpa
 
     // update component
     this.updateHasLastModified(project);
+    // user roles may have changed, drop cached roles once that is committed
+    final Long projectId = project.getId();
+    afterCommit(() -> SecurityServiceJpa.invalidateRolesForProject(projectId));
   }
 
   /* see superclass */
@@ -240,6 +260,7 @@ public class ProjectServiceJpa extends RootServiceJpa
     Logger.getLogger(getClass())
         .debug("Project Service - remove project " + id);
     removeHasLastModified(id, ProjectJpa.class);
+    afterCommit(() -> SecurityServiceJpa.invalidateRolesForProject(id));
   }
 
   /* see superclass */
@@ -361,8 +382,8 @@ public class ProjectServiceJpa extends RootServiceJpa
               + project.getTerminologyHandlerUrl());
     }
 
-    final TerminologyHandler handler =
-        terminologyHandlers.get(project.getTerminologyHandlerKey()).copy();
+    final TerminologyHandler handler = CachingTerminologyHandler.decorate(
+        terminologyHandlers.get(project.getTerminologyHandlerKey()).copy());
     handler.setUrl(project.getTerminologyHandlerUrl());
     handler.setHeaders(headers);
 
@@ -389,8 +410,8 @@ public class ProjectServiceJpa extends RootServiceJpa
           .get(terminologyHandlerKey + "|" + terminologyHandlerUrl);
     }
 
-    final TerminologyHandler handler =
-        terminologyHandlers.get(terminologyHandlerKey).copy();
+    final TerminologyHandler handler = CachingTerminologyHandler
+        .decorate(terminologyHandlers.get(terminologyHandlerKey).copy());
     handler.setUrl(terminologyHandlerUrl);
     handler.setHeaders(headers);
 
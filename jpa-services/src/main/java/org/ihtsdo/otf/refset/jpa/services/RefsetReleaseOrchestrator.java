@@ -0,0 +1,208 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.jpa.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.Refset;
+import org.ihtsdo.otf.refset.ValidationResult;
+import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+import org.ihtsdo.otf.refset.jpa.ValidationResultJpa;
+import org.ihtsdo.otf.refset.services.ReleaseService;
+import org.ihtsdo.otf.refset.services.RefsetService;
+
+/**
+ * Runs a release process step (begin, validate, beta, finish, cancel) over a
+ * group of refsets. Refsets are processed in parallel on a shared pool of
+ * "release.refset.threads" threads, each with its own service (and so its own
+ * EntityManager) and transaction, so a failing refset is rolled back without
+ * affecting the others.
+ *
+ * Refsets are marked in progress for the process until they finish, and the
+ * errors and warnings of all refsets, prefixed with the refset terminology
+ * id, are collected in the process validation result of the project.
+ */
+public final class RefsetReleaseOrchestrator {
+
+  /** The executor. */
+  private static ExecutorService executor;
+
+  /**
+   * Creates the service for one refset.
+   *
+   * @param <T> the service type
+   */
+  @FunctionalInterface
+  public interface ServiceFactory<T extends RefsetService> {
+
+    /**
+     * Creates the service.
+     *
+     * @return the service
+     * @throws Exception the exception
+     */
+    public T create() throws Exception;
+  }
+
+  /**
+   * Performs the release process step for one refset.
+   *
+   * @param <T> the service type
+   */
+  @FunctionalInterface
+  public interface RefsetStep<T extends RefsetService> {
+
+    /**
+     * Performs the step. Throwing fails the refset and rolls back its
+     * transaction.
+     *
+     * @param service the service, with an active transaction
+     * @param refset the refset, loaded by the service
+     * @param result the result for the refset's own errors and warnings
+     * @throws Exception the exception
+     */
+    public void process(T service, Refset refset, ValidationResult result)
+      throws Exception;
+  }
+
+  /**
+   * Instantiates an empty {@link RefsetReleaseOrchestrator}.
+   */
+  private RefsetReleaseOrchestrator() {
+    // n/a
+  }
+
+  /**
+   * Runs the step over the refsets and waits for all of them to finish. A
+   * refset listed more than once is processed once.
+   *
+   * @param <T> the service type
+   * @param projectId the project id
+   * @param process the process, e.g. "BEGIN"
+   * @param refsetIds the refset ids
+   * @param factory the service factory
+   * @param step the step
+   * @param isWarning whether a refset failure is only a warning, or null
+   * @return the combined validation result
+   * @throws Exception the exception
+   */
+  public static <T extends RefsetService> ValidationResult run(Long projectId,
+    String process, List<Long> refsetIds, ServiceFactory<T> factory,
+    RefsetStep<T> step, Predicate<Exception> isWarning) throws Exception {
+
+    final ValidationResult result = new ValidationResultJpa();
+    final Set<Long> ids = new LinkedHashSet<>(refsetIds);
+    try (final ReleaseService releaseService = new ReleaseServiceJpa()) {
+      // Add all refsets to the in-progress map
+      for (final Long refsetId : ids) {
+        releaseService.startProcess(refsetId, process);
+      }
+      releaseService.setProcessValidationResult(projectId, process, result);
+
+      final AtomicInteger finished = new AtomicInteger();
+      final List<Future<?>> futures = new ArrayList<>();
+      for (final Long refsetId : ids) {
+        futures.add(getExecutor().submit(() -> {
+          // Name the thread after the refset, for thread dumps
+          final Thread thread = Thread.currentThread();
+          final String threadName = thread.getName();
+          thread.setName(threadName + " " + process + " refset " + refsetId);
+          final ValidationResult refsetResult = new ValidationResultJpa();
+          String label = null;
+          try (final T service = factory.create()) {
+            service.setTransactionPerOperation(false);
+            service.beginTransaction();
+            try {
+              final Refset refset = service.getRefset(refsetId);
+              if (refset == null) {
+                throw new Exception("Invalid refset id " + refsetId);
+              }
+              label = refset.getTerminologyId();
+              step.process(service, refset, refsetResult);
+              service.commit();
+            } catch (Exception e) {
+              service.rollback();
+              throw e;
+            }
+          } catch (Exception e) {
+            Logger.getLogger(RefsetReleaseOrchestrator.class)
+                .error("  " + process + " refset " + refsetId + " failed", e);
+            if (label != null && isWarning != null && isWarning.test(e)) {
+              refsetResult.addWarning(e.getMessage());
+            } else {
+              refsetResult.addError(e.getMessage());
+            }
+          } finally {
+            // Whether it succeeded or failed, add its messages and remove it
+            // from the in-progress map
+            addMessages(result, label, refsetResult);
+            releaseService.finishProcess(refsetId, process);
+            Logger.getLogger(RefsetReleaseOrchestrator.class)
+                .info("  " + process + " refset " + refsetId + " - "
+                    + finished.incrementAndGet() + " of " + ids.size());
+            thread.setName(threadName);
+          }
+          return null;
+        }));
+      }
+      for (final Future<?> future : futures) {
+        future.get();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds the messages of a refset to the combined result, prefixed with the
+   * refset terminology id when it is known.
+   *
+   * @param result the combined result
+   * @param label the refset terminology id, or null
+   * @param refsetResult the refset result
+   */
+  private static void addMessages(ValidationResult result, String label,
+    ValidationResult refsetResult) {
+    final String prefix = label == null ? "" : label + ": ";
+    synchronized (result) {
+      for (final String error : refsetResult.getErrors()) {
+        result.addError(prefix + error);
+      }
+      for (final String warning : refsetResult.getWarnings()) {
+        result.addWarning(prefix + warning);
+      }
+    }
+  }
+
+  /**
+   * Returns the executor, creating it on first use.
+   *
+   * @return the executor
+   * @throws Exception the exception
+   */
+  private static synchronized ExecutorService getExecutor() throws Exception {
+    if (executor == null) {
+      final int threads = Integer.parseInt(ConfigUtility.getConfigProperties()
+          .getProperty("release.refset.threads", "4").trim());
+      final AtomicInteger count = new AtomicInteger();
+      executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+        final Thread thread =
+            new Thread(r, "refset-release-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+      Logger.getLogger(RefsetReleaseOrchestrator.class)
+          .info("Refset release orchestrator - threads = " + threads);
+    }
+    return executor;
+  }
+}
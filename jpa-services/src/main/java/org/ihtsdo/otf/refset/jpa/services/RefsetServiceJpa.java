@@ -9,22 +9,34 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.persistence.NoResultException;
 
 import org.apache.log4j.Logger;
 import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.poi.util.IOUtils;
 import org.hibernate.envers.AuditReader;
 import org.hibernate.envers.AuditReaderFactory;
@@ -40,10 +52,13 @@ import org.ihtsdo.otf.refset.ReleaseInfo;
 import org.ihtsdo.otf.refset.StagedRefsetChange;
 import org.ihtsdo.otf.refset.Translation;
 import org.ihtsdo.otf.refset.helpers.ConceptList;
+import org.ihtsdo.otf.refset.helpers.ConceptIdSet;
 import org.ihtsdo.otf.refset.helpers.ConceptRefsetMemberList;
 import org.ihtsdo.otf.refset.helpers.ConfigUtility;
 import org.ihtsdo.otf.refset.helpers.IoHandlerInfo;
 import org.ihtsdo.otf.refset.helpers.IoHandlerInfoList;
+import org.ihtsdo.otf.refset.helpers.KeyValuePair;
+import org.ihtsdo.otf.refset.helpers.KeyValuePairList;
 import org.ihtsdo.otf.refset.helpers.LocalException;
 import org.ihtsdo.otf.refset.helpers.PfsParameter;
 import org.ihtsdo.otf.refset.helpers.RefsetList;
@@ -58,6 +73,7 @@ import org.ihtsdo.otf.refset.jpa.ReleaseInfoJpa;
 import org.ihtsdo.otf.refset.jpa.StagedRefsetChangeJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.ConceptListJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.ConceptRefsetMemberListJpa;
+import org.ihtsdo.otf.refset.jpa.helpers.DisplayNameSortBridge;
 import org.ihtsdo.otf.refset.jpa.helpers.IoHandlerInfoListJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.RefsetListJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.ReleaseInfoListJpa;
@@ -93,14 +109,6 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
   private static Map<String, ExportRefsetHandler> exportRefsetHandlers =
       new HashMap<>();
 
-  /** The members in common map. */
-  private static Map<String, List<ConceptRefsetMember>> membersInCommonMap =
-      new HashMap<>();
-
-  /** The member diff report map. */
-  private static Map<String, MemberDiffReport> memberDiffReportMap =
-      new HashMap<>();
-
   /**
    * To populate progress (percentage) of looking up refset names & active
    * statuses.
@@ -113,10 +121,25 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
   static Map<Long, String> bulkLookupProgressMap = new ConcurrentHashMap<>();
 
   /**
-   * Keep track of which threads are associated with each refset, so they can be
-   * canceled by the user.
+   * Keep track of which lookup jobs are associated with each refset, so they
+   * can be canceled by the user.
    */
-  static Map<Long, Thread> lookupThreadsMap = new ConcurrentHashMap<>();
+  static Map<Long, Future<?>> lookupThreadsMap = new ConcurrentHashMap<>();
+
+  /** The number of members loaded per query when applying a redefinition. */
+  private static final int DELTA_CHUNK_SIZE = 500;
+
+  /** The number of definition resolutions. */
+  private static final AtomicLong resolveCt = new AtomicLong();
+
+  /** The member count of the last definition resolution. */
+  private static final AtomicLong lastResolveMembers = new AtomicLong();
+
+  /** The elapsed time (ms) of the last definition resolution. */
+  private static final AtomicLong lastResolveTime = new AtomicLong();
+
+  /** The max heap used (bytes) seen during definition resolutions. */
+  private static final AtomicLong maxResolveHeapUsed = new AtomicLong();
 
   /** The Constant LOOKUP_ERROR_CODE. */
   final static int LOOKUP_ERROR_CODE = -100;
@@ -727,13 +750,52 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
   }
 
   /* see superclass */
-  @SuppressWarnings("unchecked")
   @Override
   public ConceptRefsetMemberList findMembersForRefset(Long refsetId,
     String query, PfsParameter pfs, Boolean active) throws Exception {
     Logger.getLogger(getClass()).info("Refset Service - find members " + "/"
         + query + " refsetId " + refsetId);
 
+    return findMembersForRefset(refsetId, query, pfs, active, (Sort) null);
+  }
+
+  /* see superclass */
+  @Override
+  public ConceptRefsetMemberList findMembersForRefset(Long refsetId,
+    String query, PfsParameter pfs, Boolean active, String language,
+    Boolean fsn) throws Exception {
+    if (pfs == null || !"conceptName".equals(pfs.getSortField())
+        || language == null || language.isEmpty()) {
+      return findMembersForRefset(refsetId, query, pfs, active);
+    }
+    Logger.getLogger(getClass()).info("Refset Service - find members " + "/"
+        + query + " refsetId " + refsetId + ", by display name " + language
+        + ", " + fsn);
+
+    // ties broken by concept name so paging is stable
+    final Sort sort = new Sort(
+        DisplayNameSortBridge.getSortField(language, fsn != null && fsn,
+            pfs.isAscending()),
+        new SortField("conceptNameSort", SortField.Type.STRING,
+            !pfs.isAscending()));
+    return findMembersForRefset(refsetId, query, pfs, active, sort);
+  }
+
+  /**
+   * Find members for refset.
+   *
+   * @param refsetId the refset id
+   * @param query the query
+   * @param pfs the pfs
+   * @param active the active
+   * @param sort the sort, or null to use the pfs sort field
+   * @return the concept refset member list
+   * @throws Exception the exception
+   */
+  @SuppressWarnings("unchecked")
+  private ConceptRefsetMemberList findMembersForRefset(Long refsetId,
+    String query, PfsParameter pfs, Boolean active, Sort sort)
+    throws Exception {
     final StringBuilder sb = new StringBuilder();
     if (query != null && !query.equals("")) {
       sb.append(query).append(" AND ");
@@ -751,7 +813,7 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
       final List<ConceptRefsetMember> list =
           (List<ConceptRefsetMember>) getQueryResults(sb.toString(),
               ConceptRefsetMemberJpa.class, ConceptRefsetMemberJpa.class, pfs,
-              totalCt);
+              sort, totalCt);
       final ConceptRefsetMemberList result = new ConceptRefsetMemberListJpa();
       result.setTotalCount(totalCt[0]);
       result.setObjects(list);
@@ -762,6 +824,19 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
     }
   }
 
+  /* see superclass */
+  @Override
+  public Iterable<ConceptRefsetMember> scrollMembersForRefset(
+    final Long refsetId, final String query, final PfsParameter pfs,
+    final Boolean active) throws Exception {
+    Logger.getLogger(getClass()).info("Refset Service - scroll members " + "/"
+        + query + " refsetId " + refsetId);
+
+    return scrollQueryResults(pfs,
+        pagePfs -> findMembersForRefset(refsetId, query, pagePfs, active)
+            .getObjects());
+  }
+
   /* see superclass */
   @Override
   public StagedRefsetChange addStagedRefsetChange(StagedRefsetChange change)
@@ -857,6 +932,48 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
     }
   }
 
+  /* see superclass */
+  @SuppressWarnings("unchecked")
+  @Override
+  public Map<Long, String> getDisplayNamesForMembers(
+    Collection<Long> memberIds, String language, Boolean fsn)
+    throws Exception {
+    Logger.getLogger(getClass())
+        .debug("Refset Service - get display names for " + memberIds.size()
+            + " refset members, " + language + ", " + fsn);
+
+    final Map<Long, String> displayNames = new HashMap<>();
+    if (memberIds.isEmpty()) {
+      return displayNames;
+    }
+    final String termType = fsn != null && fsn ? "FSN" : "PT";
+    final javax.persistence.Query query = manager.createQuery(
+        "select a.member.id, a.languageRefsetId, a.termType, a.synonym "
+            + "from ConceptRefsetMemberSynonymJpa a where "
+            + "a.member.id in (:memberIds) and a.active = true "
+            + "and ((a.languageRefsetId = :languageRefsetId "
+            + "and a.termType = :termType) "
+            + "or (a.languageRefsetId = :fallbackLanguageRefsetId "
+            + "and a.termType = 'PT'))");
+    query.setParameter("memberIds", memberIds);
+    query.setParameter("languageRefsetId", language);
+    query.setParameter("termType", termType);
+    query.setParameter("fallbackLanguageRefsetId",
+        DisplayNameSortBridge.FALLBACK_LANGUAGE_REFSET_ID);
+    final Map<Long, String> fallbackNames = new HashMap<>();
+    for (final Object[] result : (List<Object[]>) query.getResultList()) {
+      if (language.equals(result[1]) && termType.equals(result[2])) {
+        displayNames.put((Long) result[0], (String) result[3]);
+      } else {
+        fallbackNames.put((Long) result[0], (String) result[3]);
+      }
+    }
+    for (final Map.Entry<Long, String> entry : fallbackNames.entrySet()) {
+      displayNames.putIfAbsent(entry.getKey(), entry.getValue());
+    }
+    return displayNames;
+  }
+
   @Override
   public String getFSNNameForConcept(String terminologyId) throws Exception {
     Logger.getLogger(getClass())
@@ -1017,46 +1134,139 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
   @Override
   public List<ConceptRefsetMember> getMembersInCommon(String reportToken)
     throws Exception {
-    if (membersInCommonMap.containsKey(reportToken)) {
-      return membersInCommonMap.get(reportToken);
+    final List<List<ConceptRefsetMember>> lists = ReportStore.getInstance()
+        .getLists(reportToken + ":common", new ArrayList<>());
+    if (lists == null) {
+      return null;
     }
-    return null;
+    attachRefsets(lists);
+    return lists.get(0);
   }
 
   /* see superclass */
   @Override
   public void putMembersInCommon(String reportToken,
     List<ConceptRefsetMember> membersInCommon) throws Exception {
-    membersInCommonMap.put(reportToken, membersInCommon);
+    ReportStore.getInstance().put(reportToken + ":common",
+        ReportStore.encode(new Long[0], membersInCommon));
   }
 
   /* see superclass */
   @Override
   public void removeMembersInCommon(String reportToken) throws Exception {
-    membersInCommonMap.remove(reportToken);
+    ReportStore.getInstance().remove(reportToken + ":common");
   }
 
   /* see superclass */
   @Override
   public MemberDiffReport getMemberDiffReport(String reportToken)
     throws Exception {
-    if (memberDiffReportMap.containsKey(reportToken)) {
-      return memberDiffReportMap.get(reportToken);
+    final List<Long> refsetIds = new ArrayList<>();
+    final List<List<ConceptRefsetMember>> lists =
+        ReportStore.getInstance().getLists(reportToken + ":diff", refsetIds);
+    if (lists == null) {
+      return null;
     }
-    return null;
+    attachRefsets(lists);
+    final MemberDiffReport report = new MemberDiffReportJpa();
+    report.setOldRefset(
+        refsetIds.get(0) == null ? null : getRefset(refsetIds.get(0)));
+    report.setNewRefset(
+        refsetIds.get(1) == null ? null : getRefset(refsetIds.get(1)));
+    report.setOldNotNew(lists.get(0));
+    report.setNewNotOld(lists.get(1));
+    return report;
   }
 
   /* see superclass */
   @Override
   public void putMemberDiffReport(String reportToken,
     MemberDiffReport membersDiffReport) throws Exception {
-    memberDiffReportMap.put(reportToken, membersDiffReport);
+    ReportStore.getInstance().put(reportToken + ":diff",
+        ReportStore.encode(new Long[] {
+            membersDiffReport.getOldRefset() == null ? null
+                : membersDiffReport.getOldRefset().getId(),
+            membersDiffReport.getNewRefset() == null ? null
+                : membersDiffReport.getNewRefset().getId()
+        }, membersDiffReport.getOldNotNew(), membersDiffReport.getNewNotOld()));
   }
 
   /* see superclass */
   @Override
   public void removeMemberDiffReport(String reportToken) throws Exception {
-    memberDiffReportMap.remove(reportToken);
+    ReportStore.getInstance().remove(reportToken + ":diff");
+  }
+
+  /**
+   * Replaces the id-only refsets of decoded report members with the refsets
+   * themselves. Members of refsets that were removed since the report was
+   * stored are dropped from the report.
+   *
+   * @param lists the member lists
+   * @throws Exception the exception
+   */
+  private void attachRefsets(List<List<ConceptRefsetMember>> lists)
+    throws Exception {
+    final Map<Long, Refset> refsets = new HashMap<>();
+    for (final List<ConceptRefsetMember> list : lists) {
+      for (final Iterator<ConceptRefsetMember> i = list.iterator(); i
+          .hasNext();) {
+        final ConceptRefsetMember member = i.next();
+        if (member.getRefset() == null) {
+          continue;
+        }
+        final Long refsetId = member.getRefset().getId();
+        if (!refsets.containsKey(refsetId)) {
+          refsets.put(refsetId, getRefset(refsetId));
+        }
+        if (refsets.get(refsetId) == null) {
+          i.remove();
+        } else {
+          member.setRefset(refsets.get(refsetId));
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the report store statistics.
+   *
+   * @return the report store statistics
+   * @throws Exception the exception
+   */
+  public static KeyValuePairList getReportStoreStatistics() throws Exception {
+    return ReportStore.getInstance().getStatistics();
+  }
+
+  /**
+   * Returns the refset definition resolution statistics.
+   *
+   * @return the definition statistics
+   */
+  public static KeyValuePairList getDefinitionStatistics() {
+    final KeyValuePairList list = new KeyValuePairList();
+    list.setName("definitionResolution");
+    list.addKeyValuePair(
+        new KeyValuePair("resolutions", String.valueOf(resolveCt.get())));
+    list.addKeyValuePair(new KeyValuePair("lastMembers",
+        String.valueOf(lastResolveMembers.get())));
+    list.addKeyValuePair(new KeyValuePair("lastElapsedMs",
+        String.valueOf(lastResolveTime.get())));
+    list.addKeyValuePair(new KeyValuePair("maxHeapUsedMB",
+        String.valueOf(maxResolveHeapUsed.get() / (1024 * 1024))));
+    return list;
+  }
+
+  /**
+   * Records the current heap use as a definition resolution high-water mark.
+   *
+   * @return the heap used (bytes)
+   */
+  private static long sampleResolveHeapUsed() {
+    final Runtime runtime = Runtime.getRuntime();
+    final long used = runtime.totalMemory() - runtime.freeMemory();
+    maxResolveHeapUsed.accumulateAndGet(used, Math::max);
+    return used;
   }
 
   /* see superclass */
@@ -1731,69 +1941,37 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
     // Reread refsets in case of previous commit
     refset1 = getRefset(refset1.getId());
     refset2 = getRefset(refset2.getId());
-    
-    // Create conceptId => member maps for refset 1 and refset 2
-    final Map<String, ConceptRefsetMember> refset1Map = new HashMap<>();
-    for (final ConceptRefsetMember member : refset1.getMembers()) {
-      refset1Map.put(member.getConceptId(), member);
-    }
 
-    final Map<String, ConceptRefsetMember> refset2Map = new HashMap<>();
-    for (final ConceptRefsetMember member : refset2.getMembers()) {
-      refset2Map.put(member.getConceptId(), member);
-    }
+    // Diff the (concept id -> member id) sets of refset 1 and refset 2, only
+    // loading the members that end up in the reports
+    final long startTime = System.currentTimeMillis();
+    final Map<Refset.MemberType, ConceptIdSet> refset1Sets =
+        getMemberIdSets(refset1.getId());
+    final Map<Refset.MemberType, ConceptIdSet> refset2Sets =
+        getMemberIdSets(refset2.getId());
 
     // creates a "members in common" list (where reportToken is the key)
-    final List<ConceptRefsetMember> membersInCommon = new ArrayList<>();
-    // Iterate through the refset2 members
-    for (final ConceptRefsetMember member2 : refset2.getMembers()) {
-      // Members in common are things where refset2 has type Member
-      // and refset1 has a matching concept_id/type
-      if (member2.getMemberType() == Refset.MemberType.MEMBER
-          && refset1Map.containsKey(member2.getConceptId())
-          && refset1Map.get(member2.getConceptId())
-              .getMemberType() == Refset.MemberType.MEMBER) {
-        // lazy initialize for tostring method (needed by applyPfsToList in
-        // findMembersInCommon
-        member2.toString();
-        membersInCommon.add(member2);
-      }
-    }
-    putMembersInCommon(reportToken, membersInCommon);
+    // Members in common are things where refset2 has type Member
+    // and refset1 has a matching concept_id/type
+    putMembersInCommon(reportToken, getMembers(
+        getMemberIdSet(refset2Sets, Refset.MemberType.MEMBER).intersection(
+            getMemberIdSet(refset1Sets, Refset.MemberType.MEMBER))));
 
     // creates a "diff report"
     final MemberDiffReport diffReport = new MemberDiffReportJpa();
     diffReport.setOldRefset(refset1);
     diffReport.setNewRefset(refset2);
-    final List<ConceptRefsetMember> oldNotNew = new ArrayList<>();
-    final List<ConceptRefsetMember> newNotOld = new ArrayList<>();
-
     // Old not new are things from refset1 that do not exist
     // in refset2 or do exist in refset2 with a different type
-    for (final ConceptRefsetMember member1 : refset1.getMembers()) {
-      if (!refset2Map.containsKey(member1.getConceptId())) {
-        newNotOld.add(member1);
-        // Always keep exclusions
-      } else if (refset2Map.containsKey(member1.getConceptId())
-          && refset2Map.get(member1.getConceptId()).getMemberType() != member1
-              .getMemberType()) {
-        newNotOld.add(member1);
-      }
-    }
+    diffReport.setNewNotOld(
+        getMembers(getMembersNotIn(refset1Sets, refset2Sets)));
     // New not old are things from refset2 that do not exist
     // in refset1 or do exist in refset1 but with a different type
-    for (final ConceptRefsetMember member2 : refset2.getMembers()) {
-      handleLazyInit(member2);
-      if (!refset1Map.containsKey(member2.getConceptId())) {
-        oldNotNew.add(member2);
-      } else if (refset1Map.containsKey(member2.getConceptId())
-          && refset1Map.get(member2.getConceptId()).getMemberType() != member2
-              .getMemberType()) {
-        oldNotNew.add(member2);
-      }
-    }
-    diffReport.setOldNotNew(oldNotNew);
-    diffReport.setNewNotOld(newNotOld);
+    diffReport.setOldNotNew(
+        getMembers(getMembersNotIn(refset2Sets, refset1Sets)));
+    Logger.getLogger(getClass())
+        .info("  compare refsets " + refset1.getId() + ", " + refset2.getId()
+            + " - " + (System.currentTimeMillis() - startTime) + "ms");
 
     putMemberDiffReport(reportToken, diffReport);
 
@@ -1803,31 +1981,102 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
   /* see superclass */
   @Override
   public List<ConceptRefsetMember> getOldNotNewForMigration(Refset refset,
-    Refset refsetCopy) {
+    Refset refsetCopy) throws Exception {
     // NOTE: this logic is borrowed from compareRefset
-    // Create conceptId => member maps for refset 1 and refset 2
-    final Map<String, ConceptRefsetMember> refset1Map = new HashMap<>();
-    for (final ConceptRefsetMember member : refset.getMembers()) {
-      refset1Map.put(member.getConceptId(), member);
-    }
-    final Map<String, ConceptRefsetMember> refset2Map = new HashMap<>();
-    for (final ConceptRefsetMember member : refsetCopy.getMembers()) {
-      refset2Map.put(member.getConceptId(), member);
-    }
-    final List<ConceptRefsetMember> oldNotNew = new ArrayList<>();
     // Old not new are things from refset1 that do not exist
     // in refset2 or do exist in refset2 with a different type
-    for (final ConceptRefsetMember member1 : refset.getMembers()) {
-      if (!refset2Map.containsKey(member1.getConceptId())) {
-        oldNotNew.add(member1);
-        // Always keep exclusions
-      } else if (refset2Map.containsKey(member1.getConceptId())
-          && refset2Map.get(member1.getConceptId()).getMemberType() != member1
-              .getMemberType()) {
-        oldNotNew.add(member1);
+    return getMembers(getMembersNotIn(getMemberIdSets(refset.getId()),
+        getMemberIdSets(refsetCopy.getId())));
+  }
+
+  /**
+   * Returns the members of a refset as (concept id -> member id) sets by
+   * member type, read with a projection query without hydrating members.
+   *
+   * @param refsetId the refset id
+   * @return the member id sets by member type
+   * @throws Exception the exception
+   */
+  private Map<Refset.MemberType, ConceptIdSet> getMemberIdSets(Long refsetId)
+    throws Exception {
+    final Map<Refset.MemberType, ConceptIdSet.Builder> builders =
+        new HashMap<>();
+    @SuppressWarnings("unchecked")
+    final List<Object[]> rows = manager
+        .createQuery("select a.id, a.conceptId, a.memberType "
+            + "from ConceptRefsetMemberJpa a where a.refset.id = :refsetId")
+        .setParameter("refsetId", refsetId).getResultList();
+    for (final Object[] row : rows) {
+      final Refset.MemberType type = (Refset.MemberType) row[2];
+      if (!builders.containsKey(type)) {
+        builders.put(type, new ConceptIdSet.Builder());
+      }
+      try {
+        builders.get(type).add((String) row[1], (Long) row[0]);
+      } catch (NumberFormatException e) {
+        throw new LocalException(
+            "Unable to compare refsets, the refset has a member with a non-numeric concept id - "
+                + row[1]);
       }
     }
-    return oldNotNew;
+    final Map<Refset.MemberType, ConceptIdSet> sets = new HashMap<>();
+    for (final Map.Entry<Refset.MemberType, ConceptIdSet.Builder> entry : builders
+        .entrySet()) {
+      sets.put(entry.getKey(), entry.getValue().build());
+    }
+    return sets;
+  }
+
+  /**
+   * Returns the member id set for a member type, or an empty set.
+   *
+   * @param sets the member id sets by member type
+   * @param type the member type
+   * @return the member id set
+   */
+  private static ConceptIdSet getMemberIdSet(
+    Map<Refset.MemberType, ConceptIdSet> sets, Refset.MemberType type) {
+    return sets.containsKey(type) ? sets.get(type) : ConceptIdSet.EMPTY;
+  }
+
+  /**
+   * Returns the members of the first refset whose concept is not a member of
+   * the second refset with the same member type. A concept has at most one
+   * member per refset, so the differences per type do not overlap.
+   *
+   * @param sets1 the member id sets of the first refset
+   * @param sets2 the member id sets of the second refset
+   * @return the members, with member ids of the first refset as values
+   */
+  private static ConceptIdSet getMembersNotIn(
+    Map<Refset.MemberType, ConceptIdSet> sets1,
+    Map<Refset.MemberType, ConceptIdSet> sets2) {
+    ConceptIdSet result = ConceptIdSet.EMPTY;
+    for (final Map.Entry<Refset.MemberType, ConceptIdSet> entry : sets1
+        .entrySet()) {
+      result = result.union(entry.getValue()
+          .difference(getMemberIdSet(sets2, entry.getKey())));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the members whose ids are the values of the set, loaded in chunks
+   * of {@link #DELTA_CHUNK_SIZE}.
+   *
+   * @param set the set, with member ids as values
+   * @return the members
+   */
+  @SuppressWarnings("unchecked")
+  private List<ConceptRefsetMember> getMembers(ConceptIdSet set) {
+    final List<ConceptRefsetMember> members = new ArrayList<>(set.size());
+    for (int i = 0; i < set.size(); i += DELTA_CHUNK_SIZE) {
+      members.addAll(manager
+          .createQuery(
+              "select a from ConceptRefsetMemberJpa a where a.id in (:ids)")
+          .setParameter("ids", getDeltaChunk(set, i)).getResultList());
+    }
+    return members;
   }
 
   /* see superclass */
@@ -1891,16 +2140,25 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
           beginTransaction();
         }
 
-        // Create new thread
+        // Run the lookup inline, or queue it with the job scheduler
         Runnable lookup =
             new LookupMemberNamesThread(refsetId, label, lookupSynonyms, forceLookupSynonyms);
-        Thread t = new Thread(lookup);
-        t.start();
         // Handle non-background
         if (!background) {
-          t.join();
+          lookup.run();
         } else {
-          lookupThreadsMap.put(refsetId, t);
+          // Mark as started so a second request does not queue it again
+          lookupProgressMap.put(refsetId, 0);
+          try {
+            lookupThreadsMap.put(refsetId,
+                JobScheduler.submit(JobScheduler.JobClass.LOOKUP,
+                    refset.getProject().getId(),
+                    "Lookup member names - " + refsetId + ", " + label,
+                    JobScheduler.NORMAL_PRIORITY, lookup));
+          } catch (Exception e) {
+            lookupProgressMap.remove(refsetId);
+            throw e;
+          }
         }
       }
       // else it is already running
@@ -1964,18 +2222,27 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
           }
         }
 
-        // Create new thread
+        // Run the lookup inline, or queue it with the job scheduler
         Runnable lookup = new LookupMemberNamesThread(refsetId, members, label,
             saveMembers, lookupSynonyms);
-        Thread t = new Thread(lookup);
-        t.start();
         // Handle non-background
         if (!background) {
-          t.join();
+          lookup.run();
         }
-        // Otherwise keep track of the thread
+        // Otherwise keep track of the job
         else {
-          lookupThreadsMap.put(refsetId, t);
+          // Mark as started so a second request does not queue it again
+          lookupProgressMap.put(refsetId, 0);
+          try {
+            lookupThreadsMap.put(refsetId,
+                JobScheduler.submit(JobScheduler.JobClass.LOOKUP,
+                    refset.getProject().getId(),
+                    "Lookup member names - " + refsetId + ", " + label,
+                    JobScheduler.NORMAL_PRIORITY, lookup));
+          } catch (Exception e) {
+            lookupProgressMap.remove(refsetId);
+            throw e;
+          }
         }
       }
       // else it is already running
@@ -2065,9 +2332,12 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
     Logger.getLogger(getClass())
         .info("Refset Service - cancelling lookup - " + objectId);
 
-    Thread t = lookupThreadsMap.get(objectId);
-    if (t != null) {
-      t.interrupt();
+    final Future<?> job = lookupThreadsMap.get(objectId);
+    if (job != null && job.cancel(true)
+        && !((JobScheduler.Job) job).isStarted()) {
+      // Never started, so it will not record its own cancellation
+      lookupThreadsMap.remove(objectId);
+      lookupProgressMap.put(objectId, LOOKUP_CANCELLED_CODE);
     }
 
     Refset refset = getRefset(objectId);
@@ -2076,6 +2346,73 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
 
   }
 
+  /**
+   * Returns the number of concurrent terminology server lookups used by member
+   * name lookup, from the "lookup.concurrency" config property (default 4).
+   *
+   * @return the lookup concurrency
+   * @throws Exception the exception
+   */
+  private static int getLookupConcurrency() throws Exception {
+    final String property =
+        ConfigUtility.getConfigProperties().getProperty("lookup.concurrency");
+    if (property == null || property.isEmpty()) {
+      return 4;
+    }
+    return Math.max(1, Integer.parseInt(property.trim()));
+  }
+
+  /**
+   * Waits for a batch lookup and unwraps any failure.
+   *
+   * @param future the future
+   * @return the concept list
+   * @throws Exception the exception
+   */
+  private static ConceptList getLookupResult(Future<ConceptList> future)
+    throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the current state of the members for the specified concept ids,
+   * read in a single query and keyed by member id.
+   *
+   * @param service the service
+   * @param termIds the term ids
+   * @param memberMap the member map
+   * @return the members by id
+   * @throws Exception the exception
+   */
+  @SuppressWarnings("unchecked")
+  private static Map<Long, ConceptRefsetMember> getMembersById(
+    RefsetServiceJpa service, List<String> termIds,
+    Map<String, ConceptRefsetMember> memberMap) throws Exception {
+    final List<Long> ids = new ArrayList<>();
+    for (final String termId : termIds) {
+      ids.add(memberMap.get(termId).getId());
+    }
+    final Map<Long, ConceptRefsetMember> result = new HashMap<>();
+    if (ids.isEmpty()) {
+      return result;
+    }
+    final List<ConceptRefsetMember> members = service.getEntityManager()
+        .createQuery(
+            "select a from ConceptRefsetMemberJpa a where a.id in (:ids)")
+        .setParameter("ids", ids).getResultList();
+    for (final ConceptRefsetMember member : members) {
+      result.put(member.getId(), member);
+    }
+    return result;
+  }
+
   /**
    * Class for threaded operation of lookupNames.
    */
@@ -2143,7 +2480,7 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
     /* see superclass */
     @Override
     public void run() {
-      RefsetService refsetService = null;
+      RefsetServiceJpa refsetService = null;
       try {
         Logger.getLogger(RefsetServiceJpa.this.getClass())
             .info("Starting lookupMemberNamesThread - " + refsetId);
@@ -2228,110 +2565,133 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
 
         // If no members to lookup, go directly to concluding process
         if (numberOfMembersToLookup > 0) {
-          int i = 0;
-
-          // Execute for all members
-          boolean missingConcepts = false;
-          while (i < numberOfMembersToLookup) {
-
-            if (Thread.interrupted()) {
-              lookupCanceled = true;
-              throw new InterruptedException(
-                  "lookup process has been canceled");
-            }
-
-            final List<String> termIds = new ArrayList<>();
-
-            // If we're looking up synonyms, only lookup as many concepts per
-            // batch as specified by the handler
-            int batchLookupSize =
-                lookupSynonyms ? handler.getMaxBatchLookupSize() : 101;
+          // If we're looking up synonyms, only lookup as many concepts per
+          // batch as specified by the handler
+          final int batchLookupSize =
+              lookupSynonyms ? handler.getMaxBatchLookupSize() : 101;
+
+          // Pipeline: up to "concurrency" getConcepts() calls are in flight
+          // while this thread applies results in order. The in-flight window
+          // is bounded so a slow writer throttles the lookups.
+          final int concurrency = getLookupConcurrency();
+          final int maxInFlight = concurrency * 2;
+          final ExecutorService executor =
+              Executors.newFixedThreadPool(concurrency);
+          final Deque<List<String>> pendingIds = new ArrayDeque<>();
+          final Deque<Future<ConceptList>> pendingLookups = new ArrayDeque<>();
+          final boolean lookupSynonymsFlag = lookupSynonyms;
+
+          try {
+            int i = 0;
+            int applied = 0;
 
-            // Create list of conceptIds for all members (batch-size depends on
-            // the handler)
-            for (int j = 0; (j < batchLookupSize
-                && i < numberOfMembersToLookup); j++, i++) {
-              termIds.add(lookupMemberList.get(i).getConceptId());
-            }
-            // Get concepts from Term Server based on list
-            final ConceptList cons = handler.getConcepts(termIds, terminology,
-                version, lookupSynonyms ? true : false);
-
-            // IF the number of concepts returned doesn't match
-            // the size of termIds, there was a problem
-            if (cons.getTotalCount() != termIds.size() && !missingConcepts) {
-              missingConcepts = true;
-              // warn
-              Logger.getLogger(getClass())
-                  .warn("Missing concepts looking up refset member names - "
-                      + refsetId);
-            }
+            // Execute for all members
+            boolean missingConcepts = false;
+            while (applied < numberOfMembersToLookup) {
 
-            // Populate member's names/statuses from results of Term
-            // Server
-            for (final Concept con : cons.getObjects()) {
-              termIds.remove(con.getTerminologyId());
+              if (Thread.interrupted()) {
+                lookupCanceled = true;
+                throw new InterruptedException(
+                    "lookup process has been canceled");
+              }
 
-              // Reread the member as we don't know if it has changed
-              if (saveMembers) {
-                final ConceptRefsetMember member = refsetService
-                    .getMember(memberMap.get(con.getTerminologyId()).getId());
-                member.setConceptName(con.getName());
-                member.setConceptActive(con.isActive());
-                if (lookupSynonyms) {
-                  populateMemberSynonyms(member, con, refset, refsetService,
-                      handler);
+              // Keep the lookup window full
+              while (i < numberOfMembersToLookup
+                  && pendingLookups.size() < maxInFlight) {
+                // Create list of conceptIds for all members (batch-size
+                // depends on the handler)
+                final List<String> termIds = new ArrayList<>();
+                for (int j = 0; (j < batchLookupSize
+                    && i < numberOfMembersToLookup); j++, i++) {
+                  termIds.add(lookupMemberList.get(i).getConceptId());
                 }
-                refsetService.updateMember(member);
+                // Get concepts from Term Server based on list
+                final List<String> batchIds = new ArrayList<>(termIds);
+                pendingIds.add(termIds);
+                pendingLookups.add(executor.submit(() -> handler
+                    .getConcepts(batchIds, terminology, version,
+                        lookupSynonymsFlag)));
+              }
+
+              final List<String> termIds = pendingIds.poll();
+              final ConceptList cons = getLookupResult(pendingLookups.poll());
+              applied += termIds.size();
+
+              // IF the number of concepts returned doesn't match
+              // the size of termIds, there was a problem
+              if (cons.getTotalCount() != termIds.size() && !missingConcepts) {
+                missingConcepts = true;
+                // warn
+                Logger.getLogger(getClass())
+                    .warn("Missing concepts looking up refset member names - "
+                        + refsetId);
               }
 
-              // This is for an in-memory member, just update the object
-              else {
-                final ConceptRefsetMember member =
-                    memberMap.get(con.getTerminologyId());
+              // Reread the batch's members in one query as we don't know if
+              // they have changed
+              final Map<Long, ConceptRefsetMember> currentMembers =
+                  saveMembers ? getMembersById(refsetService, termIds, memberMap)
+                      : null;
+
+              // Populate member's names/statuses from results of Term
+              // Server
+              for (final Concept con : cons.getObjects()) {
+                termIds.remove(con.getTerminologyId());
+
+                final ConceptRefsetMember member = saveMembers
+                    ? currentMembers.get(
+                        memberMap.get(con.getTerminologyId()).getId())
+                    // This is for an in-memory member, just update the object
+                    : memberMap.get(con.getTerminologyId());
+                if (member == null) {
+                  continue;
+                }
                 member.setConceptName(con.getName());
                 member.setConceptActive(con.isActive());
                 if (lookupSynonyms) {
                   populateMemberSynonyms(member, con, refset, refsetService,
                       handler);
                 }
+                if (saveMembers) {
+                  refsetService.updateMember(member);
+                }
               }
-            }
 
-            // Found termids have been removed, look up termids
-            // here that are leftover and assign name
-            for (final String termId : termIds) {
-              // Reread the member as we don't know if it has changed
-              if (saveMembers) {
-                final ConceptRefsetMember member =
-                    refsetService.getMember(memberMap.get(termId).getId());
-                member.setConceptName(
-                    TerminologyHandler.UNABLE_TO_DETERMINE_NAME);
+              // Found termids have been removed, look up termids
+              // here that are leftover and assign name
+              for (final String termId : termIds) {
+                final ConceptRefsetMember member = saveMembers
+                    ? currentMembers.get(memberMap.get(termId).getId())
+                    // This is for an in-memory member, just update the object
+                    : memberMap.get(termId);
+                if (member == null) {
+                  continue;
+                }
+                member
+                    .setConceptName(TerminologyHandler.UNABLE_TO_DETERMINE_NAME);
                 member.setSynonyms(null);
-                refsetService.updateMember(member);
-
+                if (saveMembers) {
+                  refsetService.updateMember(member);
+                }
               }
 
-              // This is for an in-memory member, just update the object
-              else {
-                final ConceptRefsetMember member = memberMap.get(termId);
-                member.setConceptName(
-                    TerminologyHandler.UNABLE_TO_DETERMINE_NAME);
-                member.setSynonyms(null);
+              // Update Progress and commit
+              int progress = (int) ((100.0 * applied) / numberOfMembersToLookup);
+              if (lookupProgressMap.get(refsetId) < progress) {
+                lookupProgressMap.put(refsetId, progress);
+                if (saveMembers) {
+                  refsetService.commit();
+                  refsetService.clear();
+                  refsetService.beginTransaction();
+                }
               }
             }
-
-            // Update Progress and commit
-            int progress = (int) ((100.0 * i) / numberOfMembersToLookup);
-            if (lookupProgressMap.get(refsetId) < progress) {
-              lookupProgressMap.put(refsetId,
-                  (int) ((100.0 * i) / numberOfMembersToLookup));
-              if (saveMembers) {
-                refsetService.commit();
-                refsetService.clear();
-                refsetService.beginTransaction();
-              }
+          } finally {
+            // Abandon any outstanding lookups (e.g. on cancel or error)
+            for (final Future<ConceptList> future : pendingLookups) {
+              future.cancel(true);
             }
+            executor.shutdownNow();
           }
         }
 
@@ -2534,21 +2894,51 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
         .info("Release Service - resolve refset definition " + " refsetId "
             + refset.getId());
 
-    final Map<String, ConceptRefsetMember> beforeInclusions = new HashMap<>();
-    final Map<String, ConceptRefsetMember> beforeExclusions = new HashMap<>();
-    final Map<String, ConceptRefsetMember> existingMembers = new HashMap<>();
-
-    final Set<String> resolvedConcepts = new HashSet<>();
-
-    for (final ConceptRefsetMember member : refset.getMembers()) {
-      if (member.getMemberType() == Refset.MemberType.INCLUSION) {
-        beforeInclusions.put(member.getConceptId(), member);
-      } else if (member.getMemberType() == Refset.MemberType.EXCLUSION) {
-        beforeExclusions.put(member.getConceptId(), member);
-      } else if (member.getMemberType() == Refset.MemberType.MEMBER) {
-        existingMembers.put(member.getConceptId(), member);
+    // Load the current members as (concept id -> member id) sets, without
+    // hydrating member entities
+    long phaseTime = System.currentTimeMillis();
+    final long startTime = phaseTime;
+    final ConceptIdSet.Builder inclusionsBuilder = new ConceptIdSet.Builder();
+    final ConceptIdSet.Builder exclusionsBuilder = new ConceptIdSet.Builder();
+    final ConceptIdSet.Builder membersBuilder = new ConceptIdSet.Builder();
+    final ConceptIdSet.Builder inactiveMembersBuilder =
+        new ConceptIdSet.Builder();
+    @SuppressWarnings("unchecked")
+    final List<Object[]> rows = manager
+        .createQuery("select a.id, a.conceptId, a.memberType, a.active "
+            + "from ConceptRefsetMemberJpa a where a.refset.id = :refsetId")
+        .setParameter("refsetId", refset.getId()).getResultList();
+    for (final Object[] row : rows) {
+      final long memberId = (Long) row[0];
+      final String conceptId = (String) row[1];
+      try {
+        if (row[2] == Refset.MemberType.INCLUSION) {
+          inclusionsBuilder.add(conceptId, memberId);
+        } else if (row[2] == Refset.MemberType.EXCLUSION) {
+          exclusionsBuilder.add(conceptId, memberId);
+        } else if (row[2] == Refset.MemberType.MEMBER) {
+          if ((Boolean) row[3]) {
+            membersBuilder.add(conceptId, memberId);
+          } else {
+            inactiveMembersBuilder.add(conceptId, memberId);
+          }
+        }
+      } catch (NumberFormatException e) {
+        throw new LocalException(
+            "Unable to resolve refset definition, the refset has a member with a non-numeric concept id - "
+                + conceptId);
       }
     }
+    final ConceptIdSet inclusions = inclusionsBuilder.build();
+    final ConceptIdSet exclusions = exclusionsBuilder.build();
+    final ConceptIdSet members = membersBuilder.build();
+    final ConceptIdSet inactiveMembers = inactiveMembersBuilder.build();
+    Logger.getLogger(getClass()).info("  load: " + rows.size() + " members in "
+        + (System.currentTimeMillis() - phaseTime) + "ms");
+    sampleResolveHeapUsed();
+
+    // Resolve the definition
+    phaseTime = System.currentTimeMillis();
     ConceptList resolvedFromExpression = null;
     final Project project = this.getProject(refset.getProject().getId());
     final TerminologyHandler handler = getTerminologyHandler(project, headers);
@@ -2559,11 +2949,6 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
       try {
         resolvedFromExpression = handler.resolveExpression(definition,
             refset.getTerminology(), refset.getVersion(), null, false);
-
-        // Save concepts
-        for (final Concept concept : resolvedFromExpression.getObjects()) {
-          resolvedConcepts.add(concept.getTerminologyId());
-        }
       } catch (Exception e) {
         throw new LocalException(
             "Unable to resolve refset definition, the expression could not be resolved - "
@@ -2571,64 +2956,139 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
             e);
       }
     }
-
+    // Keep only what new members need (module, active, published), packed
+    // into the set values, so the resolved concepts can be released
+    final List<String> modules = new ArrayList<>();
+    final ConceptIdSet.Builder resolvedBuilder =
+        new ConceptIdSet.Builder(resolvedFromExpression.getObjects().size());
+    for (final Concept concept : resolvedFromExpression.getObjects()) {
+      int moduleIndex = modules.indexOf(concept.getModuleId());
+      if (moduleIndex == -1) {
+        moduleIndex = modules.size();
+        modules.add(concept.getModuleId());
+      }
+      resolvedBuilder.add(concept.getTerminologyId(),
+          ((long) moduleIndex << 2) | (concept.isActive() ? 2 : 0)
+              | (concept.isPublished() ? 1 : 0));
+    }
+    sampleResolveHeapUsed();
+    resolvedFromExpression = null;
+    final ConceptIdSet resolved = resolvedBuilder.build();
+    Logger.getLogger(getClass()).info("  resolve: " + resolved.size()
+        + " concepts in " + (System.currentTimeMillis() - phaseTime) + "ms");
+
+    // Compute the delta
+    phaseTime = System.currentTimeMillis();
     // Anything that was an explicit inclusion that is now resolved by the
     // definition normally, doesn’t need to be an inclusion anymore – because
-    // it can just be a regular member. Thus we can change it to member and
-    // avoid
-    // adding it later
-    for (final ConceptRefsetMember member : beforeInclusions.values()) {
-      if (resolvedConcepts.contains(member.getConceptId())) {
-        member.setMemberType(Refset.MemberType.MEMBER);
-        member.setLastModifiedBy(refset.getLastModifiedBy());
-        updateMember(member);
-        existingMembers.put(member.getConceptId(), member);
-      }
+    // it can just be a regular member.
+    final ConceptIdSet promote = inclusions.intersection(resolved);
+    // Inactive members (stable UUID projects) that are resolved again
+    final ConceptIdSet reactivate = inactiveMembers.intersection(resolved);
+    // Members and exclusions that are no longer resolved by the definition.
+    // Prior exclusions that are still resolved stay in place as exclusions.
+    final boolean inactivate = project.isStableUUIDs() && !refset.isProvisional();
+    ConceptIdSet remove =
+        members.difference(resolved).union(exclusions.difference(resolved));
+    if (!inactivate) {
+      remove = remove.union(inactiveMembers.difference(resolved));
+    }
+    // Concepts resolved by the definition that have no member of any kind
+    final ConceptIdSet add = resolved.difference(members).difference(inclusions)
+        .difference(exclusions).difference(inactiveMembers);
+    Logger.getLogger(getClass())
+        .info("  diff: promote = " + promote.size() + ", reactivate = "
+            + reactivate.size() + ", remove = " + remove.size() + ", add = "
+            + add.size() + " in " + (System.currentTimeMillis() - phaseTime)
+            + "ms");
+
+    // Apply the delta. Entities are loaded in chunks and written through the
+    // persistence context so Envers audits every change; Hibernate batches the
+    // JDBC statements and the index work is applied once per commit.
+    phaseTime = System.currentTimeMillis();
+    final boolean origTpo = getTransactionPerOperation();
+    if (origTpo) {
+      setTransactionPerOperation(false);
+      beginTransaction();
     }
+    int objectCt = 0;
 
-    for (ConceptRefsetMember member : existingMembers.values()) {
-      if (!resolvedConcepts.contains(member.getConceptId())) {
-        // member is no longer part of refset
-        removeMember(member.getId());
-      }
+    for (final ConceptRefsetMemberJpa member : getMembersForDelta(promote)) {
+      member.setMemberType(Refset.MemberType.MEMBER);
+      member.setLastModifiedBy(refset.getLastModifiedBy());
+      updateMember(member);
+      logAndCommit(++objectCt, RootService.logCt, RootService.commitCt);
     }
 
-    // Delete all previous members and exclusions that are not resolved from
-    // the current definition. Otherwise avoid adding it in next section
-    for (final ConceptRefsetMember member : beforeExclusions.values()) {
-      if (!resolvedConcepts.contains(member.getConceptId())) {
-        removeMember(member.getId());
-      } else {
-        // Add to existing members so they do not get re-added
-        existingMembers.put(member.getConceptId(), member);
+    for (final ConceptRefsetMemberJpa member : getMembersForDelta(
+        reactivate)) {
+      member.setLastModifiedBy(refset.getLastModifiedBy());
+      reactivateMember(member);
+      logAndCommit(++objectCt, RootService.logCt, RootService.commitCt);
+    }
+
+    // Notes of removed members, looked up per chunk rather than per member
+    if (!inactivate) {
+      for (int i = 0; i < remove.size(); i += DELTA_CHUNK_SIZE) {
+        @SuppressWarnings("unchecked")
+        final List<Long> noteIds = manager
+            .createQuery("select n.id from ConceptRefsetMemberNoteJpa n "
+                + "where n.member.id in (:ids)")
+            .setParameter("ids", getDeltaChunk(remove, i)).getResultList();
+        for (final Long noteId : noteIds) {
+          removeNote(noteId, ConceptRefsetMemberNoteJpa.class);
+        }
       }
     }
 
-    // concepts that are properly resolved by the definition that are not
-    // already covered by regular members (or prior exclusions, which stay
-    // in place as exclusions)
-    for (final Concept concept : resolvedFromExpression.getObjects()) {
-      if (!existingMembers.containsKey(concept.getTerminologyId())) {
-        final ConceptRefsetMember member = new ConceptRefsetMemberJpa();
-        member.setModuleId(concept.getModuleId());
-        member.setActive(true);
-        member.setConceptActive(concept.isActive());
-        member.setPublished(concept.isPublished());
-        member.setConceptId(concept.getTerminologyId());
-        member.setConceptName(handler.REQUIRES_NAME_LOOKUP);
-        member.setMemberType(Refset.MemberType.MEMBER);
-        member.setModuleId(concept.getModuleId());
-        member.setRefset(refset);
-        // assign new member id
-        member.setTerminologyId(null);
-        member.setId(null);
+    for (final ConceptRefsetMemberJpa member : getMembersForDelta(remove)) {
+      for (final ConceptRefsetMemberSynonym synonym : member.getSynonyms()) {
+        removeConceptRefsetMemberSynonym(synonym.getId());
+      }
+      if (inactivate) {
+        // stable UUIDs - inactivate instead of removing
+        member.getSynonyms().clear();
+        member.setActive(false);
         member.setLastModifiedBy(refset.getLastModifiedBy());
-        ConceptRefsetMember newMember = addMember(member);
-
+        updateMember(member);
+      } else {
+        removeHasLastModified(member.getId(), ConceptRefsetMemberJpa.class);
       }
+      logAndCommit(++objectCt, RootService.logCt, RootService.commitCt);
+    }
+
+    for (int i = 0; i < add.size(); i++) {
+      final long value = add.getValueAt(i);
+      final ConceptRefsetMember member = new ConceptRefsetMemberJpa();
+      member.setModuleId(modules.get((int) (value >> 2)));
+      member.setActive(true);
+      member.setConceptActive((value & 2) != 0);
+      member.setPublished((value & 1) != 0);
+      member.setConceptId(String.valueOf(add.getId(i)));
+      member.setConceptName(TerminologyHandler.REQUIRES_NAME_LOOKUP);
+      member.setMemberType(Refset.MemberType.MEMBER);
+      member.setRefset(refset);
+      // assign new member id
+      member.setTerminologyId(null);
+      member.setId(null);
+      member.setLastModifiedBy(refset.getLastModifiedBy());
+      addMember(member, null);
+      logAndCommit(++objectCt, RootService.logCt, RootService.commitCt);
     }
 
     commitClearBegin();
+    if (origTpo) {
+      commit();
+      setTransactionPerOperation(origTpo);
+    }
+    final long heapUsed = sampleResolveHeapUsed();
+    resolveCt.incrementAndGet();
+    lastResolveMembers.set(resolved.size());
+    lastResolveTime.set(System.currentTimeMillis() - startTime);
+    Logger.getLogger(getClass()).info("  apply: " + objectCt
+        + " member changes in " + (System.currentTimeMillis() - phaseTime)
+        + "ms, total = " + (System.currentTimeMillis() - startTime)
+        + "ms, heap used = " + (heapUsed / (1024 * 1024)) + "MB");
 
     // Lookup the refset name and synonyms
     lookupMemberNames(refset.getId(),
@@ -2636,6 +3096,69 @@ public class RefsetServiceJpa extends ReleaseServiceJpa
 
   }
 
+  /**
+   * Returns the members whose ids are the values of the delta, loaded in
+   * chunks of {@link #DELTA_CHUNK_SIZE} with their synonyms. Iterating is safe
+   * across commits and clears of the persistence context.
+   *
+   * @param delta the delta, with member ids as values
+   * @return the members
+   */
+  private Iterable<ConceptRefsetMemberJpa> getMembersForDelta(
+    final ConceptIdSet delta) {
+    return () -> new Iterator<ConceptRefsetMemberJpa>() {
+
+      /** The next position in the delta. */
+      private int position = 0;
+
+      /** The current chunk. */
+      private Iterator<ConceptRefsetMemberJpa> chunk =
+          Collections.emptyIterator();
+
+      /* see superclass */
+      @Override
+      public boolean hasNext() {
+        while (!chunk.hasNext() && position < delta.size()) {
+          @SuppressWarnings("unchecked")
+          final List<ConceptRefsetMemberJpa> members = manager
+              .createQuery("select distinct a from ConceptRefsetMemberJpa a "
+                  + "left join fetch a.synonyms where a.id in (:ids)")
+              .setParameter("ids", getDeltaChunk(delta, position))
+              .getResultList();
+          position += DELTA_CHUNK_SIZE;
+          chunk = members.iterator();
+        }
+        return chunk.hasNext();
+      }
+
+      /* see superclass */
+      @Override
+      public ConceptRefsetMemberJpa next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return chunk.next();
+      }
+    };
+  }
+
+  /**
+   * Returns up to {@link #DELTA_CHUNK_SIZE} member ids (the values) of the
+   * delta, starting at the specified position.
+   *
+   * @param delta the delta
+   * @param start the start position
+   * @return the member ids
+   */
+  private static List<Long> getDeltaChunk(ConceptIdSet delta, int start) {
+    final int end = Math.min(start + DELTA_CHUNK_SIZE, delta.size());
+    final List<Long> ids = new ArrayList<>(end - start);
+    for (int i = start; i < end; i++) {
+      ids.add(delta.getValueAt(i));
+    }
+    return ids;
+  }
+
   /**
    * Recover refset.
    *
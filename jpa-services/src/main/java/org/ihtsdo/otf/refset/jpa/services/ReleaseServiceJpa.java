@@ -3,16 +3,28 @@
  */
 package org.ihtsdo.otf.refset.jpa.services;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 import org.ihtsdo.otf.refset.ReleaseArtifact;
 import org.ihtsdo.otf.refset.ReleaseInfo;
 import org.ihtsdo.otf.refset.ValidationResult;
+import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+import org.ihtsdo.otf.refset.helpers.LocalException;
 import org.ihtsdo.otf.refset.jpa.ReleaseArtifactJpa;
 import org.ihtsdo.otf.refset.jpa.ReleaseInfoJpa;
 import org.ihtsdo.otf.refset.services.ReleaseService;
+import org.ihtsdo.otf.refset.services.RootService;
+import org.ihtsdo.otf.refset.services.handlers.ReleaseArtifactStore;
+import org.ihtsdo.otf.refset.services.handlers.ReleaseArtifactStore.ContentWriter;
 
 /**
  * JPA enabled implementation of {@link ReleaseService}.
@@ -31,6 +43,26 @@ public class ReleaseServiceJpa extends ProjectServiceJpa
   static Map<String, ValidationResult> processValidationResultMap =
       new ConcurrentHashMap<>();
 
+  /** The release artifact store, null to keep artifact data in the database. */
+  private static ReleaseArtifactStore artifactStore = null;
+
+  static {
+    try {
+      final Properties config = ConfigUtility.getConfigProperties();
+      final String key = "release.artifact.store.handler";
+      final String handlerName = config.getProperty(key);
+      if (handlerName != null && !handlerName.isEmpty()) {
+        artifactStore =
+            ConfigUtility.newStandardHandlerInstanceWithConfiguration(key,
+                handlerName, ReleaseArtifactStore.class);
+      }
+    } catch (Exception e) {
+      Logger.getLogger(ReleaseServiceJpa.class).error(
+          "Failed to initialize release.artifact.store.handler - serious error",
+          e);
+    }
+  }
+
   /**
    * Instantiates an empty {@link ReleaseServiceJpa}.
    *
@@ -83,7 +115,10 @@ public class ReleaseServiceJpa extends ProjectServiceJpa
   public void removeReleaseArtifact(Long artifactId) throws Exception {
     Logger.getLogger(getClass())
         .debug("Release Service - remove release artifact " + artifactId);
+    final ReleaseArtifact artifact = getReleaseArtifact(artifactId);
+    final String checksum = artifact == null ? null : artifact.getChecksum();
     removeHasLastModified(artifactId, ReleaseArtifactJpa.class);
+    removeUnreferencedData(checksum);
   }
 
   /* see superclass */
@@ -91,7 +126,18 @@ public class ReleaseServiceJpa extends ProjectServiceJpa
   public void removeReleaseInfo(Long id) throws Exception {
     Logger.getLogger(getClass())
         .debug("Release Service - remove release info " + id);
+    // Artifacts are removed by cascade, collect their content first
+    final Set<String> checksums = new HashSet<>();
+    final ReleaseInfo info = manager.find(ReleaseInfoJpa.class, id);
+    if (info != null) {
+      for (final ReleaseArtifact artifact : info.getArtifacts()) {
+        checksums.add(artifact.getChecksum());
+      }
+    }
     removeHasLastModified(id, ReleaseInfoJpa.class);
+    for (final String checksum : checksums) {
+      removeUnreferencedData(checksum);
+    }
   }
 
   /* see superclass */
@@ -110,6 +156,114 @@ public class ReleaseServiceJpa extends ProjectServiceJpa
     return getHasLastModified(id, ReleaseArtifactJpa.class);
   }
 
+  /* see superclass */
+  @Override
+  public void setReleaseArtifactData(ReleaseArtifact artifact,
+    ContentWriter writer) throws Exception {
+    if (artifactStore == null) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      writer.write(out);
+      artifact.setData(out.toByteArray());
+      artifact.setChecksum(null);
+      artifact.setSize((long) artifact.getData().length);
+      return;
+    }
+    final String checksum = artifactStore.store(writer);
+    artifact.setData(null);
+    artifact.setChecksum(checksum);
+    artifact.setSize(artifactStore.getSize(checksum));
+  }
+
+  /* see superclass */
+  @Override
+  public InputStream getReleaseArtifactData(ReleaseArtifact artifact,
+    long offset) throws Exception {
+    if (artifact.getChecksum() != null) {
+      if (artifactStore == null) {
+        throw new Exception("Release artifact " + artifact.getId()
+            + " is in the release artifact store, but none is configured");
+      }
+      return artifactStore.getContent(artifact.getChecksum(), offset);
+    }
+    if (artifact.getData() == null) {
+      return new ByteArrayInputStream(new byte[0]);
+    }
+    final int start = (int) Math.min(Math.max(offset, 0),
+        artifact.getData().length);
+    return new ByteArrayInputStream(artifact.getData(), start,
+        artifact.getData().length - start);
+  }
+
+  /* see superclass */
+  @Override
+  public int moveReleaseArtifactDataToStore() throws Exception {
+    if (artifactStore == null) {
+      throw new LocalException("Moving release artifact data requires "
+          + "release.artifact.store.handler to be configured");
+    }
+    final List<Long> ids = manager
+        .createQuery("select a.id from ReleaseArtifactJpa a "
+            + "where a.checksum is null and a.data is not null", Long.class)
+        .getResultList();
+    Logger.getLogger(getClass())
+        .info("  Move release artifact data to store: " + ids.size());
+
+    setTransactionPerOperation(false);
+    setLastModifiedFlag(false);
+    beginTransaction();
+    int ct = 0;
+    for (final Long id : ids) {
+      final ReleaseArtifact artifact = getReleaseArtifact(id);
+      final byte[] data = artifact.getData();
+      setReleaseArtifactData(artifact, out -> out.write(data));
+      if (artifact.getSize() != data.length) {
+        throw new Exception("Stored size " + artifact.getSize()
+            + " does not match data length " + data.length
+            + " for release artifact " + id);
+      }
+      updateReleaseArtifact(artifact);
+      // Commit each artifact, the data may be large
+      logAndCommit(++ct, RootService.logCt, 1);
+    }
+    commit();
+    return ct;
+  }
+
+  /* see superclass */
+  @Override
+  public boolean isReleaseArtifactStoreEnabled() {
+    return artifactStore != null;
+  }
+
+  /**
+   * Removes the content from the release artifact store if no remaining
+   * artifact refers to it. Content is shared between artifacts that were
+   * copied from one release info to the next. The content is only removed once
+   * the transaction commits, so a rollback does not lose it.
+   *
+   * @param checksum the checksum
+   * @throws Exception the exception
+   */
+  private void removeUnreferencedData(String checksum) throws Exception {
+    if (checksum == null || artifactStore == null) {
+      return;
+    }
+    final long ct = manager
+        .createQuery("select count(a) from ReleaseArtifactJpa a "
+            + "where a.checksum = :checksum", Long.class)
+        .setParameter("checksum", checksum).getSingleResult();
+    if (ct == 0) {
+      afterCommit(() -> {
+        try {
+          artifactStore.remove(checksum);
+        } catch (Exception e) {
+          Logger.getLogger(getClass()).warn(
+              "  Failed to remove release artifact content " + checksum, e);
+        }
+      });
+    }
+  }
+
   /* see superclass */
   @Override
   public void handleLazyInit(ReleaseInfo releaseInfo) throws Exception {
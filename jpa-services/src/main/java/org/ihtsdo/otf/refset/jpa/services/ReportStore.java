@@ -0,0 +1,574 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.jpa.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.Refset;
+import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+import org.ihtsdo.otf.refset.helpers.KeyValuePair;
+import org.ihtsdo.otf.refset.helpers.KeyValuePairList;
+import org.ihtsdo.otf.refset.jpa.RefsetJpa;
+import org.ihtsdo.otf.refset.rf2.ConceptRefsetMember;
+import org.ihtsdo.otf.refset.rf2.jpa.ConceptRefsetMemberJpa;
+
+/**
+ * Store for the compare and diff reports of {@link RefsetServiceJpa}, keyed by
+ * report token. Reports are kept in a compact gzipped form holding only the
+ * member fields that are displayed or exported, not the member entity graphs.
+ *
+ * Reports older than "report.store.maxAge" ms are dropped. When the resident
+ * reports exceed "report.store.maxBytes", the least recently used are spilled
+ * to files in "report.store.dir", or dropped if no dir is configured.
+ *
+ * The decoded form of a resident report is kept softly, so paging through a
+ * report decodes it once rather than on every page.
+ */
+final class ReportStore {
+
+  /** The singleton instance. */
+  private static ReportStore instance;
+
+  /** The resident reports, in access order. */
+  private final LinkedHashMap<String, Entry> resident =
+      new LinkedHashMap<>(16, 0.75f, true);
+
+  /** The spilled reports. */
+  private final Map<String, Entry> spilled = new HashMap<>();
+
+  /** The max resident bytes. */
+  private final long maxBytes;
+
+  /** The max age. */
+  private final long maxAge;
+
+  /** The spill dir, null if reports are not spilled. */
+  private final Path dir;
+
+  /** The resident bytes. */
+  private long residentBytes = 0;
+
+  /** The spilled bytes. */
+  private long spilledBytes = 0;
+
+  /** The hits. */
+  private long hits = 0;
+
+  /** The misses. */
+  private long misses = 0;
+
+  /** The spills. */
+  private long spills = 0;
+
+  /** The evictions, reports dropped for age or size. */
+  private long evictions = 0;
+
+  /** The gets served from a held decoded report. */
+  private long decodedHits = 0;
+
+  /**
+   * Instantiates a {@link ReportStore} from the specified parameters.
+   *
+   * @param maxBytes the max resident bytes
+   * @param maxAge the max age
+   * @param dir the spill dir, or null
+   * @throws Exception the exception
+   */
+  ReportStore(long maxBytes, long maxAge, Path dir) throws Exception {
+    this.maxBytes = maxBytes;
+    this.maxAge = maxAge;
+    this.dir = dir;
+    if (dir != null) {
+      Files.createDirectories(dir);
+      // spilled reports do not survive a restart
+      try (final DirectoryStream<Path> stream =
+          Files.newDirectoryStream(dir, "report*.bin")) {
+        for (final Path path : stream) {
+          Files.deleteIfExists(path);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the instance, creating it on first use from the "report.store.*"
+   * config properties.
+   *
+   * @return the instance
+   * @throws Exception the exception
+   */
+  static synchronized ReportStore getInstance() throws Exception {
+    if (instance == null) {
+      final Properties config = ConfigUtility.getConfigProperties();
+      final long maxBytes = Long.parseLong(
+          config.getProperty("report.store.maxBytes", "268435456").trim());
+      final long maxAge = Long.parseLong(
+          config.getProperty("report.store.maxAge", "86400000").trim());
+      final String dir = config.getProperty("report.store.dir", "").trim();
+      instance = new ReportStore(maxBytes, maxAge,
+          dir.isEmpty() ? null : new File(dir).toPath());
+      Logger.getLogger(ReportStore.class)
+          .info("Report store - maxBytes = " + maxBytes + ", maxAge = "
+              + maxAge + "ms, dir = " + (dir.isEmpty() ? "none" : dir));
+    }
+    return instance;
+  }
+
+  /**
+   * Puts a report, replacing any report with the same key.
+   *
+   * @param key the key
+   * @param data the report data
+   * @throws Exception the exception
+   */
+  synchronized void put(String key, byte[] data) throws Exception {
+    remove(key);
+    expire();
+    final Entry entry = new Entry(data);
+    resident.put(key, entry);
+    residentBytes += entry.size;
+    evict(key);
+  }
+
+  /**
+   * Returns a report, reading it back from disk if it was spilled.
+   *
+   * @param key the key
+   * @return the report data, or null if there is no such report
+   * @throws Exception the exception
+   */
+  synchronized byte[] get(String key) throws Exception {
+    expire();
+    Entry entry = resident.get(key);
+    if (entry != null) {
+      hits++;
+      return entry.data;
+    }
+    entry = spilled.remove(key);
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    // bring it back, it is being paged through
+    spilledBytes -= entry.size;
+    entry.data = Files.readAllBytes(entry.file);
+    Files.deleteIfExists(entry.file);
+    entry.file = null;
+    resident.put(key, entry);
+    residentBytes += entry.size;
+    evict(key);
+    return entry.data;
+  }
+
+  /**
+   * Returns the member lists of a report, decoding it only if its decoded form
+   * is not still held. Callers get their own copies of the lists and members.
+   *
+   * @param key the key
+   * @param refsetIds the refset ids of the report, filled in
+   * @return the member lists, or null if there is no such report
+   * @throws Exception the exception
+   */
+  List<List<ConceptRefsetMember>> getLists(String key, List<Long> refsetIds)
+    throws Exception {
+    final byte[] data = get(key);
+    if (data == null) {
+      return null;
+    }
+    Decoded decoded = null;
+    synchronized (this) {
+      final Entry entry = resident.get(key);
+      if (entry != null && entry.decoded != null) {
+        decoded = entry.decoded.get();
+        if (decoded != null) {
+          decodedHits++;
+        }
+      }
+    }
+    if (decoded == null) {
+      final List<Long> ids = new ArrayList<>();
+      decoded = new Decoded(ids, decode(data, ids));
+      synchronized (this) {
+        final Entry entry = resident.get(key);
+        // only if the report was not replaced meanwhile
+        if (entry != null && entry.data == data) {
+          entry.decoded = new SoftReference<>(decoded);
+        }
+      }
+    }
+    refsetIds.addAll(decoded.refsetIds);
+    final List<List<ConceptRefsetMember>> lists = new ArrayList<>();
+    for (final List<ConceptRefsetMember> list : decoded.lists) {
+      final List<ConceptRefsetMember> copy = new ArrayList<>(list.size());
+      for (final ConceptRefsetMember member : list) {
+        copy.add(copy(member));
+      }
+      lists.add(copy);
+    }
+    return lists;
+  }
+
+  /**
+   * Removes a report.
+   *
+   * @param key the key
+   * @throws Exception the exception
+   */
+  synchronized void remove(String key) throws Exception {
+    Entry entry = resident.remove(key);
+    if (entry != null) {
+      residentBytes -= entry.size;
+    }
+    entry = spilled.remove(key);
+    if (entry != null) {
+      spilledBytes -= entry.size;
+      Files.deleteIfExists(entry.file);
+    }
+  }
+
+  /**
+   * Returns the statistics.
+   *
+   * @return the statistics
+   */
+  synchronized KeyValuePairList getStatistics() {
+    final KeyValuePairList list = new KeyValuePairList();
+    list.setName("reportStore");
+    list.addKeyValuePair(new KeyValuePair("residentReports",
+        String.valueOf(resident.size())));
+    list.addKeyValuePair(
+        new KeyValuePair("residentBytes", String.valueOf(residentBytes)));
+    list.addKeyValuePair(
+        new KeyValuePair("spilledReports", String.valueOf(spilled.size())));
+    list.addKeyValuePair(
+        new KeyValuePair("spilledBytes", String.valueOf(spilledBytes)));
+    list.addKeyValuePair(new KeyValuePair("hits", String.valueOf(hits)));
+    list.addKeyValuePair(new KeyValuePair("misses", String.valueOf(misses)));
+    list.addKeyValuePair(new KeyValuePair("spills", String.valueOf(spills)));
+    list.addKeyValuePair(
+        new KeyValuePair("evictions", String.valueOf(evictions)));
+    list.addKeyValuePair(
+        new KeyValuePair("decodedHits", String.valueOf(decodedHits)));
+    return list;
+  }
+
+  /**
+   * Drops reports older than the max age.
+   *
+   * @throws Exception the exception
+   */
+  private void expire() throws Exception {
+    final long cutoff = System.currentTimeMillis() - maxAge;
+    for (final Iterator<Entry> i = resident.values().iterator(); i
+        .hasNext();) {
+      final Entry entry = i.next();
+      if (entry.created < cutoff) {
+        i.remove();
+        residentBytes -= entry.size;
+        evictions++;
+      }
+    }
+    for (final Iterator<Entry> i = spilled.values().iterator(); i.hasNext();) {
+      final Entry entry = i.next();
+      if (entry.created < cutoff) {
+        i.remove();
+        spilledBytes -= entry.size;
+        Files.deleteIfExists(entry.file);
+        evictions++;
+      }
+    }
+  }
+
+  /**
+   * Spills or drops the least recently used reports, other than the specified
+   * one, until the resident reports fit in the max bytes.
+   *
+   * @param keep the key of the report to keep resident
+   * @throws Exception the exception
+   */
+  private void evict(String keep) throws Exception {
+    for (final Iterator<Map.Entry<String, Entry>> i =
+        resident.entrySet().iterator(); i.hasNext()
+            && residentBytes > maxBytes;) {
+      final Map.Entry<String, Entry> e = i.next();
+      if (e.getKey().equals(keep)) {
+        continue;
+      }
+      final Entry entry = e.getValue();
+      i.remove();
+      residentBytes -= entry.size;
+      if (dir == null) {
+        evictions++;
+        continue;
+      }
+      entry.file = Files.createTempFile(dir, "report", ".bin");
+      Files.write(entry.file, entry.data);
+      entry.data = null;
+      entry.decoded = null;
+      spilled.put(e.getKey(), entry);
+      spilledBytes += entry.size;
+      spills++;
+    }
+  }
+
+  /**
+   * Encodes report members in compact form. Members keep their id, component
+   * fields, concept fields, member type and refset id, but not their notes or
+   * synonyms.
+   *
+   * @param refsetIds the refset ids of the report
+   * @param lists the member lists
+   * @return the encoded report
+   * @throws Exception the exception
+   */
+  @SafeVarargs
+  static byte[] encode(Long[] refsetIds, List<ConceptRefsetMember>... lists)
+    throws Exception {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (final DataOutputStream out =
+        new DataOutputStream(new GZIPOutputStream(bytes))) {
+      out.writeInt(refsetIds.length);
+      for (final Long refsetId : refsetIds) {
+        writeLong(out, refsetId);
+      }
+      out.writeInt(lists.length);
+      for (final List<ConceptRefsetMember> list : lists) {
+        out.writeInt(list.size());
+        for (final ConceptRefsetMember member : list) {
+          writeLong(out, member.getId());
+          writeString(out, member.getTerminologyId());
+          writeLong(out, member.getEffectiveTime() == null ? null
+              : member.getEffectiveTime().getTime());
+          writeLong(out, member.getLastModified() == null ? null
+              : member.getLastModified().getTime());
+          writeString(out, member.getLastModifiedBy());
+          out.writeBoolean(member.isActive());
+          out.writeBoolean(member.isPublished());
+          out.writeBoolean(member.isPublishable());
+          writeString(out, member.getModuleId());
+          writeString(out, member.getConceptId());
+          writeString(out, member.getConceptName());
+          out.writeBoolean(member.isConceptActive());
+          writeString(out, member.getMemberType() == null ? null
+              : member.getMemberType().name());
+          writeLong(out, member.getRefset() == null ? null
+              : member.getRefset().getId());
+        }
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decodes a report encoded by {@link #encode}. Member refsets are
+   * {@link RefsetJpa} objects with only the id set.
+   *
+   * @param data the encoded report
+   * @param refsetIds the refset ids of the report, filled in
+   * @return the member lists
+   * @throws Exception the exception
+   */
+  static List<List<ConceptRefsetMember>> decode(byte[] data,
+    List<Long> refsetIds) throws Exception {
+    final Map<Long, Refset> refsets = new HashMap<>();
+    final List<List<ConceptRefsetMember>> lists = new ArrayList<>();
+    try (final DataInputStream in = new DataInputStream(
+        new GZIPInputStream(new ByteArrayInputStream(data)))) {
+      final int refsetCt = in.readInt();
+      for (int i = 0; i < refsetCt; i++) {
+        refsetIds.add(readLong(in));
+      }
+      final int listCt = in.readInt();
+      for (int i = 0; i < listCt; i++) {
+        final int size = in.readInt();
+        final List<ConceptRefsetMember> list = new ArrayList<>(size);
+        for (int j = 0; j < size; j++) {
+          final ConceptRefsetMember member = new ConceptRefsetMemberJpa();
+          member.setId(readLong(in));
+          member.setTerminologyId(readString(in));
+          final Long effectiveTime = readLong(in);
+          member.setEffectiveTime(
+              effectiveTime == null ? null : new Date(effectiveTime));
+          final Long lastModified = readLong(in);
+          member.setLastModified(
+              lastModified == null ? null : new Date(lastModified));
+          member.setLastModifiedBy(readString(in));
+          member.setActive(in.readBoolean());
+          member.setPublished(in.readBoolean());
+          member.setPublishable(in.readBoolean());
+          member.setModuleId(readString(in));
+          member.setConceptId(readString(in));
+          member.setConceptName(readString(in));
+          member.setConceptActive(in.readBoolean());
+          final String memberType = readString(in);
+          member.setMemberType(
+              memberType == null ? null : Refset.MemberType.valueOf(memberType));
+          final Long refsetId = readLong(in);
+          if (refsetId != null) {
+            member.setRefset(refsets.computeIfAbsent(refsetId, id -> {
+              final Refset refset = new RefsetJpa();
+              refset.setId(id);
+              return refset;
+            }));
+          }
+          list.add(member);
+        }
+        lists.add(list);
+      }
+    }
+    return lists;
+  }
+
+  /**
+   * Returns a copy of a decoded member, sharing its refset.
+   *
+   * @param member the member
+   * @return the copy
+   */
+  private static ConceptRefsetMember copy(ConceptRefsetMember member) {
+    final ConceptRefsetMember copy = new ConceptRefsetMemberJpa();
+    copy.setId(member.getId());
+    copy.setTerminologyId(member.getTerminologyId());
+    copy.setEffectiveTime(member.getEffectiveTime());
+    copy.setLastModified(member.getLastModified());
+    copy.setLastModifiedBy(member.getLastModifiedBy());
+    copy.setActive(member.isActive());
+    copy.setPublished(member.isPublished());
+    copy.setPublishable(member.isPublishable());
+    copy.setModuleId(member.getModuleId());
+    copy.setConceptId(member.getConceptId());
+    copy.setConceptName(member.getConceptName());
+    copy.setConceptActive(member.isConceptActive());
+    copy.setMemberType(member.getMemberType());
+    copy.setRefset(member.getRefset());
+    return copy;
+  }
+
+  /**
+   * Writes a nullable long.
+   *
+   * @param out the output stream
+   * @param value the value
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static void writeLong(DataOutputStream out, Long value)
+    throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeLong(value);
+    }
+  }
+
+  /**
+   * Reads a nullable long.
+   *
+   * @param in the input stream
+   * @return the value
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static Long readLong(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readLong() : null;
+  }
+
+  /**
+   * Writes a nullable string.
+   *
+   * @param out the output stream
+   * @param value the value
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static void writeString(DataOutputStream out, String value)
+    throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  /**
+   * Reads a nullable string.
+   *
+   * @param in the input stream
+   * @return the value
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static String readString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  /**
+   * A stored report.
+   */
+  private static final class Entry {
+
+    /** The data, null if spilled. */
+    byte[] data;
+
+    /** The decoded report, if still held. */
+    SoftReference<Decoded> decoded;
+
+    /** The spill file, null if resident. */
+    Path file;
+
+    /** The size. */
+    final int size;
+
+    /** The creation time. */
+    final long created = System.currentTimeMillis();
+
+    /**
+     * Instantiates an {@link Entry} from the specified parameters.
+     *
+     * @param data the data
+     */
+    Entry(byte[] data) {
+      this.data = data;
+      this.size = data.length;
+    }
+  }
+
+  /**
+   * A decoded report.
+   */
+  private static final class Decoded {
+
+    /** The refset ids. */
+    final List<Long> refsetIds;
+
+    /** The member lists, with id-only refsets. */
+    final List<List<ConceptRefsetMember>> lists;
+
+    /**
+     * Instantiates a {@link Decoded} from the specified parameters.
+     *
+     * @param refsetIds the refset ids
+     * @param lists the member lists
+     */
+    Decoded(List<Long> refsetIds, List<List<ConceptRefsetMember>> lists) {
+      this.refsetIds = refsetIds;
+      this.lists = lists;
+    }
+  }
+}
@@ -9,7 +9,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.Random;
 
@@ -19,10 +22,14 @@ import javax.persistence.EntityTransaction;
 import javax.persistence.NoResultException;
 import javax.persistence.Persistence;
 import javax.persistence.PersistenceUnit;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
 
 import org.apache.log4j.Logger;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParserBase;
+import org.apache.lucene.search.Sort;
+import org.hibernate.Session;
 import org.hibernate.search.jpa.FullTextQuery;
 import org.ihtsdo.otf.refset.helpers.ConfigUtility;
 import org.ihtsdo.otf.refset.helpers.HasLastModified;
@@ -30,6 +37,7 @@ import org.ihtsdo.otf.refset.helpers.LocalException;
 import org.ihtsdo.otf.refset.helpers.LogEntry;
 import org.ihtsdo.otf.refset.helpers.PfsParameter;
 import org.ihtsdo.otf.refset.jpa.helpers.LogEntryJpa;
+import org.ihtsdo.otf.refset.jpa.helpers.PfsParameterJpa;
 import org.ihtsdo.otf.refset.jpa.services.handlers.IndexUtility;
 import org.ihtsdo.otf.refset.services.RootService;
 
@@ -67,6 +75,9 @@ public abstract class RootServiceJpa implements RootService {
   /** The transaction entity. */
   protected EntityTransaction tx;
 
+  /** The number of objects loaded per query when scrolling results. */
+  protected static final int SCROLL_PAGE_SIZE = 1000;
+
   /**
    * Instantiates an empty {@link RootServiceJpa}.
    *
@@ -195,6 +206,37 @@ public abstract class RootServiceJpa implements RootService {
     }
   }
 
+  /**
+   * Runs the action once the current transaction commits, or right away if
+   * there is none (in transaction per operation mode the change is already
+   * committed). The action is dropped if the transaction rolls back.
+   *
+   * @param action the action
+   */
+  protected void afterCommit(final Runnable action) {
+    if (!manager.getTransaction().isActive()) {
+      action.run();
+      return;
+    }
+    manager.unwrap(Session.class).getTransaction()
+        .registerSynchronization(new Synchronization() {
+
+          /* see superclass */
+          @Override
+          public void beforeCompletion() {
+            // n/a
+          }
+
+          /* see superclass */
+          @Override
+          public void afterCompletion(int status) {
+            if (status == Status.STATUS_COMMITTED) {
+              action.run();
+            }
+          }
+        });
+  }
+
   /* see superclass */
   @Override
   public void close() throws Exception {
@@ -277,49 +319,9 @@ public abstract class RootServiceJpa implements RootService {
     return query;
   }
 
-  /**
-   * Retrieves the sort field value from an object.
-   *
-   * @param o the object
-   * @param sortField the period-separated X list of sequential getX methods,
-   *          e.g. a.b.c
-   * @return the value of the requested sort field
-   * @throws Exception the exception
-   */
-  @SuppressWarnings("static-method")
-  Object getSortFieldValue(final Object o, final String sortField)
-    throws Exception {
-    // split the fields for method retrieval, e.g. a.b.c. =
-    // o.getA().getB().getC()
-    final String[] splitFields = sortField.split("\\.");
-
-    int i = 0;
-    Method finalMethod = null;
-    Object finalObject = o;
-
-    while (i < splitFields.length) {
-      finalMethod = finalObject.getClass().getMethod(
-          "get" + ConfigUtility.capitalize(splitFields[i]), new Class<?>[] {});
-      finalMethod.setAccessible(true);
-      finalObject = finalMethod.invoke(finalObject, new Object[] {});
-      i++;
-    }
-
-    // verify that final object is actually a string, enum, or date
-    if (!finalMethod.getReturnType().equals(String.class)
-        && !finalMethod.getReturnType().isEnum()
-        && !finalMethod.getReturnType().equals(Long.class)
-        && !finalMethod.getReturnType().equals(Date.class)) {
-      throw new Exception(
-          "Requested sort field value is not string, enum, or date value "
-              + finalMethod.getReturnType().getName());
-    }
-    return finalObject;
-
-  }
-
   // this is called by REST layer and so needs to be exposed through RootService
   /* see superclass */
+  @SuppressWarnings("unchecked")
   @Override
   public <T> List<T> applyPfsToList(final List<T> list, final Class<T> clazz,
     final int[] totalCt, final PfsParameter pfs) throws Exception {
@@ -342,48 +344,20 @@ public abstract class RootServiceJpa implements RootService {
             + pfs.getQueryRestriction());
       }
 
-      result = new ArrayList<>();
+      // Lowercase the clauses once, the search text of each element is
+      // lowercased by PfsFieldAccessors
+      final String[] clauses = pfs.getQueryRestriction().split(" AND ");
+      for (int i = 0; i < clauses.length; i++) {
+        clauses[i] = (clauses[i].endsWith("*") ? clauses[i].replace("*", "")
+            : clauses[i]).toLowerCase();
+      }
 
+      result = new ArrayList<>();
       for (final T t : list) {
-        final StringBuilder sb = new StringBuilder();
-        for (final Method m : t.getClass().getMethods()) {
-          // TODO Add annotation check for @Field, @Fields...
-          if (m.getName().startsWith("get") && (m
-              .isAnnotationPresent(org.hibernate.search.annotations.Field.class)
-              || m.isAnnotationPresent(
-                  org.hibernate.search.annotations.Fields.class))) {
-            try {
-
-              final Object val = m.invoke(t);
-              // Support long, string, and enum
-              if (val != null && (val instanceof String || val instanceof Long
-                  || m.getReturnType().isEnum())) {
-                sb.append(val.toString()).append(" ");
-              }
-            } catch (IllegalArgumentException e) {
-              // do nothing, skip field
-            }
-          }
-
-          // special handling for "localSet"
-          else if (m.getName().equals("isLocalSet")) {
-            try {
-              final Object val = m.invoke(t);
-              sb.append(val.toString()).append("localSet:" + val);
-
-            } catch (IllegalArgumentException e) {
-              // do nothing, skip field
-            }
-          }
-
-        }
-
-        final String[] clauses = pfs.getQueryRestriction().split(" AND ");
+        final String text = PfsFieldAccessors.getSearchText(t);
         boolean all = true;
         for (final String clause : clauses) {
-          if (sb.toString().toLowerCase()
-              .indexOf((clause.endsWith("*") ? clause.replace("*", "") : clause)
-                  .toLowerCase()) == -1) {
+          if (text.indexOf(clause) == -1) {
             all = false;
             break;
           }
@@ -395,114 +369,40 @@ public abstract class RootServiceJpa implements RootService {
     }
 
     // check if sorting required
-    if (pfs != null)
-
-    {
-
-      final List<String> pfsSortFields = new ArrayList<>();
-      // if sort field specified, add to list of sort fields
-      if (pfs.getSortField() != null && !pfs.getSortField().isEmpty()) {
-        pfsSortFields.add(pfs.getSortField());
+    final String sortField = pfs.getSortField();
+    if (sortField != null && !sortField.isEmpty()
+        && !sortField.equals("RANDOM")) {
+
+      // Compute each sort key once, sort the (key, element) pairs, then
+      // write the elements back in order
+      final List<Object[]> keyed = new ArrayList<>(result.size());
+      try {
+        for (final T t : result) {
+          keyed.add(new Object[] {
+              PfsFieldAccessors.getSortKey(t, sortField), t
+          });
+        }
+      } catch (Exception e) {
+        // leave the list unsorted, as for an unsortable field
+        Logger.getLogger(getClass())
+            .error("Unable to sort on field " + sortField, e);
+        keyed.clear();
       }
-
-      // if one or more sort fields found, apply sorting
-      if (!pfsSortFields.isEmpty() && !pfsSortFields.contains("RANDOM")) {
-
-        // declare the final ascending flag and sort fields for comparator
-        final boolean ascending = (pfs != null) ? pfs.isAscending() : true;
-        final List<String> sortFields = pfsSortFields;
-
-        // sort the list
-        Collections.sort(result, new Comparator<T>() {
-
-          @Override
-          public int compare(T t1, T t2) {
-            // if an exception is returned, simply pass equality
-            try {
-
-              for (final String sortField : sortFields) {
-                final Object s1 = getSortFieldValue(t1, sortField);
-                final Object s2 = getSortFieldValue(t2, sortField);
-
-                final boolean isDate = s1 instanceof Date;
-                final boolean isLong = s1 instanceof Long;
-
-                // if both values null, skip to next sort field
-                if (s1 != null || s2 != null) {
-
-                  // handle date comparison by long value
-                  if (isDate || isLong) {
-                    final Long l1 = s1 == null ? null
-                        : (isDate ? ((Date) s1).getTime() : ((Long) s1));
-                    final Long l2 = s2 == null ? null
-                        : (isDate ? ((Date) s2).getTime() : ((Long) s2));
-
-                    if (ascending) {
-                      if (l1 == null && s2 != null) {
-                        return -1;
-                      }
-                      if (l1 != null && l1.compareTo(l2) != 0) {
-                        return l1.compareTo(l2);
-                      } else {
-                        return 0;
-                      }
-                    } else {
-                      if (l2 == null && l1 != null) {
-                        return -1;
-                      }
-                      if (l2 != null && l2.compareTo(l1) != 0) {
-                        return l2.compareTo(l1);
-                      } else {
-                        return 0;
-                      }
-                    }
-                  }
-
-                  // otherwise handle via string comparison
-                  else if (ascending) {
-                    if (s1 == null && s2 != null) {
-                      return -1;
-                    }
-                    if (s1 != null
-                        && s1.toString().compareTo(s2.toString()) != 0) {
-                      return s1.toString().compareTo(s2.toString());
-                    } else {
-                      return 0;
-                    }
-                  } else {
-                    if (s2 == null && s1 != null) {
-                      return -1;
-                    }
-                    if (s2 != null
-                        && (s2.toString()).compareTo(s1.toString()) != 0) {
-                      return (s2.toString()).compareTo(s1.toString());
-                    } else {
-                      return 0;
-                    }
-                  }
-                }
-              }
-              // if no return after checking all sort fields, return equality
-              return 0;
-            } catch (Exception e) {
-              e.printStackTrace();
-              return 0;
-            }
-          }
-        });
+      if (!keyed.isEmpty()) {
+        final Comparator<Object[]> comparator =
+            (k1, k2) -> PfsFieldAccessors.compareSortKeys(k1[0], k2[0]);
+        keyed.sort(pfs.isAscending() ? comparator : comparator.reversed());
+        final ListIterator<T> iterator = result.listIterator();
+        for (final Object[] pair : keyed) {
+          iterator.next();
+          iterator.set((T) pair[1]);
+        }
       }
+    }
 
-      // support RANDOM
-      else if (pfsSortFields.contains("RANDOM")) {
-        final Random random = new Random(new Date().getTime());
-        Collections.sort(result, new Comparator<T>() {
-
-          @Override
-          public int compare(T arg0, T arg1) {
-            return random.nextInt();
-          }
-        });
-      }
+    // support RANDOM
+    else if (sortField != null && sortField.equals("RANDOM")) {
+      Collections.shuffle(result, new Random(new Date().getTime()));
     }
 
     // set the total count
@@ -617,15 +517,41 @@ public abstract class RootServiceJpa implements RootService {
   @Override
   public <T> List<?> getQueryResults(String query, Class<?> fieldNamesKey,
     Class<T> clazz, PfsParameter pfs, int[] totalCt) throws Exception {
+    return getQueryResults(query, fieldNamesKey, clazz, pfs, null, totalCt);
+  }
+
+  /**
+   * Returns the query results, sorted by an explicit Lucene sort (e.g. on a
+   * class bridge field) instead of the pfs sort field.
+   *
+   * @param <T> the
+   * @param query the query
+   * @param fieldNamesKey the field names key
+   * @param clazz the clazz
+   * @param pfs the pfs
+   * @param sort the sort, or null to use the pfs sort field
+   * @param totalCt the total ct
+   * @return the query results
+   * @throws Exception the exception
+   */
+  protected <T> List<?> getQueryResults(String query, Class<?> fieldNamesKey,
+    Class<T> clazz, PfsParameter pfs, Sort sort, int[] totalCt)
+    throws Exception {
 
     if (query == null || query.isEmpty()) {
       throw new Exception("Unexpected empty query.");
     }
 
+    PfsParameter localPfs = pfs;
+    if (sort != null && pfs != null) {
+      localPfs = new PfsParameterJpa(pfs);
+      localPfs.setSortField(null);
+    }
+
     FullTextQuery fullTextQuery = null;
     try {
       fullTextQuery = IndexUtility.applyPfsToLuceneQuery(clazz, fieldNamesKey,
-          query, pfs, manager);
+          query, localPfs, manager);
     } catch (ParseException e) {
       // If parse exception, try a literal query
       StringBuilder escapedQuery = new StringBuilder();
@@ -633,7 +559,10 @@ public abstract class RootServiceJpa implements RootService {
         escapedQuery.append(QueryParserBase.escape(query));
       }
       fullTextQuery = IndexUtility.applyPfsToLuceneQuery(clazz, fieldNamesKey,
-          escapedQuery.toString(), pfs, manager);
+          escapedQuery.toString(), localPfs, manager);
+    }
+    if (sort != null) {
+      fullTextQuery.setSort(sort);
     }
 
     totalCt[0] = fullTextQuery.getResultSize();
@@ -641,6 +570,86 @@ public abstract class RootServiceJpa implements RootService {
 
   }
 
+  /**
+   * Loads one page of query results.
+   *
+   * @param <T> the result type
+   */
+  protected interface PageLoader<T> {
+
+    /**
+     * Returns the page of results for the pfs.
+     *
+     * @param pfs the pfs, with the start index and max results of the page
+     * @return the page
+     * @throws Exception the exception
+     */
+    public List<T> getPage(PfsParameter pfs) throws Exception;
+  }
+
+  /**
+   * Returns the results of a paged query, loaded {@link #SCROLL_PAGE_SIZE} at
+   * a time as they are iterated. The persistence context is cleared before each
+   * page, so the results are read-only and there must be no pending changes.
+   * Any paging in the pfs applies as an overall window.
+   *
+   * @param <T> the result type
+   * @param pfs the pfs
+   * @param loader the page loader
+   * @return the results
+   */
+  protected <T> Iterable<T> scrollQueryResults(final PfsParameter pfs,
+    final PageLoader<T> loader) {
+    final boolean paged = pfs != null && pfs.getStartIndex() >= 0
+        && pfs.getMaxResults() >= 0;
+    final int start = paged ? pfs.getStartIndex() : 0;
+    final int limit = paged ? pfs.getMaxResults() : Integer.MAX_VALUE;
+
+    return () -> new Iterator<T>() {
+
+      /** The number of results read so far. */
+      private int read = 0;
+
+      /** Whether the last page was short, i.e. there are no more pages. */
+      private boolean finished = false;
+
+      /** The current page. */
+      private Iterator<T> page = Collections.emptyIterator();
+
+      /* see superclass */
+      @Override
+      public boolean hasNext() {
+        if (!page.hasNext() && !finished && read < limit) {
+          final PfsParameter pagePfs =
+              pfs == null ? new PfsParameterJpa() : new PfsParameterJpa(pfs);
+          final int pageSize = Math.min(SCROLL_PAGE_SIZE, limit - read);
+          pagePfs.setStartIndex(start + read);
+          pagePfs.setMaxResults(pageSize);
+          try {
+            // Drop the previous page before loading the next one
+            clear();
+            final List<T> results = loader.getPage(pagePfs);
+            read += results.size();
+            finished = results.size() < pageSize;
+            page = results.iterator();
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        }
+        return page.hasNext();
+      }
+
+      /* see superclass */
+      @Override
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return page.next();
+      }
+    };
+  }
+
   /**
    * Adds the has last modified.
    *
@@ -3,12 +3,11 @@
  */
 package org.ihtsdo.otf.refset.jpa.services;
 
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import javax.persistence.NoResultException;
@@ -22,24 +21,33 @@ import org.hibernate.search.jpa.FullTextEntityManager;
 import org.hibernate.search.jpa.FullTextQuery;
 import org.hibernate.search.jpa.Search;
 import org.hibernate.search.query.dsl.QueryBuilder;
+import org.ihtsdo.otf.refset.AuthToken;
 import org.ihtsdo.otf.refset.Project;
 import org.ihtsdo.otf.refset.User;
 import org.ihtsdo.otf.refset.UserPreferences;
 import org.ihtsdo.otf.refset.UserRole;
 import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+import org.ihtsdo.otf.refset.helpers.KeyValuePair;
+import org.ihtsdo.otf.refset.helpers.KeyValuePairList;
 import org.ihtsdo.otf.refset.helpers.LocalException;
 import org.ihtsdo.otf.refset.helpers.PfsParameter;
 import org.ihtsdo.otf.refset.helpers.ProjectList;
 import org.ihtsdo.otf.refset.helpers.UserList;
+import org.ihtsdo.otf.refset.jpa.AuthTokenJpa;
 import org.ihtsdo.otf.refset.jpa.ProjectJpa;
 import org.ihtsdo.otf.refset.jpa.UserJpa;
 import org.ihtsdo.otf.refset.jpa.UserPreferencesJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.ProjectListJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.UserListJpa;
+import org.ihtsdo.otf.refset.jpa.services.handlers.DefaultTokenStore;
 import org.ihtsdo.otf.refset.jpa.services.handlers.IndexUtility;
-import org.ihtsdo.otf.refset.services.ProjectService;
 import org.ihtsdo.otf.refset.services.SecurityService;
 import org.ihtsdo.otf.refset.services.handlers.SecurityServiceHandler;
+import org.ihtsdo.otf.refset.services.handlers.TokenStore;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 
 /**
  * Reference implementation of the {@link SecurityService}.
@@ -47,13 +55,8 @@ import org.ihtsdo.otf.refset.services.handlers.SecurityServiceHandler;
 public class SecurityServiceJpa extends RootServiceJpa
     implements SecurityService {
 
-  /** The token userName . */
-  private static Map<String, String> tokenUsernameMap =
-      Collections.synchronizedMap(new HashMap<String, String>());
-
-  /** The token login time . */
-  private static Map<String, Date> tokenTimeoutMap =
-      Collections.synchronizedMap(new HashMap<String, Date>());
+  /** The token store. */
+  private static TokenStore tokenStore = null;
 
   /** The handler. */
   private static SecurityServiceHandler handler = null;
@@ -61,6 +64,24 @@ public class SecurityServiceJpa extends RootServiceJpa
   /** The timeout. */
   private static int timeout;
 
+  /**
+   * The minimum extension of a token's expiration before it is written back to
+   * the token store, so requests do not each write.
+   */
+  private static long timeoutRefresh;
+
+  /**
+   * The resolved roles by "[token]" (application role) and "[token]|[project
+   * id]" (project role), null if disabled. Created on first use.
+   */
+  private static Cache<String, UserRole> roleCache;
+
+  /** The role cache initialized flag. */
+  private static boolean roleCacheInitialized = false;
+
+  /** The role cache invalidations. */
+  private static final AtomicLong roleCacheInvalidations = new AtomicLong();
+
   /**
    * Instantiates an empty {@link SecurityServiceJpa}.
    *
@@ -79,14 +100,7 @@ public class SecurityServiceJpa extends RootServiceJpa
     if (password == null || password.isEmpty())
       throw new LocalException("Invalid password: null");
 
-    Properties config = ConfigUtility.getConfigProperties();
-
-    if (handler == null) {
-      timeout = Integer.valueOf(config.getProperty("security.timeout"));
-      String handlerName = config.getProperty("security.handler");
-      handler = ConfigUtility.newStandardHandlerInstanceWithConfiguration(
-          "security.handler", handlerName, SecurityServiceHandler.class);
-    }
+    initialize();
 
     //
     // Call the security service
@@ -95,6 +109,32 @@ public class SecurityServiceJpa extends RootServiceJpa
     return authHelper(authUser);
   }
 
+  /**
+   * Initializes the security handler and token store on first use.
+   *
+   * @throws Exception the exception
+   */
+  private static synchronized void initialize() throws Exception {
+    if (handler != null) {
+      return;
+    }
+    final Properties config = ConfigUtility.getConfigProperties();
+    timeout = Integer.valueOf(config.getProperty("security.timeout"));
+    timeoutRefresh = Math.min(timeout / 2, Long.parseLong(
+        config.getProperty("security.timeout.refresh", "60000").trim()));
+    final String storeName =
+        config.getProperty("security.token.store.handler");
+    if (storeName == null || storeName.isEmpty()) {
+      tokenStore = new DefaultTokenStore();
+    } else {
+      tokenStore = ConfigUtility.newStandardHandlerInstanceWithConfiguration(
+          "security.token.store.handler", storeName, TokenStore.class);
+    }
+    String handlerName = config.getProperty("security.handler");
+    handler = ConfigUtility.newStandardHandlerInstanceWithConfiguration(
+        "security.handler", handlerName, SecurityServiceHandler.class);
+  }
+
   /**
    * Auth helper.
    *
@@ -147,8 +187,8 @@ public class SecurityServiceJpa extends RootServiceJpa
 
     // Generate application-managed token
     String token = handler.computeTokenForUser(authUser.getUserName());
-    tokenUsernameMap.put(token, authUser.getUserName());
-    tokenTimeoutMap.put(token, new Date(new Date().getTime() + timeout));
+    tokenStore.addToken(token, authUser.getUserName(),
+        new Date(new Date().getTime() + timeout));
 
     Logger.getLogger(getClass())
         .debug("User = " + authUser.getUserName() + ", " + authUser);
@@ -166,8 +206,9 @@ public class SecurityServiceJpa extends RootServiceJpa
   /* see superclass */
   @Override
   public void logout(String authToken) throws Exception {
-    tokenUsernameMap.remove(authToken);
-    tokenTimeoutMap.remove(authToken);
+    initialize();
+    tokenStore.removeToken(authToken.replace("\"", ""));
+    invalidateRolesForToken(authToken);
   }
 
   /* see superclass */
@@ -187,28 +228,36 @@ public class SecurityServiceJpa extends RootServiceJpa
     // Replace double quotes in auth token.
     final String parsedToken = authToken.replace("\"", "");
 
-    // Check auth token against the userName map
-    if (tokenUsernameMap.containsKey(parsedToken)) {
-      String userName = tokenUsernameMap.get(parsedToken);
+    // Check auth token against the token store
+    initialize();
+    final AuthToken token = tokenStore.getToken(parsedToken);
+    if (token == null || token.getUserName() == null) {
+      throw new LocalException("AuthToken does not have a valid userName.");
+    }
+    final String userName = token.getUserName();
+    final Date expiration = token.getExpiration();
+    final long now = new Date().getTime();
 
-      // Validate that the user has not timed out.
-      if (handler.timeoutUser(userName)) {
+    // Validate that the user has not timed out.
+    if (handler.timeoutUser(userName)) {
 
-        if (tokenTimeoutMap.get(parsedToken) == null) {
-          throw new LocalException("No login timeout set for authToken.");
-        }
+      if (expiration == null) {
+        throw new LocalException("No login timeout set for authToken.");
+      }
 
-        if (tokenTimeoutMap.get(parsedToken).before(new Date())) {
-          throw new LocalException(
-              "AuthToken has expired. Please reload and log in again.");
-        }
-        tokenTimeoutMap.put(parsedToken,
-            new Date(new Date().getTime() + timeout));
+      if (expiration.getTime() < now) {
+        throw new LocalException(
+            "AuthToken has expired. Please reload and log in again.");
       }
-      return userName;
-    } else {
-      throw new LocalException("AuthToken does not have a valid userName.");
     }
+
+    // Slide the expiration, only writing it when it moves by more than the
+    // refresh, so the token may expire up to that much earlier than timeout
+    if (expiration == null
+        || now + timeout - expiration.getTime() > timeoutRefresh) {
+      tokenStore.setExpiration(parsedToken, new Date(now + timeout));
+    }
+    return userName;
   }
 
   /* see superclass */
@@ -232,6 +281,12 @@ public class SecurityServiceJpa extends RootServiceJpa
     if (userName == null) {
       throw new LocalException("Unable to find user for the AuthToken");
     }
+    final Cache<String, UserRole> cache = getRoleCache();
+    final UserRole cachedRole =
+        cache == null ? null : cache.getIfPresent(parsedToken);
+    if (cachedRole != null) {
+      return cachedRole;
+    }
     final User user = getUser(userName.toLowerCase());
     if (user == null) {
       return UserRole.VIEWER;
@@ -239,6 +294,9 @@ public class SecurityServiceJpa extends RootServiceJpa
       // LocalException("Unable to obtain user information for userName = " +
       // userName);
     }
+    if (cache != null && user.getApplicationRole() != null) {
+      cache.put(parsedToken, user.getApplicationRole());
+    }
     return user.getApplicationRole();
   }
 
@@ -255,16 +313,136 @@ public class SecurityServiceJpa extends RootServiceJpa
     }
 
     final String userName = getUsernameForToken(authToken);
-    final ProjectService service = new ProjectServiceJpa();
-    UserRole result =
-        service.getProject(projectId).getUserRoleMap().get(getUser(userName));
-    service.close();
+    final String key = authToken.replace("\"", "") + "|" + projectId;
+    final Cache<String, UserRole> cache = getRoleCache();
+    if (cache != null) {
+      final UserRole cachedRole = cache.getIfPresent(key);
+      if (cachedRole != null) {
+        return cachedRole;
+      }
+    }
+
+    final Project project = manager.find(ProjectJpa.class, projectId);
+    if (project == null) {
+      throw new Exception("Unexpected invalid project id " + projectId);
+    }
+    UserRole result = project.getUserRoleMap().get(getUser(userName));
     if (result == null) {
       result = UserRole.VIEWER;
     }
+    if (cache != null) {
+      cache.put(key, result);
+    }
     return result;
   }
 
+  /**
+   * Returns the role cache, creating it on first use from the
+   * "security.role.cache.*" config properties.
+   *
+   * @return the role cache, or null if disabled
+   * @throws Exception the exception
+   */
+  private static synchronized Cache<String, UserRole> getRoleCache()
+    throws Exception {
+    if (!roleCacheInitialized) {
+      final Properties config = ConfigUtility.getConfigProperties();
+      final long maxEntries = Long.parseLong(config
+          .getProperty("security.role.cache.maxEntries", "10000").trim());
+      final long ttl = Long.parseLong(
+          config.getProperty("security.role.cache.ttl", "300000").trim());
+      if (maxEntries > 0) {
+        // the ttl bounds staleness from changes committed outside this JVM
+        roleCache = CacheBuilder.newBuilder().maximumSize(maxEntries)
+            .expireAfterWrite(ttl, TimeUnit.MILLISECONDS).recordStats()
+            .build();
+      }
+      roleCacheInitialized = true;
+      Logger.getLogger(SecurityServiceJpa.class).info(
+          "Role cache - maxEntries = " + maxEntries + ", ttl = " + ttl + "ms");
+    }
+    return roleCache;
+  }
+
+  /**
+   * Invalidates the cached roles of all tokens of a user.
+   *
+   * @param userName the user name
+   */
+  private static void invalidateRolesForUser(String userName) {
+    if (roleCache == null || tokenStore == null || userName == null) {
+      return;
+    }
+    try {
+      for (final String token : tokenStore.getTokensForUser(userName)) {
+        invalidateRolesForToken(token);
+      }
+    } catch (Exception e) {
+      // fall back to dropping all cached roles
+      Logger.getLogger(SecurityServiceJpa.class)
+          .warn("Unable to look up tokens for user " + userName, e);
+      roleCacheInvalidations.incrementAndGet();
+      roleCache.invalidateAll();
+    }
+  }
+
+  /**
+   * Invalidates the cached roles of a token.
+   *
+   * @param authToken the auth token
+   */
+  private static void invalidateRolesForToken(String authToken) {
+    if (roleCache == null || authToken == null) {
+      return;
+    }
+    final String parsedToken = authToken.replace("\"", "");
+    roleCacheInvalidations.incrementAndGet();
+    roleCache.asMap().keySet().removeIf(
+        key -> key.equals(parsedToken) || key.startsWith(parsedToken + "|"));
+  }
+
+  /**
+   * Invalidates the cached roles of all users on a project, e.g. after users
+   * are assigned to or unassigned from it.
+   *
+   * @param projectId the project id
+   */
+  static void invalidateRolesForProject(Long projectId) {
+    if (roleCache == null || projectId == null) {
+      return;
+    }
+    roleCacheInvalidations.incrementAndGet();
+    roleCache.asMap().keySet()
+        .removeIf(key -> key.endsWith("|" + projectId));
+  }
+
+  /**
+   * Returns the role cache statistics.
+   *
+   * @return the role cache statistics
+   */
+  public static KeyValuePairList getRoleCacheStatistics() {
+    final KeyValuePairList list = new KeyValuePairList();
+    list.setName("roleCache");
+    if (roleCache == null) {
+      return list;
+    }
+    final CacheStats stats = roleCache.stats();
+    list.addKeyValuePair(
+        new KeyValuePair("entries", String.valueOf(roleCache.size())));
+    list.addKeyValuePair(
+        new KeyValuePair("hits", String.valueOf(stats.hitCount())));
+    list.addKeyValuePair(
+        new KeyValuePair("misses", String.valueOf(stats.missCount())));
+    list.addKeyValuePair(
+        new KeyValuePair("hitRate", String.valueOf(stats.hitRate())));
+    list.addKeyValuePair(
+        new KeyValuePair("evictions", String.valueOf(stats.evictionCount())));
+    list.addKeyValuePair(new KeyValuePair("invalidations",
+        String.valueOf(roleCacheInvalidations.get())));
+    return list;
+  }
+
   /* see superclass */
   @Override
   public User getUser(Long id) throws Exception {
@@ -341,7 +519,7 @@ public class SecurityServiceJpa extends RootServiceJpa
       }
       throw e;
     }
-
+    afterCommit(() -> invalidateRolesForUser(mu.getUserName()));
   }
 
   /* see superclass */
@@ -364,6 +542,7 @@ public class SecurityServiceJpa extends RootServiceJpa
       }
       throw e;
     }
+    afterCommit(() -> invalidateRolesForUser(user.getUserName()));
   }
 
   /* see superclass */
@@ -435,6 +614,115 @@ public class SecurityServiceJpa extends RootServiceJpa
     return userPreferences;
   }
 
+  /* see superclass */
+  @Override
+  public AuthToken getAuthToken(String token) throws Exception {
+    final javax.persistence.Query query = manager.createQuery(
+        "select a from AuthTokenJpa a where a.token = :token");
+    query.setParameter("token", token);
+    final List<?> list = query.getResultList();
+    return list.isEmpty() ? null : (AuthToken) list.get(0);
+  }
+
+  /* see superclass */
+  @SuppressWarnings("unchecked")
+  @Override
+  public List<AuthToken> getAuthTokensForUser(String userName)
+    throws Exception {
+    final javax.persistence.Query query = manager.createQuery(
+        "select a from AuthTokenJpa a where a.userName = :userName");
+    query.setParameter("userName", userName);
+    return query.getResultList();
+  }
+
+  /* see superclass */
+  @Override
+  public AuthToken addAuthToken(AuthToken authToken) throws Exception {
+    try {
+      if (getTransactionPerOperation()) {
+        tx = manager.getTransaction();
+        tx.begin();
+        manager.persist(authToken);
+        tx.commit();
+      } else {
+        manager.persist(authToken);
+      }
+    } catch (Exception e) {
+      if (tx.isActive()) {
+        tx.rollback();
+      }
+      throw e;
+    }
+    return authToken;
+  }
+
+  /* see superclass */
+  @Override
+  public void updateAuthToken(AuthToken authToken) throws Exception {
+    try {
+      if (getTransactionPerOperation()) {
+        tx = manager.getTransaction();
+        tx.begin();
+        manager.merge(authToken);
+        tx.commit();
+      } else {
+        manager.merge(authToken);
+      }
+    } catch (Exception e) {
+      if (tx.isActive()) {
+        tx.rollback();
+      }
+      throw e;
+    }
+  }
+
+  /* see superclass */
+  @Override
+  public void removeAuthToken(Long id) throws Exception {
+    tx = manager.getTransaction();
+    try {
+      if (getTransactionPerOperation()) {
+        tx.begin();
+      }
+      final AuthToken authToken = manager.find(AuthTokenJpa.class, id);
+      if (authToken != null) {
+        manager.remove(authToken);
+      }
+      if (getTransactionPerOperation()) {
+        tx.commit();
+      }
+    } catch (Exception e) {
+      if (tx.isActive()) {
+        tx.rollback();
+      }
+      throw e;
+    }
+  }
+
+  /* see superclass */
+  @Override
+  public int removeExpiredAuthTokens(Date date) throws Exception {
+    tx = manager.getTransaction();
+    try {
+      if (getTransactionPerOperation()) {
+        tx.begin();
+      }
+      final int ct = manager
+          .createQuery(
+              "delete from AuthTokenJpa a where a.expiration < :date")
+          .setParameter("date", date).executeUpdate();
+      if (getTransactionPerOperation()) {
+        tx.commit();
+      }
+      return ct;
+    } catch (Exception e) {
+      if (tx.isActive()) {
+        tx.rollback();
+      }
+      throw e;
+    }
+  }
+
   /* see superclass */
   @Override
   public void removeUserPreferences(Long id) {
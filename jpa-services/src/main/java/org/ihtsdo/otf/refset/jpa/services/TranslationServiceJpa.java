@@ -48,6 +48,7 @@ import org.ihtsdo.otf.refset.jpa.helpers.ConceptListJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.IoHandlerInfoListJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.ReleaseInfoListJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.TranslationListJpa;
+import org.ihtsdo.otf.refset.jpa.services.handlers.PhraseMemoryIndex;
 import org.ihtsdo.otf.refset.rf2.Concept;
 import org.ihtsdo.otf.refset.rf2.Description;
 import org.ihtsdo.otf.refset.rf2.DescriptionType;
@@ -395,6 +396,19 @@ public class TranslationServiceJpa extends RefsetServiceJpa implements Translati
     }
   }
   
+  /* see superclass */
+  @Override
+  public Iterable<Concept> scrollConceptsForTranslation(
+    final Long translationId, final String query, final PfsParameter pfs)
+    throws Exception {
+    Logger.getLogger(getClass()).info("Translation Service - scroll concepts - "
+        + query + " translationId " + translationId);
+
+    return scrollQueryResults(pfs,
+        pagePfs -> findConceptsForTranslation(translationId, query, pagePfs)
+            .getObjects());
+  }
+
   /* see superclass */
   @Override
   public Map<Long, Map<String, String>> getTranslationPtAndFSN(Set<Long> translationIds) throws Exception {
@@ -932,7 +946,10 @@ public class TranslationServiceJpa extends RefsetServiceJpa implements Translati
     Logger.getLogger(getClass()).debug("Translation Service - add memory entry " + memoryEntry);
 
     // Add memory entry
-    return addObject(memoryEntry);
+    final MemoryEntry newMemoryEntry = addObject(memoryEntry);
+    final Long phraseMemoryId = getPhraseMemoryId(newMemoryEntry);
+    afterCommit(() -> PhraseMemoryIndex.entryAdded(phraseMemoryId, newMemoryEntry));
+    return newMemoryEntry;
   }
 
   /* see superclass */
@@ -940,7 +957,9 @@ public class TranslationServiceJpa extends RefsetServiceJpa implements Translati
   public void updateMemoryEntry(MemoryEntry memoryEntry) throws Exception {
     Logger.getLogger(getClass()).debug("Translation Service - update memory entry " + memoryEntry);
 
+    final Long phraseMemoryId = getPhraseMemoryId(memoryEntry);
     updateObject(memoryEntry);
+    afterCommit(() -> PhraseMemoryIndex.entryUpdated(phraseMemoryId, memoryEntry));
   }
 
   /* see superclass */
@@ -951,10 +970,28 @@ public class TranslationServiceJpa extends RefsetServiceJpa implements Translati
 
     final MemoryEntryJpa memoryEntry = this.getObject(memoryEntryId, MemoryEntryJpa.class);
     if (memoryEntry != null) {
+      final Long phraseMemoryId = getPhraseMemoryId(memoryEntry);
       removeObject(memoryEntry, MemoryEntryJpa.class);
+      afterCommit(() -> PhraseMemoryIndex.entryRemoved(phraseMemoryId, memoryEntryId));
     }
   }
 
+  /**
+   * Returns the phrase memory id of a memory entry, from the stored entry if
+   * there is one, detached entries may not carry their phrase memory.
+   *
+   * @param memoryEntry the memory entry
+   * @return the phrase memory id, or null
+   * @throws Exception the exception
+   */
+  private Long getPhraseMemoryId(MemoryEntry memoryEntry) throws Exception {
+    final MemoryEntry stored = memoryEntry.getId() == null ? null
+        : getObject(memoryEntry.getId(), MemoryEntryJpa.class);
+    final PhraseMemory phraseMemory =
+        stored != null ? stored.getPhraseMemory() : memoryEntry.getPhraseMemory();
+    return phraseMemory == null ? null : phraseMemory.getId();
+  }
+
   /* see superclass */
   @Override
   public PhraseMemory addPhraseMemory(PhraseMemory phraseMemory) throws Exception {
@@ -981,6 +1018,7 @@ public class TranslationServiceJpa extends RefsetServiceJpa implements Translati
     final PhraseMemoryJpa phraseMemory = getObject(phraseMemoryId, PhraseMemoryJpa.class);
     if (phraseMemory != null) {
       removeObject(phraseMemory, PhraseMemoryJpa.class);
+      afterCommit(() -> PhraseMemoryIndex.phraseMemoryRemoved(phraseMemoryId));
     }
   }
 
@@ -1256,13 +1294,24 @@ public class TranslationServiceJpa extends RefsetServiceJpa implements Translati
     // Only launch process if refset not already looked-up
     if (ConfigUtility.isAssignNames()) {
       if (!lookupProgressMap.containsKey(translationId)) {
-        // Create new thread
+        // Run the lookup inline, or queue it with the job scheduler
         Runnable lookup = new LookupConceptNamesThread(translationId, label);
-        Thread t = new Thread(lookup);
-        t.start();
         // Handle non-background
         if (!background) {
-          t.join();
+          lookup.run();
+        } else {
+          final Translation translation = getTranslation(translationId);
+          // Mark as started so a second request does not queue it again
+          lookupProgressMap.put(translationId, 0);
+          try {
+            JobScheduler.submit(JobScheduler.JobClass.LOOKUP,
+                translation == null ? null : translation.getProject().getId(),
+                "Lookup concept names - " + translationId + ", " + label,
+                JobScheduler.NORMAL_PRIORITY, lookup);
+          } catch (Exception e) {
+            lookupProgressMap.remove(translationId);
+            throw e;
+          }
         }
       }
       // else it is already running
@@ -3,10 +3,19 @@
  */
 package org.ihtsdo.otf.refset.jpa.services;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.log4j.Logger;
 import org.ihtsdo.otf.refset.DefinitionClause;
@@ -20,7 +29,9 @@ import org.ihtsdo.otf.refset.helpers.KeyValuePairList;
 import org.ihtsdo.otf.refset.jpa.ValidationResultJpa;
 import org.ihtsdo.otf.refset.rf2.Concept;
 import org.ihtsdo.otf.refset.rf2.ConceptRefsetMember;
+import org.ihtsdo.otf.refset.rf2.Description;
 import org.ihtsdo.otf.refset.services.RefsetService;
+import org.ihtsdo.otf.refset.services.RootService;
 import org.ihtsdo.otf.refset.services.TranslationService;
 import org.ihtsdo.otf.refset.services.ValidationService;
 import org.ihtsdo.otf.refset.services.handlers.ValidationCheck;
@@ -40,6 +51,12 @@ public class ValidationServiceJpa extends RootServiceJpa implements
 
   /** The validation handlers. */
   protected static Map<String, ValidationCheck> validationHandlersMap = null;
+
+  /** The pool for bulk validation. */
+  private static ForkJoinPool pool = null;
+
+  /** The number of concepts or members per bulk validation task. */
+  private static int chunkSize = 1000;
   static {
     validationHandlersMap = new HashMap<>();
     try {
@@ -55,6 +72,12 @@ public class ValidationServiceJpa extends RootServiceJpa implements
                 handlerName, ValidationCheck.class);
         validationHandlersMap.put(handlerName, handlerService);
       }
+      chunkSize = Math.max(1, Integer.parseInt(
+          config.getProperty("validation.service.chunkSize", "1000").trim()));
+      pool = new ForkJoinPool(Integer.parseInt(config
+          .getProperty("validation.service.threads",
+              String.valueOf(Runtime.getRuntime().availableProcessors()))
+          .trim()));
     } catch (Exception e) {
       Logger.getLogger(ValidationServiceJpa.class).error(
           "Failed to initialize validation.service.handler - serious error", e);
@@ -122,6 +145,154 @@ public class ValidationServiceJpa extends RootServiceJpa implements
     return result;
   }
 
+  /* see superclass */
+  @Override
+  public ValidationResult validateConcepts(List<Concept> concepts,
+    Project project, TranslationService service) throws Exception {
+
+    // Initialize descriptions here, tasks do not share this service
+    for (final Concept concept : concepts) {
+      for (final Description description : concept.getDescriptions()) {
+        description.getLanguageRefsetMembers().size();
+      }
+    }
+    return validateChunks(concepts, project, service,
+        TranslationServiceJpa::new,
+        (check, chunk, chunkService) -> check.validateConcepts(chunk,
+            chunkService));
+  }
+
+  /* see superclass */
+  @Override
+  public ValidationResult validateMembers(List<ConceptRefsetMember> members,
+    Project project, RefsetService service) throws Exception {
+    return validateChunks(members, project, service, RefsetServiceJpa::new,
+        (check, chunk, chunkService) -> check.validateMembers(chunk,
+            chunkService));
+  }
+
+  /**
+   * Validates a chunk of objects with one check.
+   *
+   * @param <T> the object type
+   * @param <S> the service type
+   */
+  @FunctionalInterface
+  private interface ChunkValidation<T, S> {
+
+    /**
+     * Validates the chunk.
+     *
+     * @param check the check
+     * @param chunk the chunk
+     * @param service the service
+     * @return the validation result
+     * @throws Exception the exception
+     */
+    public ValidationResult validate(ValidationCheck check, List<T> chunk,
+      S service) throws Exception;
+  }
+
+  /**
+   * Runs the project's checks over the objects in chunks of "chunkSize". A
+   * single chunk is validated in this thread with the service passed in;
+   * otherwise chunks are validated in parallel on the fork-join pool, each
+   * task with its own service (and so its own EntityManager). Each task
+   * returns its own result and the results are merged here, so tasks do not
+   * share any state. The time spent in each check is added as a comment.
+   *
+   * @param <T> the object type
+   * @param <S> the service type
+   * @param objects the objects
+   * @param project the project
+   * @param service the service
+   * @param serviceFactory creates a service for a task
+   * @param validation the chunk validation
+   * @return the validation result
+   * @throws Exception the exception
+   */
+  private <T, S extends RootService> ValidationResult validateChunks(
+    List<T> objects, Project project, S service, Callable<S> serviceFactory,
+    ChunkValidation<T, S> validation) throws Exception {
+
+    // The checks enabled for the project, in handler order
+    final Map<String, ValidationCheck> checks = new LinkedHashMap<>();
+    for (final String key : validationHandlersMap.keySet()) {
+      if (project.getValidationChecks().contains(key)) {
+        checks.put(key, validationHandlersMap.get(key));
+      }
+    }
+    final Map<String, LongAdder> times = new ConcurrentHashMap<>();
+    for (final String key : checks.keySet()) {
+      times.put(key, new LongAdder());
+    }
+
+    final List<List<T>> chunks = new ArrayList<>();
+    for (int i = 0; i < objects.size(); i += chunkSize) {
+      chunks.add(objects.subList(i, Math.min(i + chunkSize, objects.size())));
+    }
+
+    final long start = System.currentTimeMillis();
+    final ValidationResult result = new ValidationResultJpa();
+    if (chunks.size() == 1) {
+      result.merge(validateChunk(chunks.get(0), checks, service, validation,
+          times));
+    } else if (chunks.size() > 1) {
+      final List<Callable<ValidationResult>> tasks = new ArrayList<>();
+      for (final List<T> chunk : chunks) {
+        tasks.add(() -> {
+          try (final S chunkService = serviceFactory.call()) {
+            return validateChunk(chunk, checks, chunkService, validation,
+                times);
+          }
+        });
+      }
+      for (final Future<ValidationResult> future : pool.invokeAll(tasks)) {
+        try {
+          result.merge(future.get());
+        } catch (ExecutionException e) {
+          throw (e.getCause() instanceof Exception) ? (Exception) e.getCause()
+              : e;
+        }
+      }
+    }
+
+    for (final Entry<String, ValidationCheck> entry : checks.entrySet()) {
+      result.addComment("Validation check " + entry.getValue().getName()
+          + " - " + (times.get(entry.getKey()).sum() / 1000000) + " ms");
+    }
+    Logger.getLogger(getClass())
+        .info("  Validate " + objects.size() + " objects in " + chunks.size()
+            + " chunks - " + (System.currentTimeMillis() - start) + " ms");
+    return result;
+  }
+
+  /**
+   * Validates one chunk with each check, timing the checks.
+   *
+   * @param <T> the object type
+   * @param <S> the service type
+   * @param chunk the chunk
+   * @param checks the checks
+   * @param service the service
+   * @param validation the chunk validation
+   * @param times the time spent in each check, in ns
+   * @return the validation result
+   * @throws Exception the exception
+   */
+  private <T, S> ValidationResult validateChunk(List<T> chunk,
+    Map<String, ValidationCheck> checks, S service,
+    ChunkValidation<T, S> validation, Map<String, LongAdder> times)
+    throws Exception {
+    final ValidationResult result = new ValidationResultJpa();
+    for (final Entry<String, ValidationCheck> entry : checks.entrySet()) {
+      final long start = System.nanoTime();
+      result.merge(validation.validate(entry.getValue(), chunk, service));
+      times.get(entry.getKey()).add(System.nanoTime() - start);
+    }
+    return result;
+  }
+
   /* see superclass */
   @Override
   public ValidationResult validateRefset(Refset refset, Project project,
@@ -134,14 +305,20 @@ public class ValidationServiceJpa extends RootServiceJpa implements
       }
     }
     if (refset.getDefinitionClauses() != null && refset.getDefinitionClauses().size() > 0) {
+      // Limits are configurable, 0 disables the check
+      final Properties config = ConfigUtility.getConfigProperties();
+      final int maxMembers = getIntProperty(config,
+          "deploy.refset.definition.max.members", 40000);
+      final int warnMembers = getIntProperty(config,
+          "deploy.refset.definition.warn.members", 20000);
       for (DefinitionClause definition : refset.getDefinitionClauses()) {
         int ct = service.countExpression(project, refset.getTerminology(), 
     		refset.getVersion(), definition.getValue());
-        if (ct > 40000) {
-          result.addError("Definition clause " + definition.getValue() + " resolves to more than 40000 results: " + 
+        if (maxMembers > 0 && ct > maxMembers) {
+          result.addError("Definition clause " + definition.getValue() + " resolves to more than " + maxMembers + " results: " + 
       			  " This tool cannot manage refsets of that size reliably.  Please revise your definition clause.");
-        } else if (ct > 20000) {
-    	  result.addWarning("Definition clause " + definition.getValue() + " resolves to more than 20000 results: " + 
+        } else if (warnMembers > 0 && ct > warnMembers) {
+    	  result.addWarning("Definition clause " + definition.getValue() + " resolves to more than " + warnMembers + " results: " + 
     			  " Continuing with " + ct + " members may make the user experience inconsistent or unusable.");
         }
       }
@@ -165,4 +342,28 @@ public class ValidationServiceJpa extends RootServiceJpa implements
     }
     return keyValueList;
   }
+
+  /**
+   * Returns an int config property, or the default if not set or not a
+   * number.
+   *
+   * @param config the config
+   * @param key the key
+   * @param defaultValue the default value
+   * @return the int property
+   */
+  private static int getIntProperty(Properties config, String key,
+    int defaultValue) {
+    final String value = config.getProperty(key, "").trim();
+    if (value.isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      Logger.getLogger(ValidationServiceJpa.class).warn("  Invalid " + key
+          + " value " + value + ", using " + defaultValue);
+      return defaultValue;
+    }
+  }
 }
@@ -12,14 +12,34 @@ import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status.Family;
 
+import org.apache.http.HttpClientConnection;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.log4j.Logger;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.RequestEntityProcessing;
 import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+import org.ihtsdo.otf.refset.helpers.KeyValuePair;
+import org.ihtsdo.otf.refset.helpers.KeyValuePairList;
 import org.ihtsdo.otf.refset.helpers.LocalException;
 import org.ihtsdo.otf.refset.services.handlers.TerminologyHandler;
 import org.json.JSONArray;
@@ -47,6 +67,22 @@ public abstract class AbstractTerminologyHandler implements TerminologyHandler {
   /** The api key. */
   private String apiKey;
 
+  /**
+   * The client shared by all terminology handlers. Connections are pooled and
+   * kept alive across calls so batch lookups do not pay a TLS handshake per
+   * request.
+   */
+  private static Client client;
+
+  /** The connection manager backing the shared client. */
+  private static InstrumentedConnectionManager connectionManager;
+
+  /** The idle time (ms) after which pooled connections are closed. */
+  private static long keepAlive;
+
+  /** The last time idle connections were evicted. */
+  private static long lastEviction;
+
   /**
    * Instantiates an empty {@link AbstractTerminologyHandler}.
    *
@@ -56,6 +92,212 @@ public abstract class AbstractTerminologyHandler implements TerminologyHandler {
     super();
   }
 
+  /**
+   * Returns the shared, connection-pooled client. The pool is configured on
+   * first use from the "terminology.handler.http.*" config properties.
+   *
+   * @return the client
+   * @throws Exception the exception
+   */
+  protected static synchronized Client getClient() throws Exception {
+    if (client == null) {
+      final Properties config = ConfigUtility.getConfigProperties();
+      final int maxTotal =
+          getIntProperty(config, "terminology.handler.http.maxTotal", 64);
+      final int maxPerRoute =
+          getIntProperty(config, "terminology.handler.http.maxPerRoute", 32);
+      final int connectTimeout = getIntProperty(config,
+          "terminology.handler.http.connectTimeout", 30000);
+      // 0 means no read timeout, some ECL expressions are slow to resolve
+      final int readTimeout =
+          getIntProperty(config, "terminology.handler.http.readTimeout", 0);
+      final int leaseTimeout = getIntProperty(config,
+          "terminology.handler.http.leaseTimeout", 60000);
+      keepAlive =
+          getIntProperty(config, "terminology.handler.http.keepAlive", 60000);
+
+      connectionManager = new InstrumentedConnectionManager();
+      connectionManager.setMaxTotal(maxTotal);
+      connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+      connectionManager.setValidateAfterInactivity(2000);
+
+      final ClientConfig clientConfig = new ClientConfig();
+      clientConfig.connectorProvider(new ApacheConnectorProvider());
+      clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER,
+          connectionManager);
+      clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER_SHARED,
+          true);
+      // Cookies are managed explicitly per call (generic user vs. end user),
+      // so the pooled client must not remember them
+      clientConfig.property(ApacheClientProperties.DISABLE_COOKIES, true);
+      clientConfig.property(ApacheClientProperties.REQUEST_CONFIG,
+          RequestConfig.custom().setConnectionRequestTimeout(leaseTimeout)
+              .build());
+      clientConfig.property(ClientProperties.CONNECT_TIMEOUT, connectTimeout);
+      clientConfig.property(ClientProperties.READ_TIMEOUT, readTimeout);
+      clientConfig.property(ClientProperties.REQUEST_ENTITY_PROCESSING,
+          RequestEntityProcessing.BUFFERED);
+      client = ClientBuilder.newClient(clientConfig);
+      lastEviction = System.currentTimeMillis();
+
+      Logger.getLogger(AbstractTerminologyHandler.class)
+          .info("  Terminology handler connection pool: maxTotal = " + maxTotal
+              + ", maxPerRoute = " + maxPerRoute + ", connectTimeout = "
+              + connectTimeout + ", readTimeout = " + readTimeout
+              + ", keepAlive = " + keepAlive);
+    }
+
+    // Periodically drop expired and long-idle connections
+    if (System.currentTimeMillis() - lastEviction > keepAlive) {
+      connectionManager.closeExpiredConnections();
+      connectionManager.closeIdleConnections(keepAlive, TimeUnit.MILLISECONDS);
+      lastEviction = System.currentTimeMillis();
+    }
+    return client;
+  }
+
+  /**
+   * Returns the connection pool statistics for the shared client: leased,
+   * idle and pending connections, limits, and time spent waiting for a lease.
+   *
+   * @return the connection pool statistics
+   */
+  public static synchronized KeyValuePairList getConnectionPoolStatistics() {
+    final KeyValuePairList list = new KeyValuePairList();
+    list.setName("Terminology handler connection pool");
+    if (connectionManager == null) {
+      return list;
+    }
+    final PoolStats stats = connectionManager.getTotalStats();
+    final long leases = connectionManager.getLeaseCount();
+    list.addKeyValuePair(
+        new KeyValuePair("leased", String.valueOf(stats.getLeased())));
+    list.addKeyValuePair(
+        new KeyValuePair("idle", String.valueOf(stats.getAvailable())));
+    list.addKeyValuePair(
+        new KeyValuePair("pending", String.valueOf(stats.getPending())));
+    list.addKeyValuePair(
+        new KeyValuePair("maxTotal", String.valueOf(stats.getMax())));
+    list.addKeyValuePair(new KeyValuePair("maxPerRoute",
+        String.valueOf(connectionManager.getDefaultMaxPerRoute())));
+    list.addKeyValuePair(new KeyValuePair("leases", String.valueOf(leases)));
+    list.addKeyValuePair(new KeyValuePair("leaseTimeouts",
+        String.valueOf(connectionManager.getLeaseTimeoutCount())));
+    list.addKeyValuePair(new KeyValuePair("averageWaitMs",
+        String.valueOf(leases == 0 ? 0
+            : TimeUnit.NANOSECONDS
+                .toMillis(connectionManager.getTotalWaitNanos() / leases))));
+    list.addKeyValuePair(new KeyValuePair("maxWaitMs", String.valueOf(
+        TimeUnit.NANOSECONDS.toMillis(connectionManager.getMaxWaitNanos()))));
+    return list;
+  }
+
+  /**
+   * Returns an int config property, or the default if not set.
+   *
+   * @param config the config
+   * @param key the key
+   * @param defaultValue the default value
+   * @return the int property
+   */
+  private static int getIntProperty(Properties config, String key,
+    int defaultValue) {
+    final String value = config.getProperty(key);
+    return value == null || value.isEmpty() ? defaultValue
+        : Integer.parseInt(value.trim());
+  }
+
+  /**
+   * Pooling connection manager that records how long callers wait to lease a
+   * connection.
+   */
+  static final class InstrumentedConnectionManager
+      extends PoolingHttpClientConnectionManager {
+
+    /** The number of leases. */
+    private final AtomicLong leaseCount = new AtomicLong();
+
+    /** The number of lease attempts that timed out. */
+    private final AtomicLong leaseTimeoutCount = new AtomicLong();
+
+    /** The total wait nanos. */
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    /** The max wait nanos. */
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /* see superclass */
+    @Override
+    public ConnectionRequest requestConnection(final HttpRoute route,
+      final Object state) {
+      final ConnectionRequest request = super.requestConnection(route, state);
+      return new ConnectionRequest() {
+
+        /* see superclass */
+        @Override
+        public boolean cancel() {
+          return request.cancel();
+        }
+
+        /* see superclass */
+        @Override
+        public HttpClientConnection get(long timeout, TimeUnit unit)
+          throws InterruptedException, ExecutionException,
+          ConnectionPoolTimeoutException {
+          final long start = System.nanoTime();
+          try {
+            final HttpClientConnection connection = request.get(timeout, unit);
+            leaseCount.incrementAndGet();
+            return connection;
+          } catch (ConnectionPoolTimeoutException e) {
+            leaseTimeoutCount.incrementAndGet();
+            throw e;
+          } finally {
+            final long elapsed = System.nanoTime() - start;
+            totalWaitNanos.addAndGet(elapsed);
+            maxWaitNanos.accumulateAndGet(elapsed, Math::max);
+          }
+        }
+      };
+    }
+
+    /**
+     * Returns the lease count.
+     *
+     * @return the lease count
+     */
+    public long getLeaseCount() {
+      return leaseCount.get();
+    }
+
+    /**
+     * Returns the lease timeout count.
+     *
+     * @return the lease timeout count
+     */
+    public long getLeaseTimeoutCount() {
+      return leaseTimeoutCount.get();
+    }
+
+    /**
+     * Returns the total wait nanos.
+     *
+     * @return the total wait nanos
+     */
+    public long getTotalWaitNanos() {
+      return totalWaitNanos.get();
+    }
+
+    /**
+     * Returns the max wait nanos.
+     *
+     * @return the max wait nanos
+     */
+    public long getMaxWaitNanos() {
+      return maxWaitNanos.get();
+    }
+  }
+
   /**
    * This default implementation uses Google translate.
    *
@@ -17,7 +17,6 @@ import java.util.Properties;
 import java.util.Set;
 
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
@@ -144,7 +143,7 @@ public class BrowserTerminologyHandler extends AbstractTerminologyHandler {
     }
     final Set<Terminology> set = new HashSet<>();
     // Make a webservice call
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
     Logger.getLogger(getClass())
         .debug("  Get terminology editions - " + url + "/server/releases");
     final WebTarget target = client.target(url + "/server/releases");
@@ -187,7 +186,7 @@ public class BrowserTerminologyHandler extends AbstractTerminologyHandler {
     Boolean showFutureVersions) throws Exception {
     final List<Terminology> list = new ArrayList<Terminology>();
     // Make a webservice call
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
     Logger.getLogger(getClass())
         .debug("  Get terminology versions - " + url + "/server/releases");
     final WebTarget target = client.target(url + "/server/releases");
@@ -236,7 +235,7 @@ public class BrowserTerminologyHandler extends AbstractTerminologyHandler {
     Logger.getLogger(getClass()).debug(
         "  get potential current concepts for retired concept - " + conceptId);
 
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     final String targetUrl = url + "/snomed/" + terminology + "/v" + version
         + "/concepts/" + conceptId;
@@ -298,7 +297,7 @@ public class BrowserTerminologyHandler extends AbstractTerminologyHandler {
     String version, PfsParameter pfs, boolean descriptions) throws Exception {
     Logger.getLogger(getClass()).debug("  resolve expression - " + terminology
         + ", " + version + ", " + expr + ", " + pfs);
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     PfsParameter localPfs = pfs;
     if (localPfs == null) {
@@ -427,7 +426,7 @@ public class BrowserTerminologyHandler extends AbstractTerminologyHandler {
     String version, PfsParameter pfs) throws Exception {
     Logger.getLogger(getClass()).debug("  resolve expression - " + terminology
         + ", " + version + ", " + expr + ", " + pfs);
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     PfsParameter localPfs = pfs;
     if (localPfs == null) {
@@ -561,7 +560,7 @@ public class BrowserTerminologyHandler extends AbstractTerminologyHandler {
     Logger.getLogger(getClass()).debug(
         "  expression count - " + terminology + ", " + version + ", " + expr);
 
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     final String targetUrl = url + "/snomed/" + terminology + "/v" + version
         + "/query/concepts?ecQuery="
@@ -608,7 +607,7 @@ public class BrowserTerminologyHandler extends AbstractTerminologyHandler {
     Logger.getLogger(getClass()).debug(
         "  expression count - " + terminology + ", " + version + ", " + expr);
 
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     final String targetUrl =
         url + "/expressions/" + terminology + "/v" + version + "/execute/brief";
@@ -645,7 +644,7 @@ public class BrowserTerminologyHandler extends AbstractTerminologyHandler {
   public Concept getFullConcept(String terminologyId, String terminology,
     String version) throws Exception {
 
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
     final String targetUrl = url + "/snomed/" + terminology + "/v" + version
         + "/concepts/" + terminologyId;
     Logger.getLogger(getClass()).debug("  Get full concept - " + targetUrl);
@@ -797,7 +796,7 @@ public class BrowserTerminologyHandler extends AbstractTerminologyHandler {
       return null;
     }
     // Make a webservice call to browser api
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
     final String targetUrl = url + "/snomed/" + terminology + "/v" + version
         + "/concepts/" + terminologyId;
     Logger.getLogger(getClass()).debug("  Get concept - " + targetUrl);
@@ -873,7 +872,7 @@ public class BrowserTerminologyHandler extends AbstractTerminologyHandler {
 
     final ConceptList conceptList = new ConceptListJpa();
     // Make a webservice call to browser api
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     PfsParameter localPfs = pfs;
     if (localPfs == null) {
@@ -1015,7 +1014,7 @@ public class BrowserTerminologyHandler extends AbstractTerminologyHandler {
     String version) throws Exception {
     final ConceptList conceptList = new ConceptListJpa();
 
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
     final String targetUrl = url + "/snomed/" + terminology + "/v" + version
         + "/concepts/" + terminologyId + "/parents?form=inferred";
     Logger.getLogger(getClass()).debug("  Get concept parents - " + targetUrl);
@@ -1066,7 +1065,7 @@ public class BrowserTerminologyHandler extends AbstractTerminologyHandler {
     // Browser doesn't support languages on children call
     // List<String> languages = this.getLanguages(terminology, version);
 
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
     final String targetUrl = url + "/snomed/" + terminology + "/v" + version
         + "/concepts/" + terminologyId + "/children?form=inferred";
     Logger.getLogger(getClass()).debug("  Get concept children - " + targetUrl);
@@ -1139,7 +1138,7 @@ public class BrowserTerminologyHandler extends AbstractTerminologyHandler {
     } else {
 
       // Make a webservice call to browser api
-      final Client client = ClientBuilder.newClient();
+      final Client client = getClient();
 
       PfsParameter localPfs = new PfsParameterJpa();
       localPfs.setStartIndex(0);
@@ -0,0 +1,719 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.jpa.services.handlers;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.LockObtainFailedException;
+import org.ihtsdo.otf.refset.Terminology;
+import org.ihtsdo.otf.refset.helpers.ConceptList;
+import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+import org.ihtsdo.otf.refset.helpers.KeyValuePair;
+import org.ihtsdo.otf.refset.helpers.KeyValuePairList;
+import org.ihtsdo.otf.refset.helpers.PfsParameter;
+import org.ihtsdo.otf.refset.helpers.TranslationExtensionLanguage;
+import org.ihtsdo.otf.refset.jpa.helpers.ConceptListJpa;
+import org.ihtsdo.otf.refset.rf2.Concept;
+import org.ihtsdo.otf.refset.rf2.Description;
+import org.ihtsdo.otf.refset.rf2.Relationship;
+import org.ihtsdo.otf.refset.rf2.jpa.ConceptJpa;
+import org.ihtsdo.otf.refset.services.handlers.TerminologyHandler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Caching decorator for a {@link TerminologyHandler}. Concept, full concept,
+ * parent and child lookups are cached by server url, terminology, version and
+ * concept id. Content of a versioned (published) branch never changes, so
+ * those entries are kept until evicted and may also be written to an on-disk
+ * tier under "hibernate.search.default.indexBase". Entries for unversioned
+ * branches (e.g. MAIN) expire after "terminology.handler.cache.ttl" ms.
+ *
+ * Entries are stored as JSON so that callers always get their own copy and
+ * can modify it freely. The back-references that are not serialized (e.g.
+ * the concept of a description) are re-linked when an entry is read.
+ */
+public class CachingTerminologyHandler implements TerminologyHandler {
+
+  /** The versioned branch pattern, e.g. MAIN/2019-07-31 or MAIN/20190731. */
+  private static final Pattern VERSIONED_BRANCH =
+      Pattern.compile("(^|.*/)(\\d{4}-\\d{2}-\\d{2}|\\d{8})");
+
+  /** The mapper, shared because creating one per call is expensive. */
+  private static final ObjectMapper mapper = new ObjectMapper();
+  static {
+    mapper.setAnnotationIntrospector(
+        new JaxbAnnotationIntrospector(mapper.getTypeFactory()));
+  }
+
+  /** The in-heap tier, created on first use. */
+  private static Cache<String, CacheEntry> heapCache;
+
+  /** The on-disk tier, null if not enabled. */
+  private static DiskCache diskCache;
+
+  /** The time to live (ms) for entries of unversioned branches. */
+  private static long ttl;
+
+  /** The disk hits. */
+  private static final AtomicLong diskHits = new AtomicLong();
+
+  /** The expired entries. */
+  private static final AtomicLong expired = new AtomicLong();
+
+  /** The lookups passed to the delegate. */
+  private static final AtomicLong delegateCalls = new AtomicLong();
+
+  /** The delegate. */
+  private final TerminologyHandler delegate;
+
+  /** The url. */
+  private String url;
+
+  /**
+   * Instantiates a {@link CachingTerminologyHandler} from the specified
+   * parameters.
+   *
+   * @param delegate the delegate
+   * @throws Exception the exception
+   */
+  public CachingTerminologyHandler(TerminologyHandler delegate)
+      throws Exception {
+    this.delegate = delegate;
+    initialize();
+  }
+
+  /**
+   * Decorates the handler with a cache if "terminology.handler.cache.enabled"
+   * is not false.
+   *
+   * @param handler the handler
+   * @return the terminology handler
+   * @throws Exception the exception
+   */
+  public static TerminologyHandler decorate(TerminologyHandler handler)
+    throws Exception {
+    if ("false".equals(ConfigUtility.getConfigProperties()
+        .getProperty("terminology.handler.cache.enabled"))) {
+      return handler;
+    }
+    return new CachingTerminologyHandler(handler);
+  }
+
+  /**
+   * Creates the shared cache tiers from the "terminology.handler.cache.*"
+   * config properties.
+   *
+   * @throws Exception the exception
+   */
+  private static synchronized void initialize() throws Exception {
+    if (heapCache != null) {
+      return;
+    }
+    final Properties config = ConfigUtility.getConfigProperties();
+    final long maxEntries = Long.parseLong(config
+        .getProperty("terminology.handler.cache.maxEntries", "200000").trim());
+    ttl = Long.parseLong(
+        config.getProperty("terminology.handler.cache.ttl", "600000").trim());
+    heapCache =
+        CacheBuilder.newBuilder().maximumSize(maxEntries).recordStats().build();
+
+    if ("true".equals(config.getProperty("terminology.handler.cache.disk"))) {
+      final String dir =
+          config.getProperty("hibernate.search.default.indexBase");
+      if (dir == null) {
+        throw new Exception(
+            "Index directory hibernate.search.default.indexBase not set in config.properties");
+      }
+      try {
+        diskCache = new DiskCache(dir);
+      } catch (LockObtainFailedException e) {
+        // Another process owns the directory, do without the disk tier
+        Logger.getLogger(CachingTerminologyHandler.class)
+            .warn("  Terminology disk cache is locked by another process, "
+                + "using the heap cache only");
+      }
+      if (diskCache != null) {
+        Runtime.getRuntime().addShutdownHook(
+            new Thread(diskCache::close, "terminology-cache-close"));
+      }
+    }
+    Logger.getLogger(CachingTerminologyHandler.class)
+        .info("  Terminology cache: maxEntries = " + maxEntries + ", ttl = "
+            + ttl + "ms, disk = " + (diskCache != null));
+  }
+
+  /**
+   * Returns the cache statistics.
+   *
+   * @return the cache statistics
+   */
+  public static KeyValuePairList getCacheStatistics() {
+    final KeyValuePairList list = new KeyValuePairList();
+    list.setName("terminologyHandlerCache");
+    if (heapCache == null) {
+      return list;
+    }
+    final CacheStats stats = heapCache.stats();
+    list.addKeyValuePair(
+        new KeyValuePair("entries", String.valueOf(heapCache.size())));
+    list.addKeyValuePair(
+        new KeyValuePair("heapHits", String.valueOf(stats.hitCount())));
+    list.addKeyValuePair(
+        new KeyValuePair("heapMisses", String.valueOf(stats.missCount())));
+    list.addKeyValuePair(
+        new KeyValuePair("diskHits", String.valueOf(diskHits.get())));
+    list.addKeyValuePair(
+        new KeyValuePair("expired", String.valueOf(expired.get())));
+    list.addKeyValuePair(
+        new KeyValuePair("evictions", String.valueOf(stats.evictionCount())));
+    list.addKeyValuePair(new KeyValuePair("delegateCalls",
+        String.valueOf(delegateCalls.get())));
+    list.addKeyValuePair(new KeyValuePair("diskEnabled",
+        String.valueOf(diskCache != null)));
+    return list;
+  }
+
+  /* see superclass */
+  @Override
+  public TerminologyHandler copy() throws Exception {
+    final CachingTerminologyHandler handler =
+        new CachingTerminologyHandler(delegate.copy());
+    handler.url = url;
+    return handler;
+  }
+
+  /* see superclass */
+  @Override
+  public void setProperties(Properties p) throws Exception {
+    delegate.setProperties(p);
+  }
+
+  /* see superclass */
+  @Override
+  public String getName() {
+    return delegate.getName();
+  }
+
+  /* see superclass */
+  @Override
+  public boolean test(String terminology, String version) throws Exception {
+    return delegate.test(terminology, version);
+  }
+
+  /* see superclass */
+  @Override
+  public List<Terminology> getTerminologyEditions() throws Exception {
+    return delegate.getTerminologyEditions();
+  }
+
+  /* see superclass */
+  @Override
+  public List<Terminology> getTerminologyVersions(String edition,
+    Boolean showFutureVersions) throws Exception {
+    return delegate.getTerminologyVersions(edition, showFutureVersions);
+  }
+
+  /* see superclass */
+  @Override
+  public ConceptList resolveExpression(String expr, String terminology,
+    String version, PfsParameter pfs, boolean descriptions) throws Exception {
+    return delegate.resolveExpression(expr, terminology, version, pfs,
+        descriptions);
+  }
+
+  /* see superclass */
+  @Override
+  public Concept getFullConcept(String terminologyId, String terminology,
+    String version) throws Exception {
+    final String key = getKey("full", terminologyId, terminology, version);
+    final String json = get(key, version);
+    if (json != null) {
+      return toConcept(json);
+    }
+    delegateCalls.incrementAndGet();
+    final Concept concept =
+        delegate.getFullConcept(terminologyId, terminology, version);
+    if (concept != null) {
+      put(key, version, mapper.writeValueAsString(concept));
+    }
+    return concept;
+  }
+
+  /* see superclass */
+  @Override
+  public Concept getConcept(String terminologyId, String terminology,
+    String version) throws Exception {
+    final String key = getKey("concept", terminologyId, terminology, version);
+    final String json = get(key, version);
+    if (json != null) {
+      return toConcept(json);
+    }
+    delegateCalls.incrementAndGet();
+    final Concept concept =
+        delegate.getConcept(terminologyId, terminology, version);
+    if (concept != null) {
+      put(key, version, mapper.writeValueAsString(concept));
+    }
+    return concept;
+  }
+
+  /* see superclass */
+  @Override
+  public ConceptList getConcepts(List<String> terminologyIds,
+    String terminology, String version, boolean descriptions)
+    throws Exception {
+    final String type = descriptions ? "concepts-desc" : "concepts";
+    final ConceptList list = new ConceptListJpa();
+    final List<String> missingIds = new ArrayList<>();
+    for (final String terminologyId : terminologyIds) {
+      final String json =
+          get(getKey(type, terminologyId, terminology, version), version);
+      if (json != null) {
+        list.addObject(toConcept(json));
+      } else {
+        missingIds.add(terminologyId);
+      }
+    }
+
+    // Only look up what is not cached
+    if (!missingIds.isEmpty()) {
+      delegateCalls.incrementAndGet();
+      final ConceptList result =
+          delegate.getConcepts(missingIds, terminology, version, descriptions);
+      for (final Concept concept : result.getObjects()) {
+        put(getKey(type, concept.getTerminologyId(), terminology, version),
+            version, mapper.writeValueAsString(concept));
+        list.addObject(concept);
+      }
+    }
+    list.setTotalCount(list.getCount());
+    return list;
+  }
+
+  /* see superclass */
+  @Override
+  public ConceptList findConceptsForQuery(String query, String terminology,
+    String version, PfsParameter pfs) throws Exception {
+    return delegate.findConceptsForQuery(query, terminology, version, pfs);
+  }
+
+  /* see superclass */
+  @Override
+  public ConceptList findRefsetsForQuery(String query, String terminology,
+    String version, PfsParameter pfs) throws Exception {
+    return delegate.findRefsetsForQuery(query, terminology, version, pfs);
+  }
+
+  /* see superclass */
+  @Override
+  public List<Concept> getModules(String terminology, String version)
+    throws Exception {
+    return delegate.getModules(terminology, version);
+  }
+
+  /* see superclass */
+  @Override
+  public ConceptList getConceptParents(String terminologyId, String terminology,
+    String version) throws Exception {
+    final String key = getKey("parents", terminologyId, terminology, version);
+    final String json = get(key, version);
+    if (json != null) {
+      return toConceptList(json);
+    }
+    delegateCalls.incrementAndGet();
+    final ConceptList list =
+        delegate.getConceptParents(terminologyId, terminology, version);
+    if (list != null) {
+      put(key, version, mapper.writeValueAsString(list));
+    }
+    return list;
+  }
+
+  /* see superclass */
+  @Override
+  public ConceptList getConceptChildren(String terminologyId,
+    String terminology, String version) throws Exception {
+    final String key = getKey("children", terminologyId, terminology, version);
+    final String json = get(key, version);
+    if (json != null) {
+      return toConceptList(json);
+    }
+    delegateCalls.incrementAndGet();
+    final ConceptList list =
+        delegate.getConceptChildren(terminologyId, terminology, version);
+    if (list != null) {
+      put(key, version, mapper.writeValueAsString(list));
+    }
+    return list;
+  }
+
+  /* see superclass */
+  @Override
+  public ConceptList getReplacementConcepts(String conceptId,
+    String terminology, String version) throws Exception {
+    return delegate.getReplacementConcepts(conceptId, terminology, version);
+  }
+
+  /* see superclass */
+  @Override
+  public int countExpression(String expr, String terminology, String version)
+    throws Exception {
+    return delegate.countExpression(expr, terminology, version);
+  }
+
+  /* see superclass */
+  @Override
+  public boolean isConceptId(String value) throws Exception {
+    return delegate.isConceptId(value);
+  }
+
+  /* see superclass */
+  @Override
+  public void setUrl(String url) throws Exception {
+    this.url = url;
+    delegate.setUrl(url);
+  }
+
+  /* see superclass */
+  @Override
+  public String getDefaultUrl() throws Exception {
+    return delegate.getDefaultUrl();
+  }
+
+  /* see superclass */
+  @Override
+  public void setHeaders(Map<String, String> headers) throws Exception {
+    delegate.setHeaders(headers);
+  }
+
+  /* see superclass */
+  @Override
+  public List<String> getLanguages(String terminology, String version)
+    throws Exception {
+    return delegate.getLanguages(terminology, version);
+  }
+
+  /* see superclass */
+  @Override
+  public List<String> getBranches(String terminology, String version)
+    throws Exception {
+    return delegate.getBranches(terminology, version);
+  }
+
+  /* see superclass */
+  @Override
+  public String translate(String text, String langauge) throws Exception {
+    return delegate.translate(text, langauge);
+  }
+
+  /* see superclass */
+  @Override
+  public KeyValuePairList getRequiredLanguageRefsets(String terminology,
+    String version) throws Exception {
+    return delegate.getRequiredLanguageRefsets(terminology, version);
+  }
+
+  /* see superclass */
+  @Override
+  public List<TranslationExtensionLanguage> getAvailableTranslationExtensionLanguages()
+    throws Exception {
+    return delegate.getAvailableTranslationExtensionLanguages();
+  }
+
+  /* see superclass */
+  @Override
+  public int getMaxBatchLookupSize() throws Exception {
+    return delegate.getMaxBatchLookupSize();
+  }
+
+  /* see superclass */
+  @Override
+  public ConceptList getInactiveConcepts(List<String> terminologyIds,
+    String terminology, String version) throws Exception {
+    return delegate.getInactiveConcepts(terminologyIds, terminology, version);
+  }
+
+  /**
+   * Returns the cache key.
+   *
+   * @param type the type of lookup
+   * @param terminologyId the terminology id
+   * @param terminology the terminology
+   * @param version the version
+   * @return the key
+   */
+  private String getKey(String type, String terminologyId, String terminology,
+    String version) {
+    return url + "|" + terminology + "|" + version + "|" + type + "|"
+        + terminologyId;
+  }
+
+  /**
+   * Indicates whether the version is a published, immutable branch.
+   *
+   * @param version the version
+   * @return <code>true</code> if so, <code>false</code> otherwise
+   */
+  private static boolean isVersioned(String version) {
+    return version != null && VERSIONED_BRANCH.matcher(version).matches();
+  }
+
+  /**
+   * Returns the cached JSON for the key, checking the heap then the disk tier.
+   *
+   * @param key the key
+   * @param version the version
+   * @return the json, or null if not cached
+   * @throws Exception the exception
+   */
+  private static String get(String key, String version) throws Exception {
+    final CacheEntry entry = heapCache.getIfPresent(key);
+    if (entry != null) {
+      if (entry.expires == 0 || entry.expires > System.currentTimeMillis()) {
+        return entry.json;
+      }
+      expired.incrementAndGet();
+      heapCache.invalidate(key);
+      return null;
+    }
+    if (diskCache != null && isVersioned(version)) {
+      final String json = diskCache.get(key);
+      if (json != null) {
+        diskHits.incrementAndGet();
+        heapCache.put(key, new CacheEntry(json, 0));
+        return json;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Caches the JSON for the key. Versioned content never expires and is also
+   * written to the disk tier.
+   *
+   * @param key the key
+   * @param version the version
+   * @param json the json
+   * @throws Exception the exception
+   */
+  private static void put(String key, String version, String json)
+    throws Exception {
+    if (isVersioned(version)) {
+      heapCache.put(key, new CacheEntry(json, 0));
+      if (diskCache != null) {
+        diskCache.put(key, json);
+      }
+    } else if (ttl > 0) {
+      heapCache.put(key,
+          new CacheEntry(json, System.currentTimeMillis() + ttl));
+    }
+  }
+
+  /**
+   * Returns the concept for the JSON.
+   *
+   * @param json the json
+   * @return the concept
+   * @throws Exception the exception
+   */
+  private static Concept toConcept(String json) throws Exception {
+    return relink(mapper.readValue(json, ConceptJpa.class));
+  }
+
+  /**
+   * Returns the concept list for the JSON.
+   *
+   * @param json the json
+   * @return the concept list
+   * @throws Exception the exception
+   */
+  private static ConceptList toConceptList(String json) throws Exception {
+    final ConceptList list = mapper.readValue(json, ConceptListJpa.class);
+    for (final Concept concept : list.getObjects()) {
+      relink(concept);
+    }
+    return list;
+  }
+
+  /**
+   * Re-links the descriptions and relationships of a deserialized concept to
+   * the concept, those back-references are not part of the JSON.
+   *
+   * @param concept the concept
+   * @return the concept
+   */
+  private static Concept relink(Concept concept) {
+    for (final Description description : concept.getDescriptions()) {
+      description.setConcept(concept);
+    }
+    for (final Relationship relationship : concept.getRelationships()) {
+      relationship.setSourceConcept(concept);
+    }
+    return concept;
+  }
+
+  /**
+   * A cached value with its expiry time (0 for never).
+   */
+  private static class CacheEntry {
+
+    /** The json. */
+    final String json;
+
+    /** The expiry time. */
+    final long expires;
+
+    /**
+     * Instantiates a {@link CacheEntry} from the specified parameters.
+     *
+     * @param json the json
+     * @param expires the expires
+     */
+    CacheEntry(String json, long expires) {
+      this.json = json;
+      this.expires = expires;
+    }
+  }
+
+  /**
+   * On-disk key/value tier backed by a small Lucene index in
+   * $indexBase/terminology-cache. Writes are made visible to readers and
+   * committed in batches. Only one process can hold the index writer, others
+   * fail to obtain its lock and run without a disk tier.
+   */
+  private static class DiskCache {
+
+    /** The refresh interval (ms) for making new writes visible. */
+    private static final long REFRESH_INTERVAL = 1000;
+
+    /** The commit interval (ms). */
+    private static final long COMMIT_INTERVAL = 30000;
+
+    /** The writer. */
+    private final IndexWriter writer;
+
+    /** The searcher manager. */
+    private final SearcherManager manager;
+
+    /** The uncommitted writes. */
+    private final AtomicLong pending = new AtomicLong();
+
+    /** The last refresh. */
+    private volatile long lastRefresh = System.currentTimeMillis();
+
+    /** The last commit. */
+    private volatile long lastCommit = System.currentTimeMillis();
+
+    /**
+     * Instantiates a {@link DiskCache} from the specified parameters.
+     *
+     * @param indexBase the index base
+     * @throws Exception the exception
+     */
+    DiskCache(String indexBase) throws Exception {
+      final Directory directory =
+          FSDirectory.open(Paths.get(indexBase, "terminology-cache"));
+      try {
+        writer = new IndexWriter(directory,
+            new IndexWriterConfig(new KeywordAnalyzer()));
+      } catch (Exception e) {
+        directory.close();
+        throw e;
+      }
+      writer.commit();
+      manager = new SearcherManager(writer, true, new SearcherFactory());
+    }
+
+    /**
+     * Returns the value for the key.
+     *
+     * @param key the key
+     * @return the value, or null if not present
+     * @throws Exception the exception
+     */
+    String get(String key) throws Exception {
+      if (pending.get() > 0
+          && System.currentTimeMillis() - lastRefresh > REFRESH_INTERVAL) {
+        lastRefresh = System.currentTimeMillis();
+        manager.maybeRefresh();
+      }
+      final IndexSearcher searcher = manager.acquire();
+      try {
+        final TopDocs docs =
+            searcher.search(new TermQuery(new Term("key", key)), 1);
+        if (docs.totalHits == 0) {
+          return null;
+        }
+        return searcher.doc(docs.scoreDocs[0].doc).get("value");
+      } finally {
+        manager.release(searcher);
+      }
+    }
+
+    /**
+     * Stores the value for the key.
+     *
+     * @param key the key
+     * @param value the value
+     * @throws Exception the exception
+     */
+    void put(String key, String value) throws Exception {
+      final Document doc = new Document();
+      doc.add(new StringField("key", key, Store.NO));
+      doc.add(new StoredField("value", value));
+      writer.updateDocument(new Term("key", key), doc);
+      pending.incrementAndGet();
+      if (System.currentTimeMillis() - lastCommit > COMMIT_INTERVAL) {
+        synchronized (this) {
+          if (System.currentTimeMillis() - lastCommit > COMMIT_INTERVAL) {
+            writer.commit();
+            pending.set(0);
+            lastCommit = System.currentTimeMillis();
+            manager.maybeRefresh();
+          }
+        }
+      }
+    }
+
+    /**
+     * Commits the pending writes and closes the index, releasing its lock.
+     */
+    synchronized void close() {
+      try {
+        manager.close();
+        writer.close();
+      } catch (Exception e) {
+        Logger.getLogger(CachingTerminologyHandler.class)
+            .warn("  Failed to close terminology disk cache", e);
+      }
+    }
+  }
+}
@@ -9,11 +9,15 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 
 import org.apache.log4j.Logger;
 import org.ihtsdo.otf.refset.MemoryEntry;
+import org.ihtsdo.otf.refset.PhraseMemory;
+import org.ihtsdo.otf.refset.Translation;
+import org.ihtsdo.otf.refset.helpers.KeyValuesMap;
 import org.ihtsdo.otf.refset.helpers.LocalException;
 import org.ihtsdo.otf.refset.helpers.StringList;
 import org.ihtsdo.otf.refset.jpa.MemoryEntryJpa;
@@ -21,13 +25,14 @@ import org.ihtsdo.otf.refset.services.TranslationService;
 import org.ihtsdo.otf.refset.services.handlers.PhraseMemoryHandler;
 import org.ihtsdo.otf.refset.services.helpers.PushBackReader;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Lists;
-
 /**
  * Default implementation of {@link PhraseMemoryHandler}.
  */
 public class DefaultPhraseMemoryHandler implements PhraseMemoryHandler {
+
+  /** The max suggestions per phrase for prefix and fuzzy matches. */
+  private int maxSuggestions = 20;
+
   /**
    * Instantiates an empty {@link DefaultPhraseMemoryHandler}.
    *
@@ -39,7 +44,9 @@ public class DefaultPhraseMemoryHandler implements PhraseMemoryHandler {
   /* see superclass */
   @Override
   public void setProperties(Properties p) throws Exception {
-    // N/A
+    if (p.containsKey("maxSuggestions")) {
+      maxSuggestions = Integer.parseInt(p.getProperty("maxSuggestions"));
+    }
   }
 
   /* see superclass */
@@ -105,22 +112,62 @@ public class DefaultPhraseMemoryHandler implements PhraseMemoryHandler {
   @Override
   public StringList suggestTranslation(String name, Long translationId,
     TranslationService translationService) throws Exception {
-    final String query = "name:\"" + name + "\"";
     final StringList strList = new StringList();
-    List<MemoryEntry> entries;
-    entries =
-        translationService.findMemoryEntryForTranslation(translationId, query,
-            null);
-    final List<String> results =
-        Lists.transform(entries, new Function<MemoryEntry, String>() {
-          @Override
-          public String apply(MemoryEntry arg0) {
-            return arg0.getTranslatedName();
-          }
-        });
-    strList.setTotalCount(results.size());
-    strList.setObjects(results);
+    final KeyValuesMap map = suggestBatchTranslation(
+        Collections.singletonList(name), MatchType.EXACT, translationId,
+        translationService);
+    final StringList results =
+        map.getMap() == null ? null : map.getMap().get(name);
+    if (results != null) {
+      strList.setTotalCount(results.getObjects().size());
+      strList.setObjects(results.getObjects());
+    }
     return strList;
   }
 
+  /* see superclass */
+  @Override
+  public KeyValuesMap suggestBatchTranslation(List<String> phrases,
+    MatchType matchType, Long translationId,
+    TranslationService translationService) throws Exception {
+    final KeyValuesMap map = new KeyValuesMap();
+    final Translation translation =
+        translationService.getTranslation(translationId);
+    final PhraseMemory memory =
+        translation == null ? null : translation.getPhraseMemory();
+    if (memory == null) {
+      return map;
+    }
+    final PhraseMemoryIndex index = PhraseMemoryIndex.getIndex(memory);
+    for (final String phrase : phrases) {
+      final List<String> results;
+      switch (matchType == null ? MatchType.EXACT : matchType) {
+        case PREFIX:
+          results = index.findPrefix(phrase, maxSuggestions);
+          break;
+        case FUZZY:
+          results =
+              index.findFuzzy(phrase, getMaxEdits(phrase), maxSuggestions);
+          break;
+        default:
+          results = index.findExact(phrase);
+      }
+      for (final String result : results) {
+        map.add(phrase, result);
+      }
+    }
+    return map;
+  }
+
+  /**
+   * Returns the max edits for a fuzzy match of the phrase: none for one or two
+   * characters, one for up to five, otherwise two.
+   *
+   * @param phrase the phrase
+   * @return the max edits
+   */
+  private static int getMaxEdits(String phrase) {
+    return phrase.length() <= 2 ? 0 : (phrase.length() <= 5 ? 1 : 2);
+  }
+
 }
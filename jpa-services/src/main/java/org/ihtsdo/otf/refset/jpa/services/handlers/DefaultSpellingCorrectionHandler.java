@@ -12,21 +12,31 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.core.KeywordTokenizer;
 import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.spell.Dictionary;
 import org.apache.lucene.search.spell.LevensteinDistance;
-import org.apache.lucene.search.spell.PlainTextDictionary;
 import org.apache.lucene.search.spell.SpellChecker;
+import org.apache.lucene.search.suggest.InputIterator;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.ihtsdo.otf.refset.Translation;
 import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+import org.ihtsdo.otf.refset.helpers.KeyValuesMap;
 import org.ihtsdo.otf.refset.helpers.LocalException;
 import org.ihtsdo.otf.refset.helpers.StringList;
 import org.ihtsdo.otf.refset.services.handlers.SpellingCorrectionHandler;
@@ -39,9 +49,18 @@ import org.ihtsdo.otf.refset.services.handlers.SpellingCorrectionHandler;
 public class DefaultSpellingCorrectionHandler
     implements SpellingCorrectionHandler {
 
+  /** The batch executor, shared by all handlers. */
+  private static ExecutorService executor;
+
+  /** The spell index directory. */
+  private FSDirectory indexFsDir;
+
   /** The spell checker. */
   private SpellChecker checker;
 
+  /** The number of threads for batch suggestions. */
+  private int batchThreads = 4;
+
   /**
    * Instantiates an empty {@link DefaultSpellingCorrectionHandler}.
    *
@@ -54,7 +73,9 @@ public class DefaultSpellingCorrectionHandler
   /* see superclass */
   @Override
   public void setProperties(Properties p) throws Exception {
-    // N/A
+    if (p.containsKey("batchThreads")) {
+      batchThreads = Integer.parseInt(p.getProperty("batchThreads"));
+    }
   }
 
   /* see superclass */
@@ -78,7 +99,7 @@ public class DefaultSpellingCorrectionHandler
     // Create the index writer
     final Path indexDir =
         Paths.get(dir, "spelling", translation.getId().toString());
-    final FSDirectory indexFsDir = FSDirectory.open(indexDir);
+    indexFsDir = FSDirectory.open(indexDir);
     checker = new SpellChecker(indexFsDir);
     // Presumably not needed - index already built, just opening it
     // reindex(translation.getSpellingDictionary().getEntries(),true);
@@ -89,13 +110,69 @@ public class DefaultSpellingCorrectionHandler
 
   /* see superclass */
   @Override
-  public void reindex(List<String> entries, boolean merge) throws Exception {
+  public synchronized void reindex(List<String> entries, boolean merge)
+    throws Exception {
     if (checker == null) {
       throw new Exception(
           "Set translation must be called prior to calling reindex");
     }
+    if (!merge) {
+      checker.clearIndex();
+    }
+    // Words already in the index are skipped
+    checker.indexDictionary(getDictionary(entries), getIndexWriterConfig(),
+        false);
+  }
+
+  /* see superclass */
+  @Override
+  public void addEntries(List<String> entries) throws Exception {
+    reindex(entries, true);
+  }
+
+  /* see superclass */
+  @Override
+  public synchronized void removeEntries(List<String> entries)
+    throws Exception {
+    if (checker == null) {
+      throw new Exception(
+          "Set translation must be called prior to calling remove entries");
+    }
+    try (final IndexWriter writer =
+        new IndexWriter(indexFsDir, getIndexWriterConfig())) {
+      for (final String entry : entries) {
+        writer.deleteDocuments(new Term(SpellChecker.F_WORD, entry));
+      }
+      // exist() checks the document frequency, which counts deleted
+      // documents until their segments are merged
+      writer.forceMergeDeletes();
+    }
+    // Reopen the searcher to see the deletes
+    checker.setSpellIndex(indexFsDir);
+  }
 
-    IndexWriterConfig iwConfig = new IndexWriterConfig(new Analyzer() {
+  /**
+   * Returns a dictionary that streams the entries to the spell checker one
+   * word at a time.
+   *
+   * @param entries the entries
+   * @return the dictionary
+   */
+  private static Dictionary getDictionary(List<String> entries) {
+    return () -> {
+      final Iterator<String> iter = entries.iterator();
+      return new InputIterator.InputIteratorWrapper(
+          () -> iter.hasNext() ? new BytesRef(iter.next()) : null);
+    };
+  }
+
+  /**
+   * Returns the index writer config for the spell index.
+   *
+   * @return the index writer config
+   */
+  private static IndexWriterConfig getIndexWriterConfig() {
+    return new IndexWriterConfig(new Analyzer() {
       @Override
       protected TokenStreamComponents createComponents(String fieldName) {
         Tokenizer source = new KeywordTokenizer();
@@ -103,19 +180,6 @@ public class DefaultSpellingCorrectionHandler
         return new TokenStreamComponents(source, filter);
       }
     });
-
-    StringBuilder builder = new StringBuilder();
-    for (String s : entries) {
-      builder.append(s);
-      builder.append("\n");
-    }
-    InputStream is =
-        new ByteArrayInputStream(builder.toString().getBytes("UTF-8"));
-    PlainTextDictionary ptDict = new PlainTextDictionary(is);
-    if (!merge) {
-      checker.clearIndex();
-    }
-    checker.indexDictionary(ptDict, iwConfig, false);
   }
 
   /* see superclass */
@@ -183,11 +247,71 @@ public class DefaultSpellingCorrectionHandler
     return new StringList();
   }
 
+  /* see superclass */
   @Override
   public boolean exists(String term) throws Exception {
     return checker.exist(term);
   }
 
+  /* see superclass */
+  @Override
+  public KeyValuesMap suggestBatchSpelling(List<String> terms, int amount)
+    throws Exception {
+    if (checker == null) {
+      throw new LocalException(
+          "Set translation must be called prior to calling suggest spelling");
+    }
+    // The spell checker shares its index searcher across threads
+    final SpellChecker spellChecker = checker;
+    final List<Future<StringList>> futures = new ArrayList<>();
+    for (final String term : terms) {
+      futures.add(term.length() <= 2 ? null
+          : getExecutor(batchThreads).submit(() -> spellChecker.exist(term) ? null
+              : convertResults(spellChecker.suggestSimilar(term, amount))));
+    }
+    final HashMap<String, StringList> map = new HashMap<>();
+    for (int i = 0; i < terms.size(); i++) {
+      final StringList results =
+          futures.get(i) == null ? null : futures.get(i).get();
+      if (results != null) {
+        map.put(terms.get(i), results);
+      }
+    }
+    final KeyValuesMap result = new KeyValuesMap();
+    result.setMap(map);
+    return result;
+  }
+
+  /* see superclass */
+  @Override
+  public synchronized void close() throws Exception {
+    if (checker != null) {
+      checker.close();
+      checker = null;
+    }
+    if (indexFsDir != null) {
+      indexFsDir.close();
+      indexFsDir = null;
+    }
+  }
+
+  /**
+   * Returns the batch executor, creating it on first use.
+   *
+   * @param threads the number of threads
+   * @return the executor
+   */
+  private static synchronized ExecutorService getExecutor(int threads) {
+    if (executor == null) {
+      executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+        final Thread thread = new Thread(r, "spelling-batch");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return executor;
+  }
+
   /**
    * Convert results.
    *
@@ -0,0 +1,90 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.jpa.services.handlers;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.ihtsdo.otf.refset.AuthToken;
+import org.ihtsdo.otf.refset.jpa.AuthTokenJpa;
+import org.ihtsdo.otf.refset.services.handlers.TokenStore;
+
+/**
+ * Default implementation of {@link TokenStore}. Keeps tokens in memory, so
+ * they are only valid on the node that issued them and are lost on restart.
+ */
+public class DefaultTokenStore implements TokenStore {
+
+  /** The tokens. */
+  private final Map<String, AuthToken> tokens = new ConcurrentHashMap<>();
+
+  /**
+   * Instantiates an empty {@link DefaultTokenStore}.
+   */
+  public DefaultTokenStore() {
+    // n/a
+  }
+
+  /* see superclass */
+  @Override
+  public void setProperties(Properties p) throws Exception {
+    // n/a
+  }
+
+  /* see superclass */
+  @Override
+  public String getName() {
+    return "Default token store";
+  }
+
+  /* see superclass */
+  @Override
+  public void addToken(String token, String userName, Date expiration)
+    throws Exception {
+    final AuthToken authToken = new AuthTokenJpa();
+    authToken.setToken(token);
+    authToken.setUserName(userName);
+    authToken.setExpiration(expiration);
+    tokens.put(token, authToken);
+  }
+
+  /* see superclass */
+  @Override
+  public AuthToken getToken(String token) throws Exception {
+    return tokens.get(token);
+  }
+
+  /* see superclass */
+  @Override
+  public void setExpiration(String token, Date expiration) throws Exception {
+    // replace rather than modify, callers may hold the previous token
+    tokens.computeIfPresent(token, (key, value) -> {
+      final AuthToken authToken = new AuthTokenJpa(value);
+      authToken.setExpiration(expiration);
+      return authToken;
+    });
+  }
+
+  /* see superclass */
+  @Override
+  public void removeToken(String token) throws Exception {
+    tokens.remove(token);
+  }
+
+  /* see superclass */
+  @Override
+  public List<String> getTokensForUser(String userName) throws Exception {
+    final List<String> result = new ArrayList<>();
+    for (final AuthToken authToken : tokens.values()) {
+      if (userName.equals(authToken.getUserName())) {
+        result.add(authToken.getToken());
+      }
+    }
+    return result;
+  }
+}
@@ -3,6 +3,9 @@
  */
 package org.ihtsdo.otf.refset.jpa.services.handlers;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
 
@@ -22,6 +25,10 @@ import org.ihtsdo.otf.refset.services.handlers.IdentifierAssignmentHandler;
 /**
  * Implementation of {@link IdentifierAssignmentHandler} that interacts with the
  * IHTSDO component identifier service.
+ *
+ * Stand-in for testing: identifiers come from a local counter. With a
+ * "poolBatchSize" above 1 they are drawn through an {@link IdentifierPool} the
+ * same way as {@link IhtsdoComponentIdentifierServiceHandler}.
  */
 public class DummyComponentIdentifierServiceHandler implements
     IdentifierAssignmentHandler {
@@ -29,10 +36,26 @@ public class DummyComponentIdentifierServiceHandler implements
   /** The ct. */
   private int ct = 53444;
 
+  /** The identifier pool, null if identifiers are generated on demand. */
+  private IdentifierPool pool;
+
   /* see superclass */
   @Override
   public void setProperties(Properties p) throws Exception {
-    // n/a
+    final int batchSize =
+        Integer.parseInt(p.getProperty("poolBatchSize", "1").trim());
+    if (batchSize > 1) {
+      final int lowWater = Integer.parseInt(p
+          .getProperty("poolLowWater", String.valueOf(batchSize / 4)).trim());
+      final String poolFile = p.getProperty("poolFile", "").trim();
+      pool = new IdentifierPool("dummy", (namespace, partitionId, quantity) -> {
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < quantity; i++) {
+          ids.add(nextId(partitionId));
+        }
+        return ids;
+      }, batchSize, lowWater, poolFile.isEmpty() ? null : new File(poolFile));
+    }
   }
 
   /* see superclass */
@@ -41,8 +64,7 @@ public class DummyComponentIdentifierServiceHandler implements
     if (concept.getTerminologyId() != null) {
       return concept.getTerminologyId();
     }
-    ct++;
-    return ct + "000";
+    return pool != null ? pool.take(null, "00") : nextId("00");
   }
 
   /* see superclass */
@@ -51,8 +73,18 @@ public class DummyComponentIdentifierServiceHandler implements
     if (description.getTerminologyId() != null) {
       return description.getTerminologyId();
     }
+    return pool != null ? pool.take(null, "01") : nextId("01");
+  }
+
+  /**
+   * Returns the next id from the counter.
+   *
+   * @param partitionId the partition id
+   * @return the id
+   */
+  private synchronized String nextId(String partitionId) {
     ct++;
-    return ct + "011";
+    return ct + (partitionId.equals("00") ? "000" : "011");
   }
 
   /* see superclass */
@@ -3,10 +3,15 @@
  */
 package org.ihtsdo.otf.refset.jpa.services.handlers;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
-import java.util.EnumSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
@@ -86,46 +91,50 @@ public class ExportRefsetRf2Handler implements ExportRefsetHandler {
   @Override
   public InputStream exportMembers(Refset refset,
     List<ConceptRefsetMember> members) throws Exception {
-    Logger.getLogger(getClass()).info("Export refset members with names - "
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    exportMembers(refset, members, out);
+    return new ByteArrayInputStream(out.toByteArray());
+  }
+
+  /* see superclass */
+  @Override
+  public void exportMembers(Refset refset,
+    Iterable<ConceptRefsetMember> members, OutputStream out) throws Exception {
+    Logger.getLogger(getClass()).info("Export refset members - "
         + refset.getTerminologyId() + ", " + refset.getName());
 
     // Write a header
-    // Obtain members for refset,
-    // Write RF2 simple refset pattern to a StringBuilder
-    // wrap and return the string for that as an input stream
-
-    StringBuilder sb = new StringBuilder();
-    sb.append("id").append("\t");
-    sb.append("effectiveTime").append("\t");
-    sb.append("active").append("\t");
-    sb.append("moduleId").append("\t");
-    sb.append("refsetId").append("\t");
-    sb.append("referencedComponentId");
-    sb.append("\r\n");
-
-    for (ConceptRefsetMember member : members) {
+    // Write RF2 simple refset pattern for each member straight to the stream
+    final Writer writer = new BufferedWriter(
+        new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    writer.write("id\t");
+    writer.write("effectiveTime\t");
+    writer.write("active\t");
+    writer.write("moduleId\t");
+    writer.write("refsetId\t");
+    writer.write("referencedComponentId");
+    writer.write("\r\n");
+
+    for (final ConceptRefsetMember member : members) {
       Logger.getLogger(getClass()).debug("  member = " + member);
 
       // Skip exclusions
-      if (EnumSet.of(Refset.MemberType.EXCLUSION)
-          .contains(member.getMemberType())) {
+      if (member.getMemberType() == Refset.MemberType.EXCLUSION) {
         continue;
       }
-      sb.append(member.getTerminologyId()).append("\t");
+      writer.write(member.getTerminologyId() + "\t");
       if (member.getEffectiveTime() != null) {
-        sb.append(ConfigUtility.DATE_FORMAT.format(member.getEffectiveTime()))
-            .append("\t");
-      } else {
-        sb.append("\t");
+        writer.write(
+            ConfigUtility.DATE_FORMAT.format(member.getEffectiveTime()));
       }
-      sb.append(member.isActive() ? 1 : 0).append("\t");
-      sb.append(refset.getModuleId()).append("\t");
-      sb.append(member.getRefset().getTerminologyId()).append("\t");
-      sb.append(member.getConceptId());
-      sb.append("\r\n");
+      writer.write("\t");
+      writer.write((member.isActive() ? 1 : 0) + "\t");
+      writer.write(refset.getModuleId() + "\t");
+      writer.write(member.getRefset().getTerminologyId() + "\t");
+      writer.write(member.getConceptId());
+      writer.write("\r\n");
     }
-
-    return new ByteArrayInputStream(sb.toString().getBytes("UTF-8"));
+    writer.flush();
   }
 
   /* see superclass */
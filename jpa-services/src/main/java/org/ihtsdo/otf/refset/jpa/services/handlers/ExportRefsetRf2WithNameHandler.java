@@ -3,10 +3,12 @@
  */
 package org.ihtsdo.otf.refset.jpa.services.handlers;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
-import java.util.List;
 
 import org.apache.log4j.Logger;
 import org.ihtsdo.otf.refset.Refset;
@@ -67,45 +69,41 @@ public class ExportRefsetRf2WithNameHandler extends ExportRefsetRf2Handler {
 
   /* see superclass */
   @Override
-  public InputStream exportMembers(Refset refset,
-    List<ConceptRefsetMember> members) throws Exception {
+  public void exportMembers(Refset refset,
+    Iterable<ConceptRefsetMember> members, OutputStream out) throws Exception {
     Logger.getLogger(getClass()).info(
-        "Export refset members- " + refset.getTerminologyId() + ", "
+        "Export refset members with names - " + refset.getTerminologyId() + ", "
             + refset.getName());
 
     // Write a header
-    // Obtain members for refset,
-    // Write RF2 simple refset pattern to a StringBuilder
-    // wrap and return the string for that as an input stream
-
-    StringBuilder sb = new StringBuilder();
-    sb.append("id").append("\t");
-    sb.append("effectiveTime").append("\t");
-    sb.append("active").append("\t");
-    sb.append("moduleId").append("\t");
-    sb.append("refsetId").append("\t");
-    sb.append("referencedComponentId").append("\t");
-    sb.append("name").append("\t");
-    sb.append("\r\n");
-
-    for (ConceptRefsetMember member : members) {
+    // Write RF2 simple refset pattern for each member straight to the stream
+    final Writer writer = new BufferedWriter(
+        new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    writer.write("id\t");
+    writer.write("effectiveTime\t");
+    writer.write("active\t");
+    writer.write("moduleId\t");
+    writer.write("refsetId\t");
+    writer.write("referencedComponentId\t");
+    writer.write("name\t");
+    writer.write("\r\n");
+
+    for (final ConceptRefsetMember member : members) {
       Logger.getLogger(getClass()).debug("  member = " + member);
-      sb.append(member.getTerminologyId()).append("\t");
+      writer.write(member.getTerminologyId() + "\t");
       if (member.getEffectiveTime() != null) {
-        sb.append(ConfigUtility.DATE_FORMAT.format(member.getEffectiveTime()))
-            .append("\t");
-      } else {
-        sb.append("\t");
+        writer.write(
+            ConfigUtility.DATE_FORMAT.format(member.getEffectiveTime()));
       }
-      sb.append(1).append("\t");
-      sb.append(refset.getModuleId()).append("\t");
-      sb.append(member.getRefset().getTerminologyId()).append("\t");
-      sb.append(member.getConceptId()).append("\t");
-      sb.append(member.getConceptName()).append("\t");
-      sb.append("\r\n");
+      writer.write("\t");
+      writer.write("1\t");
+      writer.write(refset.getModuleId() + "\t");
+      writer.write(member.getRefset().getTerminologyId() + "\t");
+      writer.write(member.getConceptId() + "\t");
+      writer.write(member.getConceptName() + "\t");
+      writer.write("\r\n");
     }
-
-    return new ByteArrayInputStream(sb.toString().getBytes("UTF-8"));
+    writer.flush();
   }
 
 }
@@ -3,9 +3,17 @@
  */
 package org.ihtsdo.otf.refset.jpa.services.handlers;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -91,6 +99,15 @@ public class ExportTranslationRf2Handler implements ExportTranslationHandler {
   @Override
   public InputStream exportConcepts(Translation translation,
     List<Concept> concepts) throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    exportConcepts(translation, concepts, out);
+    return new ByteArrayInputStream(out.toByteArray());
+  }
+
+  /* see superclass */
+  @Override
+  public void exportConcepts(Translation translation,
+    Iterable<Concept> concepts, OutputStream out) throws Exception {
     Logger.getLogger(getClass()).info("Export translation concepts - "
         + translation.getTerminologyId() + ", " + translation.getName());
 
@@ -111,107 +128,95 @@ public class ExportTranslationRf2Handler implements ExportTranslationHandler {
         + descriptionDialect + (namespace == null ? "nonamespace" : namespace)
             + "_" + currentDate + ".txt";
 
-    // TODO: rewire this to just extract all descriptions, then all langauges
-    // and call the exportDelta with those. then logic is the same
-    // need to test import/export when we do this
-
-    // Write descriptions and language refset entries
-    // in SNOMED CT Structure to a .zip file
-    // and write the zip file to an input stream
-    StringBuilder descSb = new StringBuilder();
-    descSb.append("id").append("\t");
-    descSb.append("effectiveTime").append("\t");
-    descSb.append("active").append("\t");
-    descSb.append("moduleId").append("\t");
-    descSb.append("conceptId").append("\t");
-    descSb.append("languageCode").append("\t");
-    descSb.append("typeId").append("\t");
-    descSb.append("term").append("\t");
-    descSb.append("caseSignificanceId");
-    descSb.append("\r\n");
-
-    StringBuilder langSb = new StringBuilder();
-    langSb.append("id").append("\t");
-    langSb.append("effectiveTime").append("\t");
-    langSb.append("active").append("\t");
-    langSb.append("moduleId").append("\t");
-    langSb.append("refsetId").append("\t");
-    langSb.append("referencedComponentId").append("\t");
-    langSb.append("acceptabilityId");
-    langSb.append("\r\n");
-
-    for (final Concept concept : concepts) {
-      if (concept.isRevision()) {
-        continue;
-      }
-      for (final Description description : concept.getDescriptions()) {
-        Logger.getLogger(getClass())
-            .debug("  description = " + description.getTerminologyId() + ", "
-                + description.getTerm() + ", "
-                + description.getEffectiveTime());
-
-        descSb.append(description.getTerminologyId()).append("\t");
-        if (description.getEffectiveTime() != null) {
-          descSb.append(
-              ConfigUtility.DATE_FORMAT.format(description.getEffectiveTime()))
-              .append("\t");
-        } else {
-          descSb.append("\t");
-        }
-        descSb.append(description.isActive() ? "1" : "0").append("\t");
-        descSb.append(translation.getModuleId()).append("\t");
-        descSb.append(concept.getTerminologyId()).append("\t");
-        descSb.append(description.getLanguageCode()).append("\t");
-        descSb.append(description.getTypeId()).append("\t");
-        descSb.append(description.getTerm()).append("\t");
-        descSb.append(description.getCaseSignificanceId());
-        descSb.append("\r\n");
-
-        for (final LanguageRefsetMember member : description
-            .getLanguageRefsetMembers()) {
-          Logger.getLogger(getClass()).debug("    member = " + member);
-          langSb.append(member.getTerminologyId()).append("\t");
-          if (member.getEffectiveTime() != null) {
-            langSb
-                .append(
-                    ConfigUtility.DATE_FORMAT.format(member.getEffectiveTime()))
-                .append("\t");
-          } else {
-            langSb.append("\t");
+    // Write descriptions and language refset entries in SNOMED CT structure
+    // to a .zip file. Description rows go straight into the first entry;
+    // language rows are spooled to a temp file (zip entries are sequential)
+    // and copied into the second entry, so neither file is held in memory.
+    final File langFile = File.createTempFile("translation-language", ".txt");
+    try {
+      final ZipOutputStream zos = new ZipOutputStream(out);
+      zos.putNextEntry(new ZipEntry(descriptionFileName));
+      final Writer descWriter = new BufferedWriter(
+          new OutputStreamWriter(zos, StandardCharsets.UTF_8));
+      descWriter.write("id\t");
+      descWriter.write("effectiveTime\t");
+      descWriter.write("active\t");
+      descWriter.write("moduleId\t");
+      descWriter.write("conceptId\t");
+      descWriter.write("languageCode\t");
+      descWriter.write("typeId\t");
+      descWriter.write("term\t");
+      descWriter.write("caseSignificanceId");
+      descWriter.write("\r\n");
+
+      try (final Writer langWriter = new BufferedWriter(new OutputStreamWriter(
+          new FileOutputStream(langFile), StandardCharsets.UTF_8));) {
+        langWriter.write("id\t");
+        langWriter.write("effectiveTime\t");
+        langWriter.write("active\t");
+        langWriter.write("moduleId\t");
+        langWriter.write("refsetId\t");
+        langWriter.write("referencedComponentId\t");
+        langWriter.write("acceptabilityId");
+        langWriter.write("\r\n");
+
+        for (final Concept concept : concepts) {
+          if (concept.isRevision()) {
+            continue;
+          }
+          for (final Description description : concept.getDescriptions()) {
+            Logger.getLogger(getClass())
+                .debug("  description = " + description.getTerminologyId()
+                    + ", " + description.getTerm() + ", "
+                    + description.getEffectiveTime());
+
+            descWriter.write(description.getTerminologyId() + "\t");
+            if (description.getEffectiveTime() != null) {
+              descWriter.write(ConfigUtility.DATE_FORMAT
+                  .format(description.getEffectiveTime()));
+            }
+            descWriter.write("\t");
+            descWriter.write(description.isActive() ? "1\t" : "0\t");
+            descWriter.write(translation.getModuleId() + "\t");
+            descWriter.write(concept.getTerminologyId() + "\t");
+            descWriter.write(description.getLanguageCode() + "\t");
+            descWriter.write(description.getTypeId() + "\t");
+            descWriter.write(description.getTerm() + "\t");
+            descWriter.write(description.getCaseSignificanceId());
+            descWriter.write("\r\n");
+
+            for (final LanguageRefsetMember member : description
+                .getLanguageRefsetMembers()) {
+              Logger.getLogger(getClass()).debug("    member = " + member);
+              langWriter.write(member.getTerminologyId() + "\t");
+              if (member.getEffectiveTime() != null) {
+                langWriter.write(
+                    ConfigUtility.DATE_FORMAT.format(member.getEffectiveTime()));
+              }
+              langWriter.write("\t");
+              langWriter.write(member.isActive() ? "1\t" : "0\t");
+              langWriter.write(translation.getModuleId() + "\t");
+              langWriter.write(languageRefsetId + "\t");
+              langWriter.write(description.getTerminologyId() + "\t");
+              langWriter.write(member.getAcceptabilityId());
+              langWriter.write("\r\n");
+            }
           }
-          langSb.append(member.isActive() ? "1" : "0").append("\t");
-          langSb.append(translation.getModuleId()).append("\t");
-          langSb.append(languageRefsetId).append("\t");
-          langSb.append(description.getTerminologyId()).append("\t");
-          langSb.append(member.getAcceptabilityId());
-          langSb.append("\r\n");
         }
       }
-
-      // Free up memory
-      concept.getDescriptions().clear();
+      descWriter.flush();
+      zos.closeEntry();
+
+      Logger.getLogger(getClass()).info("  finish .zip file");
+      zos.putNextEntry(new ZipEntry(languageRefsetMemberFileName));
+      Files.copy(langFile.toPath(), zos);
+      zos.closeEntry();
+      // Writes the zip directory without closing the underlying stream
+      zos.finish();
+      out.flush();
+    } finally {
+      Files.deleteIfExists(langFile.toPath());
     }
-
-    //
-    Logger.getLogger(getClass()).info("  prepare .zip file");
-
-    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    final ZipOutputStream zos = new ZipOutputStream(baos);
-
-    final ZipEntry descEntry = new ZipEntry(descriptionFileName);
-    zos.putNextEntry(descEntry);
-    byte[] bytes = descSb.toString().getBytes("UTF-8");
-    zos.write(bytes, 0, bytes.length);
-    zos.closeEntry();
-
-    final ZipEntry langEntry = new ZipEntry(languageRefsetMemberFileName);
-    zos.putNextEntry(langEntry);
-
-    bytes = langSb.toString().getBytes("UTF-8");
-    zos.write(bytes, 0, bytes.length);
-    zos.closeEntry();
-    zos.close();
-    return new ByteArrayInputStream(baos.toByteArray());
   }
 
   /* see superclass */
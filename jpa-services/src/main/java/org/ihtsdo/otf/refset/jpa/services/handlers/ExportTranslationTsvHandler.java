@@ -3,16 +3,21 @@
  */
 package org.ihtsdo.otf.refset.jpa.services.handlers;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.ihtsdo.otf.refset.Note;
@@ -88,11 +93,21 @@ public class ExportTranslationTsvHandler implements ExportTranslationHandler {
   @Override
   public InputStream exportConcepts(Translation translation,
     List<Concept> concepts) throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    exportConcepts(translation, concepts, out);
+    return new ByteArrayInputStream(out.toByteArray());
+  }
+
+  /* see superclass */
+  @Override
+  public void exportConcepts(Translation translation,
+    Iterable<Concept> concepts, OutputStream out) throws Exception {
     Logger.getLogger(getClass()).info("Export translation concepts - "
         + translation.getTerminologyId() + ", " + translation.getName());
 
-    
-    StringBuilder descSb = new StringBuilder();
+    // Rows are written straight to the stream
+    final Writer descSb = new BufferedWriter(
+        new OutputStreamWriter(out, StandardCharsets.UTF_8));
     descSb.append("Concept Id").append("\t");
     descSb.append("GB/US FSN Term (For reference only)").append("\t");
     descSb.append("Preferred Term (For reference only)").append("\t");
@@ -114,16 +129,13 @@ public class ExportTranslationTsvHandler implements ExportTranslationHandler {
     descSb.append("Notes").append("\t");
     descSb.append("\r\n");
     
-    final TranslationServiceJpa translationService = new TranslationServiceJpa();
-    
-    final Set<Long> translationIds = new HashSet<>();
-    concepts.parallelStream().forEach(concept -> {
-      translationIds.add(concept.getTranslation().getId());
-    });
-
     // save PTs and FSNs for later use
-    Map<Long, Map<String, String>> conceptPtFsnMap =
-        translationService.getTranslationPtAndFSN(translationIds);
+    final Map<Long, Map<String, String>> conceptPtFsnMap;
+    try (final TranslationServiceJpa translationService =
+        new TranslationServiceJpa();) {
+      conceptPtFsnMap = translationService
+          .getTranslationPtAndFSN(Collections.singleton(translation.getId()));
+    }
    
     for (final Concept concept : concepts) {
       
@@ -248,15 +260,9 @@ public class ExportTranslationTsvHandler implements ExportTranslationHandler {
       }
       
       // The TSV export handler does not currently support language xx / xx-YY
-
-      // Free up memory
-      concept.getDescriptions().clear();
     }
 
-    //
-    Logger.getLogger(getClass()).info("  prepare .zip file");
-
-    return new ByteArrayInputStream(descSb.toString().getBytes("UTF-8"));
+    descSb.flush();
   }
 
   /* see superclass */
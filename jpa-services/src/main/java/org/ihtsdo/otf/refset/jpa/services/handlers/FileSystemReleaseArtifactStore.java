@@ -0,0 +1,137 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.jpa.services.handlers;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.helpers.LocalException;
+import org.ihtsdo.otf.refset.services.handlers.ReleaseArtifactStore;
+
+/**
+ * Implementation of {@link ReleaseArtifactStore} that keeps content in files
+ * under a base directory, named by checksum (e.g. "ab/abcdef...").
+ *
+ * Content is first written to a temp file in the base directory and then
+ * moved into place, so partially written content is never visible.
+ */
+public class FileSystemReleaseArtifactStore implements ReleaseArtifactStore {
+
+  /** The checksum pattern - lowercase hex SHA-256. */
+  private static final Pattern CHECKSUM_PATTERN =
+      Pattern.compile("[0-9a-f]{64}");
+
+  /** The base dir. */
+  private Path baseDir;
+
+  /**
+   * Instantiates an empty {@link FileSystemReleaseArtifactStore}.
+   */
+  public FileSystemReleaseArtifactStore() {
+    // n/a
+  }
+
+  /* see superclass */
+  @Override
+  public void setProperties(Properties p) throws Exception {
+    if (!p.containsKey("dir")) {
+      throw new Exception("Required property dir not specified.");
+    }
+    baseDir = new File(p.getProperty("dir")).toPath();
+    Files.createDirectories(baseDir);
+  }
+
+  /* see superclass */
+  @Override
+  public String getName() {
+    return "File system release artifact store";
+  }
+
+  /* see superclass */
+  @Override
+  public String store(ContentWriter writer) throws Exception {
+    final Path tmp = Files.createTempFile(baseDir, "artifact", ".tmp");
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      try (final OutputStream out = new DigestOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(tmp)), digest)) {
+        writer.write(out);
+      }
+      final String checksum = HexFormat.of().formatHex(digest.digest());
+      final Path path = getPath(checksum);
+      if (!Files.exists(path)) {
+        Files.createDirectories(path.getParent());
+        try {
+          Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+          // another writer stored the same content first
+        }
+      }
+      Logger.getLogger(getClass()).debug("  Store artifact content "
+          + checksum + ", " + Files.size(path) + " bytes");
+      return checksum;
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /* see superclass */
+  @Override
+  public InputStream getContent(String checksum, long offset)
+    throws Exception {
+    final Path path = getPath(checksum);
+    if (!Files.exists(path)) {
+      throw new LocalException(
+          "Release artifact content is missing from the store: " + checksum);
+    }
+    final SeekableByteChannel channel = Files.newByteChannel(path);
+    if (offset > 0) {
+      channel.position(offset);
+    }
+    return Channels.newInputStream(channel);
+  }
+
+  /* see superclass */
+  @Override
+  public long getSize(String checksum) throws Exception {
+    final Path path = getPath(checksum);
+    return Files.exists(path) ? Files.size(path) : -1;
+  }
+
+  /* see superclass */
+  @Override
+  public void remove(String checksum) throws Exception {
+    Logger.getLogger(getClass())
+        .debug("  Remove artifact content " + checksum);
+    Files.deleteIfExists(getPath(checksum));
+  }
+
+  /**
+   * Returns the path for the checksum.
+   *
+   * @param checksum the checksum
+   * @return the path
+   * @throws Exception if the checksum is malformed
+   */
+  private Path getPath(String checksum) throws Exception {
+    if (checksum == null || !CHECKSUM_PATTERN.matcher(checksum).matches()) {
+      throw new Exception("Malformed release artifact checksum: " + checksum);
+    }
+    return baseDir.resolve(checksum.substring(0, 2)).resolve(checksum);
+  }
+}
@@ -0,0 +1,407 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.jpa.services.handlers;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.helpers.KeyValuePair;
+import org.ihtsdo.otf.refset.helpers.KeyValuePairList;
+
+/**
+ * Pool of identifiers generated ahead of use, per namespace and partition.
+ * Identifiers are generated in batches of "batchSize"; when a pool drops below
+ * "lowWater" identifiers it is refilled in the background.
+ *
+ * If a file is configured, generated identifiers are journaled to it before
+ * they are pooled, and each identifier before it is handed out, so identifiers
+ * generated but not used survive a restart and none is handed out twice. The
+ * journal is owned by one process at a time through a lock on
+ * "[file].lock"; if another process (or another pool) holds it, this pool
+ * does not pool at all and generates each identifier on demand, so two
+ * processes never hand out the same pooled identifier.
+ */
+public class IdentifierPool {
+
+  /** The pools by name, for statistics. */
+  private static final Map<String, IdentifierPool> pools =
+      new TreeMap<>();
+
+  /** The pooled identifiers, by "[namespace]|[partitionId]". */
+  private final Map<String, ArrayDeque<String>> ids = new HashMap<>();
+
+  /** The keys being refilled in the background. */
+  private final Set<String> refilling = new HashSet<>();
+
+  /** The counts of identifiers handed out, by key. */
+  private final Map<String, Long> takenCounts = new LinkedHashMap<>();
+
+  /** The name. */
+  private final String name;
+
+  /** The generator. */
+  private final Generator generator;
+
+  /** The batch size. */
+  private final int batchSize;
+
+  /** The low water mark. */
+  private final int lowWater;
+
+  /** The journal file, null if not persisted. */
+  private final File file;
+
+  /** The journal writer. */
+  private BufferedWriter journal;
+
+  /** The lock on the journal file, null if not persisted or not pooling. */
+  private FileLock lock;
+
+  /** Whether identifiers are pooled, false if the journal is locked. */
+  private boolean pooling = true;
+
+  /** The number of journal lines, used to decide when to compact. */
+  private long journalLines = 0;
+
+  /** The number of batches generated. */
+  private long batches = 0;
+
+  /** The number of takes that waited for a batch. */
+  private long waits = 0;
+
+  /** The refill executor. */
+  private final ExecutorService executor =
+      Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(r, "identifier-pool-refill");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  /**
+   * Generates identifiers.
+   */
+  public interface Generator {
+
+    /**
+     * Generates identifiers.
+     *
+     * @param namespace the namespace, "0" for the international namespace
+     * @param partitionId the partition id
+     * @param quantity the number of identifiers
+     * @return the identifiers
+     * @throws Exception the exception
+     */
+    public List<String> generate(String namespace, String partitionId,
+      int quantity) throws Exception;
+  }
+
+  /**
+   * Instantiates a {@link IdentifierPool} from the specified parameters.
+   *
+   * @param name the name, used for statistics
+   * @param generator the generator
+   * @param batchSize the batch size
+   * @param lowWater the low water mark
+   * @param file the journal file, or null
+   * @throws Exception the exception
+   */
+  public IdentifierPool(String name, Generator generator, int batchSize,
+      int lowWater, File file) throws Exception {
+    this.name = name;
+    this.generator = generator;
+    this.batchSize = Math.max(1, batchSize);
+    this.lowWater = Math.min(lowWater, this.batchSize - 1);
+    this.file = file;
+    if (file != null) {
+      if (lock()) {
+        load();
+      } else {
+        pooling = false;
+      }
+    }
+    synchronized (pools) {
+      pools.put(name, this);
+    }
+  }
+
+  /**
+   * Takes an identifier, generating a batch first if the pool is empty.
+   *
+   * @param namespace the namespace, null or empty for the international
+   *          namespace
+   * @param partitionId the partition id
+   * @return the identifier
+   * @throws Exception the exception
+   */
+  public String take(String namespace, String partitionId) throws Exception {
+    final String ns =
+        namespace == null || namespace.isEmpty() ? "0" : namespace;
+    final String key = ns + "|" + partitionId;
+    if (!pooling) {
+      final List<String> generated = generator.generate(ns, partitionId, 1);
+      if (generated.isEmpty()) {
+        throw new Exception("No identifiers generated for " + key);
+      }
+      synchronized (this) {
+        takenCounts.merge(key, 1L, Long::sum);
+      }
+      return generated.get(0);
+    }
+    while (true) {
+      synchronized (this) {
+        final ArrayDeque<String> queue =
+            ids.computeIfAbsent(key, k -> new ArrayDeque<>());
+        if (!queue.isEmpty()) {
+          final String id = queue.poll();
+          write("-\t" + id);
+          takenCounts.merge(key, 1L, Long::sum);
+          if (queue.size() < lowWater && refilling.add(key)) {
+            executor.submit(() -> refill(key, ns, partitionId));
+          }
+          return id;
+        }
+        waits++;
+      }
+      // Empty - generate a batch in this thread
+      add(key, generator.generate(ns, partitionId, batchSize));
+    }
+  }
+
+  /**
+   * Refills a pool in the background.
+   *
+   * @param key the key
+   * @param namespace the namespace
+   * @param partitionId the partition id
+   */
+  private void refill(String key, String namespace, String partitionId) {
+    try {
+      add(key, generator.generate(namespace, partitionId, batchSize));
+    } catch (Exception e) {
+      // takes will generate synchronously and surface the error
+      Logger.getLogger(getClass()).error(
+          "Unable to refill identifier pool " + name + " " + key, e);
+    } finally {
+      synchronized (this) {
+        refilling.remove(key);
+      }
+    }
+  }
+
+  /**
+   * Adds generated identifiers to a pool.
+   *
+   * @param key the key
+   * @param generated the generated identifiers
+   * @throws Exception the exception
+   */
+  private synchronized void add(String key, List<String> generated)
+    throws Exception {
+    if (generated.isEmpty()) {
+      throw new Exception("No identifiers generated for " + key);
+    }
+    for (final String id : generated) {
+      write("+\t" + key + "\t" + id);
+    }
+    ids.computeIfAbsent(key, k -> new ArrayDeque<>()).addAll(generated);
+    batches++;
+    Logger.getLogger(getClass()).debug("  Identifier pool " + name + " " + key
+        + " + " + generated.size() + " = " + ids.get(key).size());
+    compact();
+  }
+
+  /**
+   * Writes a journal line, flushed before returning.
+   *
+   * @param line the line
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void write(String line) throws IOException {
+    if (journal == null) {
+      return;
+    }
+    journal.write(line);
+    journal.newLine();
+    journal.flush();
+    journalLines++;
+  }
+
+  /**
+   * Locks the journal file for this process.
+   *
+   * @return true, if successful, false if it is locked elsewhere
+   * @throws Exception the exception
+   */
+  private boolean lock() throws Exception {
+    if (file.getParentFile() != null) {
+      file.getParentFile().mkdirs();
+    }
+    final FileChannel channel =
+        FileChannel.open(new File(file.getPath() + ".lock").toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    try {
+      lock = channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      // locked by another pool in this process
+      lock = null;
+    }
+    if (lock == null) {
+      channel.close();
+      Logger.getLogger(getClass()).warn("Identifier pool " + name + " - "
+          + file + " is in use by another process, generating on demand");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Closes the journal and releases its lock. Pooled identifiers stay in the
+   * journal for the next pool on the same file.
+   *
+   * @throws Exception the exception
+   */
+  public synchronized void close() throws Exception {
+    executor.shutdownNow();
+    if (journal != null) {
+      journal.close();
+      journal = null;
+    }
+    if (lock != null) {
+      lock.channel().close();
+      lock = null;
+    }
+    synchronized (pools) {
+      pools.remove(name, this);
+    }
+  }
+
+  /**
+   * Loads the pooled identifiers from the journal file.
+   *
+   * @throws Exception the exception
+   */
+  private void load() throws Exception {
+    if (file.exists()) {
+      final Map<String, String> keysById = new LinkedHashMap<>();
+      for (final String line : Files.readAllLines(file.toPath(),
+          StandardCharsets.UTF_8)) {
+        final String[] fields = line.split("\t");
+        if (fields.length == 3 && fields[0].equals("+")) {
+          keysById.put(fields[2], fields[1]);
+        } else if (fields.length == 2 && fields[0].equals("-")) {
+          keysById.remove(fields[1]);
+        }
+        // a partially written last line is ignored
+      }
+      for (final Map.Entry<String, String> entry : keysById.entrySet()) {
+        ids.computeIfAbsent(entry.getValue(), k -> new ArrayDeque<>())
+            .add(entry.getKey());
+      }
+      Logger.getLogger(getClass()).info("Identifier pool " + name + " - load "
+          + keysById.size() + " identifiers from " + file);
+    }
+    journalLines = Long.MAX_VALUE;
+    compact();
+  }
+
+  /**
+   * Rewrites the journal file with only the pooled identifiers, once most of
+   * its lines are obsolete.
+   *
+   * @throws Exception the exception
+   */
+  private void compact() throws Exception {
+    if (file == null || lock == null) {
+      return;
+    }
+    long pooled = 0;
+    for (final ArrayDeque<String> queue : ids.values()) {
+      pooled += queue.size();
+    }
+    if (journalLines < 2 * (pooled + batchSize)) {
+      return;
+    }
+    if (journal != null) {
+      journal.close();
+    }
+    final File tmp = new File(file.getPath() + ".tmp");
+    try (final BufferedWriter out = Files.newBufferedWriter(tmp.toPath(),
+        StandardCharsets.UTF_8)) {
+      for (final Map.Entry<String, ArrayDeque<String>> entry : ids
+          .entrySet()) {
+        for (final String id : entry.getValue()) {
+          out.write("+\t" + entry.getKey() + "\t" + id);
+          out.newLine();
+        }
+      }
+    }
+    Files.move(tmp.toPath(), file.toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    journal = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+        StandardOpenOption.APPEND);
+    journalLines = pooled;
+  }
+
+  /**
+   * Returns the statistics of this pool.
+   *
+   * @param list the list to add the statistics to
+   */
+  private synchronized void addStatistics(KeyValuePairList list) {
+    for (final Map.Entry<String, ArrayDeque<String>> entry : ids.entrySet()) {
+      list.addKeyValuePair(new KeyValuePair(
+          name + "." + entry.getKey() + ".depth",
+          String.valueOf(entry.getValue().size())));
+    }
+    for (final Map.Entry<String, Long> entry : takenCounts.entrySet()) {
+      list.addKeyValuePair(new KeyValuePair(
+          name + "." + entry.getKey() + ".taken",
+          String.valueOf(entry.getValue())));
+    }
+    list.addKeyValuePair(
+        new KeyValuePair(name + ".pooling", String.valueOf(pooling)));
+    list.addKeyValuePair(
+        new KeyValuePair(name + ".batches", String.valueOf(batches)));
+    list.addKeyValuePair(
+        new KeyValuePair(name + ".waits", String.valueOf(waits)));
+    list.addKeyValuePair(
+        new KeyValuePair(name + ".refilling", String.valueOf(refilling)));
+  }
+
+  /**
+   * Returns the depth, hand-out and batch statistics of all pools. Depth is
+   * reported as "[pool].[namespace]|[partitionId].depth".
+   *
+   * @return the pool statistics
+   */
+  public static KeyValuePairList getPoolStatistics() {
+    final KeyValuePairList list = new KeyValuePairList();
+    list.setName("identifierPools");
+    synchronized (pools) {
+      for (final IdentifierPool pool : pools.values()) {
+        pool.addStatistics(list);
+      }
+    }
+    return list;
+  }
+}
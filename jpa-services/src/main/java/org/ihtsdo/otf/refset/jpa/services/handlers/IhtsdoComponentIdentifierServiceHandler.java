@@ -3,6 +3,9 @@
  */
 package org.ihtsdo.otf.refset.jpa.services.handlers;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
 
@@ -15,6 +18,7 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status.Family;
 
+import org.apache.log4j.Logger;
 import org.ihtsdo.otf.refset.Refset;
 import org.ihtsdo.otf.refset.Translation;
 import org.ihtsdo.otf.refset.helpers.LocalException;
@@ -34,6 +38,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 /**
  * Implementation of {@link IdentifierAssignmentHandler} that interacts with the
  * IHTSDO component identifier service.
+ *
+ * Concept and description identifiers are generated in bulk batches of
+ * "poolBatchSize" into an {@link IdentifierPool}, refilled in the background
+ * below "poolLowWater" and journaled to "poolFile" if set. A batch size of 1
+ * generates each identifier on demand.
  */
 public class IhtsdoComponentIdentifierServiceHandler
     implements IdentifierAssignmentHandler {
@@ -50,8 +59,14 @@ public class IhtsdoComponentIdentifierServiceHandler
   /** The password. */
   private String password;
 
-  /** The auth token. */
-  private String authToken;
+  /** The auth token, also renewed by the pool refill thread. */
+  private volatile String authToken;
+
+  /** The identifier pool, null if identifiers are generated on demand. */
+  private IdentifierPool pool;
+
+  /** The max time to wait for a bulk job, in ms. */
+  private long bulkTimeout = 300000;
 
   /* see superclass */
   @Override
@@ -73,6 +88,20 @@ public class IhtsdoComponentIdentifierServiceHandler
       throw new Exception("Required property password not specified.");
     }
     authToken = login(userName, password);
+
+    final int batchSize =
+        Integer.parseInt(p.getProperty("poolBatchSize", "1").trim());
+    if (batchSize > 1) {
+      final int lowWater = Integer.parseInt(p
+          .getProperty("poolLowWater", String.valueOf(batchSize / 4)).trim());
+      final String poolFile = p.getProperty("poolFile", "").trim();
+      bulkTimeout = Long
+          .parseLong(p.getProperty("poolBulkTimeout", "300000").trim());
+      pool = new IdentifierPool("cis",
+          (namespace, partitionId, quantity) -> withLogin(
+              () -> generateTerminologyIds(namespace, partitionId, quantity)),
+          batchSize, lowWater, poolFile.isEmpty() ? null : new File(poolFile));
+    }
   }
 
   /* see superclass */
@@ -95,9 +124,8 @@ public class IhtsdoComponentIdentifierServiceHandler
           namespace = concept.getTranslation().getRefset().getNamespace();
         }
         // Obtain the ID
-        return getTerminologyId(namespace, (namespace != null
-            && !namespace.isEmpty() && !namespace.equals("0")) ? "10" : "00",
-            authToken);
+        return nextTerminologyId(namespace, (namespace != null
+            && !namespace.isEmpty() && !namespace.equals("0")) ? "10" : "00");
       } catch (Exception e) {
         if (tried) {
           failedException = e;
@@ -140,9 +168,8 @@ public class IhtsdoComponentIdentifierServiceHandler
               .getNamespace();
         }
         // Obtain the ID
-        return getTerminologyId(namespace, (namespace != null
-            && !namespace.isEmpty() && !namespace.equals("0")) ? "11" : "01",
-            authToken);
+        return nextTerminologyId(namespace, (namespace != null
+            && !namespace.isEmpty() && !namespace.equals("0")) ? "11" : "01");
       } catch (Exception e) {
         if (tried) {
           failedException = e;
@@ -258,6 +285,55 @@ public class IhtsdoComponentIdentifierServiceHandler
     return "IHTSDO Component Identifier Service handler";
   }
 
+  /**
+   * Returns the next terminology id, from the pool if there is one.
+   *
+   * @param namespace the namespace
+   * @param partitionId the partition id
+   * @return the terminology id
+   * @throws Exception the exception
+   */
+  private String nextTerminologyId(String namespace, String partitionId)
+    throws Exception {
+    if (pool != null) {
+      return pool.take(namespace, partitionId);
+    }
+    return getTerminologyId(namespace, partitionId, authToken);
+  }
+
+  /**
+   * A call to the identifier service.
+   *
+   * @param <T> the result type
+   */
+  private interface Call<T> {
+
+    /**
+     * Makes the call.
+     *
+     * @return the result
+     * @throws Exception the exception
+     */
+    public T call() throws Exception;
+  }
+
+  /**
+   * Makes a call, logging in again and retrying once if it fails.
+   *
+   * @param <T> the result type
+   * @param call the call
+   * @return the result
+   * @throws Exception the exception
+   */
+  private <T> T withLogin(Call<T> call) throws Exception {
+    try {
+      return call.call();
+    } catch (Exception e) {
+      authToken = login(userName, password);
+      return call.call();
+    }
+  }
+
   /**
    * Authenticate.
    *
@@ -352,4 +428,86 @@ public class IhtsdoComponentIdentifierServiceHandler
     JsonNode doc = mapper.readTree(resultString);
     return doc.get("sctid").asText();
   }
+
+  /**
+   * Generates terminology ids with a bulk job, waiting for it to finish.
+   *
+   * @param namespace the namespace, "0" for the international namespace
+   * @param partitionId the partition id
+   * @param quantity the quantity
+   * @return the terminology ids
+   * @throws Exception the exception
+   */
+  private List<String> generateTerminologyIds(String namespace,
+    String partitionId, int quantity) throws Exception {
+    final Client client = ClientBuilder.newClient();
+    try {
+      final String postData = "{ " + "\"namespace\": " + namespace + ", "
+          + "\"partitionId\": \"" + partitionId + "\", "
+          + "\"quantity\": " + quantity + ", " + "\"systemIds\": [], "
+          + "\"software\": \"ihtsdo-refset\", "
+          + "\"comment\": \"identifier pool\", "
+          + "\"generateLegacyIds\": \"false\" " + "}";
+      Response response =
+          client.target(url + "/sct/bulk/generate?token=" + authToken)
+              .request(accept).post(Entity.json(postData));
+      String resultString = response.readEntity(String.class);
+      if (response.getStatusInfo().getFamily() != Family.SUCCESSFUL) {
+        throw new LocalException(
+            "There was an unexpected failure of the identifier service."
+                + " It may be due to an incorrect or unsupported namespace id.  "
+                + response);
+      }
+      final ObjectMapper mapper = new ObjectMapper();
+      final String jobId = mapper.readTree(resultString).get("id").asText();
+
+      // Wait for the job: status 0 = pending, 1 = running, 2 = done, 3 = error
+      final long start = System.currentTimeMillis();
+      while (true) {
+        response = client
+            .target(url + "/bulk/jobs/" + jobId + "?token=" + authToken)
+            .request(accept).get();
+        resultString = response.readEntity(String.class);
+        if (response.getStatusInfo().getFamily() != Family.SUCCESSFUL) {
+          throw new LocalException(
+              "Unable to get identifier service bulk job " + jobId + ". "
+                  + response);
+        }
+        final JsonNode job = mapper.readTree(resultString);
+        final String status = job.get("status").asText();
+        if (status.equals("2")) {
+          break;
+        }
+        if (status.equals("3")) {
+          throw new LocalException("Identifier service bulk job " + jobId
+              + " failed. " + (job.has("log") ? job.get("log").asText() : ""));
+        }
+        if (System.currentTimeMillis() - start > bulkTimeout) {
+          throw new LocalException("Identifier service bulk job " + jobId
+              + " did not finish in " + bulkTimeout + "ms.");
+        }
+        Thread.sleep(500);
+      }
+
+      response = client
+          .target(url + "/bulk/jobs/" + jobId + "/records?token=" + authToken)
+          .request(accept).get();
+      resultString = response.readEntity(String.class);
+      if (response.getStatusInfo().getFamily() != Family.SUCCESSFUL) {
+        throw new LocalException(
+            "Unable to get identifier service bulk job records " + jobId
+                + ". " + response);
+      }
+      final List<String> ids = new ArrayList<>();
+      for (final JsonNode record : mapper.readTree(resultString)) {
+        ids.add(record.get("sctid").asText());
+      }
+      Logger.getLogger(getClass()).info("  Generate " + ids.size()
+          + " identifiers, namespace = " + namespace + ", partition = "
+          + partitionId + ", " + (System.currentTimeMillis() - start) + "ms");
+      return ids;
+    } finally {
+      client.close();
+    }
+  }
 }
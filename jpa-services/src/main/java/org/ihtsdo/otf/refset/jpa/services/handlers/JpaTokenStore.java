@@ -0,0 +1,161 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.jpa.services.handlers;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.AuthToken;
+import org.ihtsdo.otf.refset.jpa.AuthTokenJpa;
+import org.ihtsdo.otf.refset.jpa.services.SecurityServiceJpa;
+import org.ihtsdo.otf.refset.services.SecurityService;
+import org.ihtsdo.otf.refset.services.handlers.TokenStore;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Implementation of {@link TokenStore} that keeps tokens in the database, so
+ * all nodes sharing the database honor the same tokens.
+ *
+ * Tokens read from the database are kept in a local near-cache for
+ * "nearCacheTtl" ms, so a token removed (e.g. logged out) on another node may
+ * still be honored here for up to that long. Tokens that expired more than
+ * "purgeAge" ms ago are removed when tokens are added, at most once per
+ * "purgeInterval" ms.
+ */
+public class JpaTokenStore implements TokenStore {
+
+  /** The near cache. */
+  private Cache<String, AuthToken> nearCache;
+
+  /** The purge age. */
+  private long purgeAge = 86400000L;
+
+  /** The purge interval. */
+  private long purgeInterval = 3600000L;
+
+  /** The last purge time. */
+  private volatile long lastPurge = 0L;
+
+  /**
+   * Instantiates an empty {@link JpaTokenStore}.
+   */
+  public JpaTokenStore() {
+    // n/a
+  }
+
+  /* see superclass */
+  @Override
+  public void setProperties(Properties p) throws Exception {
+    final long nearCacheTtl =
+        Long.parseLong(p.getProperty("nearCacheTtl", "30000").trim());
+    final long maxEntries =
+        Long.parseLong(p.getProperty("maxEntries", "10000").trim());
+    purgeAge = Long.parseLong(p.getProperty("purgeAge", "86400000").trim());
+    purgeInterval =
+        Long.parseLong(p.getProperty("purgeInterval", "3600000").trim());
+    nearCache = CacheBuilder.newBuilder().maximumSize(maxEntries)
+        .expireAfterWrite(nearCacheTtl, TimeUnit.MILLISECONDS).build();
+  }
+
+  /* see superclass */
+  @Override
+  public String getName() {
+    return "JPA token store";
+  }
+
+  /* see superclass */
+  @Override
+  public void addToken(String token, String userName, Date expiration)
+    throws Exception {
+    final AuthToken authToken = new AuthTokenJpa();
+    authToken.setToken(token);
+    authToken.setUserName(userName);
+    authToken.setExpiration(expiration);
+    try (final SecurityService service = new SecurityServiceJpa()) {
+      service.addAuthToken(authToken);
+      purge(service);
+    }
+    nearCache.put(token, authToken);
+  }
+
+  /* see superclass */
+  @Override
+  public AuthToken getToken(String token) throws Exception {
+    AuthToken authToken = nearCache.getIfPresent(token);
+    if (authToken != null) {
+      return authToken;
+    }
+    try (final SecurityService service = new SecurityServiceJpa()) {
+      authToken = service.getAuthToken(token);
+    }
+    // unknown tokens are not cached, they may be added by another node
+    if (authToken != null) {
+      nearCache.put(token, authToken);
+    }
+    return authToken;
+  }
+
+  /* see superclass */
+  @Override
+  public void setExpiration(String token, Date expiration) throws Exception {
+    try (final SecurityService service = new SecurityServiceJpa()) {
+      final AuthToken authToken = service.getAuthToken(token);
+      if (authToken == null) {
+        nearCache.invalidate(token);
+        return;
+      }
+      authToken.setExpiration(expiration);
+      service.updateAuthToken(authToken);
+      nearCache.put(token, new AuthTokenJpa(authToken));
+    }
+  }
+
+  /* see superclass */
+  @Override
+  public void removeToken(String token) throws Exception {
+    nearCache.invalidate(token);
+    try (final SecurityService service = new SecurityServiceJpa()) {
+      final AuthToken authToken = service.getAuthToken(token);
+      if (authToken != null) {
+        service.removeAuthToken(authToken.getId());
+      }
+    }
+  }
+
+  /* see superclass */
+  @Override
+  public List<String> getTokensForUser(String userName) throws Exception {
+    final List<String> result = new ArrayList<>();
+    try (final SecurityService service = new SecurityServiceJpa()) {
+      for (final AuthToken authToken : service
+          .getAuthTokensForUser(userName)) {
+        result.add(authToken.getToken());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Removes tokens that expired more than the purge age ago, at most once per
+   * purge interval.
+   *
+   * @param service the security service
+   * @throws Exception the exception
+   */
+  private void purge(SecurityService service) throws Exception {
+    final long now = System.currentTimeMillis();
+    if (now - lastPurge < purgeInterval) {
+      return;
+    }
+    lastPurge = now;
+    final int ct = service.removeExpiredAuthTokens(new Date(now - purgeAge));
+    Logger.getLogger(getClass()).info("  Purge expired auth tokens = " + ct);
+  }
+}
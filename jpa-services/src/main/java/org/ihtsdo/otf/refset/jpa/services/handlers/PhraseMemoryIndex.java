@@ -0,0 +1,412 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.jpa.services.handlers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.MemoryEntry;
+import org.ihtsdo.otf.refset.PhraseMemory;
+
+/**
+ * In-memory index of the entries of a phrase memory, a character trie over the
+ * lowercase entry names. Supports exact, prefix and fuzzy (edit distance)
+ * lookup of names, ignoring case, in a single walk of the trie, without a
+ * database or Lucene query per phrase.
+ *
+ * Indexes are built on first use from the phrase memory entries and then kept
+ * current as entries are added, updated and removed through the translation
+ * service, once those changes are committed. An index is registered before it
+ * is built, so changes committed during the build wait for it and are applied
+ * after it.
+ */
+public class PhraseMemoryIndex {
+
+  /** The indexes by phrase memory id. */
+  private static final Map<Long, PhraseMemoryIndex> indexes =
+      new ConcurrentHashMap<>();
+
+  /** The empty ids. */
+  private static final long[] NO_IDS = new long[0];
+
+  /** The root node. */
+  private final Node root = new Node();
+
+  /** The entries by id, as { name, translatedName }. */
+  private final Map<Long, String[]> entries = new HashMap<>();
+
+  /** Whether the entries have been loaded. */
+  private boolean loaded = false;
+
+  /**
+   * Instantiates an empty {@link PhraseMemoryIndex}.
+   */
+  private PhraseMemoryIndex() {
+    // n/a
+  }
+
+  /**
+   * Returns the index for the phrase memory, building it from the entries on
+   * first use.
+   *
+   * @param phraseMemory the phrase memory
+   * @return the index
+   */
+  public static PhraseMemoryIndex getIndex(PhraseMemory phraseMemory) {
+    final PhraseMemoryIndex index = indexes
+        .computeIfAbsent(phraseMemory.getId(), id -> new PhraseMemoryIndex());
+    index.load(phraseMemory);
+    return index;
+  }
+
+  /**
+   * Loads the entries of the phrase memory, unless already loaded. Changes
+   * applied while loading wait for the index lock.
+   *
+   * @param phraseMemory the phrase memory
+   */
+  private synchronized void load(PhraseMemory phraseMemory) {
+    if (loaded) {
+      return;
+    }
+    final long start = System.currentTimeMillis();
+    try {
+      for (final MemoryEntry entry : phraseMemory.getEntries()) {
+        add(entry);
+      }
+    } catch (RuntimeException e) {
+      // let the next use build it again
+      indexes.remove(phraseMemory.getId(), this);
+      throw e;
+    }
+    loaded = true;
+    Logger.getLogger(PhraseMemoryIndex.class)
+        .info("Phrase memory index " + phraseMemory.getId() + " - "
+            + entries.size() + " entries, "
+            + (System.currentTimeMillis() - start) + " ms");
+  }
+
+  /**
+   * Indicates that an entry was added to a phrase memory.
+   *
+   * @param phraseMemoryId the phrase memory id
+   * @param entry the entry
+   */
+  public static void entryAdded(Long phraseMemoryId, MemoryEntry entry) {
+    final PhraseMemoryIndex index = getLoadedIndex(phraseMemoryId);
+    if (index != null) {
+      index.add(entry);
+    }
+  }
+
+  /**
+   * Indicates that an entry of a phrase memory was updated.
+   *
+   * @param phraseMemoryId the phrase memory id
+   * @param entry the entry
+   */
+  public static void entryUpdated(Long phraseMemoryId, MemoryEntry entry) {
+    final PhraseMemoryIndex index = getLoadedIndex(phraseMemoryId);
+    if (index != null) {
+      index.update(entry);
+    }
+  }
+
+  /**
+   * Indicates that an entry was removed from a phrase memory.
+   *
+   * @param phraseMemoryId the phrase memory id
+   * @param entryId the entry id
+   */
+  public static void entryRemoved(Long phraseMemoryId, Long entryId) {
+    final PhraseMemoryIndex index = getLoadedIndex(phraseMemoryId);
+    if (index != null) {
+      index.remove(entryId);
+    }
+  }
+
+  /**
+   * Indicates that a phrase memory was removed.
+   *
+   * @param phraseMemoryId the phrase memory id
+   */
+  public static void phraseMemoryRemoved(Long phraseMemoryId) {
+    indexes.remove(phraseMemoryId);
+  }
+
+  /**
+   * Returns the index of the phrase memory, if it has been built or is being
+   * built.
+   *
+   * @param phraseMemoryId the phrase memory id
+   * @return the index, or null
+   */
+  private static PhraseMemoryIndex getLoadedIndex(Long phraseMemoryId) {
+    return phraseMemoryId == null ? null : indexes.get(phraseMemoryId);
+  }
+
+  /**
+   * Replaces an entry.
+   *
+   * @param entry the entry
+   */
+  private synchronized void update(MemoryEntry entry) {
+    remove(entry.getId());
+    add(entry);
+  }
+
+  /**
+   * Adds an entry.
+   *
+   * @param entry the entry
+   */
+  private synchronized void add(MemoryEntry entry) {
+    if (entry.getId() == null || entry.getName() == null
+        || entries.containsKey(entry.getId())) {
+      return;
+    }
+    entries.put(entry.getId(), new String[] {
+        entry.getName(), entry.getTranslatedName()
+    });
+    final String key = entry.getName().toLowerCase();
+    Node node = root;
+    for (int i = 0; i < key.length(); i++) {
+      node = node.getOrAddChild(key.charAt(i));
+    }
+    node.ids = Arrays.copyOf(node.ids, node.ids.length + 1);
+    node.ids[node.ids.length - 1] = entry.getId();
+  }
+
+  /**
+   * Removes an entry. Nodes left without entries are kept; they are few and
+   * are reused if the name is added again.
+   *
+   * @param id the entry id
+   */
+  private synchronized void remove(Long id) {
+    final String[] entry = entries.remove(id);
+    if (entry == null) {
+      return;
+    }
+    final Node node = root.find(entry[0].toLowerCase());
+    if (node == null) {
+      return;
+    }
+    final long[] ids = new long[node.ids.length];
+    int ct = 0;
+    for (final long nodeId : node.ids) {
+      if (nodeId != id) {
+        ids[ct++] = nodeId;
+      }
+    }
+    node.ids = ct == 0 ? NO_IDS : Arrays.copyOf(ids, ct);
+  }
+
+  /**
+   * Returns the translated names of entries whose name is the phrase, ignoring
+   * case.
+   *
+   * @param phrase the phrase
+   * @return the translated names, in the order entries were added
+   */
+  public synchronized List<String> findExact(String phrase) {
+    final List<String> results = new ArrayList<>();
+    final Node node = root.find(phrase.toLowerCase());
+    if (node != null) {
+      for (final long id : node.ids) {
+        results.add(entries.get(id)[1]);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Returns the translated names of entries whose name starts with the phrase,
+   * ignoring case, shortest names first.
+   *
+   * @param phrase the phrase
+   * @param maxResults the max results
+   * @return the translated names
+   */
+  public synchronized List<String> findPrefix(String phrase, int maxResults) {
+    final List<String> results = new ArrayList<>();
+    final Node node = root.find(phrase.toLowerCase());
+    if (node == null) {
+      return results;
+    }
+    // breadth first, so the closest completions come first
+    List<Node> level = new ArrayList<>();
+    level.add(node);
+    while (!level.isEmpty() && results.size() < maxResults) {
+      final List<Node> next = new ArrayList<>();
+      for (final Node n : level) {
+        for (final long id : n.ids) {
+          if (results.size() < maxResults) {
+            results.add(entries.get(id)[1]);
+          }
+        }
+        next.addAll(Arrays.asList(n.children));
+      }
+      level = next;
+    }
+    return results;
+  }
+
+  /**
+   * Returns the translated names of entries whose name is within the max edit
+   * distance of the phrase, ignoring case, closest names first.
+   *
+   * @param phrase the phrase
+   * @param maxEdits the max edit (Levenshtein) distance
+   * @param maxResults the max results
+   * @return the translated names
+   */
+  public synchronized List<String> findFuzzy(String phrase, int maxEdits,
+    int maxResults) {
+    final String key = phrase.toLowerCase();
+    final int[] row = new int[key.length() + 1];
+    for (int i = 0; i < row.length; i++) {
+      row[i] = i;
+    }
+    // matching ids by distance
+    final List<List<Long>> matches = new ArrayList<>();
+    for (int i = 0; i <= maxEdits; i++) {
+      matches.add(new ArrayList<>());
+    }
+    if (row[key.length()] <= maxEdits) {
+      addIds(matches.get(row[key.length()]), root);
+    }
+    for (int i = 0; i < root.labels.length; i++) {
+      findFuzzy(root.children[i], root.labels[i], key, row, maxEdits,
+          matches);
+    }
+    final List<String> results = new ArrayList<>();
+    for (final List<Long> ids : matches) {
+      for (final Long id : ids) {
+        if (results.size() == maxResults) {
+          return results;
+        }
+        results.add(entries.get(id)[1]);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Computes the next row of edit distances for a node and descends into its
+   * children while any distance in the row is within the max edits.
+   *
+   * @param node the node
+   * @param label the character leading to the node
+   * @param key the lowercase phrase
+   * @param previous the previous row
+   * @param maxEdits the max edits
+   * @param matches the matching ids by distance
+   */
+  private void findFuzzy(Node node, char label, String key, int[] previous,
+    int maxEdits, List<List<Long>> matches) {
+    final int[] row = new int[previous.length];
+    row[0] = previous[0] + 1;
+    int min = row[0];
+    for (int i = 1; i < row.length; i++) {
+      final int cost = key.charAt(i - 1) == label ? 0 : 1;
+      row[i] = Math.min(Math.min(row[i - 1] + 1, previous[i] + 1),
+          previous[i - 1] + cost);
+      min = Math.min(min, row[i]);
+    }
+    if (row[key.length()] <= maxEdits) {
+      addIds(matches.get(row[key.length()]), node);
+    }
+    if (min <= maxEdits) {
+      for (int i = 0; i < node.labels.length; i++) {
+        findFuzzy(node.children[i], node.labels[i], key, row, maxEdits,
+            matches);
+      }
+    }
+  }
+
+  /**
+   * Adds the ids of a node to a list.
+   *
+   * @param list the list
+   * @param node the node
+   */
+  private static void addIds(List<Long> list, Node node) {
+    for (final long id : node.ids) {
+      list.add(id);
+    }
+  }
+
+  /**
+   * Returns the number of entries.
+   *
+   * @return the size
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * A trie node. Children are kept in parallel arrays sorted by label.
+   */
+  private static final class Node {
+
+    /** The child labels, sorted. */
+    char[] labels = new char[0];
+
+    /** The children, in label order. */
+    Node[] children = new Node[0];
+
+    /** The ids of entries whose name ends at this node. */
+    long[] ids = NO_IDS;
+
+    /**
+     * Returns the child for the label, adding it if absent.
+     *
+     * @param label the label
+     * @return the child
+     */
+    Node getOrAddChild(char label) {
+      final int index = Arrays.binarySearch(labels, label);
+      if (index >= 0) {
+        return children[index];
+      }
+      final int insert = -index - 1;
+      final Node child = new Node();
+      final char[] newLabels = new char[labels.length + 1];
+      final Node[] newChildren = new Node[children.length + 1];
+      System.arraycopy(labels, 0, newLabels, 0, insert);
+      System.arraycopy(children, 0, newChildren, 0, insert);
+      newLabels[insert] = label;
+      newChildren[insert] = child;
+      System.arraycopy(labels, insert, newLabels, insert + 1,
+          labels.length - insert);
+      System.arraycopy(children, insert, newChildren, insert + 1,
+          children.length - insert);
+      labels = newLabels;
+      children = newChildren;
+      return child;
+    }
+
+    /**
+     * Returns the node reached by the key, or null.
+     *
+     * @param key the key
+     * @return the node
+     */
+    Node find(String key) {
+      Node node = this;
+      for (int i = 0; i < key.length() && node != null; i++) {
+        final int index = Arrays.binarySearch(node.labels, key.charAt(i));
+        node = index >= 0 ? node.children[index] : null;
+      }
+      return node;
+    }
+  }
+}
@@ -18,7 +18,6 @@ import java.util.Map;
 import java.util.Properties;
 
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.client.WebTarget;
@@ -145,7 +144,7 @@ public class SnowowlTerminologyHandler extends AbstractTerminologyHandler {
   @Override
   public boolean test(String terminology, String version) throws Exception {
     final String localVersion = version == null ? "MAIN" : version;
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
     final WebTarget target = client.target(url + "/branches/" + localVersion);
     
     final Response response =
@@ -221,7 +220,7 @@ public class SnowowlTerminologyHandler extends AbstractTerminologyHandler {
     final List<Terminology> result = new ArrayList<>();
 
     // Make a webservice call to SnowOwl to get branches
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     PfsParameter localPfs = new PfsParameterJpa();
     localPfs.setStartIndex(0);
@@ -293,7 +292,7 @@ public class SnowowlTerminologyHandler extends AbstractTerminologyHandler {
   public List<Terminology> getTerminologyVersions(String edition,
     Boolean showFutureVersions) throws Exception {
     // Make a webservice call to SnowOwl to get branches
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     PfsParameter localPfs = new PfsParameterJpa();
     localPfs.setStartIndex(0);
@@ -352,7 +351,7 @@ public class SnowowlTerminologyHandler extends AbstractTerminologyHandler {
     Logger.getLogger(getClass()).info(
         "  get potential current concepts for retired concept - " + conceptId);
     // Make a webservice call to SnowOwl to get concept
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     WebTarget target = client.target(
         url + "/" + version + "/concepts/" + conceptId + "?expand=members()");
@@ -481,7 +480,7 @@ public class SnowowlTerminologyHandler extends AbstractTerminologyHandler {
         "  get required language refsets  - " + terminology + ", " + version);
     // Make a webservice call to SnowOwl to get branch and its required
     // languages
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     WebTarget target = client.target(url + "/branches/" + version);
 
@@ -601,7 +600,7 @@ public class SnowowlTerminologyHandler extends AbstractTerminologyHandler {
     Logger.getLogger(getClass()).info("  resolve expression - " + terminology
         + ", " + version + ", " + expr + ", " + pfs);
     // Make a webservice call to SnowOwl to get concept
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     PfsParameter localPfs = pfs;
     if (localPfs == null) {
@@ -919,7 +918,7 @@ public class SnowowlTerminologyHandler extends AbstractTerminologyHandler {
         "  expression count - " + terminology + ", " + version + ", " + expr);
 
     // Make a webservice call to SnowOwl to get concept
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     WebTarget target = client.target(url + "/" + version + "/concepts?ecl="
         + URLEncoder.encode(expr, "UTF-8").replaceAll(" ", "%20") + "&limit=1");
@@ -968,7 +967,7 @@ public class SnowowlTerminologyHandler extends AbstractTerminologyHandler {
     // TODO resolve this date conversion 20150131 -> 2015-01-31
     // version = "MAIN/2015-01-31";
     // Make a webservice call to SnowOwl to get concept
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
     final WebTarget target = client
         .target(url + "/browser/" + version + "/concepts/" + terminologyId);
 
@@ -1263,7 +1262,7 @@ public class SnowowlTerminologyHandler extends AbstractTerminologyHandler {
 
     final ConceptList conceptList = new ConceptListJpa();
     // Make a webservice call to browser api
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     PfsParameter localPfs = pfs;
     if (localPfs == null) {
@@ -1457,7 +1456,7 @@ public class SnowowlTerminologyHandler extends AbstractTerminologyHandler {
     final ConceptList conceptList = new ConceptListJpa();
 
     // Make a webservice call to SnowOwl
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
     final WebTarget target = client.target(url + "/browser/" + version
         + "/concepts/" + terminologyId + "/parents");
     final Response response =
@@ -1532,7 +1531,7 @@ public class SnowowlTerminologyHandler extends AbstractTerminologyHandler {
 
     final ConceptList conceptList = new ConceptListJpa();
     // Make a webservice call to SnowOwl
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
     final WebTarget target = client.target(url + "/browser/" + version
         + "/concepts/" + terminologyId + "/children?form=inferred");
     final Response response =
@@ -1651,7 +1650,7 @@ public class SnowowlTerminologyHandler extends AbstractTerminologyHandler {
     Logger.getLogger(getClass())
         .info("  get languages - " + url + ", " + terminology + ", " + version);
     // Make a webservice call to SnowOwl to get concept
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     PfsParameter localPfs = new PfsParameterJpa();
     localPfs.setStartIndex(0);
@@ -1742,7 +1741,7 @@ public class SnowowlTerminologyHandler extends AbstractTerminologyHandler {
 	    Logger.getLogger(getClass())
         .info("  get branches - " + url + ", " + terminology + ", " + version);
     // Make a webservice call to SnowOwl to get branches
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     PfsParameter localPfs = new PfsParameterJpa();
     localPfs.setStartIndex(0);
@@ -1820,17 +1819,20 @@ public class SnowowlTerminologyHandler extends AbstractTerminologyHandler {
     final String imsUrl = ConfigUtility.getConfigProperties()
         .getProperty("generic.user.authenticationUrl");
 
-    Client client = ClientBuilder.newClient();
+    Client client = getClient();
     WebTarget target = client.target(imsUrl + "/authenticate");
     Builder builder = target.request(MediaType.APPLICATION_JSON);
     
     Response response = builder.post(Entity.json("{ \"login\": \"" + userName
         + "\", \"password\": \"" + password + "\" }"));    
     if (response.getStatusInfo().getFamily() != Family.SUCCESSFUL) {
+      response.close();
       throw new LocalException(
           "Authentication of generic user failed. " + response.toString());
     }
     Map<String, NewCookie> genericUserCookies = response.getCookies();
+    // Release the pooled connection
+    response.close();
     StringBuilder sb = new StringBuilder();
     for(String key : genericUserCookies.keySet()){
       sb.append(genericUserCookies.get(key));
@@ -1847,7 +1849,7 @@ public class SnowowlTerminologyHandler extends AbstractTerminologyHandler {
     Logger.getLogger(getClass())
         .info("  get translation extensions languages from branches - " + url);
     // Make a webservice call to Snowowl to get branches and languages
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     final List<TranslationExtensionLanguage> translationExtensionLanguageList =
         new ArrayList<>();
@@ -19,7 +19,6 @@ import java.util.Map.Entry;
 import java.util.Properties;
 
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.client.WebTarget;
@@ -151,6 +150,12 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
   /** The max batch lookup size. */
   private int maxBatchLookupSize = 100;
 
+  /**
+   * The page size used when resolving expressions. Snowstorm allows up to
+   * 10000, larger pages mean far fewer round trips for large refsets.
+   */
+  private int resolvePageSize = 1000;
+
   /**
    * Copy.
    *
@@ -163,6 +168,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
     final SnowstormTerminologyHandler handler = new SnowstormTerminologyHandler();
     handler.defaultUrl = this.defaultUrl;
     handler.authHeader = this.authHeader;
+    handler.resolvePageSize = this.resolvePageSize;
     handler.setApiKey(getApiKey());
     return handler;
   }
@@ -178,7 +184,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
   /* see superclass */
   @Override
   public boolean test(String terminology, String version) throws Exception {
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
     final WebTarget target = client.target(url + "/branches/" + (version == null ? "" : version));
 
     final Response response =
@@ -225,6 +231,10 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
     if (p.containsKey("apiKey")) {
       setApiKey(p.getProperty("apiKey"));
     }
+    if (p.containsKey("resolvePageSize")) {
+      resolvePageSize =
+          Math.min(10000, Integer.parseInt(p.getProperty("resolvePageSize")));
+    }
 
   }
 
@@ -267,7 +277,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
     final List<Terminology> result = new ArrayList<Terminology>();
 
     // Make a webservice call
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
     Logger.getLogger(getClass()).debug("  Get terminology editions - " + url + "/codesystems");
     final WebTarget target = client.target(url + "/codesystems");
     final Response response = target.request(accept).header(AUTHORIZATION, authHeader)
@@ -319,7 +329,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
     throws Exception {
     final List<Terminology> list = new ArrayList<Terminology>();
     // Make a webservice call to get codesystems
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
     Logger.getLogger(getClass()).debug("  Get terminology versions - " + url + "/codesystems/"
         + edition + "/versions" + (showFutureVersions ? "?showFutureVersions=true" : ""));
     WebTarget target = client.target(url + "/codesystems/" + edition + "/versions"
@@ -434,7 +444,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
     Logger.getLogger(getClass())
         .info("  get potential current concepts for retired concept - " + conceptId);
     // Make a webservice call to SnowOwl to get concept
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     WebTarget target = client.target(url + "/browser/" + version + "/concepts/" + conceptId);
 
@@ -538,7 +548,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
     Logger.getLogger(getClass())
         .info("  resolve expression - " + terminology + ", " + version + ", " + expr + ", " + pfs);
     // Make a webservice call to SnowOwl to get concept
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     final StringBuilder lookupErrors = new StringBuilder();
 
@@ -554,10 +564,9 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
       localPfs.setMaxResults(Integer.MAX_VALUE);
     }
 
-    // Start by just getting first 200, then check how many remaining ones there
-    // are
-    // and make a second call if needed
-    final int initialMaxLimit = 200;
+    // Start by just getting the first page, then check how many remaining ones
+    // there are and page through the rest if needed
+    final int initialMaxLimit = resolvePageSize;
 
     String targetUri = url + "/" + version + "/concepts?ecl="
         + URLEncoder.encode(expr, UTF8).replaceAll(" ", "%20") + LIMIT_EQUALS_MESSAGE
@@ -630,12 +639,12 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
      */
 
     ConceptList conceptList = new ConceptListJpa();
-    ObjectMapper mapper = new ObjectMapper();
+    final ObjectMapper mapper = new ObjectMapper();
     JsonNode doc = mapper.readTree(resultString);
 
     // get total amount
     final int total = doc.get("total").asInt();
-    // Get concepts returned in this call (up to 200)
+    // Get concepts returned in this call (up to a page)
     if (doc.get("items") == null) {
       return conceptList;
     }
@@ -685,9 +694,9 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
     while (total > initialMaxLimit && localPfs.getMaxResults() > initialMaxLimit
         && conceptList.getCount() < total) {
 
-      targetUri =
-          url + "/" + version + "/concepts?ecl=" + URLEncoder.encode(expr, UTF8) + "&limit=200"
-          /* + (total - initialMaxLimit) */ + "&searchAfter=" + searchAfter + "&expand=pt()";
+      targetUri = url + "/" + version + "/concepts?ecl=" + URLEncoder.encode(expr, UTF8)
+          + LIMIT_EQUALS_MESSAGE + resolvePageSize + "&searchAfter=" + searchAfter
+          + "&expand=pt()";
 
       target = client.target(targetUri);
       Logger.getLogger(getClass()).info(targetUri);
@@ -715,10 +724,8 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
         throw new LocalException(
             UNEXPECTED_TERMINOLOGY_SERVER_FAILURE_MESSAGE + resultString);
       }
-      mapper = new ObjectMapper();
       doc = mapper.readTree(resultString);
-      // get total amount
-      // Get concepts returned in this call (up to 200)
+      // Get concepts returned in this call (up to a page)
       if (doc.get("items") == null) {
         return conceptList;
       }
@@ -788,7 +795,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
         .info("  expression count - " + terminology + ", " + version + ", " + expr);
 
     // Make a webservice call to SnowOwl to get concept
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     WebTarget target = client.target(url + "/" + version + "/concepts?ecl="
         + URLEncoder.encode(expr, UTF8).replaceAll(" ", "%20") + "&limit=1");
@@ -843,7 +850,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
     // TODO resolve this date conversion 20150131 -> 2015-01-31
     // version = "MAIN/2015-01-31";
     // Make a webservice call to Snowstorm to get concept
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     final StringBuilder lookupErrors = new StringBuilder();
 
@@ -1145,7 +1152,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
     }
 
     // Make a webservice call to SnowOwl to get concept
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     final StringBuilder lookupErrors = new StringBuilder();
 
@@ -1288,7 +1295,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
     if (descriptions) {
 
       // Make a webservice call to SnowOwl to get concept
-      final Client client = ClientBuilder.newClient();
+      final Client client = getClient();
 
       PfsParameter localPfs = new PfsParameterJpa();
 
@@ -1908,7 +1915,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
             }
           }
 
-          final Client client = ClientBuilder.newClient();
+          final Client client = getClient();
 
           String targetUri =
               url + "/" + version + "/concepts?" + query + LIMIT_EQUALS_MESSAGE + maxBatchLookupSize;
@@ -2086,7 +2093,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
 
     final ConceptList conceptList = new ConceptListJpa();
     // Make a webservice call to browser api
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     final StringBuilder lookupErrors = new StringBuilder();
 
@@ -2347,7 +2354,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
     final ConceptList conceptList = new ConceptListJpa();
 
     // Make a webservice call to SnowOwl
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
     final WebTarget target =
         client.target(url + "/browser/" + version + "/concepts/" + terminologyId + "/parents");
     final Response response = target.request(accept).header(AUTHORIZATION, authHeader)
@@ -2429,7 +2436,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
 
     final ConceptList conceptList = new ConceptListJpa();
     // Make a webservice call to SnowOwl
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
     final WebTarget target = client.target(
         url + "/browser/" + version + "/concepts/" + terminologyId + "/children?form=inferred");
     final Response response = target.request(accept).header(AUTHORIZATION, authHeader)
@@ -2568,7 +2575,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
     Logger.getLogger(getClass())
         .info("  get languages - " + url + ", " + terminology + ", " + version);
     // Make a webservice call to SnowOwl to get concept
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     PfsParameter localPfs = new PfsParameterJpa();
     localPfs.setStartIndex(0);
@@ -2638,7 +2645,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
     Logger.getLogger(getClass())
         .info("  get branches - " + url + ", " + terminology + ", " + version);
     // Make a webservice call to get branches
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     PfsParameter localPfs = new PfsParameterJpa();
     localPfs.setStartIndex(0);
@@ -2699,7 +2706,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
     Logger.getLogger(getClass())
         .info("  get translation extensions languages from branches - " + url);
     // Make a webservice call to SnowStorm to get branches and languages
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
 
     final List<TranslationExtensionLanguage> translationExtensionLanguageList = new ArrayList<>();
 
@@ -2786,7 +2793,7 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
     // Make a webservice call to SnowStorm to get branch and its required
     // languages
 
-    final Client client = ClientBuilder.newClient();
+    final Client client = getClient();
     final WebTarget target = client.target(url + "/codesystems/" + terminology);
     final Response response = target.request(accept).header(AUTHORIZATION, authHeader)
         .header(ACCEPT_LANGUAGE, DEFAULT_ACCEPT_LANGUAGE).header(COOKIE,
@@ -2939,16 +2946,19 @@ public class SnowstormTerminologyHandler extends AbstractTerminologyHandler {
     final String imsUrl =
         ConfigUtility.getConfigProperties().getProperty("generic.user.authenticationUrl");
 
-    Client client = ClientBuilder.newClient();
+    Client client = getClient();
     WebTarget target = client.target(imsUrl + "/authenticate");
     Builder builder = target.request(MediaType.APPLICATION_JSON);
 
     Response response = builder.post(
         Entity.json("{ \"login\": \"" + userName + "\", \"password\": \"" + password + "\" }"));
     if (response.getStatusInfo().getFamily() != Family.SUCCESSFUL) {
+      response.close();
       throw new LocalException("Authentication of generic user failed. " + response.toString());
     }
     Map<String, NewCookie> genericUserCookies = response.getCookies();
+    // Release the pooled connection
+    response.close();
     StringBuilder sb = new StringBuilder();
     for (String key : genericUserCookies.keySet()) {
       sb.append(genericUserCookies.get(key));
@@ -0,0 +1,341 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.jpa.services.handlers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.Translation;
+import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+import org.ihtsdo.otf.refset.jpa.services.TranslationServiceJpa;
+import org.ihtsdo.otf.refset.services.handlers.SpellingCorrectionHandler;
+
+/**
+ * Bounded pool of spelling correction handlers, one per translation, each
+ * holding an open spell checker index. Handlers are leased for the duration of
+ * a call; when more than "maxSize" are open the least recently used is
+ * closed, as soon as no call holds a lease on it. A handler for a translation
+ * is not opened while an evicted one for the same translation is still open,
+ * as both would contend for the same index directory.
+ *
+ * If "warmUp" is set, handlers for translations with tracking records (i.e.
+ * open editing work) are opened in the background when the pool is created.
+ */
+public class SpellingCorrectionHandlerPool {
+
+  /** The instance. */
+  private static SpellingCorrectionHandlerPool instance;
+
+  /** The handlers by translation id, in access order. */
+  private final LinkedHashMap<Long, Entry> entries =
+      new LinkedHashMap<>(16, 0.75f, true);
+
+  /** The evicted handlers not yet closed, by translation id. */
+  private final Map<Long, Entry> closing = new HashMap<>();
+
+  /** The max open handlers. */
+  private final int maxSize;
+
+  /** The opener. */
+  private final Opener opener;
+
+  /**
+   * Opens handlers.
+   */
+  public interface Opener {
+
+    /**
+     * Opens the handler for a translation.
+     *
+     * @param translation the translation
+     * @return the handler
+     * @throws Exception the exception
+     */
+    public SpellingCorrectionHandler open(Translation translation)
+      throws Exception;
+  }
+
+  /**
+   * Instantiates a {@link SpellingCorrectionHandlerPool} from the specified
+   * parameters.
+   *
+   * @param maxSize the max open handlers
+   * @param opener the opener
+   */
+  public SpellingCorrectionHandlerPool(int maxSize, Opener opener) {
+    this.maxSize = Math.max(1, maxSize);
+    this.opener = opener;
+  }
+
+  /**
+   * Returns the pool, creating it from the "spelling.pool.*" config properties
+   * on first use.
+   *
+   * @return the pool
+   * @throws Exception the exception
+   */
+  public static synchronized SpellingCorrectionHandlerPool getInstance()
+    throws Exception {
+    if (instance == null) {
+      final Properties config = ConfigUtility.getConfigProperties();
+      final int maxSize = Integer
+          .parseInt(config.getProperty("spelling.pool.maxSize", "50").trim());
+      final boolean warmUp = Boolean.parseBoolean(
+          config.getProperty("spelling.pool.warmUp", "false").trim());
+      instance = new SpellingCorrectionHandlerPool(maxSize,
+          SpellingCorrectionHandlerPool::openConfiguredHandler);
+      Logger.getLogger(SpellingCorrectionHandlerPool.class).info(
+          "Spelling correction handler pool - maxSize = " + maxSize
+              + ", warmUp = " + warmUp);
+      if (warmUp) {
+        final Thread thread = new Thread(instance::warmUp, "spelling-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Opens the "spelling.handler" configured handler for a translation.
+   *
+   * @param translation the translation
+   * @return the handler
+   * @throws Exception the exception
+   */
+  private static SpellingCorrectionHandler openConfiguredHandler(
+    Translation translation) throws Exception {
+    final String key = "spelling.handler";
+    if (!ConfigUtility.getConfigProperties().containsKey(key)) {
+      throw new Exception(
+          "Unable to find spelling.handler configuration, serious error.");
+    }
+    final String handlerName =
+        ConfigUtility.getConfigProperties().getProperty(key);
+    final SpellingCorrectionHandler handler =
+        ConfigUtility.newStandardHandlerInstanceWithConfiguration(key,
+            handlerName, SpellingCorrectionHandler.class);
+    handler.setTranslation(translation);
+    return handler;
+  }
+
+  /**
+   * Leases the handler for the translation, opening it if necessary. If an
+   * evicted handler for the translation is still leased, waits until it is
+   * closed first. The lease must be closed when the call is done with the
+   * handler.
+   *
+   * @param translation the translation
+   * @return the lease
+   * @throws Exception the exception
+   */
+  public Lease acquire(Translation translation) throws Exception {
+    final List<Entry> evicted = new ArrayList<>();
+    final Entry entry;
+    synchronized (this) {
+      while (closing.containsKey(translation.getId())) {
+        wait();
+      }
+      Entry existing = entries.get(translation.getId());
+      if (existing == null) {
+        existing = new Entry(translation.getId(), opener.open(translation));
+        entries.put(translation.getId(), existing);
+        evict(evicted);
+      }
+      existing.leases++;
+      entry = existing;
+    }
+    close(evicted);
+    return new Lease(entry);
+  }
+
+  /**
+   * Removes the handler for the translation, e.g. when the translation is
+   * removed. It is closed once no call holds a lease on it.
+   *
+   * @param translationId the translation id
+   * @throws Exception the exception
+   */
+  public void remove(Long translationId) throws Exception {
+    final List<Entry> evicted = new ArrayList<>();
+    synchronized (this) {
+      final Entry entry = entries.remove(translationId);
+      if (entry != null) {
+        evict(entry, evicted);
+      }
+    }
+    close(evicted);
+  }
+
+  /**
+   * Removes the least recently used handlers while more than max size are
+   * open. Handlers without leases are returned to be closed; the others are
+   * closed when their last lease is released.
+   *
+   * @param evicted the handlers to close
+   */
+  private void evict(List<Entry> evicted) {
+    final Iterator<Entry> iter = entries.values().iterator();
+    while (entries.size() > maxSize && iter.hasNext()) {
+      final Entry entry = iter.next();
+      iter.remove();
+      evict(entry, evicted);
+    }
+  }
+
+  /**
+   * Marks a handler removed from the pool as evicted, returning it to be
+   * closed if it has no leases. Until it is closed, its translation cannot be
+   * acquired.
+   *
+   * @param entry the entry
+   * @param evicted the handlers to close
+   */
+  private void evict(Entry entry, List<Entry> evicted) {
+    entry.evicted = true;
+    closing.put(entry.translationId, entry);
+    if (entry.leases == 0) {
+      evicted.add(entry);
+    }
+  }
+
+  /**
+   * Releases a lease, returning whether the handler should now be closed.
+   *
+   * @param entry the entry
+   * @return true, if the handler should be closed
+   */
+  synchronized boolean release(Entry entry) {
+    entry.leases--;
+    return entry.evicted && entry.leases == 0;
+  }
+
+  /**
+   * Closes handlers, outside the pool lock, then lets waiting acquires of
+   * their translations proceed.
+   *
+   * @param evicted the handlers
+   */
+  private void close(List<Entry> evicted) {
+    for (final Entry entry : evicted) {
+      try {
+        entry.handler.close();
+      } catch (Exception e) {
+        Logger.getLogger(getClass()).warn(
+            "Unable to close spelling handler for " + entry.translationId, e);
+      }
+      Logger.getLogger(getClass())
+          .debug("  Close spelling handler " + entry.translationId);
+      synchronized (this) {
+        closing.remove(entry.translationId, entry);
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Opens handlers for translations with open editing work, up to max size.
+   */
+  private void warmUp() {
+    try (final TranslationServiceJpa translationService =
+        new TranslationServiceJpa()) {
+      @SuppressWarnings("unchecked")
+      final List<Long> ids = translationService.getEntityManager()
+          .createQuery("select distinct a.translation.id "
+              + "from TrackingRecordJpa a where a.translation is not null")
+          .setMaxResults(maxSize).getResultList();
+      for (final Long id : ids) {
+        final Translation translation = translationService.getTranslation(id);
+        if (translation != null) {
+          acquire(translation).close();
+        }
+      }
+      Logger.getLogger(getClass())
+          .info("Spelling correction handler pool - warm up " + ids.size()
+              + " translations");
+    } catch (Exception e) {
+      Logger.getLogger(getClass())
+          .error("Unable to warm up spelling correction handlers", e);
+    }
+  }
+
+  /**
+   * A pooled handler.
+   */
+  private static final class Entry {
+
+    /** The translation id. */
+    final Long translationId;
+
+    /** The handler. */
+    final SpellingCorrectionHandler handler;
+
+    /** The number of leases. */
+    int leases = 0;
+
+    /** The evicted flag. */
+    boolean evicted = false;
+
+    /**
+     * Instantiates an {@link Entry} from the specified parameters.
+     *
+     * @param translationId the translation id
+     * @param handler the handler
+     */
+    Entry(Long translationId, SpellingCorrectionHandler handler) {
+      this.translationId = translationId;
+      this.handler = handler;
+    }
+  }
+
+  /**
+   * A lease on a pooled handler, closed to release it.
+   */
+  public final class Lease implements AutoCloseable {
+
+    /** The entry. */
+    private final Entry entry;
+
+    /** The released flag. */
+    private boolean released = false;
+
+    /**
+     * Instantiates a {@link Lease} from the specified parameters.
+     *
+     * @param entry the entry
+     */
+    Lease(Entry entry) {
+      this.entry = entry;
+    }
+
+    /**
+     * Returns the handler.
+     *
+     * @return the handler
+     */
+    public SpellingCorrectionHandler getHandler() {
+      return entry.handler;
+    }
+
+    /* see superclass */
+    @Override
+    public void close() {
+      if (released) {
+        return;
+      }
+      released = true;
+      if (release(entry)) {
+        final List<Entry> evicted = new ArrayList<>();
+        evicted.add(entry);
+        SpellingCorrectionHandlerPool.this.close(evicted);
+      }
+    }
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.jpa.services.handlers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+import org.ihtsdo.otf.refset.helpers.TranslationExtensionLanguage;
+import org.ihtsdo.otf.refset.helpers.TranslationSuggestion;
+import org.ihtsdo.otf.refset.helpers.TranslationSuggestionImpl;
+import org.ihtsdo.otf.refset.helpers.TranslationSuggestionList;
+import org.ihtsdo.otf.refset.rf2.Concept;
+import org.ihtsdo.otf.refset.rf2.Description;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Finds translation suggestions for a concept, i.e. its non-English
+ * descriptions in the translation extension branches of a project.
+ *
+ * Branches are looked up concurrently, each call waiting at most "timeout" ms;
+ * lookups that are still running complete in the background. Suggestions are
+ * cached per branch and concept, so concepts of an author's worklist can be
+ * prefetched before they are opened.
+ */
+public class TranslationSuggestionFinder {
+
+  /** The instance. */
+  private static TranslationSuggestionFinder instance;
+
+  /** The suggestions by "[branch]|[conceptId]". */
+  private final Cache<String, List<TranslationSuggestion>> cache;
+
+  /** The lookup executor. */
+  private final ExecutorService executor;
+
+  /** The prefetch executor. */
+  private final ExecutorService prefetchExecutor;
+
+  /** The "[branch]|[conceptId]" keys queued or running for prefetch. */
+  private final Set<String> prefetching = ConcurrentHashMap.newKeySet();
+
+  /** The timeout. */
+  private final long timeout;
+
+  /** The terminology handler. */
+  private final SnowstormTerminologyHandler handler;
+
+  /**
+   * Instantiates a {@link TranslationSuggestionFinder} from the config
+   * properties.
+   *
+   * @param config the config properties
+   * @throws Exception the exception
+   */
+  private TranslationSuggestionFinder(Properties config) throws Exception {
+    final int threads = Integer.parseInt(
+        config.getProperty("translation.suggestion.threads", "8").trim());
+    final int prefetchThreads = Integer.parseInt(config
+        .getProperty("translation.suggestion.prefetchThreads", "2").trim());
+    timeout = Long.parseLong(
+        config.getProperty("translation.suggestion.timeout", "5000").trim());
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(Long.parseLong(config
+            .getProperty("translation.suggestion.cache.maxEntries", "100000")
+            .trim()))
+        .expireAfterWrite(Long.parseLong(config
+            .getProperty("translation.suggestion.cache.ttl", "3600000").trim()),
+            TimeUnit.MILLISECONDS)
+        .build();
+    executor = newExecutor(threads, "translation-suggestion");
+    prefetchExecutor =
+        newExecutor(prefetchThreads, "translation-suggestion-prefetch");
+
+    // force to snowstorm
+    handler = new SnowstormTerminologyHandler();
+    handler.setUrl(
+        config.getProperty("terminology.handler.PUBLIC-BROWSER.defaultUrl"));
+    handler.setApiKey(
+        config.getProperty("terminology.handler.PUBLIC-BROWSER.apiKey"));
+    Logger.getLogger(getClass())
+        .info("Translation suggestion finder - threads = " + threads
+            + ", prefetchThreads = " + prefetchThreads + ", timeout = "
+            + timeout + "ms");
+  }
+
+  /**
+   * Returns the finder, creating it on first use.
+   *
+   * @return the finder
+   * @throws Exception the exception
+   */
+  public static synchronized TranslationSuggestionFinder getInstance()
+    throws Exception {
+    if (instance == null) {
+      instance =
+          new TranslationSuggestionFinder(ConfigUtility.getConfigProperties());
+    }
+    return instance;
+  }
+
+  /**
+   * Returns the translation suggestions for a concept, in branch order.
+   * Branches that do not respond within the timeout are left out.
+   *
+   * @param conceptId the concept id
+   * @param languages the translation extension languages
+   * @return the translation suggestions
+   * @throws Exception the exception
+   */
+  public TranslationSuggestionList getSuggestions(String conceptId,
+    List<TranslationExtensionLanguage> languages) throws Exception {
+    final Map<String, Future<List<TranslationSuggestion>>> futures =
+        new LinkedHashMap<>();
+    for (final TranslationExtensionLanguage language : languages) {
+      final String branch = language.getBranch();
+      if (!futures.containsKey(branch)) {
+        futures.put(branch,
+            executor.submit(() -> getSuggestions(branch, conceptId)));
+      }
+    }
+
+    final long deadline = System.currentTimeMillis() + timeout;
+    final Set<TranslationSuggestion> suggestions = new LinkedHashSet<>();
+    for (final Map.Entry<String, Future<List<TranslationSuggestion>>> entry : futures
+        .entrySet()) {
+      try {
+        suggestions.addAll(entry.getValue().get(
+            Math.max(0, deadline - System.currentTimeMillis()),
+            TimeUnit.MILLISECONDS));
+      } catch (TimeoutException e) {
+        Logger.getLogger(getClass()).warn("  Timeout getting suggestions for "
+            + entry.getKey() + " concept:" + conceptId);
+      } catch (ExecutionException e) {
+        throw (e.getCause() instanceof Exception) ? (Exception) e.getCause()
+            : e;
+      }
+    }
+
+    final TranslationSuggestionList list = new TranslationSuggestionList();
+    for (final TranslationSuggestion suggestion : suggestions) {
+      list.addTranslationSuggestion(suggestion);
+    }
+    return list;
+  }
+
+  /**
+   * Loads the suggestions for concepts into the cache in the background. Keys
+   * that are cached or already queued for prefetch are skipped, so repeated
+   * prefetches of the same worklist do not pile up.
+   *
+   * @param conceptIds the concept ids
+   * @param languages the translation extension languages
+   */
+  public void prefetch(List<String> conceptIds,
+    List<TranslationExtensionLanguage> languages) {
+    final Set<String> branches = new LinkedHashSet<>();
+    for (final TranslationExtensionLanguage language : languages) {
+      branches.add(language.getBranch());
+    }
+    for (final String conceptId : conceptIds) {
+      for (final String branch : branches) {
+        final String key = branch + "|" + conceptId;
+        if (cache.getIfPresent(key) == null && prefetching.add(key)) {
+          prefetchExecutor.submit(() -> {
+            try {
+              getSuggestions(branch, conceptId);
+            } catch (Exception e) {
+              Logger.getLogger(getClass()).warn("  Unable to prefetch "
+                  + "suggestions for " + branch + " concept:" + conceptId, e);
+            } finally {
+              prefetching.remove(key);
+            }
+            return null;
+          });
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the suggestions for a concept in a branch, from the cache or
+   * looked up and then cached. Concurrent lookups of the same key wait for
+   * the first.
+   *
+   * @param branch the branch
+   * @param conceptId the concept id
+   * @return the suggestions
+   * @throws Exception the exception
+   */
+  private List<TranslationSuggestion> getSuggestions(String branch,
+    String conceptId) throws Exception {
+    try {
+      return cache.get(branch + "|" + conceptId, () -> {
+        Logger.getLogger(getClass())
+            .info("Getting concepts for " + branch + " concept:" + conceptId);
+        final Concept concept =
+            handler.getFullConcept(conceptId, null, branch);
+        if (concept == null || concept.getDescriptions() == null) {
+          return Collections.emptyList();
+        }
+        final List<TranslationSuggestion> suggestions = new ArrayList<>();
+        for (final Description d : concept.getDescriptions()) {
+          if (!"en".equalsIgnoreCase(d.getLanguageCode())) {
+            final TranslationSuggestion ts = new TranslationSuggestionImpl();
+            ts.setSuggestion(d.getTerm());
+            ts.setLanguageCode(d.getLanguageCode());
+            ts.setSource(branch);
+            suggestions.add(ts);
+          }
+        }
+        return suggestions;
+      });
+    } catch (ExecutionException e) {
+      throw (e.getCause() instanceof Exception) ? (Exception) e.getCause()
+          : e;
+    }
+  }
+
+  /**
+   * Returns a fixed size executor of daemon threads.
+   *
+   * @param threads the threads
+   * @param name the thread name
+   * @return the executor
+   */
+  private static ExecutorService newExecutor(int threads, String name) {
+    return Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+      final Thread thread = new Thread(r, name);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+}
@@ -6,6 +6,7 @@ package org.ihtsdo.otf.refset.jpa.services.rest;
 import org.ihtsdo.otf.refset.Project;
 import org.ihtsdo.otf.refset.helpers.ConceptList;
 import org.ihtsdo.otf.refset.helpers.DescriptionTypeList;
+import org.ihtsdo.otf.refset.helpers.JobInfoList;
 import org.ihtsdo.otf.refset.helpers.KeyValuePairList;
 import org.ihtsdo.otf.refset.helpers.ProjectList;
 import org.ihtsdo.otf.refset.helpers.StringList;
@@ -40,6 +41,46 @@ public interface ProjectServiceRest {
   public KeyValuePairList getTerminologyHandlers(String authToken)
     throws Exception;
 
+  /**
+   * Returns the terminology handler connection pool statistics.
+   *
+   * @param authToken the auth token
+   * @return the terminology handler connection pool statistics
+   * @throws Exception the exception
+   */
+  public KeyValuePairList getTerminologyHandlerPoolStatistics(String authToken)
+    throws Exception;
+
+  /**
+   * Returns the terminology handler concept cache statistics.
+   *
+   * @param authToken the auth token
+   * @return the terminology handler cache statistics
+   * @throws Exception the exception
+   */
+  public KeyValuePairList getTerminologyHandlerCacheStatistics(String authToken)
+    throws Exception;
+
+  /**
+   * Returns the identifier pool statistics.
+   *
+   * @param authToken the auth token
+   * @return the identifier pool statistics
+   * @throws Exception the exception
+   */
+  public KeyValuePairList getIdentifierPoolStatistics(String authToken)
+    throws Exception;
+
+  /**
+   * Returns the queued, running and recently finished background jobs.
+   *
+   * @param projectId the project id, or null for all projects (admin only)
+   * @param authToken the auth token
+   * @return the jobs
+   * @throws Exception the exception
+   */
+  public JobInfoList getJobs(Long projectId, String authToken) throws Exception;
+
   /**
    * Returns the project roles.
    *
@@ -143,12 +184,19 @@ public interface ProjectServiceRest {
    * @param indexedObjects the indexed objects
    * @param batchSizeToLoadObjects the batch size to load objects
    * @param threadsToLoadObjects the threads to load objects
+   * @param fromId the from id, for an incremental reindex
+   * @param toId the to id, for an incremental reindex
+   * @param modifiedSince the modified since date (yyyyMMdd), for an
+   *          incremental reindex
+   * @param modifiedUntil the modified until date (yyyyMMdd), for an
+   *          incremental reindex
    * @param authToken the auth token
    * @throws Exception the exception
    */
   public void luceneReindex(String indexedObjects,
-    Integer batchSizeToLoadObjects, Integer threadsToLoadObjects,
-    String authToken) throws Exception;
+    Integer batchSizeToLoadObjects, Integer threadsToLoadObjects, Long fromId,
+    Long toId, String modifiedSince, String modifiedUntil, String authToken)
+    throws Exception;
 
   /**
    * Find projects.
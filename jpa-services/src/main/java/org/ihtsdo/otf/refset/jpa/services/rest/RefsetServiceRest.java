@@ -8,6 +8,9 @@ package org.ihtsdo.otf.refset.jpa.services.rest;
 
 import java.io.InputStream;
 
+import javax.ws.rs.core.StreamingOutput;
+
+
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.ihtsdo.otf.refset.MemberDiffReport;
 import org.ihtsdo.otf.refset.Note;
@@ -175,10 +178,10 @@ public interface RefsetServiceRest {
    * @param fsn the fsn
    * @param pfs the pfs
    * @param authToken the auth token
-   * @return the input stream
+   * @return the streaming output
    * @throws Exception the exception
    */
-  public InputStream exportMembers(Long refsetId, String ioHandlerInfoId,
+  public StreamingOutput exportMembers(Long refsetId, String ioHandlerInfoId,
     String query, String language, Boolean fsn, PfsParameterJpa pfs,
     String authToken) throws Exception;
 
@@ -481,6 +484,26 @@ public interface RefsetServiceRest {
   public void releaseReportToken(String reportToken, String authToken)
     throws Exception;
 
+  /**
+   * Returns the report store statistics.
+   *
+   * @param authToken the auth token
+   * @return the report store statistics
+   * @throws Exception the exception
+   */
+  public KeyValuePairList getReportStoreStatistics(String authToken)
+    throws Exception;
+
+  /**
+   * Returns the refset definition resolution statistics.
+   *
+   * @param authToken the auth token
+   * @return the definition statistics
+   * @throws Exception the exception
+   */
+  public KeyValuePairList getDefinitionStatistics(String authToken)
+    throws Exception;
+
   /**
    * Extrapolate definition.
    *
@@ -8,6 +8,8 @@ package org.ihtsdo.otf.refset.jpa.services.rest;
 
 import java.io.InputStream;
 
+import javax.ws.rs.core.Response;
+
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.ihtsdo.otf.refset.Refset;
 import org.ihtsdo.otf.refset.ReleaseArtifact;
@@ -268,15 +270,17 @@ public interface ReleaseServiceRest {
     Long releaseInfoId, String authToken) throws Exception;
 
   /**
-   * Export release artifact.
+   * Export release artifact. The response entity is the artifact content, or
+   * just the requested part of it for a single byte range.
    *
    * @param artifactId the artifact id
+   * @param range the byte range, e.g. "bytes=0-1023", or null for all content
    * @param authToken the auth token
-   * @return the input stream
+   * @return the response
    * @throws Exception the exception
    */
-  public InputStream exportReleaseArtifact(Long artifactId, String authToken)
-    throws Exception;
+  public Response exportReleaseArtifact(Long artifactId, String range,
+    String authToken) throws Exception;
 
   /**
    * Resume release.
@@ -7,6 +7,7 @@ import java.util.Map;
 
 import org.ihtsdo.otf.refset.User;
 import org.ihtsdo.otf.refset.UserPreferences;
+import org.ihtsdo.otf.refset.helpers.KeyValuePairList;
 import org.ihtsdo.otf.refset.helpers.StringList;
 import org.ihtsdo.otf.refset.helpers.UserList;
 import org.ihtsdo.otf.refset.jpa.UserJpa;
@@ -112,6 +113,16 @@ public interface SecurityServiceRest {
    */
   public StringList getApplicationRoles(String authToken) throws Exception;
 
+  /**
+   * Returns the role cache statistics.
+   *
+   * @param authToken the auth token
+   * @return the role cache statistics
+   * @throws Exception the exception
+   */
+  public KeyValuePairList getRoleCacheStatistics(String authToken)
+    throws Exception;
+
   /**
    * Find users.
    *
@@ -5,6 +5,9 @@ package org.ihtsdo.otf.refset.jpa.services.rest;
 
 import java.io.InputStream;
 
+import javax.ws.rs.core.StreamingOutput;
+
+
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.ihtsdo.otf.refset.ConceptDiffReport;
 import org.ihtsdo.otf.refset.MemoryEntry;
@@ -113,10 +116,10 @@ public interface TranslationServiceRest {
    * @param query the query
    * @param pfs the pfs
    * @param authToken the auth token
-   * @return the input stream
+   * @return the streaming output
    * @throws Exception the exception
    */
-  public InputStream exportConcepts(Long translationId, String ioHandlerInfoId,
+  public StreamingOutput exportConcepts(Long translationId, String ioHandlerInfoId,
     String query, PfsParameterJpa pfs, String authToken) throws Exception;
 
   /**
@@ -560,12 +563,13 @@ public interface TranslationServiceRest {
    *
    * @param translationId the translation id
    * @param phrases the phrases
+   * @param matchType the match type, EXACT, PREFIX or FUZZY, null for EXACT
    * @param authToken the auth token
    * @return the key values map
    * @throws Exception the exception
    */
   public KeyValuesMap suggestBatchTranslation(Long translationId,
-    StringList phrases, String authToken) throws Exception;
+    StringList phrases, String matchType, String authToken) throws Exception;
 
   /**
    * Returns the status of identifying the name and active states for all
@@ -669,6 +673,19 @@ public interface TranslationServiceRest {
   public TranslationSuggestionList getTranslationSuggestionsForConcept(
     Long refsetId, Long conceptId, String authToken) throws Exception;
 
+  /**
+   * Prefetches the translation suggestions for the concepts assigned to a user
+   * for authoring in a translation. Returns the number of concepts.
+   *
+   * @param translationId the translation id
+   * @param userName the user name
+   * @param authToken the auth token
+   * @return the number of concepts prefetched
+   * @throws Exception the exception
+   */
+  public Integer prefetchTranslationSuggestions(Long translationId,
+    String userName, String authToken) throws Exception;
+
   /**
    * Returns the language refset dialect info.
    *
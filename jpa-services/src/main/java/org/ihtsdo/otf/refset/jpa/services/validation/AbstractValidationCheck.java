@@ -3,6 +3,7 @@
  */
 package org.ihtsdo.otf.refset.jpa.services.validation;
 
+import java.util.List;
 import java.util.Properties;
 
 import org.ihtsdo.otf.refset.Refset;
@@ -65,4 +66,26 @@ public abstract class AbstractValidationCheck implements ValidationCheck {
     // no checks
     return result;
   }
+  /* see superclass */
+  @Override
+  public ValidationResult validateConcepts(List<Concept> concepts,
+    TranslationService service) throws Exception {
+    final ValidationResult result = new ValidationResultJpa();
+    for (final Concept concept : concepts) {
+      result.merge(validate(concept, service));
+    }
+    return result;
+  }
+
+  /* see superclass */
+  @Override
+  public ValidationResult validateMembers(List<ConceptRefsetMember> members,
+    RefsetService service) throws Exception {
+    final ValidationResult result = new ValidationResultJpa();
+    for (final ConceptRefsetMember member : members) {
+      result.merge(validate(member, service));
+    }
+    return result;
+  }
+
 }
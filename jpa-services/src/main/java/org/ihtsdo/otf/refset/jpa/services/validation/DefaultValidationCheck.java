@@ -3,10 +3,14 @@
  */
 package org.ihtsdo.otf.refset.jpa.services.validation;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
@@ -30,6 +34,12 @@ import org.ihtsdo.otf.refset.services.TranslationService;
  */
 public class DefaultValidationCheck extends AbstractValidationCheck {
 
+  /** The FSN description type id. */
+  private static final String FSN = "900000000000003001";
+
+  /** The max FSN terms looked up in one query. */
+  private static final int MAX_TERMS = 500;
+
   private static final Set<String> isoLanguages =
       new HashSet<>(Arrays.asList(Locale.getISOLanguages()));
 
@@ -117,26 +127,94 @@ public class DefaultValidationCheck extends AbstractValidationCheck {
     RefsetService service) throws Exception {
     ValidationResult result = new ValidationResultJpa();
     Refset refset = service.getRefset(member.getRefset().getId());
+    validateMember(member, refset.getType(), result);
+    return result;
+  }
+
+  /* see superclass */
+  @Override
+  public ValidationResult validateMembers(List<ConceptRefsetMember> members,
+    RefsetService service) throws Exception {
+    final ValidationResult result = new ValidationResultJpa();
+    // Look up each refset once for the chunk
+    final Map<Long, Refset.Type> refsetTypes = new HashMap<>();
+    for (final ConceptRefsetMember member : members) {
+      final Long refsetId = member.getRefset().getId();
+      if (!refsetTypes.containsKey(refsetId)) {
+        refsetTypes.put(refsetId, service.getRefset(refsetId).getType());
+      }
+      validateMember(member, refsetTypes.get(refsetId), result);
+    }
+    return result;
+  }
+
+  /**
+   * Validates a member against the type of its refset.
+   *
+   * @param member the member
+   * @param type the refset type
+   * @param result the result
+   */
+  private void validateMember(ConceptRefsetMember member, Refset.Type type,
+    ValidationResult result) {
     if (member.getMemberType() == Refset.MemberType.INCLUSION
-        && refset.getType() != Refset.Type.INTENSIONAL) {
+        && type != Refset.Type.INTENSIONAL) {
       result.addError("Inclusion member attached to non-intensional refset.");
     }
     if (member.getMemberType() == Refset.MemberType.EXCLUSION
-        && refset.getType() != Refset.Type.INTENSIONAL) {
+        && type != Refset.Type.INTENSIONAL) {
       result.addError("Exclusion member attached to non-intensional refset.");
     }
-
-    return result;
   }
 
   @Override
   public ValidationResult validate(Concept concept, TranslationService service)
     throws Exception {
-    ValidationResult result = new ValidationResultJpa();
+    return validateConcepts(Arrays.asList(concept), service);
+  }
+
+  /* see superclass */
+  @Override
+  public ValidationResult validateConcepts(List<Concept> concepts,
+    TranslationService service) throws Exception {
+    final ValidationResult result = new ValidationResultJpa();
+    // Look up each translation once for the chunk, and collect the FSN terms
+    // (with the ids of the concepts using them) to look up all at once
+    final Map<Long, Translation> translations = new HashMap<>();
+    final Map<Long, Map<String, Set<String>>> fsnTerms = new HashMap<>();
+    for (final Concept concept : concepts) {
+      final Long translationId = concept.getTranslation().getId();
+      if (!translations.containsKey(translationId)) {
+        translations.put(translationId, service.getTranslation(translationId));
+      }
+      validateDescriptions(concept, translations.get(translationId), result);
+      for (final Description desc : concept.getDescriptions()) {
+        if (desc.getTypeId().equals(FSN)) {
+          fsnTerms.computeIfAbsent(translationId, k -> new LinkedHashMap<>())
+              .computeIfAbsent(desc.getTerm(), k -> new HashSet<>())
+              .add(concept.getTerminologyId());
+        }
+      }
+    }
+    for (final Map.Entry<Long, Map<String, Set<String>>> entry : fsnTerms
+        .entrySet()) {
+      validateFsnTerms(entry.getKey(), entry.getValue(), service, result);
+    }
+    return result;
+  }
+
+  /**
+   * Validates the descriptions of a concept, all but the check for duplicate
+   * FSNs in other concepts.
+   *
+   * @param concept the concept
+   * @param translation the translation
+   * @param result the result
+   */
+  private void validateDescriptions(Concept concept, Translation translation,
+    ValidationResult result) {
 
     int pnCt = 0;
-    Translation translation =
-        service.getTranslation(concept.getTranslation().getId());
     // Fail for leading whitespace
     for (Description desc : concept.getDescriptions()) {
       if (desc.getTerm().matches("^\\s.*")) {
@@ -178,29 +256,6 @@ public class DefaultValidationCheck extends AbstractValidationCheck {
             + concept.getTerminologyId());
       }
 
-      //
-      if (desc.getTypeId().equals("900000000000003001")) {
-        final String escapedDescriptionName =
-            QueryParserBase.escape(desc.getTerm());
-        final String query = "descriptions.termSort:\"" + escapedDescriptionName
-            + "\"" + " AND NOT terminologyId:" + concept.getTerminologyId();
-        try {
-
-          final ConceptList list = service
-              .findConceptsForTranslation(translation.getId(), query, null);
-
-          if (list.getTotalCount() > 0) {
-            result
-                .addWarning("Duplicate FSN descriptions in different concepts: "
-                    + list.getObjects().get(0).getTerminologyId() + " "
-                    + list.getObjects().get(0).getName());
-          }
-
-        } catch (ParseException e) {
-          // do nothing
-        }
-      }
-
       // No two descriptions with the same term in the same translation concept
       // should exist
       int ct = 0;
@@ -215,7 +270,52 @@ public class DefaultValidationCheck extends AbstractValidationCheck {
                 + desc.getTerm());
       }
     }
-    return result;
+  }
+
+  /**
+   * Warns about FSN terms that are also used by other concepts of the
+   * translation, looking up MAX_TERMS terms per query.
+   *
+   * @param translationId the translation id
+   * @param fsnTerms the FSN terms, with the ids of the concepts using them
+   * @param service the service
+   * @param result the result
+   * @throws Exception the exception
+   */
+  private void validateFsnTerms(Long translationId,
+    Map<String, Set<String>> fsnTerms, TranslationService service,
+    ValidationResult result) throws Exception {
+    final List<String> terms = new ArrayList<>(fsnTerms.keySet());
+    for (int i = 0; i < terms.size(); i += MAX_TERMS) {
+      final StringBuilder query = new StringBuilder();
+      for (final String term : terms.subList(i,
+          Math.min(i + MAX_TERMS, terms.size()))) {
+        query.append(query.length() == 0 ? "(" : " OR ");
+        query.append("descriptions.termSort:\"")
+            .append(QueryParserBase.escape(term)).append("\"");
+      }
+      query.append(")");
+      try {
+
+        final ConceptList list = service
+            .findConceptsForTranslation(translationId, query.toString(), null);
+        for (final Concept other : list.getObjects()) {
+          for (final Description desc : other.getDescriptions()) {
+            // Warn if a concept other than this one uses the term
+            final Set<String> conceptIds = fsnTerms.get(desc.getTerm());
+            if (conceptIds != null && (conceptIds.size() > 1
+                || !conceptIds.contains(other.getTerminologyId()))) {
+              result.addWarning(
+                  "Duplicate FSN descriptions in different concepts: "
+                      + other.getTerminologyId() + " " + other.getName());
+            }
+          }
+        }
+
+      } catch (ParseException e) {
+        // do nothing
+      }
+    }
   }
 
   /* see superclass */
@@ -0,0 +1,69 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset;
+
+import java.util.Date;
+
+/**
+ * Represents an application-managed auth token issued to a user at login.
+ */
+public interface AuthToken {
+
+  /**
+   * Returns the id.
+   *
+   * @return the id
+   */
+  public Long getId();
+
+  /**
+   * Sets the id.
+   *
+   * @param id the id
+   */
+  public void setId(Long id);
+
+  /**
+   * Returns the token.
+   *
+   * @return the token
+   */
+  public String getToken();
+
+  /**
+   * Sets the token.
+   *
+   * @param token the token
+   */
+  public void setToken(String token);
+
+  /**
+   * Returns the user name.
+   *
+   * @return the user name
+   */
+  public String getUserName();
+
+  /**
+   * Sets the user name.
+   *
+   * @param userName the user name
+   */
+  public void setUserName(String userName);
+
+  /**
+   * Returns the expiration, after which the token is no longer valid unless
+   * the user is not subject to timeouts.
+   *
+   * @return the expiration
+   */
+  public Date getExpiration();
+
+  /**
+   * Sets the expiration.
+   *
+   * @param expiration the expiration
+   */
+  public void setExpiration(Date expiration);
+}
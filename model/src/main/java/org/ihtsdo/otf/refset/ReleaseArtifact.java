@@ -45,6 +45,35 @@ public interface ReleaseArtifact extends HasName, HasLastModified {
    */
   public void setData(byte[] data);
 
+  /**
+   * Returns the checksum of the content in the release artifact store, or null
+   * if the data is held in the artifact itself.
+   *
+   * @return the checksum
+   */
+  public String getChecksum();
+
+  /**
+   * Sets the checksum.
+   *
+   * @param checksum the checksum
+   */
+  public void setChecksum(String checksum);
+
+  /**
+   * Returns the size of the content in bytes.
+   *
+   * @return the size
+   */
+  public Long getSize();
+
+  /**
+   * Sets the size.
+   *
+   * @param size the size
+   */
+  public void setSize(Long size);
+
   /**
    * Sets the timestamp.
    *
@@ -0,0 +1,75 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.helpers;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary assigning dense indexes (0, 1, 2, ...) to concept ids, so sets of
+ * concept ids drawn from the same dictionary can be held as {@link BitSet}s of
+ * one bit per distinct id and compared with word-wide bit operations.
+ */
+public class ConceptIdDictionary {
+
+  /** The indexes by concept id. */
+  private final Map<String, Integer> indexes = new HashMap<>();
+
+  /**
+   * Returns the index for the concept id, assigning the next one if new.
+   *
+   * @param conceptId the concept id
+   * @return the index
+   */
+  public int getIndex(String conceptId) {
+    Integer index = indexes.get(conceptId);
+    if (index == null) {
+      index = indexes.size();
+      indexes.put(conceptId, index);
+    }
+    return index;
+  }
+
+  /**
+   * Returns the number of concept ids in the dictionary.
+   *
+   * @return the size
+   */
+  public int size() {
+    return indexes.size();
+  }
+
+  /**
+   * Returns the bit set of the concept ids, adding new ones to the dictionary.
+   *
+   * @param conceptIds the concept ids
+   * @return the bit set
+   */
+  public BitSet toBitSet(Collection<String> conceptIds) {
+    final BitSet bits = new BitSet();
+    for (final String conceptId : conceptIds) {
+      bits.set(getIndex(conceptId));
+    }
+    return bits;
+  }
+
+  /**
+   * Indicates whether or not every bit of the subset is also set in the
+   * superset.
+   *
+   * @param superset the superset
+   * @param subset the subset
+   * @return <code>true</code> if so, <code>false</code> otherwise
+   */
+  public static boolean containsAll(BitSet superset, BitSet subset) {
+    if (subset.cardinality() > superset.cardinality()) {
+      return false;
+    }
+    final BitSet remainder = (BitSet) subset.clone();
+    remainder.andNot(superset);
+    return remainder.isEmpty();
+  }
+}
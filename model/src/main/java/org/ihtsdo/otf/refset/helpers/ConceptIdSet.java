@@ -0,0 +1,378 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.helpers;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable set of numeric concept ids backed by a sorted, duplicate-free
+ * long[]. Each id may carry a long value (e.g. a member id). Set operations are
+ * linear merge walks, so diffing two sets of several hundred thousand ids needs
+ * no boxing or hashing.
+ */
+public final class ConceptIdSet {
+
+  /** The value returned for ids that are absent or have no value. */
+  public static final long NO_VALUE = -1L;
+
+  /** The empty set. */
+  public static final ConceptIdSet EMPTY =
+      new ConceptIdSet(new long[0], new long[0]);
+
+  /** The sorted ids. */
+  private final long[] ids;
+
+  /** The values, parallel to ids. */
+  private final long[] values;
+
+  /**
+   * Instantiates a {@link ConceptIdSet} from the specified parameters.
+   *
+   * @param ids the sorted, duplicate-free ids
+   * @param values the values, parallel to ids
+   */
+  private ConceptIdSet(long[] ids, long[] values) {
+    this.ids = ids;
+    this.values = values;
+  }
+
+  /**
+   * Returns a set of the specified concept ids, without values.
+   *
+   * @param conceptIds the concept ids
+   * @return the concept id set
+   * @throws NumberFormatException if a concept id is not numeric
+   */
+  public static ConceptIdSet of(Collection<String> conceptIds) {
+    final Builder builder = new Builder(conceptIds.size());
+    for (final String conceptId : conceptIds) {
+      builder.add(conceptId);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns the size.
+   *
+   * @return the size
+   */
+  public int size() {
+    return ids.length;
+  }
+
+  /**
+   * Indicates whether or not the set is empty.
+   *
+   * @return <code>true</code> if so, <code>false</code> otherwise
+   */
+  public boolean isEmpty() {
+    return ids.length == 0;
+  }
+
+  /**
+   * Indicates whether or not the set contains the id.
+   *
+   * @param id the id
+   * @return <code>true</code> if so, <code>false</code> otherwise
+   */
+  public boolean contains(long id) {
+    return Arrays.binarySearch(ids, id) >= 0;
+  }
+
+  /**
+   * Indicates whether or not the set contains the concept id. Non-numeric ids
+   * are never contained.
+   *
+   * @param conceptId the concept id
+   * @return <code>true</code> if so, <code>false</code> otherwise
+   */
+  public boolean contains(String conceptId) {
+    try {
+      return conceptId != null && contains(Long.parseLong(conceptId));
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns the id at the specified position, in ascending id order.
+   *
+   * @param index the index
+   * @return the id
+   */
+  public long getId(int index) {
+    return ids[index];
+  }
+
+  /**
+   * Returns the value at the specified position, in ascending id order.
+   *
+   * @param index the index
+   * @return the value
+   */
+  public long getValueAt(int index) {
+    return values[index];
+  }
+
+  /**
+   * Returns the value for the id, or {@link #NO_VALUE}.
+   *
+   * @param id the id
+   * @return the value
+   */
+  public long getValue(long id) {
+    final int index = Arrays.binarySearch(ids, id);
+    return index < 0 ? NO_VALUE : values[index];
+  }
+
+  /**
+   * Returns the ids in ascending order.
+   *
+   * @return the ids
+   */
+  public long[] toArray() {
+    return ids.clone();
+  }
+
+  /**
+   * Returns the ids in this set or the other. Values are taken from this set
+   * where present.
+   *
+   * @param other the other set
+   * @return the union
+   */
+  public ConceptIdSet union(ConceptIdSet other) {
+    final long[] resultIds = new long[ids.length + other.ids.length];
+    final long[] resultValues = new long[resultIds.length];
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while (i < ids.length || j < other.ids.length) {
+      if (j == other.ids.length
+          || (i < ids.length && ids[i] <= other.ids[j])) {
+        if (j < other.ids.length && ids[i] == other.ids[j]) {
+          j++;
+        }
+        resultIds[k] = ids[i];
+        resultValues[k++] = values[i++];
+      } else {
+        resultIds[k] = other.ids[j];
+        resultValues[k++] = other.values[j++];
+      }
+    }
+    return new ConceptIdSet(Arrays.copyOf(resultIds, k),
+        Arrays.copyOf(resultValues, k));
+  }
+
+  /**
+   * Returns the ids in both this set and the other, with values from this set.
+   *
+   * @param other the other set
+   * @return the intersection
+   */
+  public ConceptIdSet intersection(ConceptIdSet other) {
+    return merge(other, true);
+  }
+
+  /**
+   * Returns the ids in this set that are not in the other, with values from
+   * this set.
+   *
+   * @param other the other set
+   * @return the difference
+   */
+  public ConceptIdSet difference(ConceptIdSet other) {
+    return merge(other, false);
+  }
+
+  /**
+   * Walks both sets keeping the ids of this set that are (or are not) in the
+   * other.
+   *
+   * @param other the other set
+   * @param keepCommon whether to keep common ids or ids only in this set
+   * @return the concept id set
+   */
+  private ConceptIdSet merge(ConceptIdSet other, boolean keepCommon) {
+    final long[] resultIds = new long[ids.length];
+    final long[] resultValues = new long[ids.length];
+    int j = 0;
+    int k = 0;
+    for (int i = 0; i < ids.length; i++) {
+      while (j < other.ids.length && other.ids[j] < ids[i]) {
+        j++;
+      }
+      final boolean common = j < other.ids.length && other.ids[j] == ids[i];
+      if (common == keepCommon) {
+        resultIds[k] = ids[i];
+        resultValues[k++] = values[i];
+      }
+    }
+    return new ConceptIdSet(Arrays.copyOf(resultIds, k),
+        Arrays.copyOf(resultValues, k));
+  }
+
+  /* see superclass */
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(ids);
+  }
+
+  /* see superclass */
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    return Arrays.equals(ids, ((ConceptIdSet) obj).ids);
+  }
+
+  /* see superclass */
+  @Override
+  public String toString() {
+    return "ConceptIdSet [size=" + ids.length + "]";
+  }
+
+  /**
+   * Builder for a {@link ConceptIdSet}. When an id is added more than once,
+   * the last value wins.
+   */
+  public static final class Builder {
+
+    /** The ids, in insertion order. */
+    private long[] ids;
+
+    /** The values, parallel to ids. */
+    private long[] values;
+
+    /** The number of ids added. */
+    private int size;
+
+    /**
+     * Instantiates an empty {@link Builder}.
+     */
+    public Builder() {
+      this(16);
+    }
+
+    /**
+     * Instantiates an empty {@link Builder} with the specified capacity.
+     *
+     * @param capacity the expected number of ids
+     */
+    public Builder(int capacity) {
+      ids = new long[Math.max(capacity, 1)];
+      values = new long[ids.length];
+    }
+
+    /**
+     * Adds the concept id, without a value.
+     *
+     * @param conceptId the concept id
+     * @return the builder
+     * @throws NumberFormatException if the concept id is not numeric
+     */
+    public Builder add(String conceptId) {
+      return add(Long.parseLong(conceptId), NO_VALUE);
+    }
+
+    /**
+     * Adds the concept id with a value.
+     *
+     * @param conceptId the concept id
+     * @param value the value
+     * @return the builder
+     * @throws NumberFormatException if the concept id is not numeric
+     */
+    public Builder add(String conceptId, long value) {
+      return add(Long.parseLong(conceptId), value);
+    }
+
+    /**
+     * Adds the id with a value.
+     *
+     * @param id the id
+     * @param value the value
+     * @return the builder
+     */
+    public Builder add(long id, long value) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      ids[size] = id;
+      values[size++] = value;
+      return this;
+    }
+
+    /**
+     * Builds the set.
+     *
+     * @return the concept id set
+     */
+    public ConceptIdSet build() {
+      final long[] sortedIds = Arrays.copyOf(ids, size);
+      final long[] sortedValues = Arrays.copyOf(values, size);
+      sort(sortedIds, sortedValues);
+
+      // Drop duplicates, keeping the last value added (the sort is stable)
+      int k = 0;
+      for (int i = 0; i < size; i++) {
+        if (k > 0 && sortedIds[k - 1] == sortedIds[i]) {
+          sortedValues[k - 1] = sortedValues[i];
+        } else {
+          sortedIds[k] = sortedIds[i];
+          sortedValues[k++] = sortedValues[i];
+        }
+      }
+      return new ConceptIdSet(Arrays.copyOf(sortedIds, k),
+          Arrays.copyOf(sortedValues, k));
+    }
+
+    /**
+     * Stable bottom-up merge sort of the ids, moving the values along.
+     *
+     * @param keys the keys
+     * @param vals the values
+     */
+    private static void sort(long[] keys, long[] vals) {
+      final int n = keys.length;
+      long[] srcKeys = keys;
+      long[] srcVals = vals;
+      long[] dstKeys = new long[n];
+      long[] dstVals = new long[n];
+      for (int width = 1; width < n; width *= 2) {
+        for (int lo = 0; lo < n; lo += 2 * width) {
+          final int mid = Math.min(lo + width, n);
+          final int hi = Math.min(lo + 2 * width, n);
+          int i = lo;
+          int j = mid;
+          for (int k = lo; k < hi; k++) {
+            if (i < mid && (j >= hi || srcKeys[i] <= srcKeys[j])) {
+              dstKeys[k] = srcKeys[i];
+              dstVals[k] = srcVals[i++];
+            } else {
+              dstKeys[k] = srcKeys[j];
+              dstVals[k] = srcVals[j++];
+            }
+          }
+        }
+        final long[] tmpKeys = srcKeys;
+        final long[] tmpVals = srcVals;
+        srcKeys = dstKeys;
+        srcVals = dstVals;
+        dstKeys = tmpKeys;
+        dstVals = tmpVals;
+      }
+      if (srcKeys != keys) {
+        System.arraycopy(srcKeys, 0, keys, 0, n);
+        System.arraycopy(srcVals, 0, vals, 0, n);
+      }
+    }
+  }
+}
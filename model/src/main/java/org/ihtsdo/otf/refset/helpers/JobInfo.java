@@ -0,0 +1,281 @@
+/**
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.helpers;
+
+import java.util.Date;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Container for the state and timings of a scheduled background job.
+ */
+@XmlRootElement(name = "jobInfo")
+public class JobInfo {
+
+  /** The id. */
+  private Long id;
+
+  /** The job class, e.g. LOOKUP, RELEASE, MIGRATION. */
+  private String jobClass;
+
+  /** The name. */
+  private String name;
+
+  /** The project id. */
+  private Long projectId;
+
+  /** The priority. */
+  private int priority;
+
+  /** The state, e.g. QUEUED, RUNNING, FINISHED, CANCELLED, FAILED. */
+  private String state;
+
+  /** The submitted date. */
+  private Date submitted;
+
+  /** The started date. */
+  private Date started;
+
+  /** The finished date. */
+  private Date finished;
+
+  /** The wait time in milliseconds. */
+  private long waitTime;
+
+  /** The run time in milliseconds. */
+  private long runTime;
+
+  /**
+   * Instantiates an empty {@link JobInfo}.
+   */
+  public JobInfo() {
+    // do nothing
+  }
+
+  /**
+   * Instantiates a {@link JobInfo} from the specified parameters.
+   *
+   * @param info the info
+   */
+  public JobInfo(JobInfo info) {
+    id = info.getId();
+    jobClass = info.getJobClass();
+    name = info.getName();
+    projectId = info.getProjectId();
+    priority = info.getPriority();
+    state = info.getState();
+    submitted = info.getSubmitted();
+    started = info.getStarted();
+    finished = info.getFinished();
+    waitTime = info.getWaitTime();
+    runTime = info.getRunTime();
+  }
+
+  /**
+   * Returns the id.
+   *
+   * @return the id
+   */
+  public Long getId() {
+    return id;
+  }
+
+  /**
+   * Sets the id.
+   *
+   * @param id the id
+   */
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  /**
+   * Returns the job class.
+   *
+   * @return the job class
+   */
+  public String getJobClass() {
+    return jobClass;
+  }
+
+  /**
+   * Sets the job class.
+   *
+   * @param jobClass the job class
+   */
+  public void setJobClass(String jobClass) {
+    this.jobClass = jobClass;
+  }
+
+  /**
+   * Returns the name.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Sets the name.
+   *
+   * @param name the name
+   */
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Returns the project id.
+   *
+   * @return the project id
+   */
+  public Long getProjectId() {
+    return projectId;
+  }
+
+  /**
+   * Sets the project id.
+   *
+   * @param projectId the project id
+   */
+  public void setProjectId(Long projectId) {
+    this.projectId = projectId;
+  }
+
+  /**
+   * Returns the priority.
+   *
+   * @return the priority
+   */
+  public int getPriority() {
+    return priority;
+  }
+
+  /**
+   * Sets the priority.
+   *
+   * @param priority the priority
+   */
+  public void setPriority(int priority) {
+    this.priority = priority;
+  }
+
+  /**
+   * Returns the state.
+   *
+   * @return the state
+   */
+  public String getState() {
+    return state;
+  }
+
+  /**
+   * Sets the state.
+   *
+   * @param state the state
+   */
+  public void setState(String state) {
+    this.state = state;
+  }
+
+  /**
+   * Returns the submitted date.
+   *
+   * @return the submitted date
+   */
+  public Date getSubmitted() {
+    return submitted;
+  }
+
+  /**
+   * Sets the submitted date.
+   *
+   * @param submitted the submitted date
+   */
+  public void setSubmitted(Date submitted) {
+    this.submitted = submitted;
+  }
+
+  /**
+   * Returns the started date.
+   *
+   * @return the started date
+   */
+  public Date getStarted() {
+    return started;
+  }
+
+  /**
+   * Sets the started date.
+   *
+   * @param started the started date
+   */
+  public void setStarted(Date started) {
+    this.started = started;
+  }
+
+  /**
+   * Returns the finished date.
+   *
+   * @return the finished date
+   */
+  public Date getFinished() {
+    return finished;
+  }
+
+  /**
+   * Sets the finished date.
+   *
+   * @param finished the finished date
+   */
+  public void setFinished(Date finished) {
+    this.finished = finished;
+  }
+
+  /**
+   * Returns the wait time in milliseconds.
+   *
+   * @return the wait time
+   */
+  public long getWaitTime() {
+    return waitTime;
+  }
+
+  /**
+   * Sets the wait time in milliseconds.
+   *
+   * @param waitTime the wait time
+   */
+  public void setWaitTime(long waitTime) {
+    this.waitTime = waitTime;
+  }
+
+  /**
+   * Returns the run time in milliseconds.
+   *
+   * @return the run time
+   */
+  public long getRunTime() {
+    return runTime;
+  }
+
+  /**
+   * Sets the run time in milliseconds.
+   *
+   * @param runTime the run time
+   */
+  public void setRunTime(long runTime) {
+    this.runTime = runTime;
+  }
+
+  /* see superclass */
+  @Override
+  public String toString() {
+    return "JobInfo [id=" + id + ", jobClass=" + jobClass + ", name=" + name
+        + ", projectId=" + projectId + ", priority=" + priority + ", state="
+        + state + ", waitTime=" + waitTime + ", runTime=" + runTime + "]";
+  }
+
+}
@@ -0,0 +1,31 @@
+/**
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.helpers;
+
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * JAXB enabled list of {@link JobInfo}.
+ */
+@XmlRootElement(name = "jobInfoList")
+public class JobInfoList extends AbstractResultList<JobInfo> {
+
+  /**
+   * Instantiates an empty {@link JobInfoList}.
+   */
+  public JobInfoList() {
+    // do nothing
+  }
+
+  /* see superclass */
+  @Override
+  @XmlElement(type = JobInfo.class, name = "jobs")
+  public List<JobInfo> getObjects() {
+    return super.getObjectsTransient();
+  }
+
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.helpers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Unit testing for {@link ConceptIdSet}.
+ */
+public class HelperUnit012Test {
+
+  /**
+   * Setup class.
+   */
+  @BeforeClass
+  public static void setupClass() {
+    // do nothing
+  }
+
+  /**
+   * Setup.
+   */
+  @Before
+  public void setup() {
+    // do nothing
+  }
+
+  /**
+   * Test normal use of the helper object.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testHelperNormalUse012() throws Exception {
+    Logger.getLogger(getClass()).info("TEST testHelperNormalUse012");
+
+    final ConceptIdSet set1 = new ConceptIdSet.Builder().add("30", 3)
+        .add("10", 1).add("20", 2).add("10", 4).build();
+    assertEquals(3, set1.size());
+    assertArrayEquals(new long[] {
+        10, 20, 30
+    }, set1.toArray());
+    // last value wins
+    assertEquals(4, set1.getValue(10));
+    assertEquals(2, set1.getValue(20));
+    assertEquals(ConceptIdSet.NO_VALUE, set1.getValue(40));
+    assertTrue(set1.contains("20"));
+    assertFalse(set1.contains(25));
+
+    final ConceptIdSet set2 =
+        ConceptIdSet.of(Arrays.asList("20", "40", "30", "50"));
+    assertArrayEquals(new long[] {
+        10, 20, 30, 40, 50
+    }, set1.union(set2).toArray());
+    assertEquals(4, set1.union(set2).getValue(10));
+    assertArrayEquals(new long[] {
+        20, 30
+    }, set1.intersection(set2).toArray());
+    assertEquals(3, set1.intersection(set2).getValue(30));
+    assertArrayEquals(new long[] {
+        10
+    }, set1.difference(set2).toArray());
+    assertArrayEquals(new long[] {
+        40, 50
+    }, set2.difference(set1).toArray());
+
+    // Test equals
+    assertEquals(set1, ConceptIdSet.of(Arrays.asList("10", "30", "20")));
+    assertEquals(set1.hashCode(),
+        ConceptIdSet.of(Arrays.asList("10", "30", "20")).hashCode());
+    assertFalse(set1.equals(set2));
+
+    // Compare against java.util sets
+    final Random random = new Random(12345L);
+    final Set<Long> ids1 = new HashSet<>();
+    final Set<Long> ids2 = new HashSet<>();
+    final ConceptIdSet.Builder builder1 = new ConceptIdSet.Builder();
+    final ConceptIdSet.Builder builder2 = new ConceptIdSet.Builder();
+    for (int i = 0; i < 5000; i++) {
+      final long id1 = random.nextInt(10000);
+      final long id2 = random.nextInt(10000);
+      ids1.add(id1);
+      ids2.add(id2);
+      builder1.add(id1, id1 * 2);
+      builder2.add(id2, id2 * 3);
+    }
+    final ConceptIdSet random1 = builder1.build();
+    final ConceptIdSet random2 = builder2.build();
+    assertEquals(ids1.size(), random1.size());
+    for (int i = 0; i < random1.size(); i++) {
+      assertTrue(ids1.contains(random1.getId(i)));
+      assertEquals(random1.getId(i) * 2, random1.getValueAt(i));
+      assertTrue(i == 0 || random1.getId(i - 1) < random1.getId(i));
+    }
+    final Set<Long> common = new HashSet<>(ids1);
+    common.retainAll(ids2);
+    assertEquals(common.size(), random1.intersection(random2).size());
+    final Set<Long> only1 = new HashSet<>(ids1);
+    only1.removeAll(ids2);
+    assertEquals(only1.size(), random1.difference(random2).size());
+    final Set<Long> all = new HashSet<>(ids1);
+    all.addAll(ids2);
+    assertEquals(all.size(), random1.union(random2).size());
+  }
+
+  /**
+   * Test degenerate use of the helper object.
+   *
+   * @throws Exception the exception
+   */
+  @SuppressWarnings({
+    "static-method"
+  })
+  @Test
+  public void testHelperDegenerateUse012() throws Exception {
+    try {
+      final ConceptIdSet set = new ConceptIdSet.Builder().add("abc").build();
+      fail("Expected exception did not occur. " + set);
+    } catch (NumberFormatException e) {
+      // do nothing, this is expected
+    }
+    try {
+      final ConceptIdSet set = ConceptIdSet.of(null);
+      fail("Expected exception did not occur. " + set);
+    } catch (Exception e) {
+      // do nothing, this is expected
+    }
+  }
+
+  /**
+   * Test edge cases of the helper object.
+   *
+   * @throws Exception the exception
+   */
+  @SuppressWarnings("static-method")
+  @Test
+  public void testHelperEdgeCases012() throws Exception {
+    final ConceptIdSet empty = new ConceptIdSet.Builder(0).build();
+    assertTrue(empty.isEmpty());
+    assertEquals(ConceptIdSet.EMPTY, empty);
+    assertFalse(empty.contains("1"));
+    assertFalse(empty.contains((String) null));
+
+    final ConceptIdSet set = ConceptIdSet.of(Arrays.asList("1", "2"));
+    assertFalse(set.contains("x"));
+    assertEquals(set, set.union(empty));
+    assertEquals(set, empty.union(set));
+    assertEquals(set, set.difference(empty));
+    assertTrue(set.intersection(empty).isEmpty());
+    assertTrue(empty.difference(set).isEmpty());
+    assertTrue(set.difference(set).isEmpty());
+    assertEquals(set, set.intersection(set));
+  }
+
+  /**
+   * Teardown.
+   */
+  @After
+  public void teardown() {
+    // do nothing
+  }
+
+  /**
+   * Teardown class.
+   */
+  @AfterClass
+  public static void teardownClass() {
+    // do nothing
+  }
+
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Unit testing for {@link ConceptIdDictionary}.
+ */
+public class HelperUnit013Test {
+
+  /**
+   * Setup class.
+   */
+  @BeforeClass
+  public static void setupClass() {
+    // do nothing
+  }
+
+  /**
+   * Setup.
+   */
+  @Before
+  public void setup() {
+    // do nothing
+  }
+
+  /**
+   * Test normal use of the helper object.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  public void testHelperNormalUse013() throws Exception {
+    Logger.getLogger(getClass()).info("TEST testHelperNormalUse013");
+
+    final ConceptIdDictionary dictionary = new ConceptIdDictionary();
+    assertEquals(0, dictionary.getIndex("30"));
+    assertEquals(1, dictionary.getIndex("10"));
+    assertEquals(0, dictionary.getIndex("30"));
+    assertEquals(2, dictionary.size());
+
+    final BitSet set1 = dictionary.toBitSet(Arrays.asList("10", "20", "30"));
+    final BitSet set2 = dictionary.toBitSet(Arrays.asList("20", "30"));
+    final BitSet set3 = dictionary.toBitSet(Arrays.asList("30", "20"));
+    final BitSet set4 = dictionary.toBitSet(Arrays.asList("30", "40"));
+    assertEquals(4, dictionary.size());
+    assertTrue(ConceptIdDictionary.containsAll(set1, set2));
+    assertFalse(ConceptIdDictionary.containsAll(set2, set1));
+    assertTrue(ConceptIdDictionary.containsAll(set2, set3));
+    assertTrue(ConceptIdDictionary.containsAll(set3, set2));
+    assertFalse(ConceptIdDictionary.containsAll(set1, set4));
+    assertFalse(ConceptIdDictionary.containsAll(set4, set2));
+
+    // Compare against java.util sets
+    final Random random = new Random(12345L);
+    for (int i = 0; i < 100; i++) {
+      final List<String> ids1 = new ArrayList<>();
+      final List<String> ids2 = new ArrayList<>();
+      for (int j = 0; j < 200; j++) {
+        ids1.add(String.valueOf(random.nextInt(300)));
+        if (random.nextInt(4) > 0) {
+          ids2.add(ids1.get(random.nextInt(ids1.size())));
+        } else {
+          ids2.add(String.valueOf(random.nextInt(300)));
+        }
+      }
+      final Set<String> expected1 = new HashSet<>(ids1);
+      final Set<String> expected2 = new HashSet<>(ids2);
+      final BitSet bits1 = dictionary.toBitSet(ids1);
+      final BitSet bits2 = dictionary.toBitSet(ids2);
+      assertEquals(expected1.size(), bits1.cardinality());
+      assertEquals(expected1.containsAll(expected2),
+          ConceptIdDictionary.containsAll(bits1, bits2));
+      assertEquals(expected2.containsAll(expected1),
+          ConceptIdDictionary.containsAll(bits2, bits1));
+    }
+  }
+
+  /**
+   * Test degenerate use of the helper object.
+   *
+   * @throws Exception the exception
+   */
+  @SuppressWarnings({
+    "static-method"
+  })
+  @Test
+  public void testHelperDegenerateUse013() throws Exception {
+    try {
+      final BitSet set = new ConceptIdDictionary().toBitSet(null);
+      fail("Expected exception did not occur. " + set);
+    } catch (Exception e) {
+      // do nothing, this is expected
+    }
+  }
+
+  /**
+   * Test edge cases of the helper object.
+   *
+   * @throws Exception the exception
+   */
+  @SuppressWarnings("static-method")
+  @Test
+  public void testHelperEdgeCases013() throws Exception {
+    final ConceptIdDictionary dictionary = new ConceptIdDictionary();
+    final BitSet empty = dictionary.toBitSet(Collections.emptyList());
+    final BitSet set = dictionary.toBitSet(Arrays.asList("1"));
+    assertTrue(empty.isEmpty());
+    assertTrue(ConceptIdDictionary.containsAll(empty, empty));
+    assertTrue(ConceptIdDictionary.containsAll(set, empty));
+    assertFalse(ConceptIdDictionary.containsAll(empty, set));
+  }
+
+  /**
+   * Teardown.
+   */
+  @After
+  public void teardown() {
+    // do nothing
+  }
+
+  /**
+   * Teardown class.
+   */
+  @AfterClass
+  public static void teardownClass() {
+    // do nothing
+  }
+
+}
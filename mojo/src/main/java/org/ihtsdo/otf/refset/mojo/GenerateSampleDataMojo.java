@@ -140,7 +140,7 @@ public class GenerateSampleDataMojo extends AbstractRttMojo {
       // Handle reindexing database if mode is set
       if (mode != null && mode.equals("create")) {
         ProjectServiceRestImpl contentService = new ProjectServiceRestImpl();
-        contentService.luceneReindex(null, null, null, authToken);
+        contentService.luceneReindex(null, null, null, null, null, null, null, authToken);
       }
 
       boolean serverRunning = ConfigUtility.isServerActive();
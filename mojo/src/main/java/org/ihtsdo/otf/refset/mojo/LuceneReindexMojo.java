@@ -48,6 +48,32 @@ public class LuceneReindexMojo extends AbstractRttMojo {
   @Parameter
   private Integer threadsToLoadObjects;
 
+  /**
+   * Reindex only objects with ids from this one (incremental reindex).
+   */
+  @Parameter
+  private Long fromId;
+
+  /**
+   * Reindex only objects with ids up to this one (incremental reindex).
+   */
+  @Parameter
+  private Long toId;
+
+  /**
+   * Reindex only objects last modified on or after this date, yyyyMMdd
+   * (incremental reindex).
+   */
+  @Parameter
+  private String modifiedSince;
+
+  /**
+   * Reindex only objects last modified before this date, yyyyMMdd
+   * (incremental reindex).
+   */
+  @Parameter
+  private String modifiedUntil;
+
   /**
    * Whether to run this mojo against an active server.
    *
@@ -69,6 +95,8 @@ public class LuceneReindexMojo extends AbstractRttMojo {
     try {
       getLog().info("Lucene reindexing called via mojo.");
       getLog().info("  Indexed objects : " + indexedObjects);
+      getLog().info("  Ids             : " + fromId + "-" + toId);
+      getLog().info("  Modified        : " + modifiedSince + "-" + modifiedUntil);
       getLog().info("  Expect server up: " + server);
 
       setupBindInfoPackage();
@@ -102,14 +130,16 @@ public class LuceneReindexMojo extends AbstractRttMojo {
 
         ProjectServiceRestImpl contentService = new ProjectServiceRestImpl();
         contentService.luceneReindex(indexedObjects, batchSizeToLoadObjects,
-            threadsToLoadObjects, authToken);
+            threadsToLoadObjects, fromId, toId, modifiedSince, modifiedUntil,
+            authToken);
 
       } else {
         getLog().info("Running against server");
 
         ProjectClientRest client = new ProjectClientRest(properties);
         client.luceneReindex(indexedObjects, batchSizeToLoadObjects,
-            threadsToLoadObjects, authToken);
+            threadsToLoadObjects, fromId, toId, modifiedSince, modifiedUntil,
+            authToken);
       }
 
     } catch (Exception e) {
@@ -428,6 +428,20 @@ public class PatchDataMojo extends AbstractRttMojo {
         getLog().info("Processing patch 20221225 - Load inactive refset members"); // Patch
         patch20221225(false);
       }
+
+      // Patch 20261017
+      // Move release artifact data out of the database
+      if ("20261017".compareTo(start) >= 0 && "20261017".compareTo(end) <= 0) {
+        getLog().info("Processing patch 20261017 - Move release artifact data to the artifact store"); // Patch
+        patch20261017(refsetService);
+      }
+
+      // Patch 20261018
+      // Index display name sort keys of concept refset members
+      if ("20261018".compareTo(start) >= 0 && "20261018".compareTo(end) <= 0) {
+        getLog().info("Processing patch 20261018 - Reindex concept refset members for display name sorting"); // Patch
+        patch20261018(fullReindex);
+      }
       
       // Reindex
       if (fullReindex) {
@@ -439,7 +453,7 @@ public class PatchDataMojo extends AbstractRttMojo {
           String authToken = securityService.authenticate(properties.getProperty("admin.user"),
               properties.getProperty("admin.password")).getAuthToken();
           ProjectServiceRestImpl contentService = new ProjectServiceRestImpl();
-          contentService.luceneReindex(null, null, null, authToken);
+          contentService.luceneReindex(null, null, null, null, null, null, null, authToken);
         }
       }
 
@@ -1322,7 +1336,7 @@ public class PatchDataMojo extends AbstractRttMojo {
           String authToken = securityService.authenticate(properties.getProperty("admin.user"),
               properties.getProperty("admin.password")).getAuthToken();
           ProjectServiceRestImpl contentService = new ProjectServiceRestImpl();
-          contentService.luceneReindex("ProjectJpa", null, null, authToken);
+          contentService.luceneReindex("ProjectJpa", null, null, null, null, null, null, authToken);
         }
       }
 
@@ -1400,7 +1414,7 @@ public class PatchDataMojo extends AbstractRttMojo {
         String authToken = securityService.authenticate(properties.getProperty("admin.user"),
             properties.getProperty("admin.password")).getAuthToken();
         ProjectServiceRestImpl contentService = new ProjectServiceRestImpl();
-        contentService.luceneReindex("ProjectJpa,TranslationJpa,RefsetJpa", null, null, authToken);
+        contentService.luceneReindex("ProjectJpa,TranslationJpa,RefsetJpa", null, null, null, null, null, null, authToken);
       }
     }
 
@@ -1491,7 +1505,7 @@ public class PatchDataMojo extends AbstractRttMojo {
         String authToken = securityService.authenticate(properties.getProperty("admin.user"),
             properties.getProperty("admin.password")).getAuthToken();
         ProjectServiceRestImpl contentService = new ProjectServiceRestImpl();
-        contentService.luceneReindex("ProjectJpa,TranslationJpa,RefsetJpa", null, null, authToken);
+        contentService.luceneReindex("ProjectJpa,TranslationJpa,RefsetJpa", null, null, null, null, null, null, authToken);
       }
     }
   }
@@ -1536,7 +1550,7 @@ public class PatchDataMojo extends AbstractRttMojo {
           String authToken = securityService.authenticate(properties.getProperty("admin.user"),
               properties.getProperty("admin.password")).getAuthToken();
           ProjectServiceRestImpl contentService = new ProjectServiceRestImpl();
-          contentService.luceneReindex("ProjectJpa", null, null, authToken);
+          contentService.luceneReindex("ProjectJpa", null, null, null, null, null, null, authToken);
         }
       }
 
@@ -1584,7 +1598,7 @@ public class PatchDataMojo extends AbstractRttMojo {
           String authToken = securityService.authenticate(properties.getProperty("admin.user"),
               properties.getProperty("admin.password")).getAuthToken();
           ProjectServiceRestImpl contentService = new ProjectServiceRestImpl();
-          contentService.luceneReindex("ProjectJpa", null, null, authToken);
+          contentService.luceneReindex("ProjectJpa", null, null, null, null, null, null, authToken);
         }
       }
 
@@ -1896,7 +1910,7 @@ public class PatchDataMojo extends AbstractRttMojo {
         String authToken = securityService.authenticate(properties.getProperty("admin.user"),
             properties.getProperty("admin.password")).getAuthToken();
         ProjectServiceRestImpl contentService = new ProjectServiceRestImpl();
-        contentService.luceneReindex("ProjectJpa, UserJpa", null, null, authToken);
+        contentService.luceneReindex("ProjectJpa, UserJpa", null, null, null, null, null, null, authToken);
       }
 
     } catch (Exception e) {
@@ -2018,6 +2032,39 @@ public class PatchDataMojo extends AbstractRttMojo {
     refsetService.commitClearBegin();
   }
 
+  /**
+   * Patch 20261017.
+   *
+   * @param refsetService the refset service
+   * @throws Exception the exception
+   */
+  private void patch20261017(RefsetService refsetService) throws Exception {
+    // PRIOR to this patch configure release.artifact.store.handler and run
+    // mojo/src/main/resources/patch20261017.sql
+    final int ct = refsetService.moveReleaseArtifactDataToStore();
+    getLog().info("  release artifacts moved = " + ct);
+  }
+
+  /**
+   * Patch 20261018.
+   *
+   * @param fullReindex the full reindex
+   * @throws Exception the exception
+   */
+  private void patch20261018(boolean fullReindex) throws Exception {
+    // the display name sort keys are only in the index
+    if (!fullReindex) {
+      getLog().info("  Concept refset members");
+      final Properties properties = ConfigUtility.getConfigProperties();
+      try (final SecurityService securityService = new SecurityServiceJpa();) {
+        String authToken = securityService.authenticate(properties.getProperty("admin.user"),
+            properties.getProperty("admin.password")).getAuthToken();
+        ProjectServiceRestImpl contentService = new ProjectServiceRestImpl();
+        contentService.luceneReindex("ConceptRefsetMemberJpa", null, null, null, null, null, null, authToken);
+      }
+    }
+  }
+
   private void patch20221225(boolean fullReindex) throws Exception {
 
     File dir = new File(input);
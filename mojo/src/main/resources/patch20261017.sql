@@ -0,0 +1,4 @@
+-- database fixes prior to patch 20261017 (release artifact data moved to the
+-- release artifact store, see release.artifact.store.handler)
+alter table release_artifacts modify data longblob null;
+alter table release_artifacts_AUD modify data longblob null;
@@ -19,6 +19,7 @@ import org.ihtsdo.otf.refset.Project;
 import org.ihtsdo.otf.refset.helpers.ConceptList;
 import org.ihtsdo.otf.refset.helpers.ConfigUtility;
 import org.ihtsdo.otf.refset.helpers.DescriptionTypeList;
+import org.ihtsdo.otf.refset.helpers.JobInfoList;
 import org.ihtsdo.otf.refset.helpers.KeyValuePairList;
 import org.ihtsdo.otf.refset.helpers.ProjectList;
 import org.ihtsdo.otf.refset.helpers.StringList;
@@ -244,19 +245,34 @@ public class ProjectClientRest extends RootClientRest
   /* see superclass */
   @Override
   public void luceneReindex(String indexedObjects,
-    Integer batchSizeToLoadObjects, Integer threadsToLoadObjects,
-    String authToken) throws Exception {
+    Integer batchSizeToLoadObjects, Integer threadsToLoadObjects, Long fromId,
+    Long toId, String modifiedSince, String modifiedUntil, String authToken)
+    throws Exception {
     Logger.getLogger(getClass())
         .debug("Project Client - lucene reindex " + indexedObjects);
 
     Client client = ClientBuilder.newClient();
-    String queryString = ((batchSizeToLoadObjects != null)
-        ? "batchSizeToLoadObjects=" + batchSizeToLoadObjects : "")
-        + ((threadsToLoadObjects != null)
-            ? "threadsToLoadObjects=" + threadsToLoadObjects : "");
     WebTarget target =
-        client.target(config.getProperty("base.url") + "/project/reindex"
-            + (queryString.isEmpty() ? "&" + queryString : ""));
+        client.target(config.getProperty("base.url") + "/project/reindex");
+    if (batchSizeToLoadObjects != null) {
+      target = target.queryParam("batchSizeToLoadObjects",
+          batchSizeToLoadObjects);
+    }
+    if (threadsToLoadObjects != null) {
+      target = target.queryParam("threadsToLoadObjects", threadsToLoadObjects);
+    }
+    if (fromId != null) {
+      target = target.queryParam("fromId", fromId);
+    }
+    if (toId != null) {
+      target = target.queryParam("toId", toId);
+    }
+    if (modifiedSince != null) {
+      target = target.queryParam("modifiedSince", modifiedSince);
+    }
+    if (modifiedUntil != null) {
+      target = target.queryParam("modifiedUntil", modifiedUntil);
+    }
     Response response = target.request(MediaType.APPLICATION_XML)
         .header("Authorization", authToken).post(Entity.text(indexedObjects));
 
@@ -772,6 +788,106 @@ public class ProjectClientRest extends RootClientRest
         KeyValuePairList.class);
   }
 
+  /* see superclass */
+  @Override
+  public KeyValuePairList getTerminologyHandlerPoolStatistics(String authToken)
+    throws Exception {
+    Logger.getLogger(getClass())
+        .debug("Project Client - get terminology handler pool statistics");
+    final Client client = ClientBuilder.newClient();
+    final WebTarget target = client
+        .target(config.getProperty("base.url") + "/project/handlers/pool");
+
+    final Response response = target.request(MediaType.APPLICATION_XML)
+        .header("Authorization", authToken).get();
+
+    final String resultString = response.readEntity(String.class);
+    if (response.getStatusInfo().getFamily() == Family.SUCCESSFUL) {
+      // n/a
+    } else {
+      throw new Exception(response.toString());
+    }
+
+    // converting to object
+    return (KeyValuePairList) ConfigUtility.getGraphForString(resultString,
+        KeyValuePairList.class);
+  }
+
+  /* see superclass */
+  @Override
+  public KeyValuePairList getTerminologyHandlerCacheStatistics(String authToken)
+    throws Exception {
+    Logger.getLogger(getClass())
+        .debug("Project Client - get terminology handler cache statistics");
+    final Client client = ClientBuilder.newClient();
+    final WebTarget target = client
+        .target(config.getProperty("base.url") + "/project/handlers/cache");
+
+    final Response response = target.request(MediaType.APPLICATION_XML)
+        .header("Authorization", authToken).get();
+
+    final String resultString = response.readEntity(String.class);
+    if (response.getStatusInfo().getFamily() == Family.SUCCESSFUL) {
+      // n/a
+    } else {
+      throw new Exception(response.toString());
+    }
+
+    // converting to object
+    return (KeyValuePairList) ConfigUtility.getGraphForString(resultString,
+        KeyValuePairList.class);
+  }
+
+  /* see superclass */
+  @Override
+  public KeyValuePairList getIdentifierPoolStatistics(String authToken)
+    throws Exception {
+    Logger.getLogger(getClass())
+        .debug("Project Client - get identifier pool statistics");
+    final Client client = ClientBuilder.newClient();
+    final WebTarget target = client.target(
+        config.getProperty("base.url") + "/project/handlers/identifiers");
+
+    final Response response = target.request(MediaType.APPLICATION_XML)
+        .header("Authorization", authToken).get();
+
+    final String resultString = response.readEntity(String.class);
+    if (response.getStatusInfo().getFamily() == Family.SUCCESSFUL) {
+      // n/a
+    } else {
+      throw new Exception(response.toString());
+    }
+
+    // converting to object
+    return (KeyValuePairList) ConfigUtility.getGraphForString(resultString,
+        KeyValuePairList.class);
+  }
+
+  /* see superclass */
+  @Override
+  public JobInfoList getJobs(Long projectId, String authToken)
+    throws Exception {
+    Logger.getLogger(getClass())
+        .debug("Project Client - get background jobs " + projectId);
+    final Client client = ClientBuilder.newClient();
+    final WebTarget target = client.target(config.getProperty("base.url")
+        + "/project/jobs" + (projectId == null ? "" : "?projectId=" + projectId));
+
+    final Response response = target.request(MediaType.APPLICATION_XML)
+        .header("Authorization", authToken).get();
+
+    final String resultString = response.readEntity(String.class);
+    if (response.getStatusInfo().getFamily() == Family.SUCCESSFUL) {
+      // n/a
+    } else {
+      throw new Exception(response.toString());
+    }
+
+    // converting to object
+    return (JobInfoList) ConfigUtility.getGraphForString(resultString,
+        JobInfoList.class);
+  }
+
   @Override
   public Boolean testHandlerUrl(String key, String url, String authToken,
     String terminology, String version) throws Exception {
@@ -14,6 +14,7 @@ import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status.Family;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.log4j.Logger;
 import org.glassfish.jersey.client.ClientConfig;
@@ -275,7 +276,7 @@ public class RefsetClientRest extends RootClientRest
 
   /* see superclass */
   @Override
-  public InputStream exportMembers(Long refsetId, String ioHandlerInfoId,
+  public StreamingOutput exportMembers(Long refsetId, String ioHandlerInfoId,
     String query, String language, Boolean fsn, PfsParameterJpa pfs,
     String authToken) throws Exception {
     Logger.getLogger(getClass())
@@ -294,13 +295,17 @@ public class RefsetClientRest extends RootClientRest
     Response response = target.request(MediaType.APPLICATION_OCTET_STREAM)
         .header("Authorization", authToken).post(Entity.xml(pfsString));
 
-    InputStream in = response.readEntity(InputStream.class);
+    final InputStream in = response.readEntity(InputStream.class);
     if (response.getStatusInfo().getFamily() == Family.SUCCESSFUL) {
       // n/a
     } else {
       throw new Exception(response.toString());
     }
-    return in;
+    return output -> {
+      try (final InputStream stream = in;) {
+        stream.transferTo(output);
+      }
+    };
   }
 
   /* see superclass */
@@ -845,6 +850,58 @@ public class RefsetClientRest extends RootClientRest
 
   }
 
+  /* see superclass */
+  @Override
+  public KeyValuePairList getReportStoreStatistics(String authToken)
+    throws Exception {
+    Logger.getLogger(getClass())
+        .debug("Refset Client - get report store statistics");
+
+    final Client client = ClientBuilder.newClient();
+    final WebTarget target =
+        client.target(config.getProperty("base.url") + "/refset/report/store");
+
+    final Response response = target.request(MediaType.APPLICATION_XML)
+        .header("Authorization", authToken).get();
+
+    final String resultString = response.readEntity(String.class);
+    if (response.getStatusInfo().getFamily() == Family.SUCCESSFUL) {
+      // n/a
+    } else {
+      throw new Exception(response.toString());
+    }
+
+    // converting to object
+    return (KeyValuePairList) ConfigUtility.getGraphForString(resultString,
+        KeyValuePairList.class);
+  }
+
+  /* see superclass */
+  @Override
+  public KeyValuePairList getDefinitionStatistics(String authToken)
+    throws Exception {
+    Logger.getLogger(getClass())
+        .debug("Refset Client - get definition resolution statistics");
+
+    final Client client = ClientBuilder.newClient();
+    final WebTarget target = client
+        .target(config.getProperty("base.url") + "/refset/definition/statistics");
+
+    final Response response = target.request(MediaType.APPLICATION_XML)
+        .header("Authorization", authToken).get();
+
+    final String resultString = response.readEntity(String.class);
+    if (response.getStatusInfo().getFamily() == Family.SUCCESSFUL) {
+      // n/a
+    } else {
+      throw new Exception(response.toString());
+    }
+
+    // converting to object
+    return (KeyValuePairList) ConfigUtility.getGraphForString(resultString,
+        KeyValuePairList.class);
+  }
+
   /* see superclass */
   @Override
   public String extrapolateDefinition(Long refsetId, String authToken)
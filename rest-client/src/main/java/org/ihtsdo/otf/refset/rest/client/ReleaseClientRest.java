@@ -530,8 +530,8 @@ public class ReleaseClientRest extends RootClientRest
   }
 
   @Override
-  public InputStream exportReleaseArtifact(Long artifactId, String authToken)
-    throws Exception {
+  public Response exportReleaseArtifact(Long artifactId, String range,
+    String authToken) throws Exception {
     Logger.getLogger(getClass())
         .debug("Release Client - export release artifact: " + artifactId);
 
@@ -539,15 +539,14 @@ public class ReleaseClientRest extends RootClientRest
     WebTarget target = client.target(
         config.getProperty("base.url") + "/release/export/" + artifactId);
     Response response = target.request(MediaType.APPLICATION_OCTET_STREAM)
-        .header("Authorization", authToken).get();
+        .header("Authorization", authToken).header("Range", range).get();
 
-    InputStream in = response.readEntity(InputStream.class);
     if (response.getStatusInfo().getFamily() == Family.SUCCESSFUL) {
       // n/a
     } else {
       throw new Exception(response.toString());
     }
-    return in;
+    return response;
   }
 
   @Override
@@ -19,6 +19,7 @@ import org.apache.log4j.Logger;
 import org.ihtsdo.otf.refset.User;
 import org.ihtsdo.otf.refset.UserPreferences;
 import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+import org.ihtsdo.otf.refset.helpers.KeyValuePairList;
 import org.ihtsdo.otf.refset.helpers.StringList;
 import org.ihtsdo.otf.refset.helpers.UserList;
 import org.ihtsdo.otf.refset.jpa.UserJpa;
@@ -283,6 +284,31 @@ public class SecurityClientRest extends RootClientRest
     return list;
   }
 
+  /* see superclass */
+  @Override
+  public KeyValuePairList getRoleCacheStatistics(String authToken)
+    throws Exception {
+    Logger.getLogger(getClass())
+        .debug("Security Client - get role cache statistics");
+    final Client client = ClientBuilder.newClient();
+    final WebTarget target =
+        client.target(config.getProperty("base.url") + "/security/roles/cache");
+
+    final Response response = target.request(MediaType.APPLICATION_XML)
+        .header("Authorization", authToken).get();
+
+    final String resultString = response.readEntity(String.class);
+    if (response.getStatusInfo().getFamily() == Family.SUCCESSFUL) {
+      // n/a
+    } else {
+      throw new Exception(response.toString());
+    }
+
+    // converting to object
+    return (KeyValuePairList) ConfigUtility.getGraphForString(resultString,
+        KeyValuePairList.class);
+  }
+
   @Override
   public UserList findUsersForQuery(String query, PfsParameterJpa pfs,
     String authToken) throws Exception {
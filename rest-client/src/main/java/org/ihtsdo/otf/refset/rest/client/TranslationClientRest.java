@@ -14,6 +14,7 @@ import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status.Family;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.log4j.Logger;
 import org.glassfish.jersey.client.ClientConfig;
@@ -226,7 +227,7 @@ public class TranslationClientRest extends RootClientRest
 
   /* see superclass */
   @Override
-  public InputStream exportConcepts(Long translationId, String ioHandlerInfoId,
+  public StreamingOutput exportConcepts(Long translationId, String ioHandlerInfoId,
     String query, PfsParameterJpa pfs, String authToken) throws Exception {
     Logger.getLogger(getClass())
         .debug("Translation Client - export translation concepts - "
@@ -244,13 +245,17 @@ public class TranslationClientRest extends RootClientRest
     Response response = target.request(MediaType.APPLICATION_OCTET_STREAM)
         .header("Authorization", authToken).post(Entity.xml(pfsString));
 
-    InputStream in = response.readEntity(InputStream.class);
+    final InputStream in = response.readEntity(InputStream.class);
     if (response.getStatusInfo().getFamily() == Family.SUCCESSFUL) {
       // n/a
     } else {
       throw new Exception(response.toString());
     }
-    return in;
+    return output -> {
+      try (final InputStream stream = in;) {
+        stream.transferTo(output);
+      }
+    };
   }
 
   /* see superclass */
@@ -1321,7 +1326,7 @@ public class TranslationClientRest extends RootClientRest
   /* see superclass */
   @Override
   public KeyValuesMap suggestBatchTranslation(Long translationId,
-    StringList phrases, String authToken) throws Exception {
+    StringList phrases, String matchType, String authToken) throws Exception {
     Logger.getLogger(getClass()).debug(
         "Translation Client - Batch suggest translations " + translationId);
 
@@ -1330,7 +1335,8 @@ public class TranslationClientRest extends RootClientRest
         .getStringForGraph(phrases == null ? new StringList() : phrases);
 
     WebTarget target = client.target(config.getProperty("base.url")
-        + "/translation/memory/suggest/batch?translationId=" + translationId);
+        + "/translation/memory/suggest/batch?translationId=" + translationId
+        + (matchType == null ? "" : "&matchType=" + matchType));
 
     Response response = target.request(MediaType.APPLICATION_XML)
         .header("Authorization", authToken).post(Entity.xml(phrasesStringList));
@@ -1549,6 +1555,32 @@ public class TranslationClientRest extends RootClientRest
         TranslationSuggestionList.class);
   }
 
+  /* see superclass */
+  @Override
+  public Integer prefetchTranslationSuggestions(Long translationId,
+    String userName, String authToken) throws Exception {
+    Logger.getLogger(getClass()).debug("Translation Client - prefetch suggestions "
+        + translationId + ", " + userName);
+    validateNotEmpty(translationId, "translationId");
+
+    Client client = ClientBuilder.newClient();
+    WebTarget target = client.target(config.getProperty("base.url")
+        + "/translation/suggestions/prefetch?translationId=" + translationId
+        + "&userName=" + userName);
+
+    Response response = target.request(MediaType.TEXT_PLAIN)
+        .header("Authorization", authToken).post(Entity.text(""));
+
+    Integer resultInteger = response.readEntity(Integer.class);
+    if (response.getStatusInfo().getFamily() == Family.SUCCESSFUL) {
+      // n/a
+    } else {
+      throw new Exception(response.toString());
+    }
+
+    return resultInteger;
+  }
+
   @Override
   public KeyValuePairList getLanguageRefsetDialectInfo(String useCase,
     String authToken) throws Exception {
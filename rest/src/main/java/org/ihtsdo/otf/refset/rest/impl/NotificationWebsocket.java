@@ -2,32 +2,103 @@
  * Copyright 2015 West Coast Informatics, LLC
  */
 /*
- * 
+ *
  */
 package org.ihtsdo.otf.refset.rest.impl;
 
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.websocket.CloseReason;
 import javax.websocket.CloseReason.CloseCodes;
 import javax.websocket.OnClose;
+import javax.websocket.OnError;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
+import javax.websocket.SendResult;
 import javax.websocket.Session;
 import javax.websocket.server.ServerEndpoint;
 
+import org.apache.log4j.Logger;
+import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+import org.ihtsdo.otf.refset.jpa.services.JobScheduler;
+
 /**
  * Websocket for asynchronous notifications. For now just messages, but could be
  * JSON representations of objects.
+ *
+ * Sessions subscribe to topics (e.g. "project:1", "refset:2",
+ * "translation:3", "job:4") by sending "subscribe [topic]" messages and
+ * receive only the messages of their topics (and broadcasts). Progress
+ * messages are coalesced to at most one per topic every
+ * "websocket.coalesce.interval" ms. Each session has its own send queue of at
+ * most "websocket.session.maxQueue" messages; when a slow client lets it fill
+ * up, the oldest messages are dropped.
  */
 @ServerEndpoint(value = "/websocket", configurator = NotificationWebsocketConfigurator.class)
 public class NotificationWebsocket {
 
-  /** The sessions. */
-  private static Set<Session> sessions = Collections
-      .synchronizedSet(new HashSet<Session>());
+  /** The project topic type. */
+  public final static String PROJECT = "project";
+
+  /** The refset topic type. */
+  public final static String REFSET = "refset";
+
+  /** The translation topic type. */
+  public final static String TRANSLATION = "translation";
+
+  /** The job topic type. */
+  public final static String JOB = "job";
+
+  /** The subscribers by session id. */
+  private static Map<String, Subscriber> subscribers =
+      new ConcurrentHashMap<>();
+
+  /** The subscribers by topic. */
+  private static Map<String, Set<Subscriber>> topics =
+      new ConcurrentHashMap<>();
+
+  /** The coalesced messages waiting to be sent, by topic. */
+  private static Map<String, String> pending = new LinkedHashMap<>();
+
+  /** The coalescing scheduler. */
+  private static ScheduledExecutorService scheduler;
+
+  /** The max queued messages per session. */
+  private static int maxQueue = 100;
+
+  /** The coalesce interval. */
+  private static long interval = 1000;
+
+  static {
+    try {
+      maxQueue = Integer.parseInt(ConfigUtility.getConfigProperties()
+          .getProperty("websocket.session.maxQueue", "100").trim());
+      interval = Long.parseLong(ConfigUtility.getConfigProperties()
+          .getProperty("websocket.coalesce.interval", "1000").trim());
+    } catch (Exception e) {
+      Logger.getLogger(NotificationWebsocket.class)
+          .error("Failed to read websocket configuration, using defaults", e);
+    }
+
+    // Notify job subscribers (and the job's project) of job state changes
+    JobScheduler.setListener(job -> {
+      final String message = getMessage(JOB, job.getId(), job.getState());
+      send(getTopic(JOB, job.getId()), message);
+      if (job.getProjectId() != null) {
+        sendCoalesced(getTopic(PROJECT, job.getProjectId()), message);
+      }
+    });
+  }
 
   /**
    * Instantiates an empty {@link NotificationWebsocket}.
@@ -45,7 +116,7 @@ public class NotificationWebsocket {
   @OnOpen
   public void onOpen(Session session) {
     // Add to sessions list
-    sessions.add(session);
+    subscribers.put(session.getId(), new Subscriber(session));
   }
 
   /**
@@ -56,54 +127,285 @@ public class NotificationWebsocket {
   @SuppressWarnings("static-method")
   @OnClose
   public void onClose(Session userSession) {
-    sessions.remove(userSession);
+    remove(userSession);
+  }
+
+  /**
+   * On error.
+   *
+   * @param session the session
+   * @param t the error
+   */
+  @SuppressWarnings("static-method")
+  @OnError
+  public void onError(Session session, Throwable t) {
+    Logger.getLogger(NotificationWebsocket.class)
+        .debug("  Websocket error for session " + session.getId(), t);
+    remove(session);
   }
 
   /**
-   * Echo text.
+   * Handles a message: "subscribe [topic]" and "unsubscribe [topic]" change
+   * the topics of the session, anything else is echoed.
    *
    * @param name the name
+   * @param session the session
    * @return the string
    */
   @SuppressWarnings("static-method")
   @OnMessage
-  public String echoText(String name) {
+  public String echoText(String name, Session session) {
+    final Subscriber subscriber = subscribers.get(session.getId());
+    final String[] tokens = name.trim().split("\\s+", 2);
+    if (subscriber == null || tokens.length != 2) {
+      return name;
+    }
+    if (tokens[0].equals("subscribe")) {
+      subscriber.topics.add(tokens[1]);
+      // add within compute, so an unsubscribe removing the topic's last
+      // subscriber cannot drop the topic between the lookup and the add
+      topics.compute(tokens[1], (k, set) -> {
+        final Set<Subscriber> topicSubscribers =
+            set == null ? ConcurrentHashMap.newKeySet() : set;
+        topicSubscribers.add(subscriber);
+        return topicSubscribers;
+      });
+      // the session may have closed meanwhile, its removal missing this topic
+      if (!subscribers.containsKey(session.getId())) {
+        unsubscribe(tokens[1], subscriber);
+      }
+      return null;
+    }
+    if (tokens[0].equals("unsubscribe")) {
+      subscriber.topics.remove(tokens[1]);
+      unsubscribe(tokens[1], subscriber);
+      return null;
+    }
     return name;
   }
 
   /**
-   * Send.
+   * Sends a message to all sessions.
    *
    * @param message the message
    */
   @SuppressWarnings("static-method")
   public void send(String message) {
-    // Remove closed sessions
-    Set<Session> copy = new HashSet<>(sessions);
-    for (Session session : copy) {
-      if (!session.isOpen()) {
-        sessions.remove(session);
+    for (final Subscriber subscriber : subscribers.values()) {
+      subscriber.offer(message);
+    }
+  }
+
+  /**
+   * Sends a message to the sessions subscribed to the topic.
+   *
+   * @param topic the topic
+   * @param message the message
+   */
+  public static void send(String topic, String message) {
+    final Set<Subscriber> topicSubscribers = topics.get(topic);
+    if (topicSubscribers == null) {
+      return;
+    }
+    for (final Subscriber subscriber : topicSubscribers) {
+      subscriber.offer(message);
+    }
+  }
+
+  /**
+   * Sends a progress message to the sessions subscribed to the topic, at most
+   * one per coalesce interval. A message replaces the one still waiting for
+   * the same topic.
+   *
+   * @param topic the topic
+   * @param message the message
+   */
+  public static void sendCoalesced(String topic, String message) {
+    if (!topics.containsKey(topic)) {
+      return;
+    }
+    synchronized (pending) {
+      pending.put(topic, message);
+      if (scheduler == null) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+          final Thread thread = new Thread(r, "websocket-coalesce");
+          thread.setDaemon(true);
+          return thread;
+        });
+        scheduler.scheduleWithFixedDelay(NotificationWebsocket::flush,
+            interval, interval, TimeUnit.MILLISECONDS);
       }
     }
+  }
 
-    // Send message to all listeners
-    synchronized (sessions) {
-      for (Session session : sessions) {
-        try {
-          // Send async message
-          session.getAsyncRemote().sendText(message);
-        } catch (Exception e) {
-          // if anything went wrong, close the session and remove it
-          try {
-            session.close(new CloseReason(CloseCodes.UNEXPECTED_CONDITION,
-                "Closing"));
-          } catch (Exception e2) {
-            // do nothing
+  /**
+   * Returns the topic for an object.
+   *
+   * @param type the topic type, e.g. {@link #REFSET}
+   * @param id the object id
+   * @return the topic
+   */
+  public static String getTopic(String type, Object id) {
+    return type + ":" + id;
+  }
+
+  /**
+   * Returns a JSON notification message.
+   *
+   * @param type the topic type
+   * @param id the object id
+   * @param event the event, e.g. "UPDATE"
+   * @return the message
+   */
+  public static String getMessage(String type, Object id, String event) {
+    return "{\"topic\":\"" + getTopic(type, id) + "\",\"type\":\"" + type
+        + "\",\"id\":" + id + ",\"event\":\"" + event + "\"}";
+  }
+
+  /**
+   * Sends the coalesced messages waiting to be sent.
+   */
+  private static void flush() {
+    final List<Map.Entry<String, String>> messages;
+    synchronized (pending) {
+      messages = new ArrayList<>(pending.entrySet());
+      pending.clear();
+    }
+    for (final Map.Entry<String, String> entry : messages) {
+      send(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Removes a session and its subscriptions.
+   *
+   * @param session the session
+   */
+  static void remove(Session session) {
+    final Subscriber subscriber = subscribers.remove(session.getId());
+    if (subscriber != null) {
+      for (final String topic : subscriber.topics) {
+        unsubscribe(topic, subscriber);
+      }
+    }
+  }
+
+  /**
+   * Removes a subscriber from a topic, and the topic once it has none.
+   *
+   * @param topic the topic
+   * @param subscriber the subscriber
+   */
+  private static void unsubscribe(String topic, Subscriber subscriber) {
+    topics.computeIfPresent(topic, (k, set) -> {
+      set.remove(subscriber);
+      return set.isEmpty() ? null : set;
+    });
+  }
+
+  /**
+   * A session with its topics and send queue. One message is sent at a time;
+   * the next is sent when the container reports the previous one done.
+   */
+  private static final class Subscriber {
+
+    /** The session. */
+    final Session session;
+
+    /** The topics. */
+    final Set<String> topics = ConcurrentHashMap.newKeySet();
+
+    /** The queued messages. */
+    private final Deque<String> queue = new ArrayDeque<>();
+
+    /** The sending flag. */
+    private boolean sending = false;
+
+    /** The number of dropped messages. */
+    private long dropped = 0;
+
+    /**
+     * Instantiates a {@link Subscriber} from the specified parameters.
+     *
+     * @param session the session
+     */
+    Subscriber(Session session) {
+      this.session = session;
+    }
+
+    /**
+     * Queues a message, dropping the oldest if the queue is full, and starts
+     * sending if not already.
+     *
+     * @param message the message
+     */
+    void offer(String message) {
+      synchronized (this) {
+        if (queue.size() >= maxQueue) {
+          queue.removeFirst();
+          if (dropped++ % 100 == 0) {
+            Logger.getLogger(NotificationWebsocket.class)
+                .debug("  Websocket session " + session.getId()
+                    + " is not keeping up, dropped " + dropped + " messages");
           }
-          sessions.remove(session);
         }
+        queue.addLast(message);
+        if (sending) {
+          return;
+        }
+        sending = true;
       }
+      sendNext();
     }
 
+    /**
+     * Sends the next queued message, if any.
+     */
+    private void sendNext() {
+      final String message;
+      synchronized (this) {
+        message = queue.pollFirst();
+        if (message == null) {
+          sending = false;
+          return;
+        }
+      }
+      if (!session.isOpen()) {
+        remove(session);
+        return;
+      }
+      try {
+        // Send async message
+        session.getAsyncRemote().sendText(message, this::onResult);
+      } catch (Exception e) {
+        close();
+      }
+    }
+
+    /**
+     * Handles the result of a send.
+     *
+     * @param result the result
+     */
+    private void onResult(SendResult result) {
+      if (result.isOK()) {
+        sendNext();
+      } else {
+        close();
+      }
+    }
+
+    /**
+     * If anything went wrong, close the session and remove it.
+     */
+    private void close() {
+      try {
+        session.close(
+            new CloseReason(CloseCodes.UNEXPECTED_CONDITION, "Closing"));
+      } catch (Exception e2) {
+        // do nothing
+      }
+      remove(session);
+    }
   }
-}
\ No newline at end of file
+}
@@ -36,6 +36,7 @@ import org.ihtsdo.otf.refset.helpers.ConceptList;
 import org.ihtsdo.otf.refset.helpers.ConfigUtility;
 import org.ihtsdo.otf.refset.helpers.DescriptionTypeList;
 import org.ihtsdo.otf.refset.helpers.KeyValuePair;
+import org.ihtsdo.otf.refset.helpers.JobInfoList;
 import org.ihtsdo.otf.refset.helpers.KeyValuePairList;
 import org.ihtsdo.otf.refset.helpers.LocalException;
 import org.ihtsdo.otf.refset.helpers.LogEntry;
@@ -57,10 +58,14 @@ import org.ihtsdo.otf.refset.jpa.helpers.ProjectListJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.TerminologyListJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.TranslationExtensionLanguageListJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.UserListJpa;
+import org.ihtsdo.otf.refset.jpa.services.JobScheduler;
 import org.ihtsdo.otf.refset.jpa.services.ProjectServiceJpa;
 import org.ihtsdo.otf.refset.jpa.services.RefsetServiceJpa;
 import org.ihtsdo.otf.refset.jpa.services.SecurityServiceJpa;
 import org.ihtsdo.otf.refset.jpa.services.TranslationServiceJpa;
+import org.ihtsdo.otf.refset.jpa.services.handlers.AbstractTerminologyHandler;
+import org.ihtsdo.otf.refset.jpa.services.handlers.CachingTerminologyHandler;
+import org.ihtsdo.otf.refset.jpa.services.handlers.IdentifierPool;
 import org.ihtsdo.otf.refset.jpa.services.handlers.SnowstormTerminologyHandler;
 import org.ihtsdo.otf.refset.jpa.services.rest.ProjectServiceRest;
 import org.ihtsdo.otf.refset.rf2.Concept;
@@ -559,17 +564,25 @@ public class ProjectServiceRestImpl extends RootServiceRestImpl
   @POST
   @Path("/reindex")
   @Consumes("text/plain")
-  @ApiOperation(value = "Reindex specified objects", notes = "Recomputes lucene indexes for the specified comma-separated objects")
+  @ApiOperation(value = "Reindex specified objects", notes = "Recomputes lucene indexes for the specified comma-separated objects, optionally only for an id range or last modified window")
   public void luceneReindex(
     @ApiParam(value = "Comma-separated list of objects to reindex, e.g. ConceptJpa (optional)", required = false) String indexedObjects,
     @ApiParam(value = "Batch size of load objects to index (optional).", required = false) @QueryParam("batchSizeToLoadObjects") Integer batchSizeToLoadObjects,
     @ApiParam(value = "Number of threads to load objects (optional)", required = false) @QueryParam("threadsToLoadObjects") Integer threadsToLoadObjects,
+    @ApiParam(value = "Reindex objects with ids from this one (optional)", required = false) @QueryParam("fromId") Long fromId,
+    @ApiParam(value = "Reindex objects with ids up to this one (optional)", required = false) @QueryParam("toId") Long toId,
+    @ApiParam(value = "Reindex objects last modified on or after this date, e.g. 20190101 (optional)", required = false) @QueryParam("modifiedSince") String modifiedSince,
+    @ApiParam(value = "Reindex objects last modified before this date, e.g. 20190201 (optional)", required = false) @QueryParam("modifiedUntil") String modifiedUntil,
     @ApiParam(value = "Authorization token, e.g. 'author1'", required = true) @HeaderParam("Authorization") String authToken)
     throws Exception {
     Logger.getLogger(getClass())
         .info("RESTful POST call (Project): /reindex "
             + (indexedObjects == null ? "with no objects specified"
-                : "with specified objects " + indexedObjects));
+                : "with specified objects " + indexedObjects)
+            + (fromId == null && toId == null ? ""
+                : ", ids " + fromId + "-" + toId)
+            + (modifiedSince == null && modifiedUntil == null ? ""
+                : ", modified " + modifiedSince + "-" + modifiedUntil));
 
     // Track system level information
     long startTimeOrig = System.nanoTime();
@@ -579,6 +592,14 @@ public class ProjectServiceRestImpl extends RootServiceRestImpl
       algo.setIndexedObjects(indexedObjects);
       algo.setBatchSizeToLoadObjects(batchSizeToLoadObjects);
       algo.setThreadsToLoadObjects(threadsToLoadObjects);
+      algo.setFromId(fromId);
+      algo.setToId(toId);
+      if (modifiedSince != null) {
+        algo.setModifiedSince(ConfigUtility.DATE_FORMAT.parse(modifiedSince));
+      }
+      if (modifiedUntil != null) {
+        algo.setModifiedUntil(ConfigUtility.DATE_FORMAT.parse(modifiedUntil));
+      }
       algo.compute();
       algo.close();
       // Final logging messages
@@ -862,6 +883,118 @@ public class ProjectServiceRestImpl extends RootServiceRestImpl
     return null;
   }
 
+  /* see superclass */
+  @Override
+  @GET
+  @Path("/handlers/pool")
+  @ApiOperation(value = "Get terminology handler connection pool statistics", notes = "Gets leased, idle and pending connection counts and lease wait times for the shared terminology server connection pool", response = KeyValuePairList.class)
+  public KeyValuePairList getTerminologyHandlerPoolStatistics(
+    @ApiParam(value = "Authorization token, e.g. 'admin'", required = true) @HeaderParam("Authorization") String authToken)
+    throws Exception {
+
+    Logger.getLogger(getClass())
+        .info("RESTful GET call (Project): /handlers/pool");
+
+    try {
+      authorizeApp(securityService, authToken,
+          "get terminology handler pool statistics", UserRole.ADMIN);
+
+      return AbstractTerminologyHandler.getConnectionPoolStatistics();
+
+    } catch (Exception e) {
+      handleException(e, "trying to get terminology handler pool statistics");
+    } finally {
+      securityService.close();
+    }
+    return null;
+  }
+
+  /* see superclass */
+  @Override
+  @GET
+  @Path("/handlers/cache")
+  @ApiOperation(value = "Get terminology handler cache statistics", notes = "Gets entry, hit, miss and eviction counts for the shared terminology concept cache", response = KeyValuePairList.class)
+  public KeyValuePairList getTerminologyHandlerCacheStatistics(
+    @ApiParam(value = "Authorization token, e.g. 'admin'", required = true) @HeaderParam("Authorization") String authToken)
+    throws Exception {
+
+    Logger.getLogger(getClass())
+        .info("RESTful GET call (Project): /handlers/cache");
+
+    try {
+      authorizeApp(securityService, authToken,
+          "get terminology handler cache statistics", UserRole.ADMIN);
+
+      return CachingTerminologyHandler.getCacheStatistics();
+
+    } catch (Exception e) {
+      handleException(e, "trying to get terminology handler cache statistics");
+    } finally {
+      securityService.close();
+    }
+    return null;
+  }
+
+  /* see superclass */
+  @Override
+  @GET
+  @Path("/handlers/identifiers")
+  @ApiOperation(value = "Get identifier pool statistics", notes = "Gets the depth of each namespace and partition identifier pool, identifiers handed out, batches generated and takes that waited for a batch", response = KeyValuePairList.class)
+  public KeyValuePairList getIdentifierPoolStatistics(
+    @ApiParam(value = "Authorization token, e.g. 'admin'", required = true) @HeaderParam("Authorization") String authToken)
+    throws Exception {
+
+    Logger.getLogger(getClass())
+        .info("RESTful GET call (Project): /handlers/identifiers");
+
+    try {
+      authorizeApp(securityService, authToken,
+          "get identifier pool statistics", UserRole.ADMIN);
+
+      return IdentifierPool.getPoolStatistics();
+
+    } catch (Exception e) {
+      handleException(e, "trying to get identifier pool statistics");
+    } finally {
+      securityService.close();
+    }
+    return null;
+  }
+
+  /* see superclass */
+  @Override
+  @GET
+  @Path("/jobs")
+  @ApiOperation(value = "Get background jobs", notes = "Gets the queued, running and recently finished background jobs, optionally for a single project", response = JobInfoList.class)
+  public JobInfoList getJobs(
+    @ApiParam(value = "Project id, e.g. 3", required = false) @QueryParam("projectId") Long projectId,
+    @ApiParam(value = "Authorization token, e.g. 'author1'", required = true) @HeaderParam("Authorization") String authToken)
+    throws Exception {
+
+    Logger.getLogger(getClass())
+        .info("RESTful GET call (Project): /jobs " + projectId);
+
+    final ProjectService projectService = new ProjectServiceJpa();
+    try {
+      if (projectId == null) {
+        authorizeApp(securityService, authToken, "get background jobs",
+            UserRole.ADMIN);
+      } else {
+        authorizeProject(projectService, projectId, securityService, authToken,
+            "get background jobs", UserRole.AUTHOR);
+      }
+
+      return JobScheduler.getJobs(projectId);
+
+    } catch (Exception e) {
+      handleException(e, "trying to get background jobs");
+    } finally {
+      projectService.close();
+      securityService.close();
+    }
+    return null;
+  }
+
   /* see superclass */
   @Override
   @POST
@@ -15,6 +15,8 @@ import org.glassfish.jersey.jackson.JacksonFeature;
 import org.glassfish.jersey.jsonp.JsonProcessingFeature;
 import org.glassfish.jersey.media.multipart.MultiPartFeature;
 import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+import org.ihtsdo.otf.refset.jpa.services.ProjectServiceJpa;
+import org.ihtsdo.otf.refset.jpa.services.handlers.SpellingCorrectionHandlerPool;
 
 import com.wordnik.swagger.jaxrs.config.BeanConfig;
 
@@ -49,6 +51,13 @@ public class RefsetServerApplication extends Application {
     beanConfig.setResourcePackage("org.ihtsdo.otf.refset.rest.impl");
     beanConfig.setScan(true);
 
+    // Create the spelling pool, warming it up in the background if configured
+    SpellingCorrectionHandlerPool.getInstance();
+
+    // Push workflow changes to websocket subscribers. Registered here rather
+    // than configured, the listener class is only in the web application.
+    ProjectServiceJpa.addWorkflowListener(new WebsocketWorkflowListener());
+
     // Set up a timer task to run at 2AM every day
     // TimerTask task = new InitializationTask();
     // timer = new Timer();
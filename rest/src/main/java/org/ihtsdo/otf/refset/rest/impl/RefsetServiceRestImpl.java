@@ -3,17 +3,22 @@
  */
 package org.ihtsdo.otf.refset.rest.impl;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -25,9 +30,11 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.log4j.Logger;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
@@ -43,6 +50,7 @@ import org.ihtsdo.otf.refset.StagedRefsetChange;
 import org.ihtsdo.otf.refset.Translation;
 import org.ihtsdo.otf.refset.UserRole;
 import org.ihtsdo.otf.refset.ValidationResult;
+import org.ihtsdo.otf.refset.helpers.ConceptIdDictionary;
 import org.ihtsdo.otf.refset.helpers.ConceptList;
 import org.ihtsdo.otf.refset.helpers.ConceptRefsetMemberList;
 import org.ihtsdo.otf.refset.helpers.ConfigUtility;
@@ -66,6 +74,8 @@ import org.ihtsdo.otf.refset.jpa.helpers.ConceptRefsetMemberListJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.IoHandlerInfoListJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.PfsParameterJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.RefsetListJpa;
+import org.ihtsdo.otf.refset.jpa.services.JobScheduler;
+import org.ihtsdo.otf.refset.jpa.services.JobScheduler.JobClass;
 import org.ihtsdo.otf.refset.jpa.services.RefsetServiceJpa;
 import org.ihtsdo.otf.refset.jpa.services.ReleaseServiceJpa;
 import org.ihtsdo.otf.refset.jpa.services.SecurityServiceJpa;
@@ -121,6 +131,9 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
   /** The security service. */
   private SecurityService securityService;
 
+  /** The executor for resolving definition clauses. */
+  private static ExecutorService definitionExecutor;
+
   /** The reason map. */
   private Map<String, Concept> reasonMap = new HashMap<>();
 
@@ -422,35 +435,37 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
         .info("RESTful call GET (Refset): /members/refresh for projectId: "
             + projectId);
 
-    // Create service and configure transaction scope
-    final RefsetService refsetService =
-        new RefsetServiceJpa(getHeaders(headers));
-    refsetService.setTransactionPerOperation(false);
-    refsetService.beginTransaction();
-
-    Project project = refsetService.getProject(projectId);
-    List<Refset> refsets = project.getRefsets();
-
     // We won't be running lookup on all refsets, so create a new list to handle
-    List<Long> refsetIdsToLookup = new ArrayList<>();
-    for (int k = 0; k < refsets.size(); k++) {
-      if (!refsets.get(k).getWorkflowStatus()
-          .equals(WorkflowStatus.PUBLISHED)) {
-        refsetIdsToLookup.add(refsets.get(k).getId());
+    final List<Long> refsetIdsToLookup = new ArrayList<>();
+    try (final RefsetService refsetService =
+        new RefsetServiceJpa(getHeaders(headers))) {
+      final List<Refset> refsets =
+          refsetService.getProject(projectId).getRefsets();
+      for (int k = 0; k < refsets.size(); k++) {
+        if (!refsets.get(k).getWorkflowStatus()
+            .equals(WorkflowStatus.PUBLISHED)) {
+          refsetIdsToLookup.add(refsets.get(k).getId());
+        }
       }
-    }
 
-    // Set the lookupProgress message
-    refsetService.setBulkLookupProgress(projectId,
-        "0 of " + refsetIdsToLookup.size() + " completed.");
+      // Set the lookupProgress message
+      refsetService.setBulkLookupProgress(projectId,
+          "0 of " + refsetIdsToLookup.size() + " completed.");
+    }
 
-    final Thread t = new Thread(new Runnable() {
+    // The job creates its own service and transaction when it runs, so a
+    // queued job holds no connection
+    final Map<String, String> requestHeaders = getHeaders(headers);
+    final Runnable job = new Runnable() {
 
       /* see superclass */
       @Override
       public void run() {
 
-        try {
+        try (final RefsetService refsetService =
+            new RefsetServiceJpa(requestHeaders)) {
+          refsetService.setTransactionPerOperation(false);
+          refsetService.beginTransaction();
           final String userName =
               authorizeProject(refsetService, projectId, securityService,
                   authToken, "return inactive members", UserRole.AUTHOR);
@@ -498,6 +513,7 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
 
           }
 
+          final Project project = refsetService.getProject(projectId);
           project.setRefeshDescriptionsLastModified(new Date());
           refsetService.updateProject(project);
           refsetService.commit();
@@ -508,7 +524,6 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
           handleException(e, "refresh descriptions");
         } finally {
           try {
-            refsetService.close();
             securityService.close();
           } catch (Exception e) {
             // Do nothing
@@ -517,9 +532,17 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
 
         return;
       }
-    });
+    };
 
-    t.start();
+    try {
+      JobScheduler.submit(JobClass.LOOKUP, projectId,
+          "Refresh descriptions - " + refsetIdsToLookup.size() + " refsets",
+          JobScheduler.LOW_PRIORITY, job);
+    } catch (Exception e) {
+      // The job will never run, so close what it would have closed
+      securityService.close();
+      throw e;
+    }
 
     return;
   }
@@ -1239,7 +1262,7 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
   @Produces("application/octet-stream")
   @Path("/export/members")
   @ApiOperation(value = "Export members", notes = "Exports the members for the specified refset", response = InputStream.class)
-  public InputStream exportMembers(
+  public StreamingOutput exportMembers(
     @ApiParam(value = "Refset id, e.g. 3", required = true) @QueryParam("refsetId") Long refsetId,
     @ApiParam(value = "Import handler id, e.g. \"DEFAULT\"", required = true) @QueryParam("handlerId") String ioHandlerInfoId,
     @ApiParam(value = "Query, e.g. \"aspirin\"", required = true) @QueryParam("query") String query,
@@ -1273,33 +1296,50 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
         throw new Exception("invalid handler id " + ioHandlerInfoId);
       }
 
-      List<ConceptRefsetMember> list =
-          refsetService.findMembersForRefset(refset.getId(),
-              query == null ? "(memberType:INCLUSION OR memberType:MEMBER)"
-                  : query + " AND (memberType:INCLUSION OR memberType:MEMBER)",
-              pfs, true).getObjects();
-
-      for (ConceptRefsetMember member : list) {
-        if (language != null && !language.isEmpty()) {
-          String displayName = refsetService
-              .getDisplayNameForMember(member.getId(), language, fsn);
-          if (displayName != null) {
-            member.setConceptName(displayName);
-          }
-        }
-        refsetService.handleLazyInit(member);
-      }
-
-      // export the members
-      return handler.exportMembers(refset, list);
-
     } catch (Exception e) {
       handleException(e, "trying to export members");
     } finally {
       refsetService.close();
       securityService.close();
     }
-    return null;
+
+    // Write the members to the response as they are read, a page at a time,
+    // with a service that lives as long as the response does
+    final Map<String, String> exportHeaders = getHeaders(headers);
+    return output -> {
+      try (final RefsetService exportService =
+          new RefsetServiceJpa(exportHeaders);) {
+        final Refset refset = exportService.getRefset(refsetId);
+        final ExportRefsetHandler handler =
+            exportService.getExportRefsetHandler(ioHandlerInfoId);
+        final Iterable<ConceptRefsetMember> members =
+            exportService.scrollMembersForRefset(refset.getId(),
+                query == null ? "(memberType:INCLUSION OR memberType:MEMBER)"
+                    : query
+                        + " AND (memberType:INCLUSION OR memberType:MEMBER)",
+                pfs, true);
+        handler.exportMembers(refset,
+            language == null || language.isEmpty() ? members
+                : Iterables.transform(members, member -> {
+                  try {
+                    final String displayName = exportService
+                        .getDisplayNameForMember(member.getId(), language, fsn);
+                    if (displayName != null) {
+                      member.setConceptName(displayName);
+                    }
+                    return member;
+                  } catch (Exception e) {
+                    throw new RuntimeException(e);
+                  }
+                }),
+            output);
+      } catch (IOException e) {
+        throw e;
+      } catch (Exception e) {
+        Logger.getLogger(getClass()).error("Unable to export members", e);
+        throw new WebApplicationException(e);
+      }
+    };
 
   }
 
@@ -1895,65 +1935,30 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
           query = query.toLowerCase();
         }
 
-        PfsParameter origPfs = new PfsParameterJpa(pfs);
-        // if sort by non-Eng language, need to get synonyms for entire refset
-        // list, not just requested page
-        if (pfs != null && pfs.getSortField() != null
-            && pfs.getSortField().contentEquals("conceptName")
-            && language != null && !language.isEmpty()) {
-          pfs.setMaxResults(-1);
+        // if sort by concept name in a language, the index sorts by display
+        // name, so only the requested page is loaded
+        final ConceptRefsetMemberList list = refsetService
+            .findMembersForRefset(refsetId, query, pfs, true, language, fsn);
+        Map<Long, String> displayNames = new HashMap<>();
+        if (language != null && !language.isEmpty()
+            && !language.contentEquals("en")) {
+          final List<Long> memberIds = new ArrayList<>();
+          for (ConceptRefsetMember member : list.getObjects()) {
+            memberIds.add(member.getId());
+          }
+          displayNames =
+              refsetService.getDisplayNamesForMembers(memberIds, language, fsn);
         }
-
-        ConceptRefsetMemberList list =
-            refsetService.findMembersForRefset(refsetId, query, pfs, true);
         for (ConceptRefsetMember member : list.getObjects()) {
-          if (language != null && !language.isEmpty()
-              && !language.contentEquals("en")) {
-            String displayName = refsetService
-                .getDisplayNameForMember(member.getId(), language, fsn);
-            if (displayName != null) {
-              member.setConceptName(displayName);
-            }
-            //If display name not available for specified language, default to English PT
-            else {
-              displayName = refsetService.getDisplayNameForMember(member.getId(), "900000000000509007", false);
-              if(displayName != null) {
-                member.setConceptName(displayName);
-              }
-            }
+          // If display name not available for specified language, the English
+          // PT is used, otherwise the concept name is kept
+          final String displayName = displayNames.get(member.getId());
+          if (displayName != null) {
+            member.setConceptName(displayName);
           }
           refsetService.handleLazyInit(member);
         }
 
-        // if sort by non-Eng language, sort by display name
-        if (pfs != null && pfs.getSortField() != null
-            && pfs.getSortField().contentEquals("conceptName")
-            && language != null && !language.isEmpty()) {
-          Collections.sort(list.getObjects(),
-              new Comparator<ConceptRefsetMember>() {
-                @Override
-                public int compare(ConceptRefsetMember a1,
-                  ConceptRefsetMember a2) {
-                  if (pfs.isAscending()) {
-                    return a1.getConceptName()
-                        .compareToIgnoreCase(a2.getConceptName());
-                  } else {
-                    return a2.getConceptName()
-                        .compareToIgnoreCase(a1.getConceptName());
-                  }
-                }
-              });
-
-          // correct to re-apply paging
-          ConceptRefsetMemberList subsetOfList =
-              new ConceptRefsetMemberListJpa();
-          for (int i = origPfs.getStartIndex(); i < origPfs.getStartIndex()
-              + origPfs.getMaxResults() && i < list.getTotalCount(); i++) {
-            subsetOfList.addObject(list.getObjects().get(i));
-          }
-          list.setObjects(subsetOfList.getObjects());
-        }
-
         return list;
       } else if (translated != null) {
         final ConceptRefsetMemberList list = refsetService
@@ -2311,21 +2316,22 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
         .info("RESTful call POST (Refset): /migrations/begin/" + projectId
             + ", " + newTerminology + ", " + newVersion + ", " + refsetIds);
 
-    final RefsetService refsetService =
-        new RefsetServiceJpa(getHeaders(headers));
-    // manage transaction
-    refsetService.setTransactionPerOperation(false);
-    refsetService.beginTransaction();
-
+    // The job creates its own service and transaction when it runs, so a
+    // queued job holds no connection
+    final Map<String, String> requestHeaders = getHeaders(headers);
     final ValidationResult validationResults = new ValidationResultJpa();
 
-    final Thread t = new Thread(new Runnable() {
+    final Runnable job = new Runnable() {
 
       /* see superclass */
       @Override
       public void run() {
 
-        try {
+        try (final RefsetService refsetService =
+            new RefsetServiceJpa(requestHeaders)) {
+          // manage transaction
+          refsetService.setTransactionPerOperation(false);
+          refsetService.beginTransaction();
 
           if (refsetIds == null || refsetIds.length == 0) {
             throw new LocalException("Must include at least one refset");
@@ -2404,7 +2410,6 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
           handleException(e, "trying to begin migration of refsets");
         } finally {
           try {
-            refsetService.close();
             securityService.close();
           } catch (Exception e) {
             // Do nothing
@@ -2412,9 +2417,17 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
         }
         return;
       }
-    });
+    };
 
-    t.start();
+    try {
+      JobScheduler.submit(JobClass.MIGRATION, projectId,
+          "Begin migrations - " + refsetIds.length + " refsets",
+          JobScheduler.NORMAL_PRIORITY, job);
+    } catch (Exception e) {
+      // The job will never run, so close what it would have closed
+      securityService.close();
+      throw e;
+    }
 
     return;
   }
@@ -2434,21 +2447,22 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
         .info("RESTful call POST (Refset): /migrations/check/" + projectId
             + ", " + refsetIds);
 
-    final RefsetService refsetService =
-        new RefsetServiceJpa(getHeaders(headers));
-    // manage transaction
-    refsetService.setTransactionPerOperation(false);
-    refsetService.beginTransaction();
-
+    // The job creates its own service and transaction when it runs, so a
+    // queued job holds no connection
+    final Map<String, String> requestHeaders = getHeaders(headers);
     final ValidationResult validationResults = new ValidationResultJpa();
 
-    final Thread t = new Thread(new Runnable() {
+    final Runnable job = new Runnable() {
 
       /* see superclass */
       @Override
       public void run() {
 
-        try {
+        try (final RefsetService refsetService =
+            new RefsetServiceJpa(requestHeaders)) {
+          // manage transaction
+          refsetService.setTransactionPerOperation(false);
+          refsetService.beginTransaction();
 
           if (refsetIds == null || refsetIds.length == 0) {
             throw new LocalException("Must include at least one refset");
@@ -2525,7 +2539,6 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
               "trying to check migrations for inactive concepts");
         } finally {
           try {
-            refsetService.close();
             securityService.close();
           } catch (Exception e) {
             // Do nothing
@@ -2533,9 +2546,17 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
         }
         return;
       }
-    });
+    };
 
-    t.start();
+    try {
+      JobScheduler.submit(JobClass.MIGRATION, projectId,
+          "Check migrations - " + refsetIds.length + " refsets",
+          JobScheduler.NORMAL_PRIORITY, job);
+    } catch (Exception e) {
+      // The job will never run, so close what it would have closed
+      securityService.close();
+      throw e;
+    }
 
     return;
   }
@@ -2676,21 +2697,22 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
         .info("RESTful call POST (Refset): /migrations/finish/" + projectId
             + ", " + refsetIds);
 
-    final RefsetService refsetService =
-        new RefsetServiceJpa(getHeaders(headers));
-    // manage transaction
-    refsetService.setTransactionPerOperation(false);
-    refsetService.beginTransaction();
-
+    // The job creates its own service and transaction when it runs, so a
+    // queued job holds no connection
+    final Map<String, String> requestHeaders = getHeaders(headers);
     final ValidationResult validationResults = new ValidationResultJpa();
 
-    final Thread t = new Thread(new Runnable() {
+    final Runnable job = new Runnable() {
 
       /* see superclass */
       @Override
       public void run() {
 
-        try {
+        try (final RefsetService refsetService =
+            new RefsetServiceJpa(requestHeaders)) {
+          // manage transaction
+          refsetService.setTransactionPerOperation(false);
+          refsetService.beginTransaction();
 
           if (refsetIds == null || refsetIds.length == 0) {
             throw new LocalException("Must include at least one refset");
@@ -2773,7 +2795,6 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
           handleException(e, "trying to finish migration of refsets");
         } finally {
           try {
-            refsetService.close();
             securityService.close();
           } catch (Exception e) {
             // Do nothing
@@ -2781,9 +2802,17 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
         }
         return;
       }
-    });
+    };
 
-    t.start();
+    try {
+      JobScheduler.submit(JobClass.MIGRATION, projectId,
+          "Finish migrations - " + refsetIds.length + " refsets",
+          JobScheduler.NORMAL_PRIORITY, job);
+    } catch (Exception e) {
+      // The job will never run, so close what it would have closed
+      securityService.close();
+      throw e;
+    }
 
     return;
   }
@@ -2849,21 +2878,22 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
         .info("RESTful call POST (Refset): /migrations/cancel/" + projectId
             + ", " + refsetIds);
 
-    final RefsetService refsetService =
-        new RefsetServiceJpa(getHeaders(headers));
-    // manage transaction
-    refsetService.setTransactionPerOperation(false);
-    refsetService.beginTransaction();
-
+    // The job creates its own service and transaction when it runs, so a
+    // queued job holds no connection
+    final Map<String, String> requestHeaders = getHeaders(headers);
     final ValidationResult validationResults = new ValidationResultJpa();
 
-    final Thread t = new Thread(new Runnable() {
+    final Runnable job = new Runnable() {
 
       /* see superclass */
       @Override
       public void run() {
 
-        try {
+        try (final RefsetService refsetService =
+            new RefsetServiceJpa(requestHeaders)) {
+          // manage transaction
+          refsetService.setTransactionPerOperation(false);
+          refsetService.beginTransaction();
 
           if (refsetIds == null || refsetIds.length == 0) {
             throw new LocalException("Must include at least one refset");
@@ -2928,7 +2958,6 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
           handleException(e, "trying to cancel migration of refsets");
         } finally {
           try {
-            refsetService.close();
             securityService.close();
           } catch (Exception e) {
             // Do nothing
@@ -2936,9 +2965,17 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
         }
         return;
       }
-    });
+    };
 
-    t.start();
+    try {
+      JobScheduler.submit(JobClass.MIGRATION, projectId,
+          "Cancel migrations - " + refsetIds.length + " refsets",
+          JobScheduler.NORMAL_PRIORITY, job);
+    } catch (Exception e) {
+      // The job will never run, so close what it would have closed
+      securityService.close();
+      throw e;
+    }
 
     return;
   }
@@ -3029,10 +3066,8 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
       authorizeApp(securityService, authToken, "find members in common",
           UserRole.VIEWER);
 
-      List<ConceptRefsetMember> commonMembersList =
-          refsetService.getMembersInCommon(reportToken);
       List<ConceptRefsetMember> newCommonMembersList =
-          new ArrayList<ConceptRefsetMember>(commonMembersList);
+          refsetService.getMembersInCommon(reportToken);
 
       // if the value is null, throw an exception
       if (newCommonMembersList == null) {
@@ -3252,6 +3287,52 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
     }
   }
 
+  /* see superclass */
+  @Override
+  @GET
+  @Path("/report/store")
+  @ApiOperation(value = "Get report store statistics", notes = "Gets resident and spilled report counts and bytes, hits, misses, spills and evictions for the store of compare and diff reports", response = KeyValuePairList.class)
+  public KeyValuePairList getReportStoreStatistics(
+    @ApiParam(value = "Authorization token, e.g. 'admin'", required = true) @HeaderParam("Authorization") String authToken)
+    throws Exception {
+    Logger.getLogger(getClass())
+        .info("RESTful call (Refset): /report/store");
+
+    try {
+      authorizeApp(securityService, authToken,
+          "get report store statistics", UserRole.ADMIN);
+      return RefsetServiceJpa.getReportStoreStatistics();
+    } catch (Exception e) {
+      handleException(e, "trying to get report store statistics");
+      return null;
+    } finally {
+      securityService.close();
+    }
+  }
+
+  /* see superclass */
+  @Override
+  @GET
+  @Path("/definition/statistics")
+  @ApiOperation(value = "Get definition resolution statistics", notes = "Gets the resolution count, the size and elapsed time of the last resolution and the max heap used while resolving refset definitions", response = KeyValuePairList.class)
+  public KeyValuePairList getDefinitionStatistics(
+    @ApiParam(value = "Authorization token, e.g. 'admin'", required = true) @HeaderParam("Authorization") String authToken)
+    throws Exception {
+    Logger.getLogger(getClass())
+        .info("RESTful call (Refset): /definition/statistics");
+
+    try {
+      authorizeApp(securityService, authToken,
+          "get definition resolution statistics", UserRole.ADMIN);
+      return RefsetServiceJpa.getDefinitionStatistics();
+    } catch (Exception e) {
+      handleException(e, "trying to get definition resolution statistics");
+      return null;
+    } finally {
+      securityService.close();
+    }
+  }
+
   /* see superclass */
   @Override
   @GET
@@ -3307,9 +3388,10 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
           refset.getProject().getId(), securityService, authToken,
           "optimize definition for refset id", UserRole.AUTHOR);
 
-      // create map of definition clause values to their resolved concepts
-      final Set<String> resolved = new HashSet<>();
-      final Map<String, ConceptList> clauseToConceptsMap = new HashMap<>();
+      // resolve the distinct definition clauses concurrently
+      final TerminologyHandler handler = refsetService
+          .getTerminologyHandler(refset.getProject(), getHeaders(headers));
+      final Map<String, Future<ConceptList>> futures = new LinkedHashMap<>();
       final List<DefinitionClause> allClauses = refset.getDefinitionClauses();
       final List<DefinitionClause> posClauses = new ArrayList<>();
       final List<DefinitionClause> negClauses = new ArrayList<>();
@@ -3320,57 +3402,39 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
           posClauses.add(clause);
         }
         // No need to "resolvExpression" because it doesn't affect the logic
-        final ConceptList concepts = refsetService
-            .getTerminologyHandler(refset.getProject(), getHeaders(headers))
-            .resolveExpression(clause.getValue(), refset.getTerminology(),
-                refset.getVersion(), null, false);
-        clauseToConceptsMap.put(clause.getValue(), concepts);
-      }
-
-      // compute if any of the clauses subsume any of the other clauses
-      final List<String> subsumedClauses = new ArrayList<>();
-      for (int i = 0; i < posClauses.size(); i++) {
-        final String key1 = posClauses.get(i).getValue();
-        // Use stream t Java 1.8: o extract concept ids
-        // resolved.addAll(clauseToConceptsMap.get(key1).getObjects().stream()
-        // .map(c -> c.getTerminologyId()).collect(Collectors.toSet()));
-        resolved.addAll(
-            getTerminologyIds(clauseToConceptsMap.get(key1).getObjects()));
-        for (int j = i + 1; j < posClauses.size(); j++) {
-          final String key2 = posClauses.get(j).getValue();
-          final List<Concept> values1 =
-              clauseToConceptsMap.get(key1).getObjects();
-          final List<Concept> values2 =
-              clauseToConceptsMap.get(key2).getObjects();
-          if (values1.containsAll(values2) && !values2.containsAll(values1)) {
-            subsumedClauses.add(key2);
-          } else if (values2.containsAll(values1)
-              && !values1.containsAll(values2)) {
-            subsumedClauses.add(key1);
-          }
+        if (!futures.containsKey(clause.getValue())) {
+          futures.put(clause.getValue(),
+              getDefinitionExecutor()
+                  .submit(() -> handler.resolveExpression(clause.getValue(),
+                      refset.getTerminology(), refset.getVersion(), null,
+                      false)));
         }
       }
-      for (int i = 0; i < negClauses.size(); i++) {
-        final String key1 = negClauses.get(i).getValue();
-        // When we have java 1.8: Use stream to extract concept ids
-        // resolved.removeAll(clauseToConceptsMap.get(key1).getObjects().stream()
-        // .map(c -> c.getTerminologyId()).collect(Collectors.toSet()));
-        resolved.addAll(
-            getTerminologyIds(clauseToConceptsMap.get(key1).getObjects()));
-        for (int j = i + 1; j < negClauses.size(); j++) {
-          final String key2 = negClauses.get(j).getValue();
-          final List<Concept> values1 =
-              clauseToConceptsMap.get(key1).getObjects();
-          final List<Concept> values2 =
-              clauseToConceptsMap.get(key2).getObjects();
-          if (values1.containsAll(values2) && !values2.containsAll(values1)) {
-            subsumedClauses.add(key2);
-          } else if (values2.containsAll(values1)
-              && !values1.containsAll(values2)) {
-            subsumedClauses.add(key1);
-          }
+
+      // map the clause values to bit sets of their resolved concepts, over
+      // one concept id dictionary
+      final Set<String> resolved = new HashSet<>();
+      final ConceptIdDictionary dictionary = new ConceptIdDictionary();
+      final Map<String, BitSet> clauseToConceptsMap = new HashMap<>();
+      for (final Map.Entry<String, Future<ConceptList>> entry : futures
+          .entrySet()) {
+        final Set<String> conceptIds;
+        try {
+          conceptIds = getTerminologyIds(entry.getValue().get().getObjects());
+        } catch (ExecutionException e) {
+          throw (e.getCause() instanceof Exception) ? (Exception) e.getCause()
+              : e;
         }
+        resolved.addAll(conceptIds);
+        clauseToConceptsMap.put(entry.getKey(),
+            dictionary.toBitSet(conceptIds));
       }
+
+      // compute if any of the clauses subsume any of the other clauses
+      final List<String> subsumedClauses = new ArrayList<>();
+      addSubsumedClauses(posClauses, clauseToConceptsMap, subsumedClauses);
+      addSubsumedClauses(negClauses, clauseToConceptsMap, subsumedClauses);
+
       // remove subsumed and duplicate clauses from the refset
       final Map<String, DefinitionClause> clausesToKeep = new HashMap<>();
       for (final DefinitionClause clause : allClauses) {
@@ -3413,6 +3477,57 @@ public class RefsetServiceRestImpl extends RootServiceRestImpl
     }
   }
 
+  /**
+   * Adds the clauses whose concepts are a strict subset of the concepts of
+   * another clause.
+   *
+   * @param clauses the clauses
+   * @param clauseToConceptsMap the concepts of each clause value
+   * @param subsumedClauses the subsumed clause values
+   */
+  private static void addSubsumedClauses(List<DefinitionClause> clauses,
+    Map<String, BitSet> clauseToConceptsMap, List<String> subsumedClauses) {
+    for (int i = 0; i < clauses.size(); i++) {
+      final String key1 = clauses.get(i).getValue();
+      for (int j = i + 1; j < clauses.size(); j++) {
+        final String key2 = clauses.get(j).getValue();
+        final BitSet values1 = clauseToConceptsMap.get(key1);
+        final BitSet values2 = clauseToConceptsMap.get(key2);
+        final boolean contains12 =
+            ConceptIdDictionary.containsAll(values1, values2);
+        final boolean contains21 =
+            ConceptIdDictionary.containsAll(values2, values1);
+        if (contains12 && !contains21) {
+          subsumedClauses.add(key2);
+        } else if (contains21 && !contains12) {
+          subsumedClauses.add(key1);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the executor for resolving definition clauses, creating it with
+   * "refset.definition.threads" threads on first use.
+   *
+   * @return the executor
+   * @throws Exception the exception
+   */
+  private static synchronized ExecutorService getDefinitionExecutor()
+    throws Exception {
+    if (definitionExecutor == null) {
+      final int threads = Integer.parseInt(ConfigUtility.getConfigProperties()
+          .getProperty("refset.definition.threads", "4").trim());
+      definitionExecutor =
+          Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            final Thread thread = new Thread(r, "refset-definition");
+            thread.setDaemon(true);
+            return thread;
+          });
+    }
+    return definitionExecutor;
+  }
+
   /**
    * Gets the terminology ids.
    *
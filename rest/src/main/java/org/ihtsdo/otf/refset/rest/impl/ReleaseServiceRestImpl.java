@@ -3,10 +3,10 @@
  */
 package org.ihtsdo.otf.refset.rest.impl;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -18,6 +18,8 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.log4j.Logger;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
@@ -50,20 +52,22 @@ import org.ihtsdo.otf.refset.jpa.algo.PerformTranslationBetaAlgorithm;
 import org.ihtsdo.otf.refset.jpa.algo.PerformTranslationPublishAlgorithm;
 import org.ihtsdo.otf.refset.jpa.helpers.PfsParameterJpa;
 import org.ihtsdo.otf.refset.jpa.helpers.ReleaseInfoListJpa;
+import org.ihtsdo.otf.refset.jpa.services.JobScheduler;
+import org.ihtsdo.otf.refset.jpa.services.JobScheduler.JobClass;
+import org.ihtsdo.otf.refset.jpa.services.RefsetReleaseOrchestrator;
 import org.ihtsdo.otf.refset.jpa.services.RefsetServiceJpa;
 import org.ihtsdo.otf.refset.jpa.services.ReleaseServiceJpa;
 import org.ihtsdo.otf.refset.jpa.services.SecurityServiceJpa;
 import org.ihtsdo.otf.refset.jpa.services.TranslationServiceJpa;
 import org.ihtsdo.otf.refset.jpa.services.ValidationServiceJpa;
 import org.ihtsdo.otf.refset.jpa.services.rest.ReleaseServiceRest;
-import org.ihtsdo.otf.refset.rf2.Concept;
-import org.ihtsdo.otf.refset.rf2.ConceptRefsetMember;
 import org.ihtsdo.otf.refset.services.RefsetService;
 import org.ihtsdo.otf.refset.services.ReleaseService;
 import org.ihtsdo.otf.refset.services.SecurityService;
 import org.ihtsdo.otf.refset.services.TranslationService;
 import org.ihtsdo.otf.refset.workflow.WorkflowStatus;
 
+import com.google.common.io.ByteStreams;
 import com.wordnik.swagger.annotations.Api;
 import com.wordnik.swagger.annotations.ApiOperation;
 import com.wordnik.swagger.annotations.ApiParam;
@@ -182,16 +186,14 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
         .info("RESTful call GET (Release): /refset/begin " + refsetId + ", "
             + effectiveTime);
 
-    final BeginRefsetReleaseAlgorthm algo = new BeginRefsetReleaseAlgorthm();
-    algo.setTransactionPerOperation(false);
-    algo.beginTransaction();
-
     // Add refsetId to the in-progress map
-    algo.startProcess(refsetId, "BEGIN");
+    try (final ReleaseService releaseService = new ReleaseServiceJpa()) {
+      releaseService.startProcess(refsetId, "BEGIN");
+    }
 
     final ValidationResult validationResults = new ValidationResultJpa();
 
-    final Thread t = new Thread(new Runnable() {
+    final Runnable job = new Runnable() {
 
       /* see superclass */
       @Override
@@ -199,7 +201,13 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
 
         Refset refset = null;
 
-        try {
+        // Create the algorithm and begin the transaction when the job runs,
+        // so a queued job holds no connection
+        try (final BeginRefsetReleaseAlgorthm algo =
+            new BeginRefsetReleaseAlgorthm()) {
+          algo.setTransactionPerOperation(false);
+          algo.beginTransaction();
+
           // Load refset
           refset = algo.getRefset(refsetId);
           if (refset == null) {
@@ -240,11 +248,10 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
         // Whether it succeeded or failed, remove it from the in-progress
         // map
         finally {
-          try {
-            algo.setProcessValidationResult(refsetId, "BEGIN",
+          try (final ReleaseService releaseService = new ReleaseServiceJpa()) {
+            releaseService.setProcessValidationResult(refsetId, "BEGIN",
                 validationResults);
-            algo.finishProcess(refsetId, "BEGIN");
-            algo.close();
+            releaseService.finishProcess(refsetId, "BEGIN");
             securityService.close();
           } catch (Exception e) {
             // Do nothing
@@ -252,12 +259,32 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
         }
         return;
       }
-    });
+    };
 
-    t.start();
     // Handle non-background
     if (!background) {
-      t.join();
+      job.run();
+    } else {
+      try {
+        // Queue under the refset's project, for per-project fairness
+        Long projectId = null;
+        try (final RefsetService refsetService = new RefsetServiceJpa()) {
+          final Refset refset = refsetService.getRefset(refsetId);
+          if (refset != null) {
+            projectId = refset.getProject().getId();
+          }
+        }
+        JobScheduler.submit(JobClass.RELEASE, projectId,
+            "Begin refset release - " + refsetId, JobScheduler.HIGH_PRIORITY,
+            job);
+      } catch (Exception e) {
+        // The job will never run, so take it out of the in-progress map
+        try (final ReleaseService releaseService = new ReleaseServiceJpa()) {
+          releaseService.finishProcess(refsetId, "BEGIN");
+        }
+        securityService.close();
+        throw e;
+      }
     }
 
     return;
@@ -278,20 +305,13 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
         .info("RESTful call GET (Release): /refsets/begin/" + projectId + " "
             + refsetIds.toString() + ", " + effectiveTime);
 
-    final BeginRefsetReleaseAlgorthm algo = new BeginRefsetReleaseAlgorthm();
-    // Manage transaction
-    algo.setTransactionPerOperation(false);
-    algo.beginTransaction();
-
-    final ValidationResult validationResults = new ValidationResultJpa();
-
-    final Thread t = new Thread(new Runnable() {
+    final Runnable job = new Runnable() {
 
       /* see superclass */
       @Override
       public void run() {
 
-        try {
+        try (final ReleaseService releaseService = new ReleaseServiceJpa()) {
 
           if (refsetIds == null || refsetIds.length == 0) {
             throw new LocalException("Must include at least one refset");
@@ -299,76 +319,38 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
 
           // Authorize the call
           final String userName =
-              authorizeProject(algo, projectId, securityService, authToken,
-                  "begin refsets release", UserRole.ADMIN);
+              authorizeProject(releaseService, projectId, securityService,
+                  authToken, "begin refsets release", UserRole.ADMIN);
 
           // Verify date format
           if (!effectiveTime.matches("([0-9]{8})"))
             throw new LocalException(
                 "date provided is not in 'YYYYMMDD' format:" + effectiveTime);
 
-          // Add all refsetIds to the in-progress map
-          for (String refsetIdStr : refsetIds) {
-            algo.startProcess(Long.parseLong(refsetIdStr), "BEGIN");
-          }
-
-          for (String refsetIdStr : refsetIds) {
-
-            final Long refsetId = Long.parseLong(refsetIdStr);
-
-            // Load refset
-            final Refset refset = algo.getRefset(refsetId);
-
-            // We don't want one failure to stop the entire batch, so
-            // if any attempt throws an exception, add it to the validation
-            // result
-            // errors and keep going.
-            try {
-
-              if (refset == null) {
-                throw new Exception("Invalid refset id " + refsetId);
-              }
-
-              algo.setRefset(refset);
-              algo.setEffectiveTime(
-                  ConfigUtility.DATE_FORMAT.parse(effectiveTime));
-              algo.setUserName(userName);
-              algo.checkPreconditions();
-              algo.compute();
-
-              addLogEntry(algo, userName, "BEGIN RELEASE refset ",
-                  refset.getProject().getId(), refset.getId(),
-                  refset.getTerminologyId() + ": " + refset.getName());
-
-            } catch (Exception e) {
-              if (refset == null) {
-                validationResults.addError(e.getMessage());
-              } else {
-                validationResults.addError(
-                    refset.getTerminologyId() + ": " + e.getMessage());
-              }
-            }
-            // Whether it succeeded or failed, remove it from the in-progress
-            // map
-            finally {
-              algo.setProcessValidationResult(projectId, "BEGIN",
-                  validationResults);
-              algo.finishProcess(refsetId, "BEGIN");
-            }
-
-            // Commit after each refset finishes
-            algo.commitClearBegin();
+          // Process the refsets in parallel, each in its own transaction
+          final List<Long> ids = new ArrayList<>();
+          for (final String refsetIdStr : refsetIds) {
+            ids.add(Long.parseLong(refsetIdStr));
           }
-
-          // Finish transaction
-          algo.commit();
+          RefsetReleaseOrchestrator.run(projectId, "BEGIN", ids,
+              BeginRefsetReleaseAlgorthm::new, (algo, refset, result) -> {
+                algo.setRefset(refset);
+                algo.setEffectiveTime(
+                    ConfigUtility.DATE_FORMAT.parse(effectiveTime));
+                algo.setUserName(userName);
+                algo.checkPreconditions();
+                algo.compute();
+
+                addLogEntry(algo, userName, "BEGIN RELEASE refset ",
+                    refset.getProject().getId(), refset.getId(),
+                    refset.getTerminologyId() + ": " + refset.getName());
+              }, null);
 
           return;
         } catch (Exception e) {
           handleException(e, "trying to begin releases of refsets");
         } finally {
           try {
-            algo.close();
             securityService.close();
           } catch (Exception e) {
             // Do nothing
@@ -376,9 +358,17 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
         }
         return;
       }
-    });
+    };
 
-    t.start();
+    try {
+      JobScheduler.submit(JobClass.RELEASE, projectId,
+          "Begin refset releases - " + refsetIds.length + " refsets",
+          JobScheduler.NORMAL_PRIORITY, job);
+    } catch (Exception e) {
+      // The job will never run, so close what it would have closed
+      securityService.close();
+      throw e;
+    }
 
     return;
 
@@ -439,10 +429,8 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
       final ValidationResult result = validationService.validateRefset(refset,
           refset.getProject(), refsetService);
       if (result.isValid()) {
-        for (ConceptRefsetMember member : refset.getMembers()) {
-          result.merge(validationService.validateMember(member,
-              refset.getProject(), refsetService));
-        }
+        result.merge(validationService.validateMembers(refset.getMembers(),
+            refset.getProject(), refsetService));
       }
 
       // Return validation result
@@ -473,123 +461,75 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
         .info("RESTful call GET (Release): /refsets/validate/" + projectId + " "
             + refsetIds.toString());
 
-    final RefsetService refsetService = new RefsetServiceJpa();
-    final ValidationServiceJpa validationService = new ValidationServiceJpa();
-
-    final ValidationResult validationResults = new ValidationResultJpa();
-
-    final Thread t = new Thread(new Runnable() {
+    final Runnable job = new Runnable() {
 
       /* see superclass */
       @Override
       public void run() {
 
-        try {
+        try (final ReleaseService releaseService = new ReleaseServiceJpa()) {
 
           if (refsetIds == null || refsetIds.length == 0) {
             throw new LocalException("Must include at least one refset");
           }
 
           // Authorize the call
-          authorizeProject(refsetService, projectId, securityService, authToken,
-              "validate refset release", UserRole.ADMIN);
+          authorizeProject(releaseService, projectId, securityService,
+              authToken, "validate refset release", UserRole.ADMIN);
 
-          // Add all refsetIds to the in-progress map
-          for (String refsetIdStr : refsetIds) {
-            refsetService.startProcess(Long.parseLong(refsetIdStr), "VALIDATE");
+          // Validate the refsets in parallel
+          final List<Long> ids = new ArrayList<>();
+          for (final String refsetIdStr : refsetIds) {
+            ids.add(Long.parseLong(refsetIdStr));
           }
-
-          for (String refsetIdStr : refsetIds) {
-
-            final Long refsetId = Long.parseLong(refsetIdStr);
-
-            // Load refset
-            final Refset refset = refsetService.getRefset(refsetId);
-
-            // We don't want one failure to stop the entire batch, so
-            // if any attempt throws an exception, add it to the validation
-            // result
-            // errors and keep going.
-            try {
-
-              if (refset == null) {
-                throw new Exception("Invalid refset id " + refsetId);
-              }
-
-              // Lazy initialize members
-              if (refset.getMembers() != null)
-                refset.getMembers().size();
-
-              // Get the release info
-              final ReleaseInfoList releaseInfoList = refsetService
-                  .findRefsetReleasesForQuery(refsetId, null, null);
-              if (releaseInfoList.getCount() != 1) {
-                throw new Exception(
-                    "Cannot find release info for refset " + refsetId);
-              }
-              final ReleaseInfo releaseInfo =
-                  releaseInfoList.getObjects().get(0);
-
-              // Verify that begin has completed
-              if (releaseInfo == null || !releaseInfo.isPlanned()
-                  || releaseInfo.isPublished())
-                throw new LocalException(
-                    "Refset release is not ready to validate " + refsetId);
-
-              // Verify the workflow status
-              if (!WorkflowStatus.READY_FOR_PUBLICATION
-                  .equals(refset.getWorkflowStatus()))
-                throw new LocalException("Refset workflowstatus is not "
-                    + WorkflowStatus.READY_FOR_PUBLICATION + " for "
-                    + refsetId);
-
-              // Perform validation
-              final ValidationResult result = validationService
-                  .validateRefset(refset, refset.getProject(), refsetService);
-              if (result.isValid()) {
-                for (ConceptRefsetMember member : refset.getMembers()) {
-                  result.merge(validationService.validateMember(member,
-                      refset.getProject(), refsetService));
+          RefsetReleaseOrchestrator.run(projectId, "VALIDATE", ids,
+              RefsetServiceJpa::new, (algo, refset, result) -> {
+                // Lazy initialize members
+                if (refset.getMembers() != null)
+                  refset.getMembers().size();
+
+                // Get the release info
+                final ReleaseInfoList releaseInfoList = algo
+                    .findRefsetReleasesForQuery(refset.getId(), null, null);
+                if (releaseInfoList.getCount() != 1) {
+                  throw new Exception(
+                      "Cannot find release info for refset " + refset.getId());
                 }
-              }
-
-              // Add errors and warnings to bulk validationResult, labeling them
-              // with the refset terminologyId
-              for (String error : result.getErrors()) {
-                validationResults
-                    .addError(refset.getTerminologyId() + ": " + error);
-              }
-              for (String warning : result.getWarnings()) {
-                validationResults
-                    .addWarning(refset.getTerminologyId() + ": " + warning);
-              }
-
-            } catch (Exception e) {
-              if (refset == null) {
-                validationResults.addError(e.getMessage());
-              } else {
-                validationResults.addError(
-                    refset.getTerminologyId() + ": " + e.getMessage());
-              }
-            }
-            // Whether it succeeded or failed, remove it from the in-progress
-            // map
-            finally {
-              refsetService.setProcessValidationResult(projectId, "VALIDATE",
-                  validationResults);
-              refsetService.finishProcess(refsetId, "VALIDATE");
-            }
-
-          }
+                final ReleaseInfo releaseInfo =
+                    releaseInfoList.getObjects().get(0);
+
+                // Verify that begin has completed
+                if (releaseInfo == null || !releaseInfo.isPlanned()
+                    || releaseInfo.isPublished())
+                  throw new LocalException(
+                      "Refset release is not ready to validate "
+                          + refset.getId());
+
+                // Verify the workflow status
+                if (!WorkflowStatus.READY_FOR_PUBLICATION
+                    .equals(refset.getWorkflowStatus()))
+                  throw new LocalException("Refset workflowstatus is not "
+                      + WorkflowStatus.READY_FOR_PUBLICATION + " for "
+                      + refset.getId());
+
+                // Perform validation
+                try (final ValidationServiceJpa validationService =
+                    new ValidationServiceJpa()) {
+                  final ValidationResult validation = validationService
+                      .validateRefset(refset, refset.getProject(), algo);
+                  if (validation.isValid()) {
+                    validation.merge(validationService.validateMembers(
+                        refset.getMembers(), refset.getProject(), algo));
+                  }
+                  result.merge(validation);
+                }
+              }, null);
 
           return;
-
         } catch (Exception e) {
           handleException(e, "trying to validate release of refset");
         } finally {
           try {
-            validationService.close();
-            refsetService.close();
             securityService.close();
           } catch (Exception e) {
             // Do nothing
@@ -597,9 +537,17 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
         }
         return;
       }
-    });
+    };
 
-    t.start();
+    try {
+      JobScheduler.submit(JobClass.RELEASE, projectId,
+          "Validate refset releases - " + refsetIds.length + " refsets",
+          JobScheduler.NORMAL_PRIORITY, job);
+    } catch (Exception e) {
+      // The job will never run, so close what it would have closed
+      securityService.close();
+      throw e;
+    }
 
     return;
 
@@ -676,20 +624,13 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
         .info("RESTful call GET (Release): /refset/beta/" + projectId + " "
             + refsetIds.toString());
 
-    final PerformRefsetBetaAlgorithm algo = new PerformRefsetBetaAlgorithm();
-    // Manage transaction
-    algo.setTransactionPerOperation(false);
-    algo.beginTransaction();
-
-    final ValidationResult validationResults = new ValidationResultJpa();
-
-    final Thread t = new Thread(new Runnable() {
+    final Runnable job = new Runnable() {
 
       /* see superclass */
       @Override
       public void run() {
 
-        try {
+        try (final ReleaseService releaseService = new ReleaseServiceJpa()) {
 
           if (refsetIds == null || refsetIds.length == 0) {
             throw new LocalException("Must include at least one refset");
@@ -697,70 +638,32 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
 
           // Authorize the call
           final String userName =
-              authorizeProject(algo, projectId, securityService, authToken,
-                  "beta refsets release", UserRole.ADMIN);
+              authorizeProject(releaseService, projectId, securityService,
+                  authToken, "beta refsets release", UserRole.ADMIN);
 
-          // Add all refsetIds to the in-progress map
-          for (String refsetIdStr : refsetIds) {
-            algo.startProcess(Long.parseLong(refsetIdStr), "BETA");
+          // Process the refsets in parallel, each in its own transaction
+          final List<Long> ids = new ArrayList<>();
+          for (final String refsetIdStr : refsetIds) {
+            ids.add(Long.parseLong(refsetIdStr));
           }
-
-          for (String refsetIdStr : refsetIds) {
-
-            final Long refsetId = Long.parseLong(refsetIdStr);
-
-            // Load refset
-            final Refset refset = algo.getRefset(refsetId);
-
-            // We don't want one failure to stop the entire batch, so
-            // if any attempt throws an exception, add it to the validation
-            // result
-            // errors and keep going.
-            try {
-
-              if (refset == null) {
-                throw new Exception("Invalid refset id " + refsetId);
-              }
-
-              algo.setRefset(refset);
-              algo.setIoHandlerId(ioHandlerId);
-              algo.setUserName(userName);
-              algo.checkPreconditions();
-              algo.compute();
-
-              addLogEntry(algo, userName, "BETA RELEASE refset ",
-                  refset.getProject().getId(), refset.getId(),
-                  refset.getTerminologyId() + ": " + refset.getName());
-
-            } catch (Exception e) {
-              if (refset == null) {
-                validationResults.addError(e.getMessage());
-              } else {
-                validationResults.addError(
-                    refset.getTerminologyId() + ": " + e.getMessage());
-              }
-            }
-            // Whether it succeeded or failed, remove it from the in-progress
-            // map
-            finally {
-              algo.setProcessValidationResult(projectId, "BETA",
-                  validationResults);
-              algo.finishProcess(refsetId, "BETA");
-            }
-
-            // Commit after each refset finishes
-            algo.commitClearBegin();
-          }
-
-          // Finish transaction
-          algo.commit();
+          RefsetReleaseOrchestrator.run(projectId, "BETA", ids,
+              PerformRefsetBetaAlgorithm::new, (algo, refset, result) -> {
+                algo.setRefset(refset);
+                algo.setIoHandlerId(ioHandlerId);
+                algo.setUserName(userName);
+                algo.checkPreconditions();
+                algo.compute();
+
+                addLogEntry(algo, userName, "BETA RELEASE refset ",
+                    refset.getProject().getId(), refset.getId(),
+                    refset.getTerminologyId() + ": " + refset.getName());
+              }, null);
 
           return;
         } catch (Exception e) {
           handleException(e, "trying to beta release of refsets");
         } finally {
           try {
-            algo.close();
             securityService.close();
           } catch (Exception e) {
             // Do nothing
@@ -768,9 +671,17 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
         }
         return;
       }
-    });
+    };
 
-    t.start();
+    try {
+      JobScheduler.submit(JobClass.RELEASE, projectId,
+          "Beta refset releases - " + refsetIds.length + " refsets",
+          JobScheduler.NORMAL_PRIORITY, job);
+    } catch (Exception e) {
+      // The job will never run, so close what it would have closed
+      securityService.close();
+      throw e;
+    }
 
     return;
 
@@ -848,21 +759,13 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
     Logger.getLogger(getClass()).info(
         "RESTful call GET (Release): /refsets/finish " + refsetIds.toString() + ", " + override);
 
-    final PerformRefsetPublishAlgorithm algo =
-        new PerformRefsetPublishAlgorithm(override == null ? false : override);
-    // Manage transaction
-    algo.setTransactionPerOperation(false);
-    algo.beginTransaction();
-
-    final ValidationResult validationResults = new ValidationResultJpa();
-
-    final Thread t = new Thread(new Runnable() {
+    final Runnable job = new Runnable() {
 
       /* see superclass */
       @Override
       public void run() {
 
-        try {
+        try (final ReleaseService releaseService = new ReleaseServiceJpa()) {
 
           if (refsetIds == null || refsetIds.length == 0) {
             throw new LocalException("Must include at least one refset");
@@ -870,77 +773,35 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
 
           // Authorize the call
           final String userName =
-              authorizeProject(algo, projectId, securityService, authToken,
-                  "finish refset release", UserRole.ADMIN);
+              authorizeProject(releaseService, projectId, securityService,
+                  authToken, "finish refset release", UserRole.ADMIN);
 
-          // Add all refsetIds to the in-progress map
-          for (String refsetIdStr : refsetIds) {
-            algo.startProcess(Long.parseLong(refsetIdStr), "FINISH");
+          // Process the refsets in parallel, each in its own transaction
+          final List<Long> ids = new ArrayList<>();
+          for (final String refsetIdStr : refsetIds) {
+            ids.add(Long.parseLong(refsetIdStr));
           }
-
-          for (String refsetIdStr : refsetIds) {
-
-            final Long refsetId = Long.parseLong(refsetIdStr);
-
-            // Load refset
-            final Refset refset = algo.getRefset(refsetId);
-
-            // We don't want one failure to stop the entire batch, so
-            // if any attempt throws an exception, add it to the validation
-            // result
-            // errors and keep going.
-            try {
-
-              if (refset == null) {
-                throw new Exception("Invalid refset id " + refsetId);
-              }
-
-              algo.setUserName(userName);
-              algo.setRefset(refset);
-              algo.checkPreconditions();
-              algo.compute();
-
-              addLogEntry(algo, userName, "PUBLISH RELEASE refset ",
-                  refset.getProject().getId(), refset.getId(),
-                  refset.getTerminologyId() + ": " + refset.getName());
-
-            } catch (Exception e) {
-              if (refset == null) {
-                validationResults.addError(e.getMessage());
-              } else {
-                // Treat "inactive concept" exceptions as warnings
-                if (e.getMessage().contains("inactive concepts")) {
-                  validationResults.addWarning(
-                      refset.getTerminologyId() + ": " + e.getMessage());
-                } 
-                // Otherwise, treat them as errors
-                else {
-                  validationResults.addError(
-                      refset.getTerminologyId() + ": " + e.getMessage());
-                }
-              }
-            }
-            // Whether it succeeded or failed, remove it from the in-progress
-            // map
-            finally {
-              algo.setProcessValidationResult(projectId, "FINISH",
-                  validationResults);
-              algo.finishProcess(refsetId, "FINISH");
-            }
-
-            // Commit after each refset finishes
-            algo.commitClearBegin();
-          }
-
-          // Finish transaction
-          algo.commit();
+          RefsetReleaseOrchestrator.run(projectId, "FINISH", ids,
+              () -> new PerformRefsetPublishAlgorithm(
+                  override == null ? false : override), (algo, refset, result) -> {
+                algo.setUserName(userName);
+                algo.setRefset(refset);
+                algo.checkPreconditions();
+                algo.compute();
+
+                addLogEntry(algo, userName, "PUBLISH RELEASE refset ",
+                    refset.getProject().getId(), refset.getId(),
+                    refset.getTerminologyId() + ": " + refset.getName());
+              }, 
+              // Treat "inactive concept" exceptions as warnings
+              e -> e.getMessage() != null
+                  && e.getMessage().contains("inactive concepts"));
 
           return;
         } catch (Exception e) {
           handleException(e, "trying to finish release of refsets");
         } finally {
           try {
-            algo.close();
             securityService.close();
           } catch (Exception e) {
             // Do nothing
@@ -948,9 +809,17 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
         }
         return;
       }
-    });
+    };
 
-    t.start();
+    try {
+      JobScheduler.submit(JobClass.RELEASE, projectId,
+          "Finish refset releases - " + refsetIds.length + " refsets",
+          JobScheduler.NORMAL_PRIORITY, job);
+    } catch (Exception e) {
+      // The job will never run, so close what it would have closed
+      securityService.close();
+      throw e;
+    }
 
     return;
 
@@ -1018,21 +887,13 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
         .info("RESTful call GET (Release): /refsets/cancel" + projectId + " "
             + refsetIds.toString());
 
-    final CancelRefsetReleaseAlgorithm algo =
-        new CancelRefsetReleaseAlgorithm();
-    // Manage transaction
-    algo.setTransactionPerOperation(false);
-    algo.beginTransaction();
-
-    final ValidationResult validationResults = new ValidationResultJpa();
-
-    final Thread t = new Thread(new Runnable() {
+    final Runnable job = new Runnable() {
 
       /* see superclass */
       @Override
       public void run() {
 
-        try {
+        try (final ReleaseService releaseService = new ReleaseServiceJpa()) {
 
           if (refsetIds == null || refsetIds.length == 0) {
             throw new LocalException("Must include at least one refset");
@@ -1040,69 +901,31 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
 
           // Authorize the call
           final String userName =
-              authorizeProject(algo, projectId, securityService, authToken,
-                  "cancel refset release", UserRole.ADMIN);
+              authorizeProject(releaseService, projectId, securityService,
+                  authToken, "cancel refset release", UserRole.ADMIN);
 
-          // Add all refsetIds to the in-progress map
-          for (String refsetIdStr : refsetIds) {
-            algo.startProcess(Long.parseLong(refsetIdStr), "CANCEL");
+          // Process the refsets in parallel, each in its own transaction
+          final List<Long> ids = new ArrayList<>();
+          for (final String refsetIdStr : refsetIds) {
+            ids.add(Long.parseLong(refsetIdStr));
           }
-
-          for (String refsetIdStr : refsetIds) {
-
-            final Long refsetId = Long.parseLong(refsetIdStr);
-
-            // Load refset
-            final Refset refset = algo.getRefset(refsetId);
-
-            // We don't want one failure to stop the entire batch, so
-            // if any attempt throws an exception, add it to the validation
-            // result
-            // errors and keep going.
-            try {
-
-              if (refset == null) {
-                throw new Exception("Invalid refset id " + refsetId);
-              }
-
-              algo.setUserName(userName);
-              algo.setRefset(refset);
-              algo.checkPreconditions();
-              algo.compute();
-
-              addLogEntry(algo, userName, "CANCEL RELEASE refset ",
-                  refset.getProject().getId(), refset.getId(),
-                  refset.getTerminologyId() + ": " + refset.getName());
-
-            } catch (Exception e) {
-              if (refset == null) {
-                validationResults.addError(e.getMessage());
-              } else {
-                validationResults.addError(
-                    refset.getTerminologyId() + ": " + e.getMessage());
-              }
-            }
-            // Whether it succeeded or failed, remove it from the in-progress
-            // map
-            finally {
-              algo.setProcessValidationResult(projectId, "CANCEL",
-                  validationResults);
-              algo.finishProcess(refsetId, "CANCEL");
-            }
-
-            // Commit after each refset finishes
-            algo.commitClearBegin();
-          }
-
-          // Finish transaction
-          algo.commit();
+          RefsetReleaseOrchestrator.run(projectId, "CANCEL", ids,
+              CancelRefsetReleaseAlgorithm::new, (algo, refset, result) -> {
+                algo.setUserName(userName);
+                algo.setRefset(refset);
+                algo.checkPreconditions();
+                algo.compute();
+
+                addLogEntry(algo, userName, "CANCEL RELEASE refset ",
+                    refset.getProject().getId(), refset.getId(),
+                    refset.getTerminologyId() + ": " + refset.getName());
+              }, null);
 
           return;
         } catch (Exception e) {
           handleException(e, "trying to cancel release of refset");
         } finally {
           try {
-            algo.close();
             securityService.close();
           } catch (Exception e) {
             // Do nothing
@@ -1110,9 +933,17 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
         }
         return;
       }
-    });
+    };
 
-    t.start();
+    try {
+      JobScheduler.submit(JobClass.RELEASE, projectId,
+          "Cancel refset releases - " + refsetIds.length + " refsets",
+          JobScheduler.NORMAL_PRIORITY, job);
+    } catch (Exception e) {
+      // The job will never run, so close what it would have closed
+      securityService.close();
+      throw e;
+    }
 
     return;
   }
@@ -1239,10 +1070,9 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
       final ValidationResult result = validationService.validateTranslation(
           translation, translation.getProject(), translationService);
       if (result.isValid()) {
-        for (Concept member : translation.getConcepts()) {
-          result.merge(validationService.validateConcept(member,
-              translation.getProject(), translationService));
-        }
+        result.merge(validationService.validateConcepts(
+            translation.getConcepts(), translation.getProject(),
+            translationService));
       }
       return result;
     } catch (Exception e) {
@@ -1669,14 +1499,8 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
       artifact.setName(contentDispositionHeader.getFileName());
       artifact.setReleaseInfo(info);
       artifact.setTimestamp(new Date());
-      final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-      int nRead;
-      byte[] data = new byte[16384];
-      while ((nRead = in.read(data, 0, data.length)) != -1) {
-        buffer.write(data, 0, nRead);
-      }
-      buffer.flush();
-      artifact.setData(buffer.toByteArray());
+      releaseService.setReleaseArtifactData(artifact,
+          out -> ByteStreams.copy(in, out));
 
       // Add the release artifact
       artifact.setLastModifiedBy(userName);
@@ -1684,7 +1508,7 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
 
       addLogEntry(releaseService, userName, "ADD release artifact", 0L,
           artifact.getId(),
-          artifact.getName() + ", " + artifact.getData().length);
+          artifact.getName() + ", " + artifact.getSize());
 
       return artifact;
 
@@ -1703,13 +1527,14 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
   @GET
   @Produces("application/octet-stream")
   @Path("/export/{artifactId}")
-  @ApiOperation(value = "Exports a release artifact", notes = "Exports a release artifact as InputStream from the specified artifact id.", response = InputStream.class)
-  public InputStream exportReleaseArtifact(
+  @ApiOperation(value = "Exports a release artifact", notes = "Exports a release artifact as InputStream from the specified artifact id. A single byte range may be requested with the Range header, e.g. 'bytes=0-1023'.", response = InputStream.class)
+  public Response exportReleaseArtifact(
     @ApiParam(value = "Artifact id", required = true) @PathParam("artifactId") Long artifactId,
+    @ApiParam(value = "Byte range, e.g. 'bytes=0-1023'", required = false) @HeaderParam("Range") String range,
     @ApiParam(value = "Authorization token", required = true) @HeaderParam("Authorization") String authToken)
     throws Exception {
-    Logger.getLogger(getClass())
-        .info("RESTful call GET (Release):  /export/" + artifactId);
+    Logger.getLogger(getClass()).info("RESTful call GET (Release):  /export/"
+        + artifactId + (range == null ? "" : ", " + range));
 
     final ReleaseService releaseService = new ReleaseServiceJpa();
     try {
@@ -1718,8 +1543,38 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
           "get the release history for the translation", UserRole.VIEWER);
       final ReleaseArtifact artifact =
           releaseService.getReleaseArtifact(artifactId);
-      final InputStream in = new ByteArrayInputStream(artifact.getData());
-      return in;
+      if (artifact == null) {
+        throw new LocalException("Release artifact does not exist");
+      }
+      final long size = artifact.getSize() != null ? artifact.getSize()
+          : artifact.getData() != null ? artifact.getData().length : 0;
+
+      // Serve the whole artifact unless a single satisfiable range is asked
+      final long[] bounds = getByteRange(range, size);
+      if (bounds != null && bounds[0] >= size) {
+        return Response.status(416).header("Content-Range", "bytes */" + size)
+            .build();
+      }
+      final long start = bounds == null ? 0 : bounds[0];
+      final long length = bounds == null ? size : bounds[1] - bounds[0] + 1;
+      final InputStream in =
+          releaseService.getReleaseArtifactData(artifact, start);
+      final StreamingOutput body = output -> {
+        try (final InputStream stream = in) {
+          ByteStreams.copy(ByteStreams.limit(stream, length), output);
+        }
+      };
+
+      final Response.ResponseBuilder builder = bounds == null
+          ? Response.ok(body)
+          : Response.status(206).entity(body).header("Content-Range",
+              "bytes " + bounds[0] + "-" + bounds[1] + "/" + size);
+      builder.header("Accept-Ranges", "bytes");
+      builder.header("Content-Length", length);
+      if (artifact.getChecksum() != null) {
+        builder.tag(artifact.getChecksum());
+      }
+      return builder.build();
     } catch (Exception e) {
       handleException(e, "trying to export release artifact");
       return null;
@@ -1878,4 +1733,49 @@ public class ReleaseServiceRestImpl extends RootServiceRestImpl
     return null;
   }
 
+
+  /**
+   * Returns the first and last byte positions of a single "bytes=" range,
+   * clamped to the size. Returns null when the whole content should be served
+   * (no range, multiple ranges or a malformed range). A first position at or
+   * beyond the size means the range cannot be satisfied.
+   *
+   * @param range the range header value
+   * @param size the size
+   * @return the byte range
+   */
+  private static long[] getByteRange(String range, long size) {
+    if (range == null || !range.startsWith("bytes=") || range.contains(",")) {
+      return null;
+    }
+    final String spec = range.substring("bytes=".length()).trim();
+    final int dash = spec.indexOf('-');
+    if (dash < 0) {
+      return null;
+    }
+    try {
+      // Suffix range, e.g. bytes=-500 for the last 500 bytes
+      if (dash == 0) {
+        final long suffix = Long.parseLong(spec.substring(1));
+        return suffix == 0 ? new long[] {
+            size, size - 1
+        } : new long[] {
+            Math.max(0, size - suffix), size - 1
+        };
+      }
+      final long first = Long.parseLong(spec.substring(0, dash));
+      long last = size - 1;
+      if (dash < spec.length() - 1) {
+        last = Long.parseLong(spec.substring(dash + 1));
+        if (last < first) {
+          return null;
+        }
+      }
+      return new long[] {
+          first, Math.min(last, size - 1)
+      };
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
 }
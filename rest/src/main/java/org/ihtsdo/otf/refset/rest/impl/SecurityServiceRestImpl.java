@@ -23,6 +23,7 @@ import org.ihtsdo.otf.refset.User;
 import org.ihtsdo.otf.refset.UserPreferences;
 import org.ihtsdo.otf.refset.UserRole;
 import org.ihtsdo.otf.refset.helpers.ConfigUtility;
+import org.ihtsdo.otf.refset.helpers.KeyValuePairList;
 import org.ihtsdo.otf.refset.helpers.LocalException;
 import org.ihtsdo.otf.refset.helpers.StringList;
 import org.ihtsdo.otf.refset.helpers.UserList;
@@ -342,6 +343,30 @@ public class SecurityServiceRestImpl extends RootServiceRestImpl
     }
   }
 
+  /* see superclass */
+  @Override
+  @GET
+  @Path("/roles/cache")
+  @ApiOperation(value = "Get role cache statistics", notes = "Gets entry, hit, miss, eviction and invalidation counts for the cache of resolved application and project roles", response = KeyValuePairList.class)
+  public KeyValuePairList getRoleCacheStatistics(
+    @ApiParam(value = "Authorization token, e.g. 'admin'", required = true) @HeaderParam("Authorization") String authToken)
+    throws Exception {
+    Logger.getLogger(getClass())
+        .info("RESTful GET call (Security): /roles/cache");
+
+    final SecurityService securityService = new SecurityServiceJpa();
+    try {
+      authorizeApp(securityService, authToken, "get role cache statistics",
+          UserRole.ADMIN);
+      return SecurityServiceJpa.getRoleCacheStatistics();
+    } catch (Exception e) {
+      handleException(e, "trying to get role cache statistics");
+      return null;
+    } finally {
+      securityService.close();
+    }
+  }
+
   /* see superclass */
   @POST
   @Path("/user/find")
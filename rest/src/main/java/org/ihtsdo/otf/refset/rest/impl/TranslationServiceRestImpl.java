@@ -4,7 +4,9 @@
 package org.ihtsdo.otf.refset.rest.impl;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -26,11 +28,14 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.log4j.Logger;
+import org.apache.lucene.queryparser.classic.QueryParserBase;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataParam;
 import org.ihtsdo.otf.refset.ConceptDiffReport;
@@ -59,8 +64,6 @@ import org.ihtsdo.otf.refset.helpers.LocalException;
 import org.ihtsdo.otf.refset.helpers.StringList;
 import org.ihtsdo.otf.refset.helpers.TranslationExtensionLanguage;
 import org.ihtsdo.otf.refset.helpers.TranslationList;
-import org.ihtsdo.otf.refset.helpers.TranslationSuggestion;
-import org.ihtsdo.otf.refset.helpers.TranslationSuggestionImpl;
 import org.ihtsdo.otf.refset.helpers.TranslationSuggestionList;
 import org.ihtsdo.otf.refset.jpa.ConceptDiffReportJpa;
 import org.ihtsdo.otf.refset.jpa.ConceptNoteJpa;
@@ -83,7 +86,8 @@ import org.ihtsdo.otf.refset.jpa.services.TranslationServiceJpa;
 import org.ihtsdo.otf.refset.jpa.services.WorkflowServiceJpa;
 import org.ihtsdo.otf.refset.jpa.services.handlers.ImportTranslationExcelHandler;
 import org.ihtsdo.otf.refset.jpa.services.handlers.ImportTranslationTermServerHandler;
-import org.ihtsdo.otf.refset.jpa.services.handlers.SnowstormTerminologyHandler;
+import org.ihtsdo.otf.refset.jpa.services.handlers.SpellingCorrectionHandlerPool;
+import org.ihtsdo.otf.refset.jpa.services.handlers.TranslationSuggestionFinder;
 import org.ihtsdo.otf.refset.jpa.services.rest.TranslationServiceRest;
 import org.ihtsdo.otf.refset.rf2.Concept;
 import org.ihtsdo.otf.refset.rf2.Description;
@@ -101,7 +105,6 @@ import org.ihtsdo.otf.refset.services.WorkflowService;
 import org.ihtsdo.otf.refset.services.handlers.ExportTranslationHandler;
 import org.ihtsdo.otf.refset.services.handlers.ImportTranslationHandler;
 import org.ihtsdo.otf.refset.services.handlers.PhraseMemoryHandler;
-import org.ihtsdo.otf.refset.services.handlers.SpellingCorrectionHandler;
 import org.ihtsdo.otf.refset.services.handlers.TerminologyHandler;
 import org.ihtsdo.otf.refset.services.handlers.WorkflowActionHandler;
 import org.ihtsdo.otf.refset.workflow.TrackingRecord;
@@ -144,10 +147,6 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
   private static Map<String, ConceptDiffReport> conceptDiffReportMap =
       new HashMap<>();
 
-  /** The spelling correction handler map. */
-  private static Map<Long, SpellingCorrectionHandler> spellingCorrectionHandlerMap =
-      new HashMap<>();
-
   /** The phrase memory handler map. */
   private static Map<Long, PhraseMemoryHandler> phraseMemoryHandlerMap =
       new HashMap<>();
@@ -563,6 +562,7 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
 
       // Remove translation
       translationService.removeTranslation(translationId, cascade);
+      SpellingCorrectionHandlerPool.getInstance().remove(translationId);
 
       // Log remove translation
       addLogEntry(translationService, userName, "REMOVE translation",
@@ -584,7 +584,7 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
   @Produces("application/octet-stream")
   @Path("/export")
   @ApiOperation(value = "Export translation concepts", notes = "Exports the concepts for the specified translation", response = InputStream.class)
-  public InputStream exportConcepts(
+  public StreamingOutput exportConcepts(
     @ApiParam(value = "Translation id, e.g. 3", required = true) @QueryParam("translationId") Long translationId,
     @ApiParam(value = "Import handler id, e.g. \"DEFAULT\"", required = true) @QueryParam("handlerId") String ioHandlerInfoId,
     @ApiParam(value = "Query, e.g. \"aspirin\"", required = true) @QueryParam("query") String query,
@@ -616,22 +616,34 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
         throw new Exception("invalid handler id " + ioHandlerInfoId);
       }
 
-      
-      List<Concept> conceptList = translationService
-              .findConceptsForTranslation(translation.getId(), query, pfs)
-              .getObjects();
-      
-      
-      
-      return handler.exportConcepts(translation, conceptList);
-
     } catch (Exception e) {
       handleException(e, "trying to export translation concepts");
     } finally {
       translationService.close();
       securityService.close();
     }
-    return new ByteArrayInputStream("".getBytes("UTF-8"));
+
+    // Write the concepts to the response as they are read, a page at a time,
+    // with a service that lives as long as the response does
+    final Map<String, String> exportHeaders = getHeaders(headers);
+    return output -> {
+      try (final TranslationService exportService =
+          new TranslationServiceJpa(exportHeaders);) {
+        final Translation translation =
+            exportService.getTranslation(translationId);
+        final ExportTranslationHandler handler =
+            exportService.getExportTranslationHandler(ioHandlerInfoId);
+        handler.exportConcepts(translation, exportService
+            .scrollConceptsForTranslation(translation.getId(), query, pfs),
+            output);
+      } catch (IOException e) {
+        throw e;
+      } catch (Exception e) {
+        Logger.getLogger(getClass())
+            .error("Unable to export translation concepts", e);
+        throw new WebApplicationException(e);
+      }
+    };
   }
 
   /* see superclass */
@@ -671,12 +683,11 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
         throw new Exception("invalid handler id " + ioHandlerInfoId);
       }
 
-      
-      List<Concept> conceptList = translationService
-              .findConceptsForTranslation(translation.getId(), query, pfs)
-              .getObjects();     
-      
-      handler.exportConcepts(translation, conceptList);
+      // Run the export without keeping the output
+      handler.exportConcepts(translation,
+          translationService.scrollConceptsForTranslation(translation.getId(),
+              query, pfs),
+          OutputStream.nullOutputStream());
       
       ValidationResult result = new ValidationResultJpa();
       return result;
@@ -1545,9 +1556,10 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
       toEntries.addAll(fromEntries);
       spelling.setEntries(toEntries);
 
-      final SpellingCorrectionHandler handler =
-          getSpellingCorrectionHandler(toTranslation);
-      handler.reindex(spelling.getEntries(), false);
+      try (final SpellingCorrectionHandlerPool.Lease lease =
+          getSpellingCorrectionHandler(toTranslation)) {
+        lease.getHandler().reindex(spelling.getEntries(), false);
+      }
 
       // Create service and configure transaction scope
       translationService.updateSpellingDictionary(spelling);
@@ -1608,9 +1620,10 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
           "add entry from the spelling dictionary", UserRole.AUTHOR);
 
       spelling.getEntries().add(entry);
-      final SpellingCorrectionHandler handler =
-          getSpellingCorrectionHandler(translation);
-      handler.reindex(spelling.getEntries(), true);
+      try (final SpellingCorrectionHandlerPool.Lease lease =
+          getSpellingCorrectionHandler(translation)) {
+        lease.getHandler().addEntries(Collections.singletonList(entry));
+      }
       translationService.updateSpellingDictionary(spelling);
 
       if (translation.isSpellingDictionaryEmpty() != spelling.getEntries()
@@ -1677,9 +1690,10 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
       for (String entry : entries.getObjects()) {
         spelling.getEntries().add(entry);
       }
-      final SpellingCorrectionHandler handler =
-          getSpellingCorrectionHandler(translation);
-      handler.reindex(spelling.getEntries(), true);
+      try (final SpellingCorrectionHandlerPool.Lease lease =
+          getSpellingCorrectionHandler(translation)) {
+        lease.getHandler().addEntries(entries.getObjects());
+      }
       translationService.updateSpellingDictionary(spelling);
 
       if (translation.isSpellingDictionaryEmpty() != spelling.getEntries()
@@ -1734,9 +1748,12 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
           "remove spelling dictionary entry", UserRole.AUTHOR);
 
       spelling.getEntries().remove(entry);
-      final SpellingCorrectionHandler handler =
-          getSpellingCorrectionHandler(translation);
-      handler.reindex(spelling.getEntries(), false);
+      if (!spelling.getEntries().contains(entry)) {
+        try (final SpellingCorrectionHandlerPool.Lease lease =
+            getSpellingCorrectionHandler(translation)) {
+          lease.getHandler().removeEntries(Collections.singletonList(entry));
+        }
+      }
       translationService.updateSpellingDictionary(spelling);
 
       if (translation.isSpellingDictionaryEmpty() != spelling.getEntries()
@@ -1796,9 +1813,10 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
       if (!spelling.getEntries().isEmpty()) {
         spelling.setEntries(new ArrayList<String>());
 
-        final SpellingCorrectionHandler handler =
-            getSpellingCorrectionHandler(translation);
-        handler.reindex(spelling.getEntries(), false);
+        try (final SpellingCorrectionHandlerPool.Lease lease =
+            getSpellingCorrectionHandler(translation)) {
+          lease.getHandler().reindex(spelling.getEntries(), false);
+        }
         translationService.updateSpellingDictionary(spelling);
       }
 
@@ -2094,11 +2112,12 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
   public KeyValuesMap suggestBatchTranslation(
     @ApiParam(value = "translation id, e.g. 3", required = true) @QueryParam("translationId") Long translationId,
     @ApiParam(value = "StringList, e.g. foo bar", required = true) StringList phrases,
+    @ApiParam(value = "Match type, e.g. EXACT, PREFIX or FUZZY", required = false) @QueryParam("matchType") String matchType,
     @ApiParam(value = "Authorization token, e.g. 'author1'", required = true) @HeaderParam("Authorization") String authToken)
     throws Exception {
     Logger.getLogger(getClass())
         .info("RESTful call POST (Translation): /memory/suggest/batch/"
-            + translationId + ", " + phrases);
+            + translationId + ", " + matchType + ", " + phrases);
 
     final TranslationService translationService =
         new TranslationServiceJpa(getHeaders(headers));
@@ -2128,16 +2147,19 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
         return new KeyValuesMap();
       }
 
-      PhraseMemoryHandler handler = getPhraseMemoryHandler(translation);
-      final KeyValuesMap map = new KeyValuesMap();
-      for (String phrase : phrases.getObjects()) {
-        for (String translatedPhrase : handler
-            .suggestTranslation(phrase, translationId, translationService)
-            .getObjects()) {
-          map.add(phrase, translatedPhrase);
-        }
+      final PhraseMemoryHandler.MatchType type;
+      try {
+        type = matchType == null || matchType.isEmpty()
+            ? PhraseMemoryHandler.MatchType.EXACT
+            : PhraseMemoryHandler.MatchType.valueOf(matchType.toUpperCase());
+      } catch (IllegalArgumentException e) {
+        throw new LocalException("Invalid match type " + matchType);
       }
-      return map;
+
+      // Look up all phrases in one pass over the phrase memory index
+      final PhraseMemoryHandler handler = getPhraseMemoryHandler(translation);
+      return handler.suggestBatchTranslation(phrases.getObjects(), type,
+          translationId, translationService);
     } catch (Exception e) {
       handleException(e,
           "trying to suggest batch translations based on entries");
@@ -2241,14 +2263,14 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
             "First clear spelling dictionary's existing entries prior to importing new ones");
       }
 
-      final SpellingCorrectionHandler handler =
-          getSpellingCorrectionHandler(translation);
-
-      // Lowercase the entries
-      for (final String entry : handler.getEntriesAsList(in)) {
-        spelling.getEntries().add(entry);
+      try (final SpellingCorrectionHandlerPool.Lease lease =
+          getSpellingCorrectionHandler(translation)) {
+        // Lowercase the entries
+        for (final String entry : lease.getHandler().getEntriesAsList(in)) {
+          spelling.getEntries().add(entry);
+        }
+        lease.getHandler().addEntries(spelling.getEntries());
       }
-      handler.reindex(spelling.getEntries(), true);
       translationService.updateSpellingDictionary(spelling);
 
       if (translation.isSpellingDictionaryEmpty() != spelling.getEntries()
@@ -2304,10 +2326,10 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
           UserRole.VIEWER);
 
       // Return the dictionary's contents as InputStream
-      final SpellingCorrectionHandler handler =
-          getSpellingCorrectionHandler(translation);
-
-      return handler.getEntriesAsStream(spelling.getEntries());
+      try (final SpellingCorrectionHandlerPool.Lease lease =
+          getSpellingCorrectionHandler(translation)) {
+        return lease.getHandler().getEntriesAsStream(spelling.getEntries());
+      }
     } catch (Exception e) {
       handleException(e, "Trying to export spelling entries as InputStream ");
     } finally {
@@ -2465,9 +2487,10 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
           securityService, authToken,
           "Suggest spellings based on term supplied", UserRole.VIEWER);
 
-      final SpellingCorrectionHandler handler =
-          getSpellingCorrectionHandler(translation);
-      return handler.suggestSpelling(entry, 10);
+      try (final SpellingCorrectionHandlerPool.Lease lease =
+          getSpellingCorrectionHandler(translation)) {
+        return lease.getHandler().suggestSpelling(entry, 10);
+      }
     } catch (Exception e) {
       handleException(e, "trying to suggest a spelling based on an entry");
     } finally {
@@ -2520,30 +2543,12 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
         return new KeyValuesMap();
       }
 
-      final SpellingCorrectionHandler handler =
-          getSpellingCorrectionHandler(translation);
-      final HashMap<String, StringList> resultHashMap = new HashMap<>();
-      // Iterate through terms
-      for (final String lookupTerm : lookupTerms.getObjects()) {
-
-        // If the lookupTerm is <= 2 chars, skip
-        if (lookupTerm.length() <= 2) {
-          continue;
-        }
-
-        // Do not include this entry if the word exists
-        if (handler.exists(lookupTerm)) {
-          continue;
-        }
-        // Otherwise, include the corrections
-        else {
-          resultHashMap.put(lookupTerm,
-              handler.suggestSpelling(lookupTerm, 10));
-        }
+      // Look up the terms in parallel
+      try (final SpellingCorrectionHandlerPool.Lease lease =
+          getSpellingCorrectionHandler(translation)) {
+        return lease.getHandler()
+            .suggestBatchSpelling(lookupTerms.getObjects(), 10);
       }
-      final KeyValuesMap result = new KeyValuesMap();
-      result.setMap(resultHashMap);
-      return result;
     } catch (Exception e) {
       handleException(e, "trying to suggest batch spellings based on entries");
     } finally {
@@ -3165,31 +3170,16 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
   }
 
   /**
-   * Returns the spelling correction handler. Initializes it if necessary
+   * Leases the spelling correction handler from the pool, opening it if
+   * necessary. The lease must be closed when done.
    *
    * @param translation the translation
-   * @return the spelling correction handler
+   * @return the spelling correction handler lease
    * @throws Exception the exception
    */
-  private static SpellingCorrectionHandler getSpellingCorrectionHandler(
+  private static SpellingCorrectionHandlerPool.Lease getSpellingCorrectionHandler(
     Translation translation) throws Exception {
-    if (!spellingCorrectionHandlerMap.containsKey(translation.getId())) {
-
-      String key = "spelling.handler";
-      if (!ConfigUtility.getConfigProperties()
-          .containsKey("spelling.handler")) {
-        throw new Exception(
-            "Unable to find spelling.handler configuration, serious error.");
-      }
-      String handlerName = ConfigUtility.getConfigProperties().getProperty(key);
-      // Add handlers to map
-      SpellingCorrectionHandler handler =
-          ConfigUtility.newStandardHandlerInstanceWithConfiguration(key,
-              handlerName, SpellingCorrectionHandler.class);
-      handler.setTranslation(translation);
-      spellingCorrectionHandlerMap.put(translation.getId(), handler);
-    }
-    return spellingCorrectionHandlerMap.get(translation.getId());
+    return SpellingCorrectionHandlerPool.getInstance().acquire(translation);
   }
   
   
@@ -3424,33 +3414,10 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
         return translationSuggestionsList;
       }
 
-      // force to snowstorm
-      final SnowstormTerminologyHandler handler =
-          new SnowstormTerminologyHandler();
-      handler.setUrl(ConfigUtility.getConfigProperties()
-          .getProperty("terminology.handler.PUBLIC-BROWSER.defaultUrl"));
-      handler.setApiKey(ConfigUtility.getConfigProperties()
-          .getProperty("terminology.handler.PUBLIC-BROWSER.apiKey"));
-
-      for (TranslationExtensionLanguage te : translationExtensionLanguages) {
-        Logger.getLogger(getClass()).info(
-            "Getting concepts for " + te.getBranch() + " concept:" + conceptId);
-        final Concept concept = handler.getFullConcept(Long.toString(conceptId),
-            null, te.getBranch());
-        if (concept != null && concept.getDescriptions() != null) {
-          for (Description d : concept.getDescriptions()) {
-            if (!"en".equalsIgnoreCase(d.getLanguageCode())) {
-              TranslationSuggestion ts = new TranslationSuggestionImpl();
-              ts.setSuggestion(d.getTerm());
-              ts.setLanguageCode(d.getLanguageCode());
-              ts.setSource(te.getBranch());
-              if (!translationSuggestionsList.contains(ts)) {
-                translationSuggestionsList.addTranslationSuggestion(ts);
-              }
-            }
-          }
-        }
-      }
+      // Look up the extension branches concurrently
+      translationSuggestionsList = TranslationSuggestionFinder.getInstance()
+          .getSuggestions(Long.toString(conceptId),
+              translationExtensionLanguages);
 
     } catch (Exception e) {
       handleException(e,
@@ -3464,6 +3431,61 @@ public class TranslationServiceRestImpl extends RootServiceRestImpl
     return translationSuggestionsList;
   }
 
+  /* see superclass */
+  @Override
+  @POST
+  @Produces("text/plain")
+  @Path("/suggestions/prefetch")
+  @ApiOperation(value = "Prefetch translation suggestions", notes = "Prefetches translation suggestions for the concepts assigned to the specified user for authoring in the specified translation", response = Integer.class)
+  public Integer prefetchTranslationSuggestions(
+    @ApiParam(value = "Translation id, e.g. 3", required = true) @QueryParam("translationId") Long translationId,
+    @ApiParam(value = "User name, e.g. author1", required = true) @QueryParam("userName") String userName,
+    @ApiParam(value = "Authorization token, e.g. 'author1'", required = true) @HeaderParam("Authorization") String authToken)
+    throws Exception {
+    Logger.getLogger(getClass())
+        .info("RESTful POST call (Translation): /suggestions/prefetch "
+            + translationId + ", " + userName);
+
+    final WorkflowService workflowService = new WorkflowServiceJpa();
+    try {
+      final Translation translation =
+          workflowService.getTranslation(translationId);
+      if (translation == null) {
+        throw new LocalException("Invalid translation id " + translationId);
+      }
+      authorizeProject(workflowService, translation.getProject().getId(),
+          securityService, authToken, "prefetch translation suggestions",
+          UserRole.AUTHOR);
+
+      final List<TranslationExtensionLanguage> translationExtensionLanguages =
+          translation.getProject().getTranslationExtensionLanguages();
+      if (translationExtensionLanguages == null
+          || translationExtensionLanguages.isEmpty()) {
+        return 0;
+      }
+
+      // Concepts assigned to the user for authoring
+      final List<String> conceptIds = new ArrayList<>();
+      for (final TrackingRecord record : workflowService
+          .findTrackingRecordsForQuery("translationId:" + translationId
+              + " AND authors:" + QueryParserBase.escape(userName)
+              + " AND forAuthoring:true AND forReview:false", null)
+          .getObjects()) {
+        conceptIds.add(record.getConcept().getTerminologyId());
+      }
+      TranslationSuggestionFinder.getInstance().prefetch(conceptIds,
+          translationExtensionLanguages);
+      return conceptIds.size();
+
+    } catch (Exception e) {
+      handleException(e, "trying to prefetch translation suggestions");
+    } finally {
+      workflowService.close();
+      securityService.close();
+    }
+    return null;
+  }
+
   private ValidationResult importTranslationDescriptions(
     TranslationService translationService, Long translationId,
     String ioHandlerInfoId, User user, InputStream inputStream,
@@ -1,7 +1,156 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
 package org.ihtsdo.otf.refset.rest.impl;
 
-//@ServiceEndpoint
-@SuppressWarnings("javadoc")
-public class WebsocketWorkflowListener {
-  // still working on this. - may need Jetty instead of Tomcat.
+import java.util.Properties;
+
+import org.ihtsdo.otf.refset.Refset;
+import org.ihtsdo.otf.refset.Translation;
+import org.ihtsdo.otf.refset.rf2.Concept;
+import org.ihtsdo.otf.refset.rf2.ConceptRefsetMember;
+import org.ihtsdo.otf.refset.rf2.DescriptionType;
+import org.ihtsdo.otf.refset.rf2.RefsetDescriptorRefsetMember;
+import org.ihtsdo.otf.refset.services.handlers.WorkflowListener;
+
+/**
+ * Workflow listener that pushes changes to the websocket sessions subscribed
+ * to the changed object's topic. Refset and translation changes are sent to
+ * the refset/translation topic right away and to the project topic coalesced;
+ * member and concept changes, which come in bursts during bulk operations, are
+ * coalesced on the refset/translation topic.
+ *
+ * The web application registers it at startup, it is not configured as a
+ * "workflow.listener.handler" because other JVMs (e.g. mojos) do not have the
+ * class.
+ */
+public class WebsocketWorkflowListener implements WorkflowListener {
+
+  /* see superclass */
+  @Override
+  public void setProperties(Properties p) throws Exception {
+    // n/a
+  }
+
+  /* see superclass */
+  @Override
+  public void beginTransaction() throws Exception {
+    // n/a
+  }
+
+  /* see superclass */
+  @Override
+  public void preCommit() throws Exception {
+    // n/a
+  }
+
+  /* see superclass */
+  @Override
+  public void postCommit() throws Exception {
+    // n/a
+  }
+
+  /* see superclass */
+  @Override
+  public void cancel() {
+    // n/a
+  }
+
+  /* see superclass */
+  @Override
+  public void refsetChanged(Refset refset, Action action) throws Exception {
+    if (!isActive()) {
+      return;
+    }
+    final String message = NotificationWebsocket.getMessage(
+        NotificationWebsocket.REFSET, refset.getId(), action.toString());
+    NotificationWebsocket.send(NotificationWebsocket
+        .getTopic(NotificationWebsocket.REFSET, refset.getId()), message);
+    if (refset.getProject() != null) {
+      NotificationWebsocket.sendCoalesced(NotificationWebsocket.getTopic(
+          NotificationWebsocket.PROJECT, refset.getProject().getId()), message);
+    }
+  }
+
+  /* see superclass */
+  @Override
+  public void translationChanged(Translation translation, Action action)
+    throws Exception {
+    if (!isActive()) {
+      return;
+    }
+    final String message =
+        NotificationWebsocket.getMessage(NotificationWebsocket.TRANSLATION,
+            translation.getId(), action.toString());
+    NotificationWebsocket.send(NotificationWebsocket.getTopic(
+        NotificationWebsocket.TRANSLATION, translation.getId()), message);
+    if (translation.getProject() != null) {
+      NotificationWebsocket.sendCoalesced(
+          NotificationWebsocket.getTopic(NotificationWebsocket.PROJECT,
+              translation.getProject().getId()),
+          message);
+    }
+  }
+
+  /* see superclass */
+  @Override
+  public void refsetDescriptorRefsetMemberChanged(
+    RefsetDescriptorRefsetMember member, Action action) throws Exception {
+    // n/a
+  }
+
+  /* see superclass */
+  @Override
+  public void descriptionTypeRefsetMemberChanged(DescriptionType member,
+    Action action) throws Exception {
+    // n/a
+  }
+
+  /* see superclass */
+  @Override
+  public void conceptChanged(Concept concept, Action action) throws Exception {
+    if (!isActive()) {
+      return;
+    }
+    if (concept.getTranslation() != null) {
+      final Long id = concept.getTranslation().getId();
+      NotificationWebsocket.sendCoalesced(
+          NotificationWebsocket.getTopic(NotificationWebsocket.TRANSLATION, id),
+          NotificationWebsocket.getMessage(NotificationWebsocket.TRANSLATION,
+              id, "CONCEPTS_CHANGED"));
+    }
+  }
+
+  /* see superclass */
+  @Override
+  public void memberChanged(ConceptRefsetMember member, Action action)
+    throws Exception {
+    if (!isActive()) {
+      return;
+    }
+    if (member.getRefset() != null) {
+      final Long id = member.getRefset().getId();
+      NotificationWebsocket.sendCoalesced(
+          NotificationWebsocket.getTopic(NotificationWebsocket.REFSET, id),
+          NotificationWebsocket.getMessage(NotificationWebsocket.REFSET, id,
+              "MEMBERS_CHANGED"));
+    }
+  }
+
+  /**
+   * Indicates whether or not a websocket has been opened, i.e. whether there
+   * can be subscribers. Outside the web application (e.g. in mojos) there
+   * never are.
+   *
+   * @return <code>true</code> if so, <code>false</code> otherwise
+   */
+  private static boolean isActive() {
+    return RootServiceRestImpl.getNotificationWebsocket() != null;
+  }
+
+  /* see superclass */
+  @Override
+  public String getName() {
+    return "Websocket workflow listener";
+  }
 }
@@ -19,11 +19,20 @@ tsApp
       'releaseService',
       'workflowService',
       'validationService',
+      'websocketService',
       'appConfig',
       function($uibModal, $location, $window, $route, $routeParams, $sce, $interval, $timeout, utilService,
         securityService, projectService, refsetService, releaseService, workflowService,
-        validationService, appConfig) {
+        validationService, websocketService, appConfig) {
         console.debug('configure refsetTable directive');
+
+        // Definition clause size limits come from the app config (0 disables)
+        var exceedsDefinitionLimit = function(count, type, defaultLimit) {
+          var limit = appConfig['deploy.refset.definition.' + type + '.members'];
+          limit = limit ? parseInt(limit) : defaultLimit;
+          return limit > 0 && count >= limit;
+        };
+
         return {
           restrict : 'A',
           scope : {
@@ -57,6 +66,13 @@ tsApp
               $scope.lookupInterval = null;
               $scope.requiresNameLookup = false;
               $scope.project = null;
+              // Notifications of the project and selected refset
+              $scope.subscriptions = websocketService.getSubscriptions($scope);
+              // Lists changed by others, refreshed only when the user asks
+              $scope.changes = {
+                refsets : false,
+                members : false
+              };
               $scope.cancelling = null;
               $scope.showLatest = true;
               $scope.withNotesOnly = false;
@@ -164,6 +180,22 @@ tsApp
                 $scope.setProject(data);
               });
 
+              // Websocket notification handler
+              // Flag the members of the selected refset, or the refset list, as
+              // changed rather than reloading them for every notification
+              $scope.$on('refset:notification', function(event, data) {
+                if (data.type != 'refset') {
+                  return;
+                }
+                if (data.event == 'MEMBERS_CHANGED') {
+                  if ($scope.selected.refset && $scope.selected.refset.id == data.id) {
+                    $scope.changes.members = true;
+                  }
+                } else {
+                  $scope.changes.refsets = true;
+                }
+              });
+
               // link to error handling
               function handleError(errors, error) {
                 utilService.handleDialogError(errors, error);
@@ -197,6 +229,7 @@ tsApp
               // $scope.refsets
               $scope.setProject = function(project) {
                 $scope.project = project;
+                $scope.subscriptions.set('project', project ? project.id : null);
                 $scope.getRefsets();
                 $scope.getFilters();
                 // $scope.projects.role already updated
@@ -207,6 +240,7 @@ tsApp
               // Logic for this depends on the $scope.value and
               // $scope.projects.role
               $scope.getRefsets = function() {
+                $scope.changes.refsets = false;
                 if ($routeParams.clone === 'true') {
                   $scope.paging['refset'].sortField = 'lastModified';
                   $scope.paging['refset'].ascending = false;
@@ -475,6 +509,7 @@ tsApp
 
               // Get $scope.members
               $scope.getMembers = function(refset) {
+                $scope.changes.members = false;
 
                 var pfs = prepPfs();
                 var value = $scope.paging['member'].typeFilter;
@@ -680,6 +715,7 @@ tsApp
               // Looks up current release info and members.
               $scope.selectRefset = function(refset) {
                 $scope.selected.refset = refset;
+                $scope.subscriptions.set('refset', refset.id);
                 // remove stale selected concept to clear Concept Details pane
                 $scope.selected.concept = null;
                 $scope.selected.terminology = refset.terminology;
@@ -1432,11 +1468,11 @@ tsApp
                           // Success - count expression
                           function(data) {
                             var count = data;
-                            if (count >= 40000) { 
+                            if (exceedsDefinitionLimit(count, 'max', 40000)) { 
                               $scope.errors[0] = 'Submitted definition clause is invalid.  Definition clause resolves to '
                                 + count + ' members.  Refsets of this size are not allowed as they can lead to an inconsistent user experience.';
                               return;
-                            } else if (count >= 20000) {
+                            } else if (exceedsDefinitionLimit(count, 'warn', 20000)) {
                               $scope.warnings[$scope.newClauses[i].value] = 'Definition clause resolves to '
                                 + count + ' members.  Refsets of this size are discouraged and can lead to an inconsistent user experience.';
                               $scope.warningFlag = true;
@@ -1491,11 +1527,11 @@ tsApp
                               // Success - count expression
                               function(data) {
                                 var count = data;
-                                if (count >= 40000) {
+                                if (exceedsDefinitionLimit(count, 'max', 40000)) {
                                 	 $scope.errors[0] = 'Submitted definition clause is invalid.  Definition clause resolves to '
                                      + count + ' members.  Refsets of this size are not allowed as they can lead to an inconsistent user experience.';
                                      return;
-                                } else if (count >= 20000) {
+                                } else if (exceedsDefinitionLimit(count, 'warn', 20000)) {
                                   $scope.warnings[$scope.newClauses[i].value] = 'Definition clause resolves to '
                                     + count + ' members.  Refsets of this size are discouraged and can lead to an inconsistent user experience.';
                                   $scope.warningFlag = true;
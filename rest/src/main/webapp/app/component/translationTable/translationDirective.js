@@ -18,9 +18,10 @@ tsApp
       'releaseService',
       'workflowService',
       'validationService',
+      'websocketService',
       function($uibModal, $window, $route, $routeParams, $sce, $interval, utilService,
         securityService, projectService, translationService, refsetService, releaseService,
-        workflowService, validationService) {
+        workflowService, validationService, websocketService) {
         console.debug('configure translationTable directive');
         return {
           restrict : 'A',
@@ -53,6 +54,15 @@ tsApp
               $scope.lookupInterval = null;
               $scope.translationReleaseInfo = null;
               $scope.project = null;
+              // Notifications of the project and selected translation
+              $scope.subscriptions = websocketService.getSubscriptions($scope);
+              // Lists changed by others, refreshed only when the user asks
+              $scope.changes = {
+                translations : false,
+                concepts : false,
+                available : false,
+                assigned : false
+              };
               $scope.refsets = [];
               $scope.filters = [];
               $scope.showLatest = true;
@@ -130,6 +140,24 @@ tsApp
                 $scope.getFilters();
               });
 
+              // Websocket notification handler
+              // Flag the concepts of the selected translation, or the translation
+              // list, as changed rather than reloading them for every notification
+              $scope.$on('refset:notification', function(event, data) {
+                if (data.type != 'translation') {
+                  return;
+                }
+                if (data.event == 'CONCEPTS_CHANGED') {
+                  if ($scope.selected.translation && $scope.selected.translation.id == data.id) {
+                    $scope.changes.concepts = true;
+                    $scope.changes.available = true;
+                    $scope.changes.assigned = true;
+                  }
+                } else {
+                  $scope.changes.translations = true;
+                }
+              });
+
               // link to error handling
               function handleError(errors, error) {
                 utilService.handleDialogError(errors, error);
@@ -145,6 +173,7 @@ tsApp
               // $scope.refsets
               $scope.setProject = function(project) {
                 $scope.project = project;
+                $scope.subscriptions.set('project', project ? project.id : null);
                 $scope.getRefsets();
                 $scope.getTranslations();
               };
@@ -171,6 +200,7 @@ tsApp
 
               // Get $scope.translations
               $scope.getTranslations = function() {
+                $scope.changes.translations = false;
                 var pfs = {
                   startIndex : ($scope.paging['translation'].page - 1)
                     * $scope.paging['translation'].pageSize,
@@ -299,6 +329,7 @@ tsApp
 
               // Get $scope.selected.translation.concepts
               $scope.getConcepts = function(translation) {
+                $scope.changes.concepts = false;
 
                 var pfs = prepPfs();
 
@@ -339,6 +370,7 @@ tsApp
               }
               // Get $scope.selected.translation.available
               $scope.getAvailableConcepts = function(translation) {
+                $scope.changes.available = false;
                 if (!$scope.projects.role) {
                   return;
                 }
@@ -368,6 +400,7 @@ tsApp
 				// for
               // that entry
               $scope.getAssignedConcepts = function(translation, nextIndex) {
+                $scope.changes.assigned = false;
                 if (!$scope.projects.role) {
                   return;
                 }
@@ -537,6 +570,7 @@ tsApp
               // Looks up current release info and concepts.
               $scope.selectTranslation = function(translation) {
                 $scope.selected.translation = translation;
+                $scope.subscriptions.set('translation', translation.id);
                 $scope.selected.descriptionTypes = translation.descriptionTypes;
                 $scope.selected.terminology = translation.terminology;
                 $scope.selected.version = translation.version;
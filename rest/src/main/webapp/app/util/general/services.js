@@ -1022,13 +1022,18 @@ tsApp.service('tabService', ['$location', 'utilService', 'gpService', 'securityS
 
 // Websocket service
 
-tsApp.service('websocketService', ['$location', 'utilService', 'gpService',
-    function ($location, utilService, gpService) {
+tsApp.service('websocketService', ['$location', '$rootScope', 'utilService', 'gpService',
+    function ($location, $rootScope, utilService, gpService) {
         console.debug('configure websocketService');
+        var service = this;
         this.data = {
             message: null
         };
 
+        // Subscribed topics, e.g. 'refset:123', with the number of subscribers
+        // to each, (re)sent when the connection opens
+        this.topics = {};
+
         // Determine URL without requiring injection
         // should support wss for https
         // and assumes REST services and websocket are deployed together
@@ -1048,6 +1053,9 @@ tsApp.service('websocketService', ['$location', 'utilService', 'gpService',
         this.connection.onopen = function () {
             // Log so we know it is happening
             console.log('Connection open');
+            for (var topic in service.topics) {
+                service.connection.send('subscribe ' + topic);
+            }
         };
 
         this.connection.onclose = function () {
@@ -1061,10 +1069,69 @@ tsApp.service('websocketService', ['$location', 'utilService', 'gpService',
         };
 
         // handle receipt of a message
+        // topic notifications are broadcast as 'refset:notification'
         this.connection.onmessage = function (e) {
             var message = e.data;
             console.log('MESSAGE: ' + message);
-            // what else to do?
+            if (message && message.charAt(0) == '{') {
+                $rootScope.$broadcast('refset:notification', JSON.parse(message));
+            }
+        };
+
+        // Subscribe to notifications for a topic, e.g. ('refset', 123)
+        // The server is told only of the first subscriber to a topic
+        this.subscribe = function (type, id) {
+            var topic = type + ':' + id;
+            service.topics[topic] = (service.topics[topic] || 0) + 1;
+            if (service.topics[topic] == 1
+                && service.connection.readyState == WebSocket.OPEN) {
+                service.connection.send('subscribe ' + topic);
+            }
+        };
+
+        // Unsubscribe from notifications for a topic
+        // The server is told only once the last subscriber is gone
+        this.unsubscribe = function (type, id) {
+            var topic = type + ':' + id;
+            if (!service.topics[topic]) {
+                return;
+            }
+            service.topics[topic]--;
+            if (service.topics[topic] > 0) {
+                return;
+            }
+            delete service.topics[topic];
+            if (service.connection.readyState == WebSocket.OPEN) {
+                service.connection.send('unsubscribe ' + topic);
+            }
+        };
+
+        // Returns the subscriptions of a scope, one topic per type (e.g. the
+        // selected project and refset), released when the scope is destroyed
+        this.getSubscriptions = function (scope) {
+            var ids = {};
+            scope.$on('$destroy', function () {
+                for (var type in ids) {
+                    service.unsubscribe(type, ids[type]);
+                }
+            });
+            return {
+                // Subscribe to the topic for the type and id, replacing the
+                // topic subscribed to for the type before
+                set: function (type, id) {
+                    if (ids[type] == id) {
+                        return;
+                    }
+                    if (ids[type]) {
+                        service.unsubscribe(type, ids[type]);
+                        delete ids[type];
+                    }
+                    if (id) {
+                        ids[type] = id;
+                        service.subscribe(type, id);
+                    }
+                }
+            };
         };
 
         // Send a message to the websocket server endpoint
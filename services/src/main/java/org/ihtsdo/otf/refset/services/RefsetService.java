@@ -4,6 +4,7 @@
 package org.ihtsdo.otf.refset.services;
 
 import java.io.InputStream;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -166,6 +167,41 @@ public interface RefsetService extends ReleaseService {
   public ConceptRefsetMemberList findMembersForRefset(Long refsetId,
     String query, PfsParameter pfs, Boolean active) throws Exception;
 
+  /**
+   * Find members for refset. When the pfs sort field is "conceptName" and a
+   * language is specified, members are sorted by their display name in that
+   * language (see {@link #getDisplayNamesForMembers}) by the index, so only
+   * the requested page is loaded.
+   *
+   * @param refsetId the refset id
+   * @param query the query
+   * @param pfs the pfs
+   * @param active the active
+   * @param language the language refset id, e.g. 450828004, or "en"
+   * @param fsn the fsn
+   * @return the simple ref set member list
+   * @throws Exception the exception
+   */
+  public ConceptRefsetMemberList findMembersForRefset(Long refsetId,
+    String query, PfsParameter pfs, Boolean active, String language,
+    Boolean fsn) throws Exception;
+
+  /**
+   * Scroll members for refset. Matches the same members as
+   * findMembersForRefset, but loads them a page at a time as the result is
+   * iterated and clears the persistence context between pages, so memory use
+   * does not grow with the refset size. The members are read-only.
+   *
+   * @param refsetId the refset id
+   * @param query the query
+   * @param pfs the pfs
+   * @param active the active
+   * @return the members
+   * @throws Exception the exception
+   */
+  public Iterable<ConceptRefsetMember> scrollMembersForRefset(Long refsetId,
+    String query, PfsParameter pfs, Boolean active) throws Exception;
+
   /**
    * Returns the import refset handler.
    *
@@ -442,9 +478,10 @@ public interface RefsetService extends ReleaseService {
    * @param refset the refset
    * @param refsetCopy the refset copy
    * @return the old not new for migration
+   * @throws Exception the exception
    */
   public List<ConceptRefsetMember> getOldNotNewForMigration(Refset refset,
-    Refset refsetCopy);
+    Refset refsetCopy) throws Exception;
 
   /**
    * Launches thread to populate DB with name and active-status of refset
@@ -643,6 +680,20 @@ public interface RefsetService extends ReleaseService {
   public String getDisplayNameForMember(Long memberId, String language,
     Boolean fsn) throws Exception;
 
+  /**
+   * Returns the display names for members: the PT (or FSN) in the language,
+   * otherwise the US English PT. Members with neither are not in the map.
+   *
+   * @param memberIds the member ids
+   * @param language the language refset id
+   * @param fsn the fsn
+   * @return the display names by member id
+   * @throws Exception the exception
+   */
+  public Map<Long, String> getDisplayNamesForMembers(
+    Collection<Long> memberIds, String language, Boolean fsn)
+    throws Exception;
+
   /**
    * Creates the diff report.
    *
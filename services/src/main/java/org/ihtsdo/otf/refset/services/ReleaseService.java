@@ -3,9 +3,12 @@
  */
 package org.ihtsdo.otf.refset.services;
 
+import java.io.InputStream;
+
 import org.ihtsdo.otf.refset.ReleaseArtifact;
 import org.ihtsdo.otf.refset.ReleaseInfo;
 import org.ihtsdo.otf.refset.ValidationResult;
+import org.ihtsdo.otf.refset.services.handlers.ReleaseArtifactStore.ContentWriter;
 
 /**
  * Generically represents a service for accessing {@link ReleaseInfo}.
@@ -90,6 +93,47 @@ public interface ReleaseService extends ProjectService {
    */
   public ReleaseArtifact getReleaseArtifact(Long id) throws Exception;
 
+  /**
+   * Sets the release artifact data to the content written by the writer. The
+   * content goes to the release artifact store when one is configured and the
+   * checksum and size of the artifact are set; otherwise it is kept in the
+   * artifact itself.
+   *
+   * @param artifact the artifact
+   * @param writer the writer
+   * @throws Exception the exception
+   */
+  public void setReleaseArtifactData(ReleaseArtifact artifact,
+    ContentWriter writer) throws Exception;
+
+  /**
+   * Returns the release artifact data, starting at the specified offset. An
+   * artifact without data has an empty stream.
+   *
+   * @param artifact the artifact
+   * @param offset the offset
+   * @return the release artifact data
+   * @throws Exception the exception
+   */
+  public InputStream getReleaseArtifactData(ReleaseArtifact artifact,
+    long offset) throws Exception;
+
+  /**
+   * Moves the data of release artifacts still held in the database into the
+   * release artifact store, one artifact per transaction.
+   *
+   * @return the number of artifacts moved
+   * @throws Exception if no release artifact store is configured
+   */
+  public int moveReleaseArtifactDataToStore() throws Exception;
+
+  /**
+   * Indicates whether or not a release artifact store is configured.
+   *
+   * @return <code>true</code> if so, <code>false</code> otherwise
+   */
+  public boolean isReleaseArtifactStoreEnabled();
+
   /**
    * Start process.
    *
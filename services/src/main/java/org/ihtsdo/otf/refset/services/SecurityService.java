@@ -3,6 +3,10 @@
  */
 package org.ihtsdo.otf.refset.services;
 
+import java.util.Date;
+import java.util.List;
+
+import org.ihtsdo.otf.refset.AuthToken;
 import org.ihtsdo.otf.refset.User;
 import org.ihtsdo.otf.refset.UserPreferences;
 import org.ihtsdo.otf.refset.UserRole;
@@ -145,6 +149,59 @@ public interface SecurityService extends RootService {
    */
   public void updateUserPreferences(UserPreferences userPreferences);
 
+  /**
+   * Returns the auth token.
+   *
+   * @param token the token
+   * @return the auth token, or null if not found
+   * @throws Exception the exception
+   */
+  public AuthToken getAuthToken(String token) throws Exception;
+
+  /**
+   * Returns the auth tokens for a user.
+   *
+   * @param userName the user name
+   * @return the auth tokens
+   * @throws Exception the exception
+   */
+  public List<AuthToken> getAuthTokensForUser(String userName)
+    throws Exception;
+
+  /**
+   * Adds the auth token.
+   *
+   * @param authToken the auth token
+   * @return the auth token
+   * @throws Exception the exception
+   */
+  public AuthToken addAuthToken(AuthToken authToken) throws Exception;
+
+  /**
+   * Updates the auth token.
+   *
+   * @param authToken the auth token
+   * @throws Exception the exception
+   */
+  public void updateAuthToken(AuthToken authToken) throws Exception;
+
+  /**
+   * Removes the auth token.
+   *
+   * @param id the id
+   * @throws Exception the exception
+   */
+  public void removeAuthToken(Long id) throws Exception;
+
+  /**
+   * Removes the auth tokens that expired before the specified date.
+   *
+   * @param date the date
+   * @return the number of tokens removed
+   * @throws Exception the exception
+   */
+  public int removeExpiredAuthTokens(Date date) throws Exception;
+
   /**
    * Handle lazy init.
    *
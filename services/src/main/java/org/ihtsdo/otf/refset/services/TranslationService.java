@@ -105,6 +105,21 @@ public interface TranslationService extends RefsetService {
   public ConceptList findConceptsForTranslation(Long translationId,
     String query, PfsParameter pfs) throws Exception;
 
+  /**
+   * Scroll concepts for translation. Matches the same concepts as
+   * findConceptsForTranslation, but loads them a page at a time as the result
+   * is iterated and clears the persistence context between pages, so memory
+   * use does not grow with the translation size. The concepts are read-only.
+   *
+   * @param translationId the translation id
+   * @param query the query
+   * @param pfs the pfs
+   * @return the concepts
+   * @throws Exception the exception
+   */
+  public Iterable<Concept> scrollConceptsForTranslation(Long translationId,
+    String query, PfsParameter pfs) throws Exception;
+
   /**
    * Returns the import translation handler.
    *
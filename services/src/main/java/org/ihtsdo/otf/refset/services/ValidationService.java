@@ -3,6 +3,8 @@
  */
 package org.ihtsdo.otf.refset.services;
 
+import java.util.List;
+
 import org.ihtsdo.otf.refset.Project;
 import org.ihtsdo.otf.refset.Refset;
 import org.ihtsdo.otf.refset.Translation;
@@ -52,6 +54,32 @@ public interface ValidationService extends RootService {
   public ValidationResult validateMember(ConceptRefsetMember member,
     Project project, RefsetService service) throws Exception;
 
+  /**
+   * Validate concepts in bulk. The result includes the time spent in each
+   * check as comments.
+   *
+   * @param concepts the concepts
+   * @param project the project
+   * @param service the service
+   * @return the validation result
+   * @throws Exception the exception
+   */
+  public ValidationResult validateConcepts(List<Concept> concepts,
+    Project project, TranslationService service) throws Exception;
+
+  /**
+   * Validate members in bulk. The result includes the time spent in each check
+   * as comments.
+   *
+   * @param members the members
+   * @param project the project
+   * @param service the service
+   * @return the validation result
+   * @throws Exception the exception
+   */
+  public ValidationResult validateMembers(List<ConceptRefsetMember> members,
+    Project project, RefsetService service) throws Exception;
+
   /**
    * Validate refset.
    *
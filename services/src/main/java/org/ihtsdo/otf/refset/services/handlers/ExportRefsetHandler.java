@@ -4,6 +4,7 @@
 package org.ihtsdo.otf.refset.services.handlers;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 import org.ihtsdo.otf.refset.Refset;
@@ -68,6 +69,19 @@ public interface ExportRefsetHandler extends Configurable {
   public InputStream exportMembers(Refset refset,
     List<ConceptRefsetMember> members) throws Exception;
 
+  /**
+   * Export members by writing them directly to the output stream, so the file
+   * is never held in memory. The members may be loaded lazily as they are
+   * iterated. The output stream is flushed but not closed.
+   *
+   * @param refset the refset
+   * @param members the members
+   * @param out the output stream
+   * @throws Exception the exception
+   */
+  public void exportMembers(Refset refset,
+    Iterable<ConceptRefsetMember> members, OutputStream out) throws Exception;
+
   /**
    * Import definition.
    *
@@ -4,6 +4,7 @@
 package org.ihtsdo.otf.refset.services.handlers;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 import org.ihtsdo.otf.refset.Translation;
@@ -68,6 +69,20 @@ public interface ExportTranslationHandler extends Configurable {
   public InputStream exportConcepts(Translation translation,
     List<Concept> concepts) throws Exception;
 
+  /**
+   * Export descriptions and language refset members connected to them by
+   * writing them directly to the output stream, so the export is never held in
+   * memory. The concepts may be loaded lazily as they are iterated. The output
+   * stream is flushed but not closed.
+   *
+   * @param translation the translation
+   * @param concepts the concepts
+   * @param out the output stream
+   * @throws Exception the exception
+   */
+  public void exportConcepts(Translation translation,
+    Iterable<Concept> concepts, OutputStream out) throws Exception;
+
   /**
    * Export descriptions and languages. Needed to support Delta.
    * @param translation the translation
@@ -10,6 +10,7 @@ import java.util.List;
 
 import org.ihtsdo.otf.refset.MemoryEntry;
 import org.ihtsdo.otf.refset.helpers.Configurable;
+import org.ihtsdo.otf.refset.helpers.KeyValuesMap;
 import org.ihtsdo.otf.refset.helpers.StringList;
 import org.ihtsdo.otf.refset.services.TranslationService;
 
@@ -18,6 +19,21 @@ import org.ihtsdo.otf.refset.services.TranslationService;
  */
 public interface PhraseMemoryHandler extends Configurable {
 
+  /**
+   * How phrases are matched to phrase memory entry names.
+   */
+  public enum MatchType {
+
+    /** The name is the phrase, ignoring case. */
+    EXACT,
+
+    /** The name starts with the phrase, ignoring case. */
+    PREFIX,
+
+    /** The name is within a few edits of the phrase, ignoring case. */
+    FUZZY
+  }
+
   /**
    * Gets the entries as stream.
    *
@@ -49,4 +65,18 @@ public interface PhraseMemoryHandler extends Configurable {
   StringList suggestTranslation(String phrase, Long translationId,
     TranslationService translationService) throws Exception;
 
+  /**
+   * Suggest phrase memory for a batch of phrases.
+   *
+   * @param phrases the phrases
+   * @param matchType the match type
+   * @param translationId the translation id
+   * @param translationService the translation service
+   * @return the suggested translated names by phrase
+   * @throws Exception the exception
+   */
+  KeyValuesMap suggestBatchTranslation(List<String> phrases,
+    MatchType matchType, Long translationId,
+    TranslationService translationService) throws Exception;
+
 }
@@ -0,0 +1,67 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.services.handlers;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.ihtsdo.otf.refset.helpers.Configurable;
+
+/**
+ * Generically represents a store for release artifact content kept outside of
+ * the database. Content is addressed by its SHA-256 checksum, so identical
+ * artifacts (e.g. copied from one release info to the next) are stored once.
+ */
+public interface ReleaseArtifactStore extends Configurable {
+
+  /**
+   * Writes content to an output stream.
+   */
+  public interface ContentWriter {
+
+    /**
+     * Writes the content.
+     *
+     * @param out the output stream
+     * @throws Exception the exception
+     */
+    public void write(OutputStream out) throws Exception;
+  }
+
+  /**
+   * Stores the content written by the writer.
+   *
+   * @param writer the writer
+   * @return the checksum of the content, used to read it back
+   * @throws Exception the exception
+   */
+  public String store(ContentWriter writer) throws Exception;
+
+  /**
+   * Returns the content, starting at the specified offset.
+   *
+   * @param checksum the checksum
+   * @param offset the offset
+   * @return the content
+   * @throws Exception if the content does not exist
+   */
+  public InputStream getContent(String checksum, long offset) throws Exception;
+
+  /**
+   * Returns the size of the content.
+   *
+   * @param checksum the checksum
+   * @return the size, or -1 if the content does not exist
+   * @throws Exception the exception
+   */
+  public long getSize(String checksum) throws Exception;
+
+  /**
+   * Removes the content.
+   *
+   * @param checksum the checksum
+   * @throws Exception the exception
+   */
+  public void remove(String checksum) throws Exception;
+}
@@ -9,6 +9,7 @@ import java.util.List;
 
 import org.ihtsdo.otf.refset.Translation;
 import org.ihtsdo.otf.refset.helpers.Configurable;
+import org.ihtsdo.otf.refset.helpers.KeyValuesMap;
 import org.ihtsdo.otf.refset.helpers.StringList;
 
 /**
@@ -34,6 +35,22 @@ public interface SpellingCorrectionHandler extends Configurable {
    */
   public void reindex(List<String> entries, boolean merge) throws Exception;
 
+  /**
+   * Adds entries to the spell correction index, without rebuilding it.
+   *
+   * @param entries the entries
+   * @throws Exception the exception
+   */
+  public void addEntries(List<String> entries) throws Exception;
+
+  /**
+   * Removes entries from the spell correction index, without rebuilding it.
+   *
+   * @param entries the entries
+   * @throws Exception the exception
+   */
+  public void removeEntries(List<String> entries) throws Exception;
+
   /**
    * Returns a list of suggested spellings based on a given term. If term exists
    * in index, that item is not returned as part of suggested spelling.
@@ -54,6 +71,25 @@ public interface SpellingCorrectionHandler extends Configurable {
    */
   public boolean exists(String term) throws Exception;
 
+  /**
+   * Returns suggested spellings for each term of a batch that is longer than
+   * two characters and does not exist in the index.
+   *
+   * @param terms the terms
+   * @param amount the amount per term
+   * @return the suggested spellings by term
+   * @throws Exception the exception
+   */
+  public KeyValuesMap suggestBatchSpelling(List<String> terms, int amount)
+    throws Exception;
+
+  /**
+   * Closes the spell correction index.
+   *
+   * @throws Exception the exception
+   */
+  public void close() throws Exception;
+
   /**
    * Parses and returns a list of strings based on an InputStream passed in.
    *
@@ -0,0 +1,64 @@
+/*
+ *    Copyright 2019 West Coast Informatics, LLC
+ */
+package org.ihtsdo.otf.refset.services.handlers;
+
+import java.util.Date;
+import java.util.List;
+
+import org.ihtsdo.otf.refset.AuthToken;
+import org.ihtsdo.otf.refset.helpers.Configurable;
+
+/**
+ * Generically represents a store for the auth tokens issued at login. The
+ * store backs token validation, so a store shared across nodes lets a token
+ * issued by one node be honored by the others.
+ */
+public interface TokenStore extends Configurable {
+
+  /**
+   * Adds a token.
+   *
+   * @param token the token
+   * @param userName the user name
+   * @param expiration the expiration
+   * @throws Exception the exception
+   */
+  public void addToken(String token, String userName, Date expiration)
+    throws Exception;
+
+  /**
+   * Returns the token.
+   *
+   * @param token the token
+   * @return the token, or null if the token is unknown
+   * @throws Exception the exception
+   */
+  public AuthToken getToken(String token) throws Exception;
+
+  /**
+   * Sets the expiration of a token.
+   *
+   * @param token the token
+   * @param expiration the expiration
+   * @throws Exception the exception
+   */
+  public void setExpiration(String token, Date expiration) throws Exception;
+
+  /**
+   * Removes a token.
+   *
+   * @param token the token
+   * @throws Exception the exception
+   */
+  public void removeToken(String token) throws Exception;
+
+  /**
+   * Returns the tokens of a user.
+   *
+   * @param userName the user name
+   * @return the tokens
+   * @throws Exception the exception
+   */
+  public List<String> getTokensForUser(String userName) throws Exception;
+}
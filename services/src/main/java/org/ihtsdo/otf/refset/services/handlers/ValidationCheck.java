@@ -3,6 +3,8 @@
  */
 package org.ihtsdo.otf.refset.services.handlers;
 
+import java.util.List;
+
 import org.ihtsdo.otf.refset.Refset;
 import org.ihtsdo.otf.refset.Translation;
 import org.ihtsdo.otf.refset.ValidationResult;
@@ -18,6 +20,8 @@ import org.ihtsdo.otf.refset.services.TranslationService;
  * Implementations will be static state checks on the objects themselves,
  * determining whether a given state of the object is valid or not.
  * 
+ * Concepts and members can also be validated in chunks, so a check can use
+ * set lookups and single queries for the whole chunk.
  */
 public interface ValidationCheck extends Configurable {
 
@@ -65,4 +69,26 @@ public interface ValidationCheck extends Configurable {
   public ValidationResult validate(Refset refset, RefsetService service)
     throws Exception;
 
+  /**
+   * Validates a chunk of concepts at once.
+   *
+   * @param concepts the concepts
+   * @param service the service
+   * @return the validation result for all of the concepts
+   * @throws Exception the exception
+   */
+  public ValidationResult validateConcepts(List<Concept> concepts,
+    TranslationService service) throws Exception;
+
+  /**
+   * Validates a chunk of members at once.
+   *
+   * @param members the members
+   * @param service the service
+   * @return the validation result for all of the members
+   * @throws Exception the exception
+   */
+  public ValidationResult validateMembers(List<ConceptRefsetMember> members,
+    RefsetService service) throws Exception;
+
 }